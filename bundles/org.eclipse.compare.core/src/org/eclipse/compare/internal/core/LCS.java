@@ -95,7 +95,9 @@ public abstract class LCS {
 	}
 
 	private boolean isCappingDisabled() {
-		return ComparePlugin.getDefault().isCappingDisabled();
+		ComparePlugin plugin = ComparePlugin.getDefault();
+		// the plug-in is not started when the engine is used outside of OSGi
+		return plugin != null && plugin.isCappingDisabled();
 	}
 
 	/**
@@ -56,12 +56,20 @@ public class LineReader {
 	public static List<String> readLines(BufferedReader reader) {
 		List<String> lines;
 		LineReader lr= new LineReader(reader);
-		if (!Platform.WS_CARBON.equals(Platform.getWS()))
+		if (!isCarbon())
 			lr.ignoreSingleCR(); // Don't treat single CRs as line feeds to be consistent with command line patch
 		lines= lr.readLines();
 		return lines;
 	}
 
+	/*
+	 * The window system is only known when running in OSGi; the patch engine
+	 * is also used outside of it, e.g. by the benchmarks.
+	 */
+	static boolean isCarbon() {
+		return ComparePlugin.getDefault() != null && Platform.WS_CARBON.equals(Platform.getWS());
+	}
+
 	/*
 	 * Concatenates all strings found in the given List.
 	 */
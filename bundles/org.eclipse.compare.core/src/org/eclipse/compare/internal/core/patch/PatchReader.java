@@ -26,7 +26,6 @@ import org.eclipse.compare.patch.IFilePatch2;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
-import org.eclipse.core.runtime.Platform;
 
 import com.ibm.icu.text.DateFormat;
 import com.ibm.icu.text.SimpleDateFormat;
@@ -98,7 +97,7 @@ public class PatchReader {
 		this.fIsGitPatch = false;
 
 		LineReader lr= new LineReader(reader);
-		if (!Platform.WS_CARBON.equals(Platform.getWS()))
+		if (!LineReader.isCarbon())
 			lr.ignoreSingleCR(); // Don't treat single CRs as line feeds to be consistent with command line patch
 
 		// Test for our format
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.rangedifferencer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds blocks of entities that appear in a changed range of the left side and,
+ * unchanged, in a changed range of the right side.
+ * <p>
+ * Entities are given as interned ids, so that equal entities have equal ids.
+ * All windows of <code>minLength</code> entities within the changed ranges of
+ * the right side are indexed by a rolling hash. The changed ranges of the left
+ * side are then scanned with the same rolling hash; every hit is verified and
+ * extended as far as possible, and the longest extension is reported as a move.
+ * Entities are part of at most one move.
+ * </p>
+ * <p>
+ * At most <code>MAX_CANDIDATES</code> right positions are kept per hash, so
+ * that repetitive input does not make every left window verify every equal
+ * right window. A verification either stays below <code>minLength</code> or
+ * is paid for by skipping the moved block, which keeps the scan linear in the
+ * size of the changed ranges for a given <code>minLength</code>. The windows
+ * beyond the first <code>MAX_CANDIDATES</code> are never verified, even when
+ * one of them would give a longer move.
+ * </p>
+ */
+class MoveDetector {
+
+	private static final int PRIME= 1000003;
+	/* maximum number of right windows kept per hash */
+	private static final int MAX_CANDIDATES= 8;
+
+	private final int[] leftIds;
+	private final int[] rightIds;
+	private final int minLength;
+	/* index of the changed range containing a right entity, or -1 */
+	private final int[] rightRange;
+	private final boolean[] leftUsed;
+	private final boolean[] rightUsed;
+	/* PRIME^(minLength-1) for removing the first entity from the rolling hash */
+	private final int highFactor;
+
+	MoveDetector(int[] leftIds, int[] rightIds, int minLength) {
+		this.leftIds= leftIds;
+		this.rightIds= rightIds;
+		this.minLength= Math.max(1, minLength);
+		this.rightRange= new int[rightIds.length];
+		this.leftUsed= new boolean[leftIds.length];
+		this.rightUsed= new boolean[rightIds.length];
+		int f= 1;
+		for (int i= 1; i < this.minLength; i++)
+			f*= PRIME;
+		this.highFactor= f;
+	}
+
+	RangeDifference[] findMoves(AbstractRangeDifferenceFactory factory, RangeDifference[] differences) {
+		List leftRanges= new ArrayList();
+		List rightRanges= new ArrayList();
+		for (int i= 0; i < rightRange.length; i++)
+			rightRange[i]= -1;
+		for (int i= 0; i < differences.length; i++) {
+			RangeDifference d= differences[i];
+			if (d.kind() == RangeDifference.NOCHANGE || d.kind() == RangeDifference.MOVE)
+				continue;
+			if (d.leftLength() >= minLength && d.leftEnd() <= leftIds.length)
+				leftRanges.add(d);
+			if (d.rightLength() >= minLength && d.rightEnd() <= rightIds.length) {
+				mark(rightRange, d.rightStart(), d.rightEnd(), i);
+				rightRanges.add(d);
+			}
+		}
+
+		Map windows= indexRightWindows(rightRanges);
+		List moves= new ArrayList();
+		if (windows.isEmpty())
+			return new RangeDifference[0];
+
+		for (int r= 0; r < leftRanges.size(); r++) {
+			RangeDifference d= (RangeDifference) leftRanges.get(r);
+			int end= d.leftEnd();
+			int i= d.leftStart();
+			int hash= 0;
+			int hashed= 0; // number of entities in the current window
+			while (i + minLength <= end) {
+				if (hashed == 0) {
+					hash= hash(leftIds, i);
+					hashed= minLength;
+				}
+				int bestStart= -1;
+				int bestLength= 0;
+				int[] candidates= (int[]) windows.get(Integer.valueOf(hash));
+				if (candidates != null) {
+					for (int c= 1; c <= candidates[0]; c++) {
+						int j= candidates[c];
+						int length= matchLength(i, end, j);
+						if (length >= minLength && length > bestLength) {
+							bestStart= j;
+							bestLength= length;
+						}
+					}
+				}
+				if (bestLength > 0) {
+					for (int k= 0; k < bestLength; k++) {
+						leftUsed[i + k]= true;
+						rightUsed[bestStart + k]= true;
+					}
+					moves.add(factory.createRangeDifference(RangeDifference.MOVE, bestStart, bestLength, i, bestLength));
+					i+= bestLength;
+					hashed= 0;
+				} else {
+					if (i + minLength < end)
+						hash= (hash - leftIds[i] * highFactor) * PRIME + leftIds[i + minLength];
+					i++;
+				}
+			}
+		}
+		return (RangeDifference[]) moves.toArray(new RangeDifference[moves.size()]);
+	}
+
+	/*
+	 * Returns a map from the hash of every window of minLength entities within
+	 * a changed right range to the start positions of the first
+	 * MAX_CANDIDATES of these windows. The positions are stored as count
+	 * followed by the positions.
+	 */
+	private Map indexRightWindows(List rightRanges) {
+		Map windows= new HashMap();
+		for (int r= 0; r < rightRanges.size(); r++) {
+			RangeDifference d= (RangeDifference) rightRanges.get(r);
+			int start= d.rightStart();
+			int end= d.rightEnd();
+			int hash= hash(rightIds, start);
+			for (int j= start; j + minLength <= end; j++) {
+				if (j > start)
+					hash= (hash - rightIds[j - 1] * highFactor) * PRIME + rightIds[j + minLength - 1];
+				Integer key= Integer.valueOf(hash);
+				int[] positions= (int[]) windows.get(key);
+				if (positions == null) {
+					positions= new int[2];
+				} else if (positions[0] == MAX_CANDIDATES) {
+					continue;
+				} else if (positions[0] + 1 == positions.length) {
+					int[] grown= new int[positions.length * 2];
+					System.arraycopy(positions, 0, grown, 0, positions.length);
+					positions= grown;
+				}
+				positions[++positions[0]]= j;
+				windows.put(key, positions);
+			}
+		}
+		return windows;
+	}
+
+	/*
+	 * Returns the number of equal entities starting at left position i and
+	 * right position j, staying within the changed ranges.
+	 */
+	private int matchLength(int i, int leftEnd, int j) {
+		int range= rightRange[j];
+		int length= 0;
+		while (i + length < leftEnd && j + length < rightIds.length
+				&& rightRange[j + length] == range
+				&& !rightUsed[j + length] && !leftUsed[i + length]
+				&& leftIds[i + length] == rightIds[j + length]) {
+			length++;
+		}
+		return length;
+	}
+
+	private int hash(int[] ids, int start) {
+		int hash= 0;
+		for (int k= 0; k < minLength; k++)
+			hash= hash * PRIME + ids[start + k];
+		return hash;
+	}
+
+	private static void mark(int[] ranges, int start, int end, int index) {
+		for (int i= start; i < end; i++)
+			ranges[i]= index;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -56,6 +56,16 @@ public class RangeDifference {
 	/** Constant indicating an unknown change kind. */
 	public final static int ERROR = 5;
 
+	/**
+	 * Two-way change constant indicating that the entities of the left range
+	 * have been moved unchanged to the right range. Differences of this kind
+	 * are only returned by the <code>RangeDifferencer</code>
+	 * <code>findMoves</code> methods.
+	 *
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	public final static int MOVE = 6;
+
 	/**
 	 * the kind of change: NOCHANGE, CHANGE, LEFT, RIGHT, ANCESTOR, CONFLICT,
 	 * ERROR
@@ -161,7 +171,7 @@ public class RangeDifference {
 	 *
 	 * @return the kind of difference, one of
 	 * <code>NOCHANGE</code>, <code>CHANGE</code>, <code>LEFT</code>, <code>RIGHT</code>,
-	 * <code>ANCESTOR</code>, <code>CONFLICT</code>, <code>ERROR</code>
+	 * <code>ANCESTOR</code>, <code>CONFLICT</code>, <code>ERROR</code>, <code>MOVE</code>
 	 */
 	public int kind() {
 		return this.kind;
@@ -308,6 +318,9 @@ public class RangeDifference {
 		case ANCESTOR:
 			buf.append("ANCESTOR"); //$NON-NLS-1$
 			break;
+		case MOVE:
+			buf.append("MOVE"); //$NON-NLS-1$
+			break;
 		default:
 			break;
 		}
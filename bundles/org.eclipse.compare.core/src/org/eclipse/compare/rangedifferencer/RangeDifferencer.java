@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -394,6 +394,61 @@ public final class RangeDifferencer {
 		return (RangeDifference[]) out.toArray(EMPTY_RESULT);
 	}
 
+	/**
+	 * Finds blocks of entities that have been moved between the left and the
+	 * right side of a two-way comparison.
+	 * <p>
+	 * The differences found by <code>findDifferences</code> or
+	 * <code>findRanges</code> report a moved block as a change that removes it
+	 * on one side and a change that adds it on the other side. This method
+	 * looks for blocks of at least <code>minLength</code> entities that occur
+	 * in a changed range of the left side and, unchanged, in a changed range
+	 * of the right side. Each block is returned as a <code>RangeDifference</code>
+	 * of kind <code>MOVE</code> whose left and right ranges denote the two
+	 * locations of the block. The given differences are not modified.
+	 * </p>
+	 * <p>
+	 * Entities are passed as interned ids: two entities are considered equal
+	 * if and only if their ids are equal. This allows the blocks to be found
+	 * with a rolling hash. Only the first 8 windows of <code>minLength</code>
+	 * entities of the changed right ranges that have the same ids are
+	 * candidates for a move, so the time is linear in the size of the changed
+	 * ranges for a given <code>minLength</code>. If the start of a moved block
+	 * occurs more often on the right side, a later and longer occurrence is
+	 * not found and the move is reported with the length of the longest match
+	 * among the first 8 occurrences.
+	 * </p>
+	 *
+	 * @param leftIds the interned ids of the entities of the left side
+	 * @param rightIds the interned ids of the entities of the right side
+	 * @param differences the two-way differences between the left and the right side
+	 * @param minLength the minimum number of entities of a moved block
+	 * @return an array of <code>MOVE</code> differences ordered by their left
+	 *         start, or an empty array if no moves were found
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	public static RangeDifference[] findMoves(int[] leftIds, int[] rightIds, RangeDifference[] differences, int minLength) {
+		return findMoves(defaultFactory, leftIds, rightIds, differences, minLength);
+	}
+
+	/**
+	 * Finds blocks of entities that have been moved between the left and the
+	 * right side of a two-way comparison.
+	 *
+	 * @param factory
+	 * @param leftIds the interned ids of the entities of the left side
+	 * @param rightIds the interned ids of the entities of the right side
+	 * @param differences the two-way differences between the left and the right side
+	 * @param minLength the minimum number of entities of a moved block
+	 * @return an array of <code>MOVE</code> differences ordered by their left
+	 *         start, or an empty array if no moves were found
+	 * @see #findMoves(int[], int[], RangeDifference[], int)
+	 * @since org.eclipse.compare.core 3.7
+	 */
+	public static RangeDifference[] findMoves(AbstractRangeDifferenceFactory factory, int[] leftIds, int[] rightIds, RangeDifference[] differences, int minLength) {
+		return new MoveDetector(leftIds, rightIds, minLength).findMoves(factory, differences);
+	}
+
 	//---- private methods
 
 	/*
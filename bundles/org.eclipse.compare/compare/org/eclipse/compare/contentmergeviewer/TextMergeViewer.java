@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -4739,10 +4739,12 @@ public class TextMergeViewer extends ContentMergeViewer implements IAdaptable {
 			// now switch diffs
 			saveDiff();
 			fCurrentDiff= d;
+			fMerger.setCurrentDiff(d);
 			revealDiff(d, d.isToken());
 		} else {
 			saveDiff();
 			fCurrentDiff= d;
+			fMerger.setCurrentDiff(d);
 		}
 
 		updateControls();
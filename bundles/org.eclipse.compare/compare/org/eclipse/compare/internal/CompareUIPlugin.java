@@ -282,6 +282,7 @@ public final class CompareUIPlugin extends AbstractUIPlugin {
 			ps.removePropertyChangeListener(fPropertyChangeListener);
 			fPropertyChangeListener= null;
 		}
+		StructureCache.clear();
 
 		super.stop(context);
 
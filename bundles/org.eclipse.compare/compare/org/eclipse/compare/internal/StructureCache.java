@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.compare.IEditableContent;
+import org.eclipse.compare.IEncodedStreamContentAccessor;
+import org.eclipse.compare.IModificationDate;
+import org.eclipse.compare.IStreamContentAccessor;
+import org.eclipse.compare.ITypedElement;
+import org.eclipse.compare.contentmergeviewer.IDocumentRange;
+import org.eclipse.compare.structuremergeviewer.IStructureComparator;
+import org.eclipse.compare.structuremergeviewer.IStructureCreator;
+import org.eclipse.compare.structuremergeviewer.IStructureCreator2;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.ui.services.IDisposable;
+
+/**
+ * A cache of the structures created for read-only compare inputs, which lets
+ * structure diff viewers reuse the structure of an input seen before.
+ * <p>
+ * Structures are keyed by the structure creator and the identity of the input
+ * (type, charset, name and modification date). Only when that identity matches
+ * an entry are the contents of the input digested and compared to the digest
+ * of the entry, so inputs that miss the cache cost no extra read. The contents
+ * of an input are digested when its structure is cached, so that the entries
+ * hold the digests but not the inputs. A cached structure is leased to one
+ * viewer at a time, since its document carries the positions of the viewer
+ * showing it: a viewer asking for a structure in use by another viewer creates
+ * its own. Viewers hand a leased structure back with
+ * {@link #release(IStructureComparator)} instead of destroying it, and the
+ * cache destroys it once it has been evicted and is no longer leased.
+ * Structures based on a document are evicted as soon as the document is
+ * modified.
+ * </p>
+ * No API yet.
+ */
+public class StructureCache {
+
+	private static final int MAX_ENTRIES= 32;
+
+	private static final String DIGEST_ALGORITHM= "SHA-1"; //$NON-NLS-1$
+
+	/**
+	 * The key of a structure. The digest of the contents is only computed
+	 * when the key is compared to a cached key with the same identity or
+	 * when it is cached itself. The input is released once it has been
+	 * digested.
+	 */
+	public static final class Key {
+		final String fIdentity;
+		private IStreamContentAccessor fInput;
+		private String fDigest;
+
+		Key(String identity, IStreamContentAccessor input) {
+			fIdentity= identity;
+			fInput= input;
+		}
+
+		boolean matches(Key other) {
+			if (!fIdentity.equals(other.fIdentity))
+				return false;
+			String digest= getDigest();
+			return digest != null && digest.equals(other.getDigest());
+		}
+
+		synchronized String getDigest() {
+			if (fInput != null) {
+				fDigest= digest(fInput);
+				fInput= null;
+			}
+			return fDigest;
+		}
+	}
+
+	private static class Entry implements IDocumentListener {
+		final Key fKey;
+		final IStructureCreator fCreator;
+		final IStructureComparator fStructure;
+		IDocument fDocument;
+		boolean fLeased;
+		boolean fEvicted;
+
+		Entry(Key key, IStructureCreator creator, IStructureComparator structure) {
+			fKey= key;
+			fCreator= creator;
+			fStructure= structure;
+		}
+
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+			// nothing to do
+		}
+
+		@Override
+		public void documentChanged(DocumentEvent event) {
+			evict(this);
+		}
+	}
+
+	/* the cached entries, least recently used first */
+	private static final List<Entry> fgEntries= new ArrayList<>();
+	private static final Map<IStructureComparator, Entry> fgOwned= new IdentityHashMap<>();
+
+	private StructureCache() {
+		// no instances
+	}
+
+	/**
+	 * Returns the key under which the structure created by the given creator
+	 * for the given input is cached, or <code>null</code> if the structure
+	 * of the input must not be cached.
+	 * Only read-only inputs that provide their contents as a stream are cached.
+	 * The contents of the input are not read by this method.
+	 *
+	 * @param creator the structure creator
+	 * @param input the input of the structure creator
+	 * @return the cache key or <code>null</code>
+	 */
+	public static Key getKey(IStructureCreator creator, Object input) {
+		if (creator == null || !(input instanceof IStreamContentAccessor))
+			return null;
+		if (input instanceof IEditableContent && ((IEditableContent) input).isEditable())
+			return null;
+		StringBuilder identity= new StringBuilder(creator.getClass().getName());
+		identity.append('/');
+		if (input instanceof ITypedElement)
+			identity.append(((ITypedElement) input).getType());
+		identity.append('/');
+		if (input instanceof IEncodedStreamContentAccessor) {
+			try {
+				identity.append(((IEncodedStreamContentAccessor) input).getCharset());
+			} catch (CoreException e) {
+				return null;
+			}
+		}
+		identity.append('/');
+		if (input instanceof IModificationDate)
+			identity.append(((IModificationDate) input).getModificationDate());
+		identity.append('/');
+		if (input instanceof ITypedElement)
+			identity.append(((ITypedElement) input).getName());
+		return new Key(identity.toString(), (IStreamContentAccessor) input);
+	}
+
+	/**
+	 * Returns a structure cached under the given key that is not leased and
+	 * leases it to the caller, or returns <code>null</code> if there is none.
+	 *
+	 * @param key the cache key
+	 * @return the cached structure or <code>null</code>
+	 */
+	public static IStructureComparator acquire(Key key) {
+		digestCandidates(key);
+		synchronized (StructureCache.class) {
+			return acquireEntry(key);
+		}
+	}
+
+	private static IStructureComparator acquireEntry(Key key) {
+		for (int i= fgEntries.size() - 1; i >= 0; i--) {
+			Entry entry= fgEntries.get(i);
+			if (!entry.fLeased && entry.fKey.matches(key)) {
+				entry.fLeased= true;
+				fgEntries.remove(i);
+				fgEntries.add(entry);
+				return entry.fStructure;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Caches the given structure under the given key, replacing any cached
+	 * structure that is not leased. The caller holds the lease of the
+	 * structure. The structure is not cached if the contents of the input
+	 * cannot be read.
+	 *
+	 * @param key the cache key
+	 * @param creator the creator of the structure, used to destroy it
+	 * @param structure the structure
+	 */
+	public static void put(Key key, IStructureCreator creator, IStructureComparator structure) {
+		// the cached key must not hold on to the input
+		if (key.getDigest() == null)
+			return;
+		digestCandidates(key);
+		synchronized (StructureCache.class) {
+			putEntry(key, creator, structure);
+		}
+	}
+
+	private static void putEntry(Key key, IStructureCreator creator, IStructureComparator structure) {
+		if (fgOwned.containsKey(structure))
+			return;
+		for (int i= fgEntries.size() - 1; i >= 0; i--) {
+			Entry old= fgEntries.get(i);
+			if (!old.fLeased && old.fKey.matches(key))
+				evict(old);
+		}
+		Entry entry= new Entry(key, creator, structure);
+		entry.fLeased= true;
+		if (structure instanceof IDocumentRange) {
+			entry.fDocument= ((IDocumentRange) structure).getDocument();
+			if (entry.fDocument != null)
+				entry.fDocument.addDocumentListener(entry);
+		}
+		fgEntries.add(entry);
+		fgOwned.put(structure, entry);
+		while (fgEntries.size() > MAX_ENTRIES)
+			evict(fgEntries.get(0));
+	}
+
+	/**
+	 * Returns whether the given structure is owned by the cache.
+	 *
+	 * @param structure the structure
+	 * @return whether the given structure is owned by the cache
+	 */
+	public static synchronized boolean isCached(IStructureComparator structure) {
+		return structure != null && fgOwned.containsKey(structure);
+	}
+
+	/**
+	 * Ends the lease of the given structure. Returns <code>false</code> if
+	 * the structure is not owned by the cache, in which case the caller remains
+	 * responsible for destroying it.
+	 *
+	 * @param structure the structure
+	 * @return whether the structure is owned by the cache
+	 */
+	public static synchronized boolean release(IStructureComparator structure) {
+		Entry entry= structure != null ? fgOwned.get(structure) : null;
+		if (entry == null)
+			return false;
+		entry.fLeased= false;
+		if (entry.fEvicted)
+			destroy(entry);
+		return true;
+	}
+
+	/**
+	 * Evicts all structures, e.g. when the plug-in is stopped.
+	 */
+	public static synchronized void clear() {
+		Entry[] entries= fgEntries.toArray(new Entry[fgEntries.size()]);
+		for (int i= 0; i < entries.length; i++)
+			evict(entries[i]);
+	}
+
+	/*
+	 * Digests the contents of the given key and of the cached keys with the
+	 * same identity outside of the lock, since reading contents may block.
+	 */
+	private static void digestCandidates(Key key) {
+		List<Key> candidates= new ArrayList<>();
+		synchronized (StructureCache.class) {
+			for (Entry entry : fgEntries) {
+				if (entry.fKey.fIdentity.equals(key.fIdentity))
+					candidates.add(entry.fKey);
+			}
+		}
+		if (candidates.isEmpty())
+			return;
+		key.getDigest();
+		for (Key candidate : candidates)
+			candidate.getDigest();
+	}
+
+	private static synchronized void evict(Entry entry) {
+		if (entry.fEvicted)
+			return;
+		entry.fEvicted= true;
+		fgEntries.remove(entry);
+		if (entry.fDocument != null)
+			entry.fDocument.removeDocumentListener(entry);
+		if (!entry.fLeased)
+			destroy(entry);
+	}
+	private static void destroy(Entry entry) {
+		fgOwned.remove(entry.fStructure);
+		if (entry.fDocument != null) {
+			try {
+				entry.fDocument.removePositionCategory(IDocumentRange.RANGE_CATEGORY);
+			} catch (BadPositionCategoryException ex) {
+				// Ignore
+			}
+		}
+		if (entry.fCreator instanceof IStructureCreator2)
+			((IStructureCreator2) entry.fCreator).destroy(entry.fStructure);
+		else if (entry.fStructure instanceof IDisposable)
+			((IDisposable) entry.fStructure).dispose();
+	}
+
+	private static String digest(IStreamContentAccessor input) {
+		InputStream is= null;
+		try {
+			MessageDigest digest= MessageDigest.getInstance(DIGEST_ALGORITHM);
+			is= input.getContents();
+			if (is == null)
+				return null;
+			byte[] buffer= new byte[8192];
+			int read;
+			while ((read= is.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+			byte[] hash= digest.digest();
+			StringBuilder hex= new StringBuilder(hash.length * 2);
+			for (int i= 0; i < hash.length; i++) {
+				hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+				hex.append(Character.forDigit(hash[i] & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (CoreException | IOException | NoSuchAlgorithmException e) {
+			return null;
+		} finally {
+			Utilities.close(is);
+		}
+	}
+}
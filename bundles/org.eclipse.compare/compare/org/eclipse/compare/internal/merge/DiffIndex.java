@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.internal.merge;
+
+import java.util.List;
+
+import org.eclipse.compare.internal.MergeViewerContentProvider;
+import org.eclipse.compare.internal.merge.DocumentMerger.Diff;
+import org.eclipse.jface.text.*;
+
+/**
+ * Index over the diffs of a {@link DocumentMerger} that answers position
+ * lookups in logarithmic time.
+ * <p>
+ * The diffs of a merger are kept in document order for every contributor, so
+ * character offsets are looked up by binary search on the live positions of the
+ * diffs. The line heights of the diffs are kept in one prefix sum tree per
+ * contributor plus one for the virtual (synchronized) height. Since line
+ * heights are not updated by the documents, the heights are tagged with the
+ * modification stamps of the documents they were computed from.
+ */
+class DiffIndex {
+
+	private static final char[] CONTRIBUTORS= {
+		MergeViewerContentProvider.ANCESTOR_CONTRIBUTOR,
+		MergeViewerContentProvider.LEFT_CONTRIBUTOR,
+		MergeViewerContentProvider.RIGHT_CONTRIBUTOR
+	};
+	private static final int VIRTUAL= CONTRIBUTORS.length;
+
+	private final List<Diff> fDiffs;
+	private final PrefixSumTree[] fHeights;
+	private final IDocument[] fDocuments;
+	private final long[] fStamps;
+
+	DiffIndex(List<Diff> diffs, IDocument[] documents) {
+		fDiffs= diffs;
+		fDocuments= documents;
+		fStamps= new long[CONTRIBUTORS.length];
+		fHeights= new PrefixSumTree[CONTRIBUTORS.length + 1];
+		int n= diffs.size();
+		int[][] heights= new int[CONTRIBUTORS.length + 1][n];
+		for (int i= 0; i < n; i++) {
+			Diff diff= diffs.get(i);
+			heights[0][i]= diff.getAncestorHeight();
+			heights[1][i]= diff.getLeftHeight();
+			heights[2][i]= diff.getRightHeight();
+			heights[VIRTUAL][i]= diff.getMaxDiffHeight();
+		}
+		for (int i= 0; i < fHeights.length; i++)
+			fHeights[i]= new PrefixSumTree(heights[i]);
+		updateStamps();
+	}
+
+	/*
+	 * Returns true if none of the documents has been modified since the
+	 * line heights have been computed.
+	 */
+	boolean isCurrent() {
+		for (int i= 0; i < fDocuments.length; i++) {
+			long stamp= getModificationStamp(fDocuments[i]);
+			if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP || stamp != fStamps[i])
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Recomputes the line heights of the given diff after it has been copied
+	 * and accepts the current state of the documents.
+	 */
+	void diffChanged(Diff diff) {
+		int index= indexOf(diff);
+		if (index >= 0) {
+			fHeights[0].set(index, diff.getAncestorHeight());
+			fHeights[1].set(index, diff.getLeftHeight());
+			fHeights[2].set(index, diff.getRightHeight());
+			fHeights[VIRTUAL].set(index, diff.getMaxDiffHeight());
+		}
+		updateStamps();
+	}
+
+	/*
+	 * Returns the index of the given diff, which is looked up by binary search
+	 * on its left position. Only diffs whose left ranges start at the same
+	 * offset are compared one by one.
+	 */
+	private int indexOf(Diff diff) {
+		char contributor= MergeViewerContentProvider.LEFT_CONTRIBUTOR;
+		Position p= diff.getPosition(contributor);
+		if (p == null || p.isDeleted())
+			return fDiffs.indexOf(diff);
+		int offset= p.getOffset();
+		for (int i= firstEndingAtOrAfter(fDiffs, contributor, offset); i < fDiffs.size(); i++) {
+			Diff d= fDiffs.get(i);
+			if (d == diff)
+				return i;
+			Position q= d.getPosition(contributor);
+			if (q == null || q.getOffset() > offset)
+				break;
+		}
+		return -1;
+	}
+
+	int getHeight(char contributor) {
+		return fHeights[slot(contributor)].total();
+	}
+
+	int getVirtualHeight() {
+		return fHeights[VIRTUAL].total();
+	}
+
+	/*
+	 * See DocumentMerger.realToVirtualPosition(char, int).
+	 */
+	int realToVirtualPosition(char contributor, int vpos) {
+		PrefixSumTree real= fHeights[slot(contributor)];
+		PrefixSumTree virtual= fHeights[VIRTUAL];
+		// first diff whose real range ends at or after vpos
+		int i= real.countBelow(vpos);
+		if (i >= fDiffs.size())
+			return virtual.total();
+		int viewPos= real.sum(i);
+		int realHeight= real.get(i);
+		int virtualHeight= virtual.get(i);
+		vpos-= viewPos;
+		if (realHeight <= 0)
+			vpos= 0;
+		else
+			vpos= (vpos*virtualHeight)/realHeight;
+		return virtual.sum(i)+vpos;
+	}
+
+	/*
+	 * See DocumentMerger.virtualToRealPosition(char, int).
+	 */
+	int virtualToRealPosition(char contributor, int v) {
+		PrefixSumTree real= fHeights[slot(contributor)];
+		PrefixSumTree virtual= fHeights[VIRTUAL];
+		// first diff whose virtual range ends after v
+		int i= virtual.countAtOrBelow(v);
+		if (i >= fDiffs.size())
+			return real.total();
+		int virtualPos= virtual.sum(i);
+		int viewHeight= real.get(i);
+		int virtualHeight= virtual.get(i);
+		v-= virtualPos;
+		if (viewHeight <= 0)
+			v= 0;
+		else
+			v= (int) (v * ((double)viewHeight/virtualHeight));
+		return real.sum(i)+v;
+	}
+
+	/*
+	 * Returns the index of the first diff in the given list whose range in
+	 * the given contributor ends at or after the given offset.
+	 */
+	static int firstEndingAtOrAfter(List<Diff> diffs, char contributor, int offset) {
+		int low= 0;
+		int high= diffs.size();
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			Position p= diffs.get(mid).getPosition(contributor);
+			if (p == null)
+				return 0;
+			if (p.getOffset() + p.getLength() < offset)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low;
+	}
+
+	/*
+	 * Returns the index of the last diff in the given list whose range in
+	 * the given contributor starts at or before the given offset.
+	 */
+	static int lastStartingAtOrBefore(List<Diff> diffs, char contributor, int offset) {
+		int low= 0;
+		int high= diffs.size();
+		while (low < high) {
+			int mid= (low + high) >>> 1;
+			Position p= diffs.get(mid).getPosition(contributor);
+			if (p == null)
+				return diffs.size() - 1;
+			if (p.getOffset() <= offset)
+				low= mid + 1;
+			else
+				high= mid;
+		}
+		return low - 1;
+	}
+
+	private void updateStamps() {
+		for (int i= 0; i < fDocuments.length; i++)
+			fStamps[i]= getModificationStamp(fDocuments[i]);
+	}
+
+	private static long getModificationStamp(IDocument document) {
+		if (document == null)
+			return 0;
+		if (document instanceof IDocumentExtension4)
+			return ((IDocumentExtension4) document).getModificationStamp();
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	private static int slot(char contributor) {
+		for (int i= 0; i < CONTRIBUTORS.length; i++) {
+			if (CONTRIBUTORS[i] == contributor)
+				return i;
+		}
+		throw new IllegalArgumentException(String.valueOf(contributor));
+	}
+
+	/*
+	 * A Fenwick tree over non-negative values.
+	 */
+	private static class PrefixSumTree {
+
+		private final int[] fValues;
+		private final int[] fTree;
+		private final int fHighBit;
+
+		PrefixSumTree(int[] values) {
+			fValues= values;
+			int n= values.length;
+			fTree= new int[n + 1];
+			for (int i= 1; i <= n; i++) {
+				fTree[i]+= values[i - 1];
+				int parent= i + (i & -i);
+				if (parent <= n)
+					fTree[parent]+= fTree[i];
+			}
+			fHighBit= n == 0 ? 0 : Integer.highestOneBit(n);
+		}
+
+		int get(int index) {
+			return fValues[index];
+		}
+
+		void set(int index, int value) {
+			int delta= value - fValues[index];
+			fValues[index]= value;
+			for (int i= index + 1; i < fTree.length; i+= i & -i)
+				fTree[i]+= delta;
+		}
+
+		/*
+		 * Returns the sum of the values before the given index.
+		 */
+		int sum(int index) {
+			int sum= 0;
+			for (int i= index; i > 0; i-= i & -i)
+				sum+= fTree[i];
+			return sum;
+		}
+
+		int total() {
+			return sum(fValues.length);
+		}
+
+		/*
+		 * Returns the largest count of leading values whose sum is below the given value.
+		 */
+		int countBelow(int value) {
+			int pos= 0;
+			int remaining= value;
+			for (int step= fHighBit; step > 0; step>>= 1) {
+				int next= pos + step;
+				if (next < fTree.length && fTree[next] < remaining) {
+					pos= next;
+					remaining-= fTree[next];
+				}
+			}
+			return pos;
+		}
+
+		/*
+		 * Returns the largest count of leading values whose sum is at most the given value.
+		 */
+		int countAtOrBelow(int value) {
+			int pos= 0;
+			int remaining= value;
+			for (int step= fHighBit; step > 0; step>>= 1) {
+				int next= pos + step;
+				if (next < fTree.length && fTree[next] <= remaining) {
+					pos= next;
+					remaining-= fTree[next];
+				}
+			}
+			return pos;
+		}
+	}
+}
@@ -45,10 +45,21 @@ public class DocumentMerger {
 	/** if true copying conflicts from one side to other concatenates both sides */
 	private static final boolean APPEND_CONFLICT= true;
 
+	/** Maximum number of line diffs whose token diffs are kept at the same time */
+	private static final int TOKEN_DIFF_CACHE_SIZE= 512;
+
 	/** All diffs for calculating scrolling position (includes line ranges without changes) */
 	private ArrayList<Diff> fAllDiffs;
 	/** Subset of above: just real differences. */
 	private ArrayList<Diff> fChangeDiffs;
+	/** Line diffs whose token diffs are currently computed, in least recently used order */
+	private LinkedHashMap<Diff, Diff> fTokenDiffCache;
+	/** The diff selected in the viewer, whose token diffs must not be released */
+	private Diff fCurrentDiff;
+	/** The regions last painted per contributor, whose token diffs must not be released */
+	private Map<Character, IRegion> fDisplayedRegions= new HashMap<>();
+	/** Line height index over fAllDiffs, built on demand */
+	private DiffIndex fIndex;
 
 	private IDocumentMergerInput fInput;
 
@@ -95,6 +106,8 @@ public class DocumentMerger {
 		boolean fIsToken= false;
 		/** child token diffs */
 		List<Diff> fDiffs;
+		/** if true the child token diffs have not been computed yet */
+		boolean fTokenDiffPending= false;
 		boolean fIsWhitespace= false;
 
 		/*
@@ -212,8 +225,47 @@ public class DocumentMerger {
 
 		void setResolved(boolean r) {
 			fResolved= r;
-			if (r)
+			if (r) {
 				fDiffs= null;
+				fTokenDiffPending= false;
+				if (fTokenDiffCache != null)
+					fTokenDiffCache.remove(this);
+			}
+		}
+
+		/*
+		 * Computes the child token diffs if this has not been done yet,
+		 * or marks them as recently used otherwise.
+		 */
+		private void ensureTokenDiffs() {
+			if (fTokenDiffPending) {
+				fTokenDiffPending= false;
+				computeTokenDiffs(this);
+			} else if (fDiffs != null && fTokenDiffCache != null) {
+				fTokenDiffCache.get(this);
+			}
+		}
+
+		/*
+		 * Drops the child token diffs so that they are computed again on next access.
+		 * Token diffs that have been resolved individually are kept.
+		 */
+		void releaseTokenDiffs() {
+			if (fDiffs == null)
+				return;
+			for (Iterator<Diff> iterator = fDiffs.iterator(); iterator.hasNext();) {
+				Diff d = iterator.next();
+				if (d.fResolved)
+					return;
+			}
+			for (Iterator<Diff> iterator = fDiffs.iterator(); iterator.hasNext();) {
+				Diff d = iterator.next();
+				removePosition(MergeViewerContentProvider.ANCESTOR_CONTRIBUTOR, d.fAncestorPos);
+				removePosition(MergeViewerContentProvider.LEFT_CONTRIBUTOR, d.fLeftPos);
+				removePosition(MergeViewerContentProvider.RIGHT_CONTRIBUTOR, d.fRightPos);
+			}
+			fDiffs= null;
+			fTokenDiffPending= true;
 		}
 
 		public boolean isResolved() {
@@ -279,7 +331,10 @@ public class DocumentMerger {
 		}
 
 		public Diff[] getChangeDiffs(int contributor, IRegion region) {
-			if (fDiffs != null && intersectsRegion(contributor, region)) {
+			if ((fDiffs != null || fTokenDiffPending) && intersectsRegion(contributor, region)) {
+				ensureTokenDiffs();
+				if (fDiffs == null)
+					return new Diff[0];
 				List<Diff> result = new ArrayList<>();
 				for (Iterator<Diff> iterator = fDiffs.iterator(); iterator.hasNext();) {
 					Diff diff = iterator.next();
@@ -300,6 +355,7 @@ public class DocumentMerger {
 		}
 
 		public boolean hasChildren() {
+			ensureTokenDiffs();
 			return fDiffs != null && !fDiffs.isEmpty();
 		}
 
@@ -316,6 +372,7 @@ public class DocumentMerger {
 		}
 
 		public Iterator<Diff> childIterator() {
+			ensureTokenDiffs();
 			if (fDiffs == null)
 				return new ArrayList<Diff>().iterator();
 			return fDiffs.iterator();
@@ -334,6 +391,10 @@ public class DocumentMerger {
 	public void doDiff() throws CoreException {
 
 		fChangeDiffs= new ArrayList<>();
+		fTokenDiffCache= createTokenDiffCache();
+		fCurrentDiff= null;
+		fDisplayedRegions.clear();
+		fIndex= null;
 		IDocument lDoc = getDocument(MergeViewerContentProvider.LEFT_CONTRIBUTOR);
 		IDocument rDoc = getDocument(MergeViewerContentProvider.RIGHT_CONTRIBUTOR);
 
@@ -467,37 +528,33 @@ public class DocumentMerger {
 			} else {
 				if (ignoreWhiteSpace || useChange(es.kind())) {
 
-					// Extract the string for each contributor.
-					String a= null;
-					if (sancestor != null)
-						a= extract2(aDoc, sancestor, es.ancestorStart(), es.ancestorLength());
-					String s= extract2(lDoc, sleft, es.leftStart(), es.leftLength());
-					String d= extract2(rDoc, sright, es.rightStart(), es.rightLength());
-
 					// Indicate whether all contributors are whitespace
-					if (ignoreWhiteSpace
-							&& (a == null || a.trim().length() == 0)
-							&& s.trim().length() == 0
-							&& d.trim().length() == 0) {
-						diff.fIsWhitespace= true;
+					if (ignoreWhiteSpace) {
+						// Extract the string for each contributor.
+						String a= null;
+						if (sancestor != null)
+							a= extract2(aDoc, sancestor, es.ancestorStart(), es.ancestorLength());
+						String s= extract2(lDoc, sleft, es.leftStart(), es.leftLength());
+						String d= extract2(rDoc, sright, es.rightStart(), es.rightLength());
+						if ((a == null || a.trim().length() == 0)
+								&& s.trim().length() == 0
+								&& d.trim().length() == 0) {
+							diff.fIsWhitespace= true;
+						}
 					}
 
-					// If the diff is of interest, record it and generate the token diffs
+					// If the diff is of interest, record it. The token diffs are
+					// only generated once the diff is shown or navigated to.
 					if (useChange(diff)) {
 						recordChangeDiff(diff);
-						if (s.length() > 0 && d.length() > 0) {
-							if (a == null && sancestor != null)
-								a= extract2(aDoc, sancestor, es.ancestorStart(), es.ancestorLength());
-							if (USE_MERGING_TOKEN_DIFF)
-								mergingTokenDiff(diff, aDoc, a, rDoc, d, lDoc, s);
-							else
-								simpleTokenDiff(diff, aDoc, a, rDoc, d, lDoc, s);
-						}
+						if (es.leftLength() > 0 && es.rightLength() > 0)
+							diff.fTokenDiffPending= true;
 					}
 				}
 			}
 		}
 		fAllDiffs = newAllDiffs;
+		fIndex= null;
 	}
 
 	private boolean isCapped(DocLineComparator ancestor,
@@ -881,6 +938,96 @@ public class DocumentMerger {
 		}
 	}
 
+	/*
+	 * Performs the token diff of the given line diff on the current contents
+	 * of its ranges and remembers the line diff in the token diff cache.
+	 */
+	private void computeTokenDiffs(Diff baseDiff) {
+		IDocument lDoc= getDocument(MergeViewerContentProvider.LEFT_CONTRIBUTOR);
+		IDocument rDoc= getDocument(MergeViewerContentProvider.RIGHT_CONTRIBUTOR);
+		if (lDoc == null || rDoc == null || baseDiff.isDeleted())
+			return;
+		IDocument aDoc= null;
+		String a= null;
+		if (baseDiff.fAncestorPos != null) {
+			aDoc= getDocument(MergeViewerContentProvider.ANCESTOR_CONTRIBUTOR);
+			if (aDoc != null)
+				a= extract(aDoc, baseDiff.fAncestorPos);
+		}
+		String s= extract(lDoc, baseDiff.fLeftPos);
+		String d= extract(rDoc, baseDiff.fRightPos);
+		if (s.length() == 0 || d.length() == 0)
+			return;
+		if (USE_MERGING_TOKEN_DIFF)
+			mergingTokenDiff(baseDiff, aDoc, a, rDoc, d, lDoc, s);
+		else
+			simpleTokenDiff(baseDiff, aDoc, a, rDoc, d, lDoc, s);
+		if (baseDiff.fDiffs != null && fTokenDiffCache != null) {
+			fTokenDiffCache.put(baseDiff, baseDiff);
+			trimTokenDiffCache();
+		}
+	}
+
+	/*
+	 * Releases the token diffs of the least recently used line diffs until the
+	 * cache fits its size. The token diffs of the diffs that are displayed are
+	 * kept, since the viewer may hold on to them.
+	 */
+	private void trimTokenDiffCache() {
+		Iterator<Diff> iterator= fTokenDiffCache.keySet().iterator();
+		while (fTokenDiffCache.size() > TOKEN_DIFF_CACHE_SIZE && iterator.hasNext()) {
+			Diff diff= iterator.next();
+			if (!isDisplayed(diff)) {
+				iterator.remove();
+				diff.releaseTokenDiffs();
+			}
+		}
+	}
+
+	private boolean isDisplayed(Diff diff) {
+		if (fCurrentDiff != null && (fCurrentDiff == diff || fCurrentDiff.fParent == diff))
+			return true;
+		for (Iterator<Map.Entry<Character, IRegion>> iterator= fDisplayedRegions.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry<Character, IRegion> entry= iterator.next();
+			if (diff.intersectsRegion(entry.getKey().charValue(), entry.getValue()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tells the merger which diff is selected in the viewer, so that its
+	 * token diffs are kept while it is selected.
+	 * @param diff the selected diff or <code>null</code>
+	 */
+	public void setCurrentDiff(Diff diff) {
+		fCurrentDiff= diff;
+	}
+
+	private static String extract(IDocument doc, Position p) {
+		try {
+			return doc.get(p.getOffset(), p.getLength());
+		} catch (BadLocationException e) {
+			// silently ignored
+		}
+		return ""; //$NON-NLS-1$
+	}
+
+	private void removePosition(char contributor, Position p) {
+		IDocument doc= getDocument(contributor);
+		if (doc == null || p == null)
+			return;
+		try {
+			doc.removePosition(DIFF_RANGE_CATEGORY, p);
+		} catch (BadPositionCategoryException e) {
+			// silently ignored
+		}
+	}
+
+	private static LinkedHashMap<Diff, Diff> createTokenDiffCache() {
+		return new LinkedHashMap<>(16, 0.75f, true);
+	}
+
 	private ITokenComparator createTokenComparator(String s) {
 		return fInput.createTokenComparator(s);
 	}
@@ -956,7 +1103,9 @@ public class DocumentMerger {
 	}
 
     public Diff findDiff(Position p, boolean left) {
-		for (Iterator<Diff> iterator = fAllDiffs.iterator(); iterator.hasNext();) {
+		char contributor= left ? MergeViewerContentProvider.LEFT_CONTRIBUTOR : MergeViewerContentProvider.RIGHT_CONTRIBUTOR;
+		int first= DiffIndex.firstEndingAtOrAfter(fAllDiffs, contributor, p.offset);
+		for (Iterator<Diff> iterator = fAllDiffs.listIterator(first); iterator.hasNext();) {
 			Diff diff = iterator.next();
 			Position diffPos;
 			if (left) {
@@ -977,6 +1126,25 @@ public class DocumentMerger {
 	public void reset() {
 		fChangeDiffs= null;
 		fAllDiffs= null;
+		fTokenDiffCache= null;
+		fCurrentDiff= null;
+		fDisplayedRegions.clear();
+		fIndex= null;
+	}
+
+	/*
+	 * Returns the line height index over all diffs, rebuilding it if one
+	 * of the documents has been modified since it was built.
+	 */
+	private DiffIndex getIndex() {
+		if (fIndex == null || !fIndex.isCurrent()) {
+			fIndex= new DiffIndex(fAllDiffs, new IDocument[] {
+				getDocument(MergeViewerContentProvider.ANCESTOR_CONTRIBUTOR),
+				getDocument(MergeViewerContentProvider.LEFT_CONTRIBUTOR),
+				getDocument(MergeViewerContentProvider.RIGHT_CONTRIBUTOR)
+			});
+		}
+		return fIndex;
 	}
 
 	/**
@@ -990,30 +1158,7 @@ public class DocumentMerger {
 		if (fAllDiffs == null)
 			return vpos;
 
-		int viewPos= 0;		// real view position
-		int virtualPos= 0;	// virtual position
-		Point region= new Point(0, 0);
-
-		Iterator<Diff> e= fAllDiffs.iterator();
-		while (e.hasNext()) {
-			Diff diff= e.next();
-			Position pos= diff.getPosition(contributor);
-			getLineRange(getDocument(contributor),pos, region);
-			int realHeight= region.y;
-			int virtualHeight= diff.getMaxDiffHeight();
-			if (vpos <= viewPos + realHeight) {	// OK, found!
-				vpos-= viewPos;	// make relative to this slot
-				// now scale position within this slot to virtual slot
-				if (realHeight <= 0)
-					vpos= 0;
-				else
-					vpos= (vpos*virtualHeight)/realHeight;
-				return virtualPos+vpos;
-			}
-			viewPos+= realHeight;
-			virtualPos+= virtualHeight;
-		}
-		return virtualPos;
+		return getIndex().realToVirtualPosition(contributor, vpos);
 	}
 
 	/**
@@ -1027,29 +1172,7 @@ public class DocumentMerger {
 		if (fAllDiffs == null)
 			return v;
 
-		int virtualPos= 0;
-		int viewPos= 0;
-		Point region= new Point(0, 0);
-
-		Iterator<Diff> e= fAllDiffs.iterator();
-		while (e.hasNext()) {
-			Diff diff= e.next();
-			Position pos= diff.getPosition(contributor);
-			int viewHeight= getLineRange(getDocument(contributor), pos, region).y;
-			int virtualHeight= diff.getMaxDiffHeight();
-			if (v < (virtualPos + virtualHeight)) {
-				v-= virtualPos;		// make relative to this slot
-				if (viewHeight <= 0) {
-					v= 0;
-				} else {
-					v= (int) (v * ((double)viewHeight/virtualHeight));
-				}
-				return viewPos+v;
-			}
-			virtualPos+= virtualHeight;
-			viewPos+= viewHeight;
-		}
-		return viewPos;
+		return getIndex().virtualToRealPosition(contributor, v);
 	}
 
 	/*
@@ -1057,13 +1180,8 @@ public class DocumentMerger {
 	 */
 	public int getVirtualHeight() {
 		int h= 1;
-		if (fAllDiffs != null) {
-			Iterator<Diff> e= fAllDiffs.iterator();
-			while (e.hasNext()) {
-				Diff diff= e.next();
-				h+= diff.getMaxDiffHeight();
-			}
-		}
+		if (fAllDiffs != null)
+			h+= getIndex().getVirtualHeight();
 		return h;
 	}
 
@@ -1072,13 +1190,8 @@ public class DocumentMerger {
 	 */
 	public int getRightHeight() {
 		int h= 1;
-		if (fAllDiffs != null) {
-			Iterator<Diff> e= fAllDiffs.iterator();
-			while (e.hasNext()) {
-				Diff diff= e.next();
-				h+= diff.getRightHeight();
-			}
-		}
+		if (fAllDiffs != null)
+			h+= getIndex().getHeight(MergeViewerContentProvider.RIGHT_CONTRIBUTOR);
 		return h;
 	}
 
@@ -1105,9 +1218,15 @@ public class DocumentMerger {
 	public Diff[] getChangeDiffs(char contributor, IRegion region) {
 		if (fChangeDiffs == null)
 			return new Diff[0];
+		fDisplayedRegions.put(Character.valueOf(contributor), region);
 		List<Diff> intersectingDiffs = new ArrayList<>();
-		for (Iterator<Diff> iterator = fChangeDiffs.iterator(); iterator.hasNext();) {
+		int first= DiffIndex.firstEndingAtOrAfter(fChangeDiffs, contributor, region.getOffset());
+		int regionEnd= region.getOffset() + region.getLength();
+		for (Iterator<Diff> iterator = fChangeDiffs.listIterator(first); iterator.hasNext();) {
 			Diff diff = iterator.next();
+			Position p= diff.getPosition(contributor);
+			if (p != null && p.getOffset() > regionEnd)
+				break;
 			Diff[] changeDiffs = diff.getChangeDiffs(contributor, region);
 			for (int i = 0; i < changeDiffs.length; i++) {
 				Diff changeDiff = changeDiffs[i];
@@ -1187,6 +1306,8 @@ public class DocumentMerger {
 	public boolean copy(Diff diff, boolean leftToRight) {
 
 		if (diff != null) {
+			// only the line heights of the copied diff change
+			boolean indexCurrent= fIndex != null && fIndex.isCurrent();
 			Position fromPos= null;
 			Position toPos= null;
 			IDocument fromDoc= null;
@@ -1245,6 +1366,8 @@ public class DocumentMerger {
 			}
 
 			diff.setResolved(true);
+			if (indexCurrent)
+				fIndex.diffChanged(diff.getParent());
 			return true;
 		}
 		return false;
@@ -1258,8 +1381,12 @@ public class DocumentMerger {
 
 	public Diff findDiff(char contributor, int rangeStart, int rangeEnd) {
 		if (hasChanges()) {
-			for (Iterator<Diff> iterator = changesIterator(); iterator.hasNext();) {
+			int first= DiffIndex.firstEndingAtOrAfter(fChangeDiffs, contributor, rangeStart);
+			for (Iterator<Diff> iterator = fChangeDiffs.listIterator(first); iterator.hasNext();) {
 				Diff diff = iterator.next();
+				Position p= diff.getPosition(contributor);
+				if (p != null && p.getOffset() > rangeEnd)
+					break;
 				if (diff.isDeleted() || diff.getKind() == RangeDifference.NOCHANGE)
 				    continue;
 				if (diff.overlaps(contributor, rangeStart, rangeEnd, getDocument(contributor).getLength()))
@@ -1276,25 +1403,34 @@ public class DocumentMerger {
 	}
 
 	public Diff findNext(char contributor, int start, int end, boolean deep) {
-		return findNext(contributor, fChangeDiffs, start, end, deep);
+		if (fChangeDiffs == null)
+			return null;
+		// diffs ending before start can neither be next nor contain the next diff
+		int first= DiffIndex.firstEndingAtOrAfter(fChangeDiffs, contributor, start);
+		return findNext(contributor, fChangeDiffs, first, start, end, deep);
 	}
 
 	private Diff findNext(char contributor, List<Diff> v, int start, int end, boolean deep) {
 		if (v == null)
 			return null;
-		for (int i= 0; i < v.size(); i++) {
+		return findNext(contributor, v, 0, start, end, deep);
+	}
+
+	private Diff findNext(char contributor, List<Diff> v, int first, int start, int end, boolean deep) {
+		for (int i= first; i < v.size(); i++) {
 			Diff diff= v.get(i);
 			Position p= diff.getPosition(contributor);
 			if (p != null) {
 				int startOffset= p.getOffset();
 				if (end < startOffset)  // <=
 					return diff;
-				if (deep && diff.hasChildren()) {
+				int endOffset= startOffset + p.getLength();
+				boolean wholeDiff= start == startOffset && (end == endOffset || end == endOffset-1);
+				if (deep && (wholeDiff || end < endOffset) && diff.hasChildren()) {
 					Diff d= null;
-					int endOffset= startOffset + p.getLength();
-					if (start == startOffset && (end == endOffset || end == endOffset-1)) {
+					if (wholeDiff) {
 						d= findNext(contributor, diff.fDiffs, start-1, start-1, deep);
-					} else if (end < endOffset) {
+					} else {
 						d= findNext(contributor, diff.fDiffs, start, end, deep);
 					}
 					if (d != null)
@@ -1306,13 +1442,21 @@ public class DocumentMerger {
 	}
 
 	public Diff findPrev(char contributor, int start, int end, boolean deep) {
-		return findPrev(contributor, fChangeDiffs, start, end, deep);
+		if (fChangeDiffs == null)
+			return null;
+		// diffs starting after start can neither be previous nor contain the previous diff
+		int last= DiffIndex.lastStartingAtOrBefore(fChangeDiffs, contributor, start);
+		return findPrev(contributor, fChangeDiffs, last, start, end, deep);
 	}
 
 	private Diff findPrev(char contributor, List<Diff> v, int start, int end, boolean deep) {
 		if (v == null)
 			return null;
-		for (int i= v.size()-1; i >= 0; i--) {
+		return findPrev(contributor, v, v.size()-1, start, end, deep);
+	}
+
+	private Diff findPrev(char contributor, List<Diff> v, int last, int start, int end, boolean deep) {
+		for (int i= last; i >= 0; i--) {
 			Diff diff= v.get(i);
 			Position p= diff.getPosition(contributor);
 			if (p != null) {
@@ -1325,7 +1469,7 @@ public class DocumentMerger {
 					}
 					return diff;
 				}
-				if (deep && diff.hasChildren()) {
+				if (deep && start >= startOffset && diff.hasChildren()) {
 					Diff d= null;
 					if (start == startOffset && end == endOffset) {
 						// A whole diff is selected so we'll fall through
@@ -23,6 +23,7 @@ import org.eclipse.compare.contentmergeviewer.IDocumentRange;
 import org.eclipse.compare.internal.ChangeCompareFilterPropertyAction;
 import org.eclipse.compare.internal.CompareMessages;
 import org.eclipse.compare.internal.CompareUIPlugin;
+import org.eclipse.compare.internal.StructureCache;
 import org.eclipse.compare.internal.Utilities;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -106,7 +107,7 @@ public class StructureDiffViewer extends DiffTreeViewer {
 					dispose(); // destroy fStructureComparator
 					fStructureComparator= null;
 				} else {
-					refresh(monitor);
+					refresh(monitor, true);
 					changed= true;
 				}
 				if (fInput instanceof IContentChangeNotifier && fContentChangedListener != null)
@@ -119,7 +120,8 @@ public class StructureDiffViewer extends DiffTreeViewer {
 		 * Remove any document range updaters that were registered against the document.
 		 */
 		private void removeDocumentRangeUpdaters() {
-			if (fStructureComparator instanceof IDocumentRange) {
+			// The updaters of a cached structure are removed by the cache
+			if (fStructureComparator instanceof IDocumentRange && !StructureCache.isCached(fStructureComparator)) {
 				IDocument doc = ((IDocumentRange) fStructureComparator).getDocument();
 				try {
 					doc.removePositionCategory(IDocumentRange.RANGE_CATEGORY);
@@ -134,12 +136,18 @@ public class StructureDiffViewer extends DiffTreeViewer {
 		}
 
 		public void refresh(IProgressMonitor monitor) {
+			refresh(monitor, false);
+		}
+
+		private void refresh(IProgressMonitor monitor, boolean useCache) {
 			IStructureComparator oldComparator = fStructureComparator;
-			fStructureComparator= createStructure(monitor);
+			fStructureComparator= createStructure(monitor, useCache);
 			// Dispose of the old one after in case they are using a shared document
 			// (i.e. disposing it after will hold on to a reference to the document
 			// so it doesn't get freed and reloaded)
-			if (oldComparator instanceof IDisposable) {
+			if (StructureCache.release(oldComparator)) {
+				// destroyed by the cache once no longer used
+			} else if (oldComparator instanceof IDisposable) {
 				IDisposable disposable = (IDisposable) oldComparator;
 				disposable.dispose();
 			}
@@ -149,23 +157,45 @@ public class StructureDiffViewer extends DiffTreeViewer {
 			return fInput;
 		}
 
-		private IStructureComparator createStructure(IProgressMonitor monitor) {
+		/*
+		 * Creates the structure of the input. The structures of read-only inputs
+		 * are reused through the StructureCache, which leases a structure to one
+		 * viewer at a time; an explicit refresh bypasses the cached structure
+		 * but replaces it with the new one.
+		 */
+		private IStructureComparator createStructure(IProgressMonitor monitor, boolean useCache) {
 			// Defend against concurrent disposal
 			Object input = fInput;
 			if (input == null)
 				return null;
-			if (fStructureCreator instanceof IStructureCreator2) {
-				IStructureCreator2 sc2 = (IStructureCreator2) fStructureCreator;
+			IStructureCreator creator = fStructureCreator;
+			StructureCache.Key key = StructureCache.getKey(creator, input);
+			if (key != null && useCache) {
+				IStructureComparator cached = StructureCache.acquire(key);
+				if (cached != null)
+					return cached;
+			}
+			IStructureComparator structure = createStructure(creator, input, monitor);
+			if (key != null && structure != null)
+				StructureCache.put(key, creator, structure);
+			return structure;
+		}
+
+		private IStructureComparator createStructure(IStructureCreator creator, Object input, IProgressMonitor monitor) {
+			if (creator instanceof IStructureCreator2) {
+				IStructureCreator2 sc2 = (IStructureCreator2) creator;
 				try {
 					return sc2.createStructure(input, monitor);
 				} catch (CoreException e) {
 					CompareUIPlugin.log(e);
 				}
 			}
-			return fStructureCreator.getStructure(input);
+			return creator.getStructure(input);
 		}
 
 		public void dispose() {
+			if (StructureCache.release(fStructureComparator))
+				return;
 			if (fStructureComparator != null && fStructureCreator instanceof IStructureCreator2) {
 				IStructureCreator2 sc2 = (IStructureCreator2) fStructureCreator;
 				sc2.destroy(fStructureComparator);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -117,8 +117,16 @@ public class ResourceVariantCacheEntry {
 					out = new BufferedOutputStream(new FileOutputStream(ioFile));
 				} else {
 					// If the entry is READY, the contents must have been read in another thread.
-					// We still need to red the contents but they can be ignored since presumably they are the same
-					out = new ByteArrayOutputStream();
+					// We still need to read the contents but they can be ignored since presumably they are the same.
+					// Discard them rather than buffering them so memory does not grow with the size of the file.
+					out = new OutputStream() {
+						public void write(int b) {
+							// ignore
+						}
+						public void write(byte[] b, int off, int len) {
+							// ignore
+						}
+					};
 				}
 			} catch (FileNotFoundException e) {
 				throw new TeamException(NLS.bind(Messages.RemoteContentsCache_fileError, new String[] { ioFile.getAbsolutePath() }), e);
@@ -127,7 +135,7 @@ public class ResourceVariantCacheEntry {
 			// Transfer the contents
 			try {
 				try {
-					byte[] buffer = new byte[1024];
+					byte[] buffer = new byte[8192];
 					int read;
 					while ((read = stream.read(buffer)) >= 0) {
 						Policy.checkCanceled(monitor);
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.core.streams;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the blocking operations of the timeout streams on a pool of daemon
+ * threads shared by all streams. A thread is only used while an operation is
+ * in progress, so idle streams do not hold on to threads. Threads that have
+ * been idle for a while are discarded.
+ */
+class StreamExecutor {
+
+	private static final long KEEP_ALIVE = 30; // seconds
+
+	private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+			KEEP_ALIVE, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "StreamExecutor"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private StreamExecutor() {
+		// no instances
+	}
+
+	/**
+	 * Runs the given operation on a thread of the pool.
+	 */
+	static void execute(Runnable operation) {
+		executor.execute(operation);
+	}
+
+	/**
+	 * Waits on the given lock for at most the given timeout until the condition
+	 * holds. The caller must hold the lock.
+	 * @param timeout the timeout in millis; 0 waits indefinitely
+	 */
+	static void waitUntil(Object lock, long timeout, BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + timeout;
+		while (! condition.getAsBoolean()) {
+			long remaining = 0;
+			if (timeout != 0) {
+				remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) return;
+			}
+			try {
+				lock.wait(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); // we weren't expecting to be interrupted
+				return;
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,24 +26,28 @@ import org.eclipse.team.internal.core.Policy;
  * generates InterruptedIOExceptions in which case it must also support resuming.
  * Check the bytesTransferred field to determine how much of the operation completed;
  * conversely, at what point to resume.
+ *
+ * Bytes that are already available from the underlying stream are read by the
+ * calling thread. Reads that may block are performed on a thread shared with other
+ * streams (see StreamExecutor) while the caller waits for at most the read timeout,
+ * so no thread is used while the stream is idle. A stream that grows its buffer
+ * keeps reading in the background until the end of the stream is reached.
  */
 public class TimeoutInputStream extends FilterInputStream {
 	// unsynchronized variables
 	private final long readTimeout; // read() timeout in millis
 	private final long closeTimeout; // close() timeout in millis, or -1
+	private final boolean growWhenFull; // if true, buffer will grow when it is full
 
-	// requests for the thread (synchronized)
-	private boolean closeRequested = false; // if true, close requested
-
-	// responses from the thread (synchronized)
-	private Thread thread;   // if null, thread has terminated
+	// synchronized variables
 	private byte[] iobuffer; // circular buffer
 	private int head = 0;    // points to first unread byte
 	private int length = 0;  // number of remaining unread bytes
+	private boolean reading = false; // if true, a shared thread is reading from the underlying stream
+	private boolean eof = false; // if true, the end of the underlying stream was reached
+	private boolean closeRequested = false; // if true, close requested
+	private boolean closed = false; // if true, the underlying stream has been closed
 	private IOException ioe = null; // if non-null, contains a pending exception
-	private boolean waitingForClose = false; // if true, thread is waiting for close()
-
-	private boolean growWhenFull = false; // if true, buffer will grow when it is full
 
 	/**
 	 * Creates a timeout wrapper for an input stream.
@@ -56,23 +60,21 @@ public class TimeoutInputStream extends FilterInputStream {
 	 *        an InterruptedIOException; 0 blocks indefinitely, -1 closes the stream in the background
 	 */
 	public TimeoutInputStream(InputStream in, int bufferSize, long readTimeout, long closeTimeout) {
+		this(in, bufferSize, readTimeout, closeTimeout, false);
+	}
+
+	public TimeoutInputStream(InputStream in, int bufferSize, long readTimeout, long closeTimeout, boolean growWhenFull) {
 		super(in);
 		this.readTimeout = readTimeout;
 		this.closeTimeout = closeTimeout;
+		this.growWhenFull = growWhenFull;
 		this.iobuffer = new byte[bufferSize];
-		thread = new Thread(new Runnable() {
-			@Override
-			public void run() {
-				runThread();
+		if (growWhenFull) {
+			// drain the underlying stream eagerly so its writer never blocks
+			synchronized (this) {
+				startRead();
 			}
-		}, "TimeoutInputStream");//$NON-NLS-1$
-		thread.setDaemon(true);
-		thread.start();
-	}
-
-	public TimeoutInputStream(InputStream in, int bufferSize, long readTimeout, long closeTimeout, boolean growWhenFull) {
-		this(in, bufferSize, readTimeout, closeTimeout);
-		this.growWhenFull = growWhenFull;
+		}
 	}
 
 	/**
@@ -86,23 +88,20 @@ public class TimeoutInputStream extends FilterInputStream {
 	 */
 	@Override
 	public void close() throws IOException {
-		Thread oldThread;
 		synchronized (this) {
-			if (thread == null) return;
-			oldThread = thread;
-			closeRequested = true;
-			thread.interrupt();
+			if (closed) return;
+			if (! closeRequested) {
+				closeRequested = true;
+				notifyAll();
+				StreamExecutor.execute(() -> runClose());
+			}
 			checkError();
 		}
 		if (closeTimeout == -1) return;
-		try {
-			oldThread.join(closeTimeout);
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt(); // we weren't expecting to be interrupted
-		}
 		synchronized (this) {
+			StreamExecutor.waitUntil(this, closeTimeout, () -> closed);
 			checkError();
-			if (thread != null) throw new InterruptedIOException();
+			if (! closed) throw new InterruptedIOException();
 		}
 	}
 
@@ -128,7 +127,7 @@ public class TimeoutInputStream extends FilterInputStream {
 		int b = iobuffer[head++] & 255;
 		if (head == iobuffer.length) head = 0;
 		length--;
-		notify();
+		notifyAll();
 		return b;
 	}
 
@@ -141,15 +140,16 @@ public class TimeoutInputStream extends FilterInputStream {
 	@Override
 	public synchronized int read(byte[] buffer, int off, int len) throws IOException {
 		if (! syncFill()) return -1; // EOF reached
-		int pos = off;
 		if (len > length) len = length;
-		while (len-- > 0) {
-			buffer[pos++] = iobuffer[head++];
-			if (head == iobuffer.length) head = 0;
-			length--;
+		int amount = Math.min(len, iobuffer.length - head);
+		System.arraycopy(iobuffer, head, buffer, off, amount);
+		if (amount < len) {
+			System.arraycopy(iobuffer, 0, buffer, off + amount, len - amount);
 		}
-		notify();
-		return pos - off;
+		head = (head + len) % iobuffer.length;
+		length -= len;
+		notifyAll();
+		return len;
 	}
 
 	/**
@@ -173,7 +173,7 @@ public class TimeoutInputStream extends FilterInputStream {
 			e.bytesTransferred = (int) amount; // assumes amount < Integer.MAX_INT
 			throw e;
 		}
-		notify();
+		notifyAll();
 		return amount;
 	}
 
@@ -193,16 +193,35 @@ public class TimeoutInputStream extends FilterInputStream {
 	private boolean syncFill() throws IOException {
 		if (length != 0) return true;
 		checkError(); // check errors only after we have read all remaining bytes
-		if (waitingForClose) return false;
-		notify();
-		try {
-			wait(readTimeout);
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt(); // we weren't expecting to be interrupted
+		if (eof || closeRequested) return false;
+		long deadline = System.currentTimeMillis() + readTimeout;
+		while (true) {
+			if (! reading) {
+				// read on the calling thread if this does not block
+				int available = in.available();
+				if (available > 0) {
+					int count = in.read(iobuffer, 0, Math.min(available, iobuffer.length));
+					head = 0;
+					if (count == -1) {
+						eof = true;
+						return false;
+					}
+					length = count;
+					if (length != 0) return true;
+				}
+				startRead();
+			}
+			long remaining = 0;
+			if (readTimeout != 0) {
+				remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) break;
+			}
+			StreamExecutor.waitUntil(this, remaining, () -> length != 0 || ! reading);
+			if (length != 0) return true;
+			checkError(); // check errors only after we have read all remaining bytes
+			if (eof || closeRequested) return false;
+			// a read that returned no bytes before the deadline is retried
 		}
-		if (length != 0) return true;
-		checkError(); // check errors only after we have read all remaining bytes
-		if (waitingForClose) return false;
 		throw new InterruptedIOException();
 	}
 
@@ -218,69 +237,72 @@ public class TimeoutInputStream extends FilterInputStream {
 	}
 
 	/**
-	 * Runs the thread in the background.
+	 * Starts reading from the underlying stream on a shared thread.
+	 * Must be called while holding the lock.
 	 */
-	private void runThread() {
-		try {
-			readUntilDone();
-		} catch (IOException e) {
-			synchronized (this) { ioe = e; }
-		} finally {
-			waitUntilClosed();
-			try {
-				in.close();
-			} catch (IOException e) {
-				synchronized (this) { ioe = e; }
-			} finally {
-				synchronized (this) {
-					thread = null;
-					notify();
-				}
-			}
-		}
+	private void startRead() {
+		reading = true;
+		StreamExecutor.execute(() -> runRead());
 	}
 
 	/**
-	 * Waits until we have been requested to close the stream.
+	 * Reads bytes into the buffer, until EOF, close or error if the buffer grows,
+	 * otherwise once.
 	 */
-	private synchronized void waitUntilClosed() {
-		waitingForClose = true;
-		notify();
-		while (! closeRequested) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				closeRequested = true; // alternate quit signal
+	private void runRead() {
+		try {
+			do {
+				int off, len;
+				synchronized (this) {
+					while (isBufferFull() && ! closeRequested) {
+						waitForRead();
+					}
+					if (closeRequested) break; // quit signal
+					off = (head + length) % iobuffer.length;
+					len = ((head > off) ? head : iobuffer.length) - off;
+				}
+				int count;
+				try {
+					// the i/o operation might block without releasing the lock,
+					// so we do this outside of the synchronized block
+					count = in.read(iobuffer, off, len);
+				} catch (InterruptedIOException e) {
+					count = e.bytesTransferred; // keep partial transfer
+				}
+				synchronized (this) {
+					if (count == -1) {
+						eof = true; // EOF encountered
+						break;
+					}
+					length += count;
+					notifyAll();
+				}
+			} while (growWhenFull);
+		} catch (IOException e) {
+			synchronized (this) { ioe = e; }
+		} finally {
+			synchronized (this) {
+				reading = false;
+				notifyAll();
 			}
 		}
 	}
 
 	/**
-	 * Reads bytes into the buffer until EOF, closed, or error.
+	 * Closes the underlying stream once the pending read completed.
 	 */
-	private void readUntilDone() throws IOException {
-		for (;;) {
-			int off, len;
+	private void runClose() {
+		try {
 			synchronized (this) {
-				while (isBufferFull()) {
-					if (closeRequested) return; // quit signal
-					waitForRead();
-				}
-				off = (head + length) % iobuffer.length;
-				len = ((head > off) ? head : iobuffer.length) - off;
-			}
-			int count;
-			try {
-				// the i/o operation might block without releasing the lock,
-				// so we do this outside of the synchronized block
-				count = in.read(iobuffer, off, len);
-				if (count == -1) return; // EOF encountered
-			} catch (InterruptedIOException e) {
-				count = e.bytesTransferred; // keep partial transfer
+				StreamExecutor.waitUntil(this, 0, () -> ! reading);
 			}
+			in.close();
+		} catch (IOException e) {
+			synchronized (this) { ioe = e; }
+		} finally {
 			synchronized (this) {
-				length += count;
-				notify();
+				closed = true;
+				notifyAll();
 			}
 		}
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,6 @@
  *******************************************************************************/
 package org.eclipse.team.internal.core.streams;
 
-import java.io.BufferedOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
@@ -28,22 +27,25 @@ import org.eclipse.team.internal.core.Messages;
  * generates InterruptedIOExceptions in which case it must also support resuming.
  * Check the bytesTransferred field to determine how much of the operation completed;
  * conversely, at what point to resume.
+ *
+ * The buffer is written to the underlying stream when it is full, flushed or closed,
+ * on a thread shared with other streams (see StreamExecutor) while the caller waits
+ * for at most the write timeout, so no thread is used while the stream is idle.
  */
 public class TimeoutOutputStream extends FilterOutputStream {
 	// unsynchronized variables
 	private final long writeTimeout; // write() timeout in millis
 	private final long closeTimeout; // close() timeout in millis, or -1
 
-	// requests for the thread (synchronized)
+	// synchronized variables
 	private byte[] iobuffer; // circular buffer
 	private int head = 0; // points to first unwritten byte
 	private int length = 0; // number of remaining unwritten bytes
-	private boolean closeRequested = false; // if true, close requested
+	private boolean writing = false; // if true, a shared thread is writing to the underlying stream
 	private boolean flushRequested = false; // if true, flush requested
-
-	// responses from the thread (synchronized)
-	private Thread thread;
-	private boolean waitingForClose = false; // if true, the thread is waiting for close()
+	private boolean closeRequested = false; // if true, close requested
+	private boolean closed = false; // if true, the underlying stream has been closed
+	private boolean failed = false; // if true, writing to the underlying stream failed
 	private IOException ioe = null;
 
 	/**
@@ -57,13 +59,10 @@ public class TimeoutOutputStream extends FilterOutputStream {
 	 *        an InterruptedIOException; 0 blocks indefinitely, -1 closes the stream in the background
 	 */
 	public TimeoutOutputStream(OutputStream out, int bufferSize, long writeTimeout, long closeTimeout) {
-		super(new BufferedOutputStream(out, bufferSize));
+		super(out);
 		this.writeTimeout = writeTimeout;
 		this.closeTimeout = closeTimeout;
 		this.iobuffer = new byte[bufferSize];
-		thread = new Thread((Runnable) () -> runThread(), "TimeoutOutputStream");//$NON-NLS-1$
-		thread.setDaemon(true);
-		thread.start();
 	}
 
 	/**
@@ -78,23 +77,20 @@ public class TimeoutOutputStream extends FilterOutputStream {
 	 */
 	@Override
 	public void close() throws IOException {
-		Thread oldThread;
 		synchronized (this) {
-			if (thread == null) return;
-			oldThread = thread;
-			closeRequested = true;
-			thread.interrupt();
+			if (closed) return;
+			if (! closeRequested) {
+				closeRequested = true;
+				// the remaining bytes are written and flushed before closing
+				if (! writing) startWrite();
+			}
 			checkError();
 		}
 		if (closeTimeout == -1) return;
-		try {
-			oldThread.join(closeTimeout);
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt(); // we weren't expecting to be interrupted
-		}
 		synchronized (this) {
+			StreamExecutor.waitUntil(this, closeTimeout, () -> closed);
 			checkError();
-			if (thread != null) throw new InterruptedIOException();
+			if (! closed) throw new InterruptedIOException();
 		}
 	}
 
@@ -109,7 +105,7 @@ public class TimeoutOutputStream extends FilterOutputStream {
 		syncCommit(true);
 		iobuffer[(head + length) % iobuffer.length] = (byte) b;
 		length++;
-		notify();
+		commitIfFull();
 	}
 
 	/**
@@ -124,17 +120,21 @@ public class TimeoutOutputStream extends FilterOutputStream {
 		try {
 			do {
 				syncCommit(true);
-				while (amount < len && length != iobuffer.length) {
-					iobuffer[(head + length) % iobuffer.length] = buffer[off++];
-					length++;
-					amount++;
+				int tail = (head + length) % iobuffer.length;
+				int count = Math.min(len - amount, iobuffer.length - length);
+				int first = Math.min(count, iobuffer.length - tail);
+				System.arraycopy(buffer, off + amount, iobuffer, tail, first);
+				if (first < count) {
+					System.arraycopy(buffer, off + amount + first, iobuffer, 0, count - first);
 				}
+				length += count;
+				amount += count;
+				commitIfFull();
 			} while (amount < len);
 		} catch (InterruptedIOException e) {
 			e.bytesTransferred = amount;
 			throw e;
 		}
-		notify();
 	}
 
 	/**
@@ -153,29 +153,39 @@ public class TimeoutOutputStream extends FilterOutputStream {
 			e.bytesTransferred = oldLength - length;
 			throw e;
 		}
-		notify();
 	}
 
 	/**
 	 * Waits for the buffer to drain if it is full.
-	 * @param partial if true, waits until the buffer is partially empty, else drains it entirely
+	 * @param partial if true, waits until the buffer is partially empty, else drains
+	 *        and flushes it entirely
 	 * @throws InterruptedIOException if the buffer could not be drained as requested
 	 */
 	private void syncCommit(boolean partial) throws IOException {
 		checkError(); // check errors before allowing the addition of new bytes
-		if (partial && length != iobuffer.length || length == 0) return;
-		if (waitingForClose) throw new IOException(Messages.TimeoutOutputStream_cannotWriteToStream);
-		notify();
-		try {
-			wait(writeTimeout);
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt(); // we weren't expecting to be interrupted
-		}
+		if (partial && closeRequested) throw new IOException(Messages.TimeoutOutputStream_cannotWriteToStream);
+		if (isCommitted(partial)) return;
+		if (closeRequested || failed) throw new IOException(Messages.TimeoutOutputStream_cannotWriteToStream);
+		if (! writing) startWrite();
+		StreamExecutor.waitUntil(this, writeTimeout, () -> isCommitted(partial) || ! writing);
 		checkError(); // check errors before allowing the addition of new bytes
-		if (partial && length != iobuffer.length || length == 0) return;
+		if (isCommitted(partial)) return;
 		throw new InterruptedIOException();
 	}
 
+	private boolean isCommitted(boolean partial) {
+		if (partial) return length != iobuffer.length;
+		return length == 0 && ! flushRequested;
+	}
+
+	/**
+	 * Starts writing the buffer as soon as it is full so that the caller
+	 * can continue filling it while it is written.
+	 */
+	private void commitIfFull() {
+		if (length == iobuffer.length && ! writing) startWrite();
+	}
+
 	/**
 	 * If an exception is pending, throws it.
 	 */
@@ -188,100 +198,76 @@ public class TimeoutOutputStream extends FilterOutputStream {
 	}
 
 	/**
-	 * Runs the thread in the background.
-	 */
-	private void runThread() {
-		try {
-			writeUntilDone();
-		} catch (IOException e) {
-			synchronized (this) { ioe = e; }
-		} finally {
-			waitUntilClosed();
-			try {
-				out.close();
-			} catch (IOException e) {
-				synchronized (this) { ioe = e; }
-			} finally {
-				synchronized (this) {
-					thread = null;
-					notify();
-				}
-			}
-		}
-	}
-
-	/**
-	 * Waits until we have been requested to close the stream.
+	 * Starts writing to the underlying stream on a shared thread.
+	 * Must be called while holding the lock.
 	 */
-	private synchronized void waitUntilClosed() {
-		waitingForClose = true;
-		notify();
-		while (! closeRequested) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				closeRequested = true; // alternate quit signal
-			}
-		}
+	private void startWrite() {
+		writing = true;
+		StreamExecutor.execute(() -> runWrite());
 	}
 
 	/**
-	 * Writes bytes from the buffer until closed and buffer is empty
+	 * Writes bytes from the buffer until it is empty, then performs a pending
+	 * flush or close.
 	 */
-	private void writeUntilDone() throws IOException {
-		int bytesUntilFlush = -1; // if > 0, then we will flush after that many bytes have been written
+	private void runWrite() {
 		for (;;) {
-			int off, len;
+			int off = 0, len = 0;
+			boolean flush = false;
 			synchronized (this) {
-				for (;;) {
-					if (closeRequested && length == 0) return; // quit signal
-					if (length != 0 || flushRequested) break;
-					try {
-						wait();
-					} catch (InterruptedException e) {
-						closeRequested = true; // alternate quit signal
-					}
-				}
-				off = head;
-				len = iobuffer.length - head;
-				if (len > length) len = length;
-				if (flushRequested && bytesUntilFlush < 0) {
+				if (failed) {
+					length = 0;
 					flushRequested = false;
-					bytesUntilFlush = length;
 				}
-			}
-
-			// If there are bytes to be written, write them
-			if (len != 0) {
-				// write out all remaining bytes from the buffer before flushing
-				try {
-					// the i/o operation might block without releasing the lock,
-					// so we do this outside of the synchronized block
-					out.write(iobuffer, off, len);
-				} catch (InterruptedIOException e) {
-					len = e.bytesTransferred;
+				if (length != 0) {
+					off = head;
+					len = Math.min(length, iobuffer.length - head);
+				} else if (flushRequested) {
+					flush = true;
+				} else if (! closeRequested || closed) {
+					writing = false;
+					notifyAll();
+					return;
 				}
 			}
-
-			// If there was a pending flush, do it
-			if (bytesUntilFlush >= 0) {
-				bytesUntilFlush -= len;
-				if (bytesUntilFlush <= 0) {
-					// flush the buffer now
+			try {
+				if (len != 0) {
+					try {
+						// the i/o operation might block without releasing the lock,
+						// so we do this outside of the synchronized block
+						out.write(iobuffer, off, len);
+					} catch (InterruptedIOException e) {
+						len = e.bytesTransferred;
+					}
+					synchronized (this) {
+						head = (head + len) % iobuffer.length;
+						length -= len;
+						notifyAll();
+					}
+				} else if (flush) {
 					try {
 						out.flush();
 					} catch (InterruptedIOException e) {
 					}
-					bytesUntilFlush = -1; // might have been 0
+					synchronized (this) {
+						flushRequested = false;
+						notifyAll();
+					}
+				} else {
+					try {
+						out.close();
+					} finally {
+						synchronized (this) {
+							closed = true;
+							notifyAll();
+						}
+					}
 				}
-			}
-
-			// If bytes were written, update the circular buffer
-			if (len != 0) {
+			} catch (IOException e) {
 				synchronized (this) {
-					head = (head + len) % iobuffer.length;
-					length -= len;
-					notify();
+					ioe = e;
+					failed = true;
+					notifyAll();
 				}
 			}
 		}
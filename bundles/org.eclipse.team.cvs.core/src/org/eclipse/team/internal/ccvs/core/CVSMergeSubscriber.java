@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -333,7 +333,7 @@ public class CVSMergeSubscriber extends CVSSyncTreeSubscriber implements IResour
 				if (remoteBytes != null 
 						&& localBytes != null
 						&& local.exists()
-						&& !ResourceSyncInfo.getRevision(remoteBytes).equals(ResourceSyncInfo.getRevision(localBytes))
+						&& !ResourceSyncInfo.isSameRevision(remoteBytes, localBytes)
 						&& contentFilter.select(getSyncInfo(resource), Policy.subMonitorFor(monitor, 100))) {
 					// The contents are equals so mark the file as merged
 					internalMerged(resource);
@@ -99,6 +99,8 @@ public class CVSMessages extends NLS {
 	public static String RemoteFolderTreeBuilder_receivingDelta;
 	public static String RemoteFolderTreeBuilder_receivingRevision;
 	public static String RemoteFolderTreeBuilder_missingParent;
+	public static String SessionPool_fetching;
+	public static String FileContentCachingService_errorFetchingContents;
 	public static String RemoteFolderTreeBuild_folderDeletedFromServer;
 
 	public static String Session_badInt;
@@ -252,6 +254,7 @@ public class CVSMessages extends NLS {
 	public static String CVSRepositoryLocation_74;
 	public static String CVSRepositoryLocation_75;
 	public static String SyncFileWriter_0;
+	public static String SyncFileWriter_1;
 	public static String ResponseHandler_0;
 
 	public static String CVSTeamProviderType_0;
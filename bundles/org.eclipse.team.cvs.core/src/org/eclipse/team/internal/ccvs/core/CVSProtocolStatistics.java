@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core;
+
+/**
+ * A snapshot of the metrics of the communication with CVS servers provided
+ * by {@link ICVSProtocolMetrics}. Times are in milliseconds.
+ * <p>
+ * The histograms count durations in buckets whose bounds are powers of two:
+ * the first bucket counts the durations under 1 ms, bucket <code>i</code>
+ * the durations from 2<sup>i-1</sup> ms to 2<sup>i</sup> ms and the last
+ * bucket all the longer durations.
+ * </p>
+ */
+public class CVSProtocolStatistics {
+
+	/**
+	 * The number of buckets of the histograms.
+	 */
+	public static final int HISTOGRAM_BUCKETS = 16;
+
+	private final long connections;
+	private final long failedConnections;
+	private final long connectionTime;
+	private final long[] connectionTimeHistogram;
+	private final long requests;
+	private final long requestTime;
+	private final long[] requestTimeHistogram;
+	private final long networkTime;
+	private final long bytesSent;
+	private final long bytesReceived;
+	private final long uncompressedBytesSent;
+	private final long uncompressedBytesReceived;
+	private final long filesSent;
+	private final long filesReceived;
+
+	public CVSProtocolStatistics(long connections, long failedConnections, long connectionTime, long[] connectionTimeHistogram,
+			long requests, long requestTime, long[] requestTimeHistogram, long networkTime,
+			long bytesSent, long bytesReceived, long uncompressedBytesSent, long uncompressedBytesReceived,
+			long filesSent, long filesReceived) {
+		this.connections = connections;
+		this.failedConnections = failedConnections;
+		this.connectionTime = connectionTime;
+		this.connectionTimeHistogram = connectionTimeHistogram;
+		this.requests = requests;
+		this.requestTime = requestTime;
+		this.requestTimeHistogram = requestTimeHistogram;
+		this.networkTime = networkTime;
+		this.bytesSent = bytesSent;
+		this.bytesReceived = bytesReceived;
+		this.uncompressedBytesSent = uncompressedBytesSent;
+		this.uncompressedBytesReceived = uncompressedBytesReceived;
+		this.filesSent = filesSent;
+		this.filesReceived = filesReceived;
+	}
+
+	/**
+	 * Returns the index of the histogram bucket that counts the given duration.
+	 * @param millis a duration in milliseconds
+	 * @return the index of the bucket
+	 */
+	public static int getHistogramBucket(long millis) {
+		int bucket = 0;
+		while (millis > 0 && bucket < HISTOGRAM_BUCKETS - 1) {
+			millis >>= 1;
+			bucket++;
+		}
+		return bucket;
+	}
+
+	/**
+	 * Returns the number of connections opened, including the authentication.
+	 */
+	public long getConnections() {
+		return connections;
+	}
+
+	/**
+	 * Returns the number of connections that could not be opened.
+	 */
+	public long getFailedConnections() {
+		return failedConnections;
+	}
+
+	/**
+	 * Returns the time spent opening and authenticating connections.
+	 */
+	public long getConnectionTime() {
+		return connectionTime;
+	}
+
+	public long[] getConnectionTimeHistogram() {
+		return connectionTimeHistogram.clone();
+	}
+
+	/**
+	 * Returns the number of requests that have a response, that is the number
+	 * of round trips to the server.
+	 */
+	public long getRequests() {
+		return requests;
+	}
+
+	/**
+	 * Returns the time from sending the requests to handling their last response.
+	 */
+	public long getRequestTime() {
+		return requestTime;
+	}
+
+	public long[] getRequestTimeHistogram() {
+		return requestTimeHistogram.clone();
+	}
+
+	/**
+	 * Returns the part of the request time spent sending requests and
+	 * waiting for response lines from the server.
+	 */
+	public long getNetworkTime() {
+		return networkTime;
+	}
+
+	/**
+	 * Returns the part of the request time spent in the response handlers,
+	 * which includes receiving file contents and writing them to disk.
+	 */
+	public long getHandlerTime() {
+		return Math.max(0, requestTime - networkTime);
+	}
+
+	/**
+	 * Returns the number of bytes sent on the connections, after compression.
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Returns the number of bytes received on the connections, before decompression.
+	 */
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	public long getUncompressedBytesSent() {
+		return uncompressedBytesSent;
+	}
+
+	public long getUncompressedBytesReceived() {
+		return uncompressedBytesReceived;
+	}
+
+	public long getFilesSent() {
+		return filesSent;
+	}
+
+	public long getFilesReceived() {
+		return filesReceived;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(requests).append(" requests in ").append(requestTime).append(" ms ("); //$NON-NLS-1$ //$NON-NLS-2$
+		buffer.append(networkTime).append(" ms network, ").append(getHandlerTime()).append(" ms handlers), "); //$NON-NLS-1$ //$NON-NLS-2$
+		buffer.append(connections).append(" connections in ").append(connectionTime).append(" ms, "); //$NON-NLS-1$ //$NON-NLS-2$
+		buffer.append(bytesSent).append('/').append(uncompressedBytesSent).append(" bytes sent, "); //$NON-NLS-1$
+		buffer.append(bytesReceived).append('/').append(uncompressedBytesReceived).append(" bytes received, "); //$NON-NLS-1$
+		buffer.append(filesSent).append(" files sent, ").append(filesReceived).append(" files received"); //$NON-NLS-1$ //$NON-NLS-2$
+		return buffer.toString();
+	}
+}
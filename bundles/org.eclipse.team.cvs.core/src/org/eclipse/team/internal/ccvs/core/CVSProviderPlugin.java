@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,10 +11,15 @@
 package org.eclipse.team.internal.ccvs.core;
  
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.Status;
@@ -29,6 +34,7 @@ import org.eclipse.team.internal.ccvs.core.client.*;
 import org.eclipse.team.internal.ccvs.core.client.Command.KSubstOption;
 import org.eclipse.team.internal.ccvs.core.client.Command.QuietOption;
 import org.eclipse.team.internal.ccvs.core.client.listeners.IConsoleListener;
+import org.eclipse.team.internal.ccvs.core.connection.ProtocolMetrics;
 import org.eclipse.team.internal.ccvs.core.mapping.CVSActiveChangeSetCollector;
 import org.eclipse.team.internal.ccvs.core.resources.FileModificationManager;
 import org.eclipse.team.internal.ccvs.core.util.*;
@@ -42,6 +48,10 @@ public class CVSProviderPlugin extends Plugin {
 	// preference names
 	public static final String READ_ONLY = "cvs.read.only"; //$NON-NLS-1$
 	public static final String ENABLE_WATCH_ON_EDIT = "cvs.watch.on.edit"; //$NON-NLS-1$
+	// seconds the listings of remote folders browsed through the CVS file system are kept for (0 disables the cache)
+	public static final String FILE_SYSTEM_CACHE_TIMEOUT = "cvs.filesystem.cache.timeout"; //$NON-NLS-1$
+	// maximum number of remote folders whose listing is kept for the CVS file system
+	public static final String FILE_SYSTEM_CACHE_SIZE = "cvs.filesystem.cache.size"; //$NON-NLS-1$
 
 	// external command to run for ext connection method
 	public static final String DEFAULT_CVS_RSH = "ssh"; //$NON-NLS-1$
@@ -59,6 +69,11 @@ public class CVSProviderPlugin extends Plugin {
 	public static final int DEFAULT_TIMEOUT = 60;
 	// file transfer compression level (0 - 9)
 	public static final int DEFAULT_COMPRESSION_LEVEL = 0;
+	// number of connections that may be opened to a repository at once to fetch remote state
+	public static final int DEFAULT_MAXIMUM_CONNECTIONS = 1;
+	// listings of remote folders browsed through the CVS file system
+	public static final int DEFAULT_FILE_SYSTEM_CACHE_TIMEOUT = 60;
+	public static final int DEFAULT_FILE_SYSTEM_CACHE_SIZE = 1000;
 	// default text keyword substitution mode
 	public static final KSubstOption DEFAULT_TEXT_KSUBST_OPTION = Command.KSUBST_TEXT_EXPAND;
 
@@ -72,6 +87,7 @@ public class CVSProviderPlugin extends Plugin {
 	
 	private QuietOption quietness;
 	private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+	private int maximumConnections = DEFAULT_MAXIMUM_CONNECTIONS;
 	private KSubstOption defaultTextKSubstOption = DEFAULT_TEXT_KSUBST_OPTION;
 	private boolean usePlatformLineend = true;
 	private int communicationsTimeout = DEFAULT_TIMEOUT;
@@ -127,6 +143,10 @@ public class CVSProviderPlugin extends Plugin {
     
     private CVSActiveChangeSetCollector changeSetManager;
 	private ServiceRegistration debugRegistration;
+	private ServiceRegistration metricsRegistration;
+	private ObjectName metricsName;
+	private boolean metricsPublished;
+	private final Object metricsLock = new Object();
 	private ServiceTracker tracker;
 
     private static final String INFO_PROXY_USER = "org.eclipse.team.cvs.core.proxy.user"; //$NON-NLS-1$ 
@@ -215,6 +235,23 @@ public class CVSProviderPlugin extends Plugin {
 		return compressionLevel;
 	}
 	
+	/**
+	 * Sets the number of connections that may be opened to a repository at
+	 * once to fetch remote state. A value of 1 fetches over one connection at
+	 * a time.
+	 */
+	public void setMaximumConnections(int connections) {
+		maximumConnections = Math.max(1, connections);
+	}
+
+	/**
+	 * Gets the number of connections that may be opened to a repository at
+	 * once to fetch remote state.
+	 */
+	public int getMaximumConnections() {
+		return maximumConnections;
+	}
+	
 	/**
 	 * Sets the default keyword substitution mode for text files.
 	 */
@@ -305,6 +342,7 @@ public class CVSProviderPlugin extends Plugin {
 		workspace.addResourceChangeListener(addDeleteMoveListener, IResourceChangeEvent.POST_BUILD);
 		workspace.addResourceChangeListener(metaFileSyncListener, IResourceChangeEvent.POST_CHANGE);
 		workspace.addResourceChangeListener(fileModificationManager, IResourceChangeEvent.POST_CHANGE);
+		workspace.addResourceChangeListener(EntriesSnapshot.getInstance(), IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE);
 		
 		getCVSWorkspaceSubscriber();
 		
@@ -313,6 +351,64 @@ public class CVSProviderPlugin extends Plugin {
 		
 	    tracker = new ServiceTracker(getBundle().getBundleContext(), IJSchService.class.getName(), null);
 	    tracker.open();
+	    
+	    registerProtocolMetrics(context);
+	}
+
+	/*
+	 * Make the protocol metrics available as a service. The MBean is only
+	 * registered once a connection is opened so that the platform MBean
+	 * server is not created on startup.
+	 */
+	private void registerProtocolMetrics(BundleContext context) {
+		synchronized (metricsLock) {
+			metricsRegistration = context.registerService(ICVSProtocolMetrics.class.getName(), ProtocolMetrics.getInstance(), new Hashtable());
+		}
+	}
+
+	/**
+	 * Make the protocol metrics available as an MBean in the platform MBean
+	 * server if they are not already. Called by {@link ProtocolMetrics} when
+	 * the first metrics are recorded.
+	 */
+	public void registerProtocolMetricsMBean() {
+		synchronized (metricsLock) {
+			// Nothing to register before the plug-in is started or after it is stopped
+			if (metricsRegistration == null || metricsPublished) return;
+			// Register at most once, even if the registration fails
+			metricsPublished = true;
+			try {
+				ObjectName name = new ObjectName(ICVSProtocolMetrics.OBJECT_NAME);
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				if (!server.isRegistered(name)) {
+					server.registerMBean(ProtocolMetrics.getInstance(), name);
+					metricsName = name;
+				}
+			} catch (JMException e) {
+				// The metrics are still available as a service
+				log(IStatus.WARNING, "The CVS protocol metrics could not be registered with the MBean server", e); //$NON-NLS-1$
+			} catch (SecurityException e) {
+				log(IStatus.WARNING, "The CVS protocol metrics could not be registered with the MBean server", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private void unregisterProtocolMetrics() {
+		synchronized (metricsLock) {
+			if (metricsRegistration != null) {
+				metricsRegistration.unregister();
+				metricsRegistration = null;
+			}
+			if (metricsName != null) {
+				try {
+					ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+				} catch (JMException e) {
+					// The MBean was already unregistered
+				}
+				metricsName = null;
+			}
+			metricsPublished = false;
+		}
 	}
 	
 	/**
@@ -324,6 +420,8 @@ public class CVSProviderPlugin extends Plugin {
 			debugRegistration.unregister();
 			debugRegistration = null;
 
+			unregisterProtocolMetrics();
+
 			savePluginPreferences();
 			
 			// remove listeners
@@ -331,6 +429,7 @@ public class CVSProviderPlugin extends Plugin {
 			workspace.removeResourceChangeListener(metaFileSyncListener);
 			workspace.removeResourceChangeListener(fileModificationManager);
 			workspace.removeResourceChangeListener(addDeleteMoveListener);
+			workspace.removeResourceChangeListener(EntriesSnapshot.getInstance());
 			
 			// remove all of this plugin's save participants. This is easier than having
 			// each class that added itself as a participant to have to listen to shutdown.
@@ -338,6 +437,8 @@ public class CVSProviderPlugin extends Plugin {
 			
 			getChangeSetManager().dispose();
 			
+			LogEntryStore.flushAll();
+			
 			tracker.close();
 			
 			deleteCrashFile();
@@ -353,6 +454,8 @@ public class CVSProviderPlugin extends Plugin {
 		Preferences store = getPluginPreferences();
 		store.setDefault(READ_ONLY, false);
 		store.setDefault(ENABLE_WATCH_ON_EDIT, false);
+		store.setDefault(FILE_SYSTEM_CACHE_TIMEOUT, DEFAULT_FILE_SYSTEM_CACHE_TIMEOUT);
+		store.setDefault(FILE_SYSTEM_CACHE_SIZE, DEFAULT_FILE_SYSTEM_CACHE_SIZE);
 	}
 	
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,6 +15,7 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.team.core.variants.IResourceVariant;
 import org.eclipse.team.core.variants.IResourceVariantComparator;
 import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
+import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncBytes;
 import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
 
 /**
@@ -57,10 +58,11 @@ import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
 			byte[] syncBytes2 = ((ICVSRemoteFile)e2).getSyncBytes();
 		
 			if(syncBytes1 != null) {
-				if(ResourceSyncInfo.isDeletion(syncBytes1) || ResourceSyncInfo.isMerge(syncBytes1) || cvsFile.isModified(null)) {
+				ResourceSyncBytes localBytes = new ResourceSyncBytes(syncBytes1);
+				if(localBytes.isDeletion() || localBytes.isMerge() || cvsFile.isModified(null)) {
 					return false;
 				}
-				return ResourceSyncInfo.getRevision(syncBytes1).equals(ResourceSyncInfo.getRevision(syncBytes2));
+				return localBytes.revisionEquals(new ResourceSyncBytes(syncBytes2));
 			}
 			return false;
 		} catch(CVSException e) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import java.util.*;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.team.core.history.ITag;
+import org.eclipse.team.internal.ccvs.core.util.WeakInterner;
 
 /**
  * A tag in CVS gives a label  to a collection of revisions. The labels can represent a version, a branch, 
@@ -41,6 +42,25 @@ public class CVSTag implements ITag {
 	protected String branchRevision;
 	protected int type;
 
+	/*
+	 * Canonical instances of the tags. Tags are only shared when they are
+	 * of the same class and have the same name, type and branch revision
+	 * because equal tags may have different branch revisions.
+	 */
+	private static final WeakInterner tags = new WeakInterner() {
+		protected int hash(Object object) {
+			return object.getClass().hashCode() ^ object.hashCode();
+		}
+		protected boolean equivalent(Object canonical, Object object) {
+			CVSTag tag1 = (CVSTag) canonical;
+			CVSTag tag2 = (CVSTag) object;
+			return tag1.getClass() == tag2.getClass()
+				&& tag1.type == tag2.type
+				&& tag1.name.equals(tag2.name)
+				&& (tag1.branchRevision == null ? tag2.branchRevision == null : tag1.branchRevision.equals(tag2.branchRevision));
+		}
+	};
+
 	private static final String DATE_TAG_NAME_FORMAT = "dd MMM yyyy HH:mm:ss Z";//$NON-NLS-1$
 	private static final SimpleDateFormat tagNameFormat = new SimpleDateFormat(DATE_TAG_NAME_FORMAT, Locale.US);
 	protected static synchronized String dateToTagName(Date date){
@@ -123,6 +143,17 @@ public class CVSTag implements ITag {
 		return getName().compareToIgnoreCase(other.getName());
 	}
 	
+	/**
+	 * Return the canonical instance of the given tag. Tags are immutable so
+	 * the log entries and sync infos of the files that have the same tag can
+	 * share a single instance instead of each retaining their own.
+	 * @param tag a tag or <code>null</code>
+	 * @return the canonical instance or <code>null</code> if the tag is <code>null</code>
+	 */
+	public static CVSTag intern(CVSTag tag) {
+		return (CVSTag) tags.intern(tag);
+	}
+	
 	public static boolean equalTags(CVSTag tag1, CVSTag tag2) {
 		if (tag1 == null) tag1 = CVSTag.DEFAULT;
 		if (tag2 == null) tag2 = CVSTag.DEFAULT;
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core;
+
+import java.util.Map;
+
+import javax.management.MXBean;
+
+/**
+ * Provides the metrics of the communication with CVS servers, which are
+ * collected for each request sent by the client (e.g. <code>update</code> or
+ * <code>valid-requests</code>) and for each repository location. The metrics
+ * are available as an OSGi service registered under this interface and,
+ * once a connection has been opened, as the JMX MBean named
+ * {@link #OBJECT_NAME} in the platform MBean server.
+ */
+@MXBean
+public interface ICVSProtocolMetrics {
+
+	/**
+	 * The name of the MBean that exposes the metrics.
+	 */
+	public static final String OBJECT_NAME = "org.eclipse.team.cvs.core:type=ProtocolMetrics"; //$NON-NLS-1$
+
+	/**
+	 * Returns the metrics of all the communication with CVS servers.
+	 * @return the metrics of all the communication
+	 */
+	public CVSProtocolStatistics getTotalStatistics();
+
+	/**
+	 * Returns the metrics of the communication with each repository location,
+	 * keyed by the location string in which the password is hidden.
+	 * @return the metrics for each location
+	 */
+	public Map<String, CVSProtocolStatistics> getLocationStatistics();
+
+	/**
+	 * Returns the metrics of each request sent to the servers, keyed by the
+	 * request identifier. Only the requests that have a response are included;
+	 * the traffic of the requests that describe the local state is attributed
+	 * to the request that follows them.
+	 * @return the metrics for each request
+	 */
+	public Map<String, CVSProtocolStatistics> getRequestStatistics();
+
+	/**
+	 * Discards the metrics collected so far.
+	 */
+	public void reset();
+}
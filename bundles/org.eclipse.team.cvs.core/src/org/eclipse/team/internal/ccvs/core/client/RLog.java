@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -118,6 +118,17 @@ public class RLog extends RemoteCommand {
 		
 	}
 	
+	/**
+	 * Makes a -d option for rlog that selects the revisions created after the given date.
+	 * @param date the date
+	 * @return the option to use
+	 * 
+	 * Valid for rlog
+	 */
+	public static LocalOption makeAfterDateOption(Date date) {
+		return new LocalOption("-d", ">" + new CVSTag(date).getName()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.team.internal.ccvs.core.client.Request#getRequestId()
 	 */
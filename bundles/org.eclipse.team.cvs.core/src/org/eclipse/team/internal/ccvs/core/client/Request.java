@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -100,6 +100,16 @@ public abstract class Request {
 	 * @return a status code indicating success or failure of the operation
 	 */
 	protected IStatus executeRequest(Session session, ICommandOutputListener listener,
+		IProgressMonitor monitor) throws CVSException {
+		long start = System.nanoTime();
+		try {
+			return sendRequestAndHandleResponses(session, listener, monitor);
+		} finally {
+			session.requestCompleted(getRequestId(), System.nanoTime() - start);
+		}
+	}
+
+	private IStatus sendRequestAndHandleResponses(Session session, ICommandOutputListener listener,
 		IProgressMonitor monitor) throws CVSException {
 		// send request
 		session.sendRequest(getRequestId());
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -95,6 +95,11 @@ public class Session {
     
     private Command currentCommand;
 
+	// The metrics of the request being executed
+	private long networkTime;
+	private int filesSent;
+	private int filesReceived;
+
 	/**
 	 * Creates a new CVS session, initially in the CLOSED state.
 	 * By default, command output is directed to the console.
@@ -181,13 +186,17 @@ public class Session {
 
 			// enable compression
 			compressionLevel = CVSProviderPlugin.getPlugin().getCompressionLevel();
-			if (compressionLevel != 0 && isValidRequest("gzip-file-contents")) { //$NON-NLS-1$
+			if (compressionLevel != 0 && isValidRequest("Gzip-stream")) { //$NON-NLS-1$
+				// Compress the whole stream, including the protocol lines which dominate
+				// the traffic of commands like status and update. The responses are read
+				// with a ZlibInputStream which, unlike GZIPInputStream, does not block
+				// on read() when a partially filled buffer is available. File contents
+				// are then sent and received uncompressed within the compressed stream.
+				connection.writeLine("Gzip-stream " + Integer.toString(compressionLevel)); //$NON-NLS-1$
+				connection.startCompression(compressionLevel);
+				compressionLevel = 0;
+			} else if (compressionLevel != 0 && isValidRequest("gzip-file-contents")) { //$NON-NLS-1$
 				// Enable the use of CVS 1.8 per-file compression mechanism.
-				// The newer Gzip-stream request seems to be problematic due to Java's
-				// GZIPInputStream tendency to block on read() rather than to return a
-				// partially filled buffer.  The latter option would be better since it
-				// can make more effective use of the code dictionary, if it can be made
-				// to work...
 				connection.writeLine("gzip-file-contents " + Integer.toString(compressionLevel)); //$NON-NLS-1$
 			} else {
 				compressionLevel = 0;
@@ -297,7 +306,12 @@ public class Session {
 	 * @return the line of text
 	 */
 	public String readLine() throws CVSException {
-		return connection.readLine();
+		long start = System.nanoTime();
+		try {
+			return connection.readLine();
+		} finally {
+			networkTime += System.nanoTime() - start;
+		}
 	}
 
 	/**
@@ -343,14 +357,43 @@ public class Session {
 		return string;
 	}
 
+	/**
+	 * Sends the requests written so far to the server. Requests are buffered
+	 * until a request is sent using {@link #sendRequest(String)} or until
+	 * the buffer is full.
+	 */
+	public void flush() throws CVSException {
+		connection.flush();
+	}
+
 	/**
 	 * Sends a request to the server and flushes any output buffers.
 	 * 
 	 * @param requestId the string associated with the request to be executed
 	 */
 	public void sendRequest(String requestId) throws CVSException {
-		connection.writeLine(requestId);
-		connection.flush();
+		long start = System.nanoTime();
+		try {
+			connection.writeLine(requestId);
+			connection.flush();
+		} finally {
+			networkTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Records the metrics of a request whose last response was handled.
+	 * 
+	 * @param requestId the request identifier
+	 * @param time the time from sending the request to handling its last response in nanoseconds
+	 */
+	void requestCompleted(String requestId, long time) {
+		if (connection != null) {
+			connection.requestCompleted(requestId, time, networkTime, filesSent, filesReceived);
+		}
+		networkTime = 0;
+		filesSent = 0;
+		filesReceived = 0;
 	}
 
 	/**
@@ -613,6 +656,7 @@ public class Session {
 		 * @param monitor the progress monitor
 		 */
 		public void sendFile(ICVSStorage file, boolean isBinary, boolean sendBinary, IProgressMonitor monitor) throws CVSException {
+			filesSent++;
 			// check overrides
 			if (textTransferOverrideSet != null &&
 				textTransferOverrideSet.contains(file)) isBinary = false;
@@ -739,6 +783,7 @@ public class Session {
 	 */
 	public void receiveFile(ICVSStorage file, boolean isBinary, int responseType, IProgressMonitor monitor)
 	throws CVSException {
+		filesReceived++;
 		// check overrides
 		if (textTransferOverrideSet != null &&
 			textTransferOverrideSet.contains(file)) isBinary = false;
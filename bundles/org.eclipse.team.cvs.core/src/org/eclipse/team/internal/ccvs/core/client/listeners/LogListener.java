@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -65,7 +65,6 @@ public class LogListener extends CommandOutputListener {
     private String author;
     private Date creationDate;
     private List versions = new ArrayList();
-    private Map internedStrings = new HashMap();
     private final ILogEntryListener listener;
     
     /**
@@ -131,7 +130,7 @@ public class LogListener extends CommandOutputListener {
     			} else if (line.startsWith("revision ")) { //$NON-NLS-1$
     				// if the revision has been locked, remove the "locked by" suffix 
     				revision = line.substring(9).replaceFirst(ResourceSyncInfo.LOCKEDBY_REGEX, ""); //$NON-NLS-1$
-    				revision = internAndCopyString(revision);
+    				revision = Util.intern(revision);
     				state = REVISION;
     			} else if (line.startsWith("total revisions:")){ //$NON-NLS-1$
     				//if there are no current revision selected and this is a branch then we are in the 
@@ -153,8 +152,8 @@ public class LogListener extends CommandOutputListener {
     				state = BEGIN;
     			} else {
     				int firstColon = line.indexOf(':');
-    				String tagName = internAndCopyString(line.substring(1, firstColon));
-    				String tagRevision = internAndCopyString(line.substring(firstColon + 2));
+    				String tagName = Util.intern(line.substring(1, firstColon));
+    				String tagRevision = Util.intern(line.substring(firstColon + 2));
     				versions.add(new VersionInfo(tagRevision, tagName));
     			}
     			break;
@@ -166,11 +165,11 @@ public class LogListener extends CommandOutputListener {
     
     			// get the author name
     			int endOfAuthorIndex = line.indexOf(';', endOfDateIndex + 1);
-    			author = internAndCopyString(line.substring(endOfDateIndex + 11, endOfAuthorIndex));
+    			author = Util.intern(line.substring(endOfDateIndex + 11, endOfAuthorIndex));
 
     			// get the file state (because this revision might be "dead")
     			int endOfStateIndex = line.indexOf(';', endOfAuthorIndex + 1) < 0 ? line.length() : line.indexOf(';', endOfAuthorIndex + 1);
-    			fileState = internAndCopyString(line.substring(endOfAuthorIndex + 10, endOfStateIndex));
+    			fileState = Util.intern(line.substring(endOfAuthorIndex + 10, endOfStateIndex));
     			comment = new StringBuffer();
     			state = COMMENT;
     			break;
@@ -205,13 +204,13 @@ public class LogListener extends CommandOutputListener {
 				int type = version.isBranch() ? CVSTag.BRANCH : CVSTag.VERSION;
 				if ( branchRevision.equals(tagBranchRevision) || 
 						(version.isBranch() && revision.equals(tagRevision))) {
-    				CVSTag cvsTag = new CVSTag(tagName, tagBranchRevision, type);
+    				CVSTag cvsTag = CVSTag.intern(new CVSTag(tagName, tagBranchRevision, type));
     				thisRevisionBranches.add(cvsTag);
     			}
     			
 				if (tagRevision.equals(revision) ||
     				revision.equals(BRANCH_REVISION)) {
-    				CVSTag cvsTag = new CVSTag(tagName, tagBranchRevision, type);
+    				CVSTag cvsTag = CVSTag.intern(new CVSTag(tagName, tagBranchRevision, type));
     				thisRevisionTags.add(cvsTag);
     				if (revision.equals(BRANCH_REVISION)){
     					//also record the tag revision
@@ -221,17 +220,17 @@ public class LogListener extends CommandOutputListener {
     		}
     		
     		if (branchRevision.equals(CVSTag.HEAD_REVISION)) {
-    			CVSTag tag = new CVSTag(CVSTag.HEAD_BRANCH, CVSTag.HEAD_REVISION, CVSTag.HEAD);
+    			CVSTag tag = CVSTag.intern(new CVSTag(CVSTag.HEAD_BRANCH, CVSTag.HEAD_REVISION, CVSTag.HEAD));
 				thisRevisionBranches.add(tag);
     		} else {
         		if ( thisRevisionBranches.size() == 0) {
-        			CVSTag cvsTag = new CVSTag(CVSTag.UNKNOWN_BRANCH, branchRevision, CVSTag.BRANCH);
+        			CVSTag cvsTag = CVSTag.intern(new CVSTag(CVSTag.UNKNOWN_BRANCH, branchRevision, CVSTag.BRANCH));
         			thisRevisionBranches.add(cvsTag);
     			}			
     		}
     		if (currentFile != null) {
     			LogEntry entry = new LogEntry(currentFile, revision, author, creationDate,
-    				internString(comment.toString()), fileState, 
+    				Util.intern(comment.toString()), fileState, 
     				!thisRevisionTags.isEmpty() ? (CVSTag[]) thisRevisionTags.toArray(new CVSTag[thisRevisionTags.size()]) :NO_TAGS, 
     				!thisRevisionBranches.isEmpty() ? (CVSTag[]) thisRevisionBranches.toArray(new CVSTag[thisRevisionBranches.size()]) :NO_TAGS, 
     					!revisionVersions.isEmpty() ? (String[]) revisionVersions.toArray(new String[revisionVersions.size()]) : NO_VERSIONS);
@@ -303,24 +302,6 @@ public class LogListener extends CommandOutputListener {
         }
     }
     
-    private String internAndCopyString(String string) {
-    	String internedString = (String) internedStrings.get(string);
-    	if (internedString == null) {
-    		internedString = new String(string);
-    		internedStrings.put(internedString, internedString);
-    	}
-    	return internedString;
-    }
-    
-    private String internString(String string) {
-    	String internedString = (String) internedStrings.get(string);
-    	if (internedString == null) {
-    		internedString = string;
-    		internedStrings.put(internedString, internedString);
-    	}
-    	return internedString;    	
-    }
-    
     private static class VersionInfo {
 		private final boolean isBranch;
 		private String tagRevision;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,8 @@ package org.eclipse.team.internal.ccvs.core.connection;
 
  
 import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -38,14 +40,49 @@ import org.eclipse.team.internal.ccvs.core.*;
  */
 public class Connection {
 	private static final byte NEWLINE= 0xA;
+	// Requests are buffered until flushed so that they are sent in large writes
+	private static final int REQUEST_BUFFER_SIZE = 32768;
+	// Responses are read in chunks of the bytes already received
+	private static final int RESPONSE_BUFFER_SIZE = 65536;
 	
 	private IServerConnection serverConnection;
 	private ICVSRepositoryLocation fCVSRoot;
 	private boolean fIsEstablished;
 	private InputStream fResponseStream;
+	private OutputStream fRequestStream;
+	private Deflater fDeflater;
+	private ZlibInputStream fInflaterStream;
+	private ReadAheadInputStream fReadAheadStream;
+	private CountingOutputStream fServerOutputStream;
+	// The uncompressed traffic when compression started
+	private long fUncompressedSentBase;
+	private long fUncompressedReceivedBase;
+	// The traffic when the last request completed
+	private long fLastSent;
+	private long fLastReceived;
+	private long fLastUncompressedSent;
+	private long fLastUncompressedReceived;
 	private String fServerEncoding;
 	private byte[] readLineBuffer = new byte[256];
 
+	/*
+	 * Counts the bytes sent to the server.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		long count;
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
 	public Connection(ICVSRepositoryLocation cvsroot, IServerConnection serverConnection) {
 		fCVSRoot = cvsroot;
 		this.serverConnection = serverConnection;
@@ -76,12 +113,24 @@ public class Connection {
 				CVSProviderPlugin.log(new CVSCommunicationException(CVSMessages.Connection_cannotClose, fCVSRoot, ex));
 			}
 		} finally {
+			if (fDeflater != null) {
+				fDeflater.end();
+				fDeflater = null;
+			}
+			if (fInflaterStream != null) {
+				fInflaterStream.release();
+				fInflaterStream = null;
+			}
+			fRequestStream = null;
 			fResponseStream = null;
+			fReadAheadStream = null;
+			fServerOutputStream = null;
 			fIsEstablished = false;
 		}
 	}
 	/**
-	 * Flushes the request stream.
+	 * Flushes the request stream. Requests are buffered and only sent
+	 * to the server when flushed or when the buffer is full.
 	 */
 	public void flush() throws CVSException {
 		if (!isEstablished())
@@ -100,7 +149,18 @@ public class Connection {
 	public OutputStream getOutputStream() {
 		if (!isEstablished())
 			return null;
-		return serverConnection.getOutputStream();
+		if (fRequestStream == null)
+			fRequestStream = new BufferedOutputStream(getServerOutputStream(), REQUEST_BUFFER_SIZE);
+		return fRequestStream;
+	}
+
+	/*
+	 * Returns the stream to the server, which counts the bytes sent.
+	 */
+	private OutputStream getServerOutputStream() {
+		if (fServerOutputStream == null)
+			fServerOutputStream = new CountingOutputStream(serverConnection.getOutputStream());
+		return fServerOutputStream;
 	}
 	/**
 	 * Returns the <code>InputStream</code> used to read responses from
@@ -109,11 +169,41 @@ public class Connection {
 	public InputStream getInputStream() {
 		if (!isEstablished())
 			return null;
-		if (fResponseStream == null)
-			fResponseStream = serverConnection.getInputStream();
+		if (fResponseStream == null) {
+			fReadAheadStream = new ReadAheadInputStream(serverConnection.getInputStream(), RESPONSE_BUFFER_SIZE);
+			fResponseStream = fReadAheadStream;
+		}
 		return fResponseStream;	
 	}
 
+	/**
+	 * Compresses all further communication with the server using zlib, as
+	 * requested by a <code>Gzip-stream</code> request. Pending requests, including
+	 * the <code>Gzip-stream</code> request itself, are sent uncompressed. Flushing
+	 * the request stream afterwards performs a sync-flush of the compressor so
+	 * that the server can process the requests sent so far.
+	 * 
+	 * @param level the compression level (1 - 9)
+	 */
+	public void startCompression(int level) throws CVSException {
+		if (!isEstablished() || isCompressing())
+			return;
+		flush();
+		fUncompressedSentBase = getBytesSent();
+		fUncompressedReceivedBase = getBytesReceived();
+		fDeflater = new Deflater(level);
+		fRequestStream = new BufferedOutputStream(new DeflaterOutputStream(getServerOutputStream(), fDeflater, 4096, true /* sync flush */), REQUEST_BUFFER_SIZE);
+		fInflaterStream = new ZlibInputStream(getInputStream());
+		fResponseStream = fInflaterStream;
+	}
+
+	/**
+	 * Returns whether the communication with the server is compressed.
+	 */
+	public boolean isCompressing() {
+		return fDeflater != null;
+	}
+
 	/**
 	 * Returns <code>true</code> if the connection is established;
 	 * otherwise <code>false</code>.
@@ -128,13 +218,53 @@ public class Connection {
 	public void open(IProgressMonitor monitor) throws CVSException {
 		if (isEstablished())
 			return;
+		long start = System.nanoTime();
 		try {
 			serverConnection.open(monitor);
 		} catch (IOException e) {
+			ProtocolMetrics.getInstance().connectionFailed(fCVSRoot);
 			throw new CVSCommunicationException(NLS.bind(CVSMessages.Connection_0, new String[] { fCVSRoot.getLocation(true), CVSCommunicationException.getMessageFor(e) }), fCVSRoot, e); 
 		}
+		ProtocolMetrics.getInstance().connectionOpened(fCVSRoot, System.nanoTime() - start);
+		fUncompressedSentBase = fUncompressedReceivedBase = 0;
+		fLastSent = fLastReceived = fLastUncompressedSent = fLastUncompressedReceived = 0;
 		fIsEstablished= true; 
 	}
+
+	/**
+	 * Records the metrics of a request that completed, attributing to it the
+	 * traffic since the previous request completed.
+	 * 
+	 * @param requestId the request identifier
+	 * @param time the time from sending the request to handling its last response in nanoseconds
+	 * @param network the part of the time spent sending the request and reading response lines
+	 * @param filesSent the number of files sent for the request
+	 * @param filesReceived the number of files received for the request
+	 */
+	public void requestCompleted(String requestId, long time, long network, int filesSent, int filesReceived) {
+		if (!isEstablished())
+			return;
+		long sent = getBytesSent();
+		long received = getBytesReceived();
+		long uncompressedSent = fDeflater == null ? sent : fUncompressedSentBase + fDeflater.getBytesRead();
+		long uncompressedReceived = fInflaterStream == null ? received : fUncompressedReceivedBase + fInflaterStream.getBytesInflated();
+		ProtocolMetrics.getInstance().requestCompleted(fCVSRoot, requestId, time, network,
+				sent - fLastSent, received - fLastReceived,
+				uncompressedSent - fLastUncompressedSent, uncompressedReceived - fLastUncompressedReceived,
+				filesSent, filesReceived);
+		fLastSent = sent;
+		fLastReceived = received;
+		fLastUncompressedSent = uncompressedSent;
+		fLastUncompressedReceived = uncompressedReceived;
+	}
+
+	private long getBytesSent() {
+		return fServerOutputStream == null ? 0 : fServerOutputStream.count;
+	}
+
+	private long getBytesReceived() {
+		return fReadAheadStream == null ? 0 : fReadAheadStream.getBytesConsumed();
+	}
 	/**
 	 * Reads a line from the response stream.
 	 */
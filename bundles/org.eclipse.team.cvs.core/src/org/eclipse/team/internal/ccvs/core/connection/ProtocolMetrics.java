@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.connection;
+
+import java.util.*;
+
+import org.eclipse.team.internal.ccvs.core.*;
+
+/**
+ * Collects the metrics of the communication with CVS servers. The connections
+ * record the time taken to open them and the traffic of each request that has
+ * a response. The metrics are accumulated per repository location and per
+ * request and are available through {@link ICVSProtocolMetrics}. The metrics
+ * are registered as an MBean when the first metrics are recorded.
+ */
+public class ProtocolMetrics implements ICVSProtocolMetrics {
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private static final ProtocolMetrics instance = new ProtocolMetrics();
+
+	private Accumulator total = new Accumulator();
+	// String:location -> Accumulator
+	private Map locations = new HashMap();
+	// String:request id -> Accumulator
+	private Map requests = new HashMap();
+
+	/*
+	 * The metrics of the connections or requests of a location, of a request or of all.
+	 */
+	private static class Accumulator {
+		long connections;
+		long failedConnections;
+		long connectionTime;
+		final long[] connectionTimeHistogram = new long[CVSProtocolStatistics.HISTOGRAM_BUCKETS];
+		long requests;
+		long requestTime;
+		final long[] requestTimeHistogram = new long[CVSProtocolStatistics.HISTOGRAM_BUCKETS];
+		long networkTime;
+		long bytesSent;
+		long bytesReceived;
+		long uncompressedBytesSent;
+		long uncompressedBytesReceived;
+		long filesSent;
+		long filesReceived;
+
+		void connectionOpened(long time) {
+			connections++;
+			connectionTime += time;
+			connectionTimeHistogram[CVSProtocolStatistics.getHistogramBucket(time / NANOS_PER_MILLI)]++;
+		}
+
+		void requestCompleted(long time, long network, long sent, long received, long uncompressedSent, long uncompressedReceived, int filesOut, int filesIn) {
+			requests++;
+			requestTime += time;
+			requestTimeHistogram[CVSProtocolStatistics.getHistogramBucket(time / NANOS_PER_MILLI)]++;
+			networkTime += network;
+			bytesSent += sent;
+			bytesReceived += received;
+			uncompressedBytesSent += uncompressedSent;
+			uncompressedBytesReceived += uncompressedReceived;
+			filesSent += filesOut;
+			filesReceived += filesIn;
+		}
+
+		CVSProtocolStatistics toStatistics() {
+			return new CVSProtocolStatistics(connections, failedConnections, connectionTime / NANOS_PER_MILLI, connectionTimeHistogram.clone(),
+					requests, requestTime / NANOS_PER_MILLI, requestTimeHistogram.clone(), networkTime / NANOS_PER_MILLI,
+					bytesSent, bytesReceived, uncompressedBytesSent, uncompressedBytesReceived,
+					filesSent, filesReceived);
+		}
+	}
+
+	public static ProtocolMetrics getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Records that a connection to the given location was opened.
+	 * @param location the repository location
+	 * @param time the time taken to open and authenticate the connection in nanoseconds
+	 */
+	public void connectionOpened(ICVSRepositoryLocation location, long time) {
+		publish();
+		synchronized (this) {
+			total.connectionOpened(time);
+			getAccumulator(locations, location.getLocation(true)).connectionOpened(time);
+		}
+	}
+
+	/**
+	 * Records that a connection to the given location could not be opened.
+	 * @param location the repository location
+	 */
+	public void connectionFailed(ICVSRepositoryLocation location) {
+		publish();
+		synchronized (this) {
+			total.failedConnections++;
+			getAccumulator(locations, location.getLocation(true)).failedConnections++;
+		}
+	}
+
+	/**
+	 * Records that a request completed, that is that its last response was handled.
+	 * @param location the repository location
+	 * @param requestId the request identifier (e.g. <code>update</code>)
+	 * @param time the time from sending the request to handling its last response in nanoseconds
+	 * @param network the part of the time spent sending the request and reading response lines in nanoseconds
+	 * @param sent the bytes sent for the request, after compression
+	 * @param received the bytes received for the request, before decompression
+	 * @param uncompressedSent the bytes sent for the request, before compression
+	 * @param uncompressedReceived the bytes received for the request, after decompression
+	 * @param filesSent the number of files sent for the request
+	 * @param filesReceived the number of files received for the request
+	 */
+	public synchronized void requestCompleted(ICVSRepositoryLocation location, String requestId, long time, long network,
+			long sent, long received, long uncompressedSent, long uncompressedReceived, int filesSent, int filesReceived) {
+		total.requestCompleted(time, network, sent, received, uncompressedSent, uncompressedReceived, filesSent, filesReceived);
+		getAccumulator(locations, location.getLocation(true)).requestCompleted(time, network, sent, received, uncompressedSent, uncompressedReceived, filesSent, filesReceived);
+		getAccumulator(requests, requestId).requestCompleted(time, network, sent, received, uncompressedSent, uncompressedReceived, filesSent, filesReceived);
+	}
+
+	/*
+	 * Register the MBean if it is not registered yet. Connections are opened
+	 * before any request is sent so the MBean is registered when the first
+	 * metrics are recorded.
+	 */
+	private void publish() {
+		CVSProviderPlugin plugin = CVSProviderPlugin.getPlugin();
+		if (plugin != null) {
+			plugin.registerProtocolMetricsMBean();
+		}
+	}
+
+	private Accumulator getAccumulator(Map map, String key) {
+		Accumulator accumulator = (Accumulator) map.get(key);
+		if (accumulator == null) {
+			accumulator = new Accumulator();
+			map.put(key, accumulator);
+		}
+		return accumulator;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.core.ICVSProtocolMetrics#getTotalStatistics()
+	 */
+	public synchronized CVSProtocolStatistics getTotalStatistics() {
+		return total.toStatistics();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.core.ICVSProtocolMetrics#getLocationStatistics()
+	 */
+	public synchronized Map<String, CVSProtocolStatistics> getLocationStatistics() {
+		return toStatistics(locations);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.core.ICVSProtocolMetrics#getRequestStatistics()
+	 */
+	public synchronized Map<String, CVSProtocolStatistics> getRequestStatistics() {
+		return toStatistics(requests);
+	}
+
+	private Map<String, CVSProtocolStatistics> toStatistics(Map accumulators) {
+		Map<String, CVSProtocolStatistics> statistics = new TreeMap<String, CVSProtocolStatistics>();
+		for (Iterator iter = accumulators.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			statistics.put((String) entry.getKey(), ((Accumulator) entry.getValue()).toStatistics());
+		}
+		return statistics;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.core.ICVSProtocolMetrics#reset()
+	 */
+	public synchronized void reset() {
+		total = new Accumulator();
+		locations = new HashMap();
+		requests = new HashMap();
+	}
+}
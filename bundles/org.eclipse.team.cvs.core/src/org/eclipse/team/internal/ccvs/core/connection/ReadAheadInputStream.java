@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.connection;
+
+import java.io.*;
+
+/**
+ * Reads the responses of the server in large chunks. When the buffer is
+ * empty, one read blocks until the server responds and further reads take
+ * the bytes that were already received, as long as they fit in the buffer.
+ * <p>
+ * No thread is used to read ahead. The bytes received while the responses
+ * are handled are held by the buffers of the underlying streams: the
+ * TimeoutInputStream of the connection, which reads on a shared thread, and
+ * the buffer of the socket or pipe. Timeouts are reported as they are by the
+ * underlying stream, bytes transferred before a timeout are kept.
+ * </p>
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	private final InputStream in;
+	private final byte[] buffer;
+	private int position = 0; // points to the first unread byte
+	private int count = 0; // the number of bytes in the buffer
+	private long consumed = 0; // number of bytes read so far
+
+	/**
+	 * Creates a stream that reads the given stream in chunks of at most the
+	 * given size.
+	 * @param in the underlying stream
+	 * @param bufferSize the size of the buffer
+	 */
+	public ReadAheadInputStream(InputStream in, int bufferSize) {
+		this.in = in;
+		this.buffer = new byte[bufferSize];
+	}
+
+	public int read() throws IOException {
+		if (position == count && !fill())
+			return -1;
+		consumed++;
+		return buffer[position++] & 0xFF;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (position == count && !fill())
+			return -1;
+		int read = Math.min(len, count - position);
+		System.arraycopy(buffer, position, b, off, read);
+		position += read;
+		consumed += read;
+		return read;
+	}
+
+	public int available() throws IOException {
+		return count - position;
+	}
+
+	/**
+	 * Returns the number of bytes read from the stream so far, not counting
+	 * the bytes in the buffer.
+	 */
+	public long getBytesConsumed() {
+		return consumed;
+	}
+
+	/*
+	 * Fill the empty buffer. Returns false at the end of the stream.
+	 */
+	private boolean fill() throws IOException {
+		position = count = 0;
+		int read;
+		try {
+			read = in.read(buffer, 0, buffer.length);
+		} catch (InterruptedIOException e) {
+			if (e.bytesTransferred <= 0)
+				throw e;
+			read = e.bytesTransferred;
+		}
+		if (read == -1)
+			return false;
+		count = read;
+		// take the bytes that were received in the meantime without blocking
+		try {
+			int available;
+			while (count < buffer.length && (available = in.available()) > 0) {
+				read = in.read(buffer, count, Math.min(available, buffer.length - count));
+				if (read <= 0)
+					break;
+				count += read;
+			}
+		} catch (InterruptedIOException e) {
+			count += Math.max(0, e.bytesTransferred);
+		}
+		return true;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,7 +36,12 @@ public class UserInfo implements IUserInfo {
 		return username;
 	}
 
-	protected String getPassword() {
+	/**
+	 * Return the password held in memory for this user or <code>null</code>.
+	 * The password is not looked up in the secure storage.
+	 * @return the password or <code>null</code>
+	 */
+	public String getPassword() {
 		return password;
 	}
 	
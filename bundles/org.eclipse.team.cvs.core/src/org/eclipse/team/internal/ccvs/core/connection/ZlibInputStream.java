@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.connection;
+
+import java.io.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a zlib stream that is flushed by the sender with sync-flush
+ * semantics, as done by a CVS server after a <code>Gzip-stream</code> request.
+ * <p>
+ * Unlike <code>GZIPInputStream</code>, reads return as soon as some data has been
+ * inflated and the underlying stream is only read when the inflater has consumed
+ * all of its input. A read therefore never blocks waiting for data the server
+ * has not sent yet, which would dead-lock the request/response protocol.
+ * </p>
+ */
+public class ZlibInputStream extends FilterInputStream {
+
+	private static final int BUFFER_SIZE = 4096;
+
+	private final Inflater inflater = new Inflater();
+	private final byte[] input = new byte[BUFFER_SIZE];
+	private final byte[] output = new byte[BUFFER_SIZE];
+	private int position;
+	private int count;
+	private boolean eof;
+	private long inflated;
+
+	public ZlibInputStream(InputStream in) {
+		super(in);
+	}
+
+	public int read() throws IOException {
+		if (!fill())
+			return -1;
+		return output[position++] & 0xFF;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (!fill())
+			return -1;
+		int read = Math.min(len, count - position);
+		System.arraycopy(output, position, b, off, read);
+		position += read;
+		return read;
+	}
+
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n && fill()) {
+			int step = (int)Math.min(n - skipped, count - position);
+			position += step;
+			skipped += step;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Returns the number of bytes that have already been inflated. Reading them
+	 * does not block.
+	 */
+	public int available() throws IOException {
+		return count - position;
+	}
+
+	public boolean markSupported() {
+		return false;
+	}
+
+	public synchronized void mark(int readlimit) {
+		// not supported
+	}
+
+	public synchronized void reset() throws IOException {
+		throw new IOException();
+	}
+
+	public void close() throws IOException {
+		release();
+		super.close();
+	}
+
+	/**
+	 * Returns the number of bytes inflated so far.
+	 */
+	long getBytesInflated() {
+		return inflated;
+	}
+
+	/**
+	 * Frees the inflater without closing the underlying stream.
+	 */
+	void release() {
+		inflater.end();
+		eof = true;
+		position = count = 0;
+	}
+
+	/*
+	 * Inflate until there is at least one byte to return. Returns false at the
+	 * end of the stream.
+	 */
+	private boolean fill() throws IOException {
+		while (position >= count) {
+			if (eof)
+				return false;
+			try {
+				count = inflater.inflate(output, 0, output.length);
+				inflated += count;
+			} catch (DataFormatException e) {
+				throw new IOException(e.getMessage());
+			}
+			position = 0;
+			if (count > 0)
+				return true;
+			if (inflater.finished() || inflater.needsDictionary()) {
+				eof = true;
+				return false;
+			}
+			if (inflater.needsInput()) {
+				int read = in.read(input, 0, input.length);
+				if (read == -1) {
+					eof = true;
+					return false;
+				}
+				inflater.setInput(input, 0, read);
+			}
+		}
+		return true;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2007 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,10 +20,8 @@ import org.eclipse.core.filesystem.provider.FileStore;
 import org.eclipse.core.resources.IStorage;
 import org.eclipse.core.runtime.*;
 import org.eclipse.team.core.TeamException;
-import org.eclipse.team.core.variants.CachedResourceVariant;
 import org.eclipse.team.core.variants.IResourceVariant;
 import org.eclipse.team.internal.ccvs.core.*;
-import org.eclipse.team.internal.ccvs.core.resources.RemoteFile;
 
 public class CVSFileStore extends FileStore {
 
@@ -55,16 +53,7 @@ public class CVSFileStore extends FileStore {
 		if (info != null && !info.isDirectory()) {
 			return new IFileInfo[0];
 		}
-		ICVSRemoteFolder folder = uri.toFolder();
-		ICVSResource[] children = folder.fetchChildren(monitor);
-		
-		IFileInfo[] childInfos = new IFileInfo[children.length];
-		for (int i = 0; i < children.length; i++) {
-			ICVSResource child = children[i];
-			IFileInfo info = getFileInfo(child, monitor);
-			childInfos[i] = info;
-		}
-		return childInfos;
+		return FileInfoCache.getCache().getChildren(uri, monitor);
 	}
 
 	public IFileStore[] childStores(int options, IProgressMonitor monitor) throws CoreException {
@@ -88,25 +77,23 @@ public class CVSFileStore extends FileStore {
 			ICVSRemoteFile file = uri.toFile();
 			return getFileInfo(file, monitor);
 		}
-		ICVSRemoteFolder folder = uri.getParentFolder();
-		
-		if (folder == null) {
+		if (uri.isRepositoryRoot()) {
 			// this is the repo root so return an info that indicates this
 			FileInfo info = new FileInfo();
 			info.setExists(true);
 			info.setName(uri.getRepositoryName());
 			info.setDirectory(true);
+			return info;
 		}
-		ICVSResource[] children = folder.fetchChildren(monitor);
-		ICVSResource resource = null;
+		// The info is found in the listing of the parent, which is shared with the siblings
+		IFileInfo[] children = FileInfoCache.getCache().getChildren(uri.removeLastSegment(), monitor);
 		for (int i = 0; i < children.length; i++) {
-			ICVSResource child = children[i];
+			IFileInfo child = children[i];
 			if (child.getName().equals(getName())) {
-				resource = child;
-				break;
+				return child;
 			}
 		}
-		return getFileInfo(resource, monitor);
+		return null;
 	}
 
 	private boolean isStickyRevision() {
@@ -123,26 +110,7 @@ public class CVSFileStore extends FileStore {
 		monitor = Policy.monitorFor(monitor);
 		if (resource == null)
 			return null;
-		FileInfo info = new FileInfo();
-		info.setExists(true);
-		info.setName(resource.getName());
-		if (!resource.isFolder()) {
-			ICVSRemoteFile file = (ICVSRemoteFile) resource;
-			// Avoid a round trip by looking for the file in the cache
-			if (file instanceof RemoteFile) {
-				RemoteFile remote = (RemoteFile) file;
-				CachedResourceVariant variant = remote.getCachedHandle();
-				if (variant instanceof ICVSRemoteFile) {
-					file = (ICVSRemoteFile) variant;
-				}
-			}
-			ILogEntry entry = file.getLogEntry(monitor);
-			info.setLastModified(entry.getDate().getTime());
-		} else {
-			info.setLastModified(0);
-			info.setDirectory(true);
-		}
-		return info;
+		return FileInfoCache.getFileInfo(resource, null, monitor);
 	}
 
 	public IFileStore getChild(String name) {
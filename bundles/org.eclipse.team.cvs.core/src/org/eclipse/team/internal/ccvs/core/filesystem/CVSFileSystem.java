@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -68,6 +68,8 @@ public class CVSFileSystem extends FileSystem {
 			folderMap.put(folder.getName(), remoteTree);
 			//Save tree
 			cvsTree = new CVSFileTree(new CVSFileStore(cvsURI, null), cvsURI, remoteTree, folderMap, logMap);
+			// The listings of the folders of the tree are up to date so stores can use them
+			FileInfoCache.getCache().addTree(cvsURI.getProjectURI(), remoteTree, logMap);
 
 			return cvsTree;
 		} catch (CoreException e) {
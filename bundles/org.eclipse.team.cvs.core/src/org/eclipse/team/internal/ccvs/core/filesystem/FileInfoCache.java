@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.filesystem;
+
+import java.util.*;
+
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.provider.FileInfo;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.team.core.TeamException;
+import org.eclipse.team.core.variants.CachedResourceVariant;
+import org.eclipse.team.internal.ccvs.core.*;
+import org.eclipse.team.internal.ccvs.core.client.Command;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFile;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFolderTree;
+
+/**
+ * Caches the file infos of the children of the remote folders browsed
+ * through the CVS file system. A cached listing is used until it is older
+ * than the timeout set by the {@link CVSProviderPlugin#FILE_SYSTEM_CACHE_TIMEOUT}
+ * preference and at most {@link CVSProviderPlugin#FILE_SYSTEM_CACHE_SIZE}
+ * folders are kept, the least recently used being discarded first.
+ * <p>
+ * The members of a folder that is not cached are fetched from the folder
+ * itself and the modification times of its files are taken from a single
+ * <code>rlog</code> that does not recurse into the subfolders. Only the
+ * files that are missing from that log have their log entry fetched one at
+ * a time.
+ * </p>
+ */
+public class FileInfoCache {
+
+	private static FileInfoCache instance;
+
+	/*
+	 * String:folder key -> Listing
+	 */
+	private final Map listings = new LinkedHashMap(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > getMaximumSize();
+		}
+	};
+
+	/*
+	 * The children of a folder and the time they were fetched at.
+	 */
+	private static class Listing {
+		final IFileInfo[] children;
+		final long timestamp;
+		Listing(IFileInfo[] children, long timestamp) {
+			this.children = children;
+			this.timestamp = timestamp;
+		}
+	}
+
+	public static synchronized FileInfoCache getCache() {
+		if (instance == null) {
+			instance = new FileInfoCache();
+		}
+		return instance;
+	}
+
+	/**
+	 * Return the file infos of the children of the given folder. The cached
+	 * infos are returned if they have not expired. Otherwise they are fetched
+	 * from the repository.
+	 * @param folder the URI of the folder
+	 * @param monitor a progress monitor
+	 * @return the file infos of the children of the folder
+	 * @throws TeamException
+	 */
+	public IFileInfo[] getChildren(CVSURI folder, IProgressMonitor monitor) throws TeamException {
+		IFileInfo[] children = getCachedChildren(folder);
+		if (children != null) {
+			return children;
+		}
+		monitor = Policy.monitorFor(monitor);
+		monitor.beginTask(null, 100);
+		try {
+			long timestamp = System.currentTimeMillis();
+			children = fetchChildren(folder, Policy.subMonitorFor(monitor, 100));
+			put(folder, children, timestamp);
+			return children;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Cache the file infos of the folders of a tree built from the log of
+	 * the given folder.
+	 * @param folder the URI of the folder the tree was built for
+	 * @param tree the tree
+	 * @param logMap the log entries of the files of the tree
+	 */
+	public void addTree(CVSURI folder, RemoteFolderTree tree, Map logMap) {
+		addTree(folder, tree, logMap, System.currentTimeMillis());
+	}
+
+	private void addTree(CVSURI folder, RemoteFolderTree tree, Map logMap, long timestamp) {
+		ICVSRemoteResource[] members = tree.getChildren();
+		IFileInfo[] children = new IFileInfo[members.length];
+		for (int i = 0; i < members.length; i++) {
+			ICVSRemoteResource member = members[i];
+			FileInfo info = createInfo(member);
+			if (!member.isFolder()) {
+				ILogEntry entry = (ILogEntry) logMap.get(member);
+				if (entry != null && entry.getDate() != null) {
+					info.setLastModified(entry.getDate().getTime());
+				}
+			} else {
+				addTree(folder.append(member.getName()), (RemoteFolderTree) member, logMap, timestamp);
+			}
+			children[i] = info;
+		}
+		put(folder, children, timestamp);
+	}
+
+	/*
+	 * Fetch the members of the folder and take the log entries of its files
+	 * from a log of the folder that does not recurse into the subfolders.
+	 */
+	private IFileInfo[] fetchChildren(CVSURI folder, IProgressMonitor monitor) throws TeamException {
+		monitor.beginTask(null, 100);
+		try {
+			ICVSRemoteFolder remoteFolder = folder.toFolder();
+			ICVSResource[] members = remoteFolder.fetchChildren(Policy.subMonitorFor(monitor, 40));
+			Map entries = new HashMap();
+			// The repository root lists the modules of the repository, which have no log
+			if (!folder.isRepositoryRoot() && hasFile(members)) {
+				entries = fetchLogEntries(remoteFolder, Policy.subMonitorFor(monitor, 40));
+			}
+			IProgressMonitor subMonitor = Policy.subMonitorFor(monitor, 20);
+			subMonitor.beginTask(null, members.length);
+			IFileInfo[] children = new IFileInfo[members.length];
+			for (int i = 0; i < members.length; i++) {
+				ILogEntry entry = (ILogEntry) entries.get(members[i].getName());
+				children[i] = getFileInfo(members[i], entry, Policy.subMonitorFor(subMonitor, 1));
+			}
+			subMonitor.done();
+			return children;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	private boolean hasFile(ICVSResource[] members) {
+		for (int i = 0; i < members.length; i++) {
+			if (!members[i].isFolder()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Return the log entries of the files of the folder keyed by file name.
+	 * Dead files are not reported.
+	 */
+	private Map fetchLogEntries(ICVSRemoteFolder folder, IProgressMonitor monitor) throws TeamException {
+		RemoteLogger logger = new RemoteLogger(folder) {
+			protected Command.LocalOption[] getLocalOptions(CVSTag tag1, CVSTag tag2) {
+				Command.LocalOption[] options = super.getLocalOptions(tag1, tag2);
+				Command.LocalOption[] newOptions = new Command.LocalOption[options.length + 1];
+				System.arraycopy(options, 0, newOptions, 0, options.length);
+				newOptions[options.length] = Command.DO_NOT_RECURSE;
+				return newOptions;
+			}
+		};
+		RemoteFolderTree tree = logger.fetchTree(monitor);
+		Map logMap = logger.getLogMap();
+		Map entries = new HashMap();
+		ICVSRemoteResource[] files = tree.getChildren();
+		for (int i = 0; i < files.length; i++) {
+			ILogEntry entry = (ILogEntry) logMap.get(files[i]);
+			if (entry != null) {
+				entries.put(files[i].getName(), entry);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Return the file info of the given resource. The modification time of a
+	 * file is taken from the given log entry. If there is none, the log entry
+	 * is looked up in the resource variant cache before it is fetched.
+	 * @param resource a remote resource
+	 * @param entry the log entry of the file or <code>null</code>
+	 * @param monitor a progress monitor
+	 * @return the file info of the resource
+	 * @throws TeamException
+	 */
+	static IFileInfo getFileInfo(ICVSResource resource, ILogEntry entry, IProgressMonitor monitor) throws TeamException {
+		FileInfo info = createInfo(resource);
+		if (!resource.isFolder()) {
+			if (entry == null) {
+				ICVSRemoteFile file = (ICVSRemoteFile) resource;
+				// Avoid a round trip by looking for the file in the cache
+				if (file instanceof RemoteFile) {
+					CachedResourceVariant variant = ((RemoteFile) file).getCachedHandle();
+					if (variant instanceof ICVSRemoteFile) {
+						file = (ICVSRemoteFile) variant;
+					}
+				}
+				entry = file.getLogEntry(monitor);
+			}
+			info.setLastModified(entry.getDate().getTime());
+		}
+		return info;
+	}
+
+	private static FileInfo createInfo(ICVSResource resource) {
+		FileInfo info = new FileInfo();
+		info.setExists(true);
+		info.setName(resource.getName());
+		if (resource.isFolder()) {
+			info.setLastModified(0);
+			info.setDirectory(true);
+		}
+		return info;
+	}
+
+	/**
+	 * Return the cached file infos of the children of the given folder or
+	 * <code>null</code> if they are not cached or have expired.
+	 * @param folder the URI of the folder
+	 * @return the cached file infos or <code>null</code>
+	 */
+	public synchronized IFileInfo[] getCachedChildren(CVSURI folder) {
+		String key = getKey(folder);
+		Listing listing = (Listing) listings.get(key);
+		if (listing == null) {
+			return null;
+		}
+		if (System.currentTimeMillis() - listing.timestamp >= getTimeout()) {
+			listings.remove(key);
+			return null;
+		}
+		return listing.children;
+	}
+
+	private synchronized void put(CVSURI folder, IFileInfo[] children, long timestamp) {
+		if (getTimeout() > 0) {
+			listings.put(getKey(folder), new Listing(children, timestamp));
+		}
+	}
+
+	/**
+	 * Discard all the cached file infos.
+	 */
+	public synchronized void clear() {
+		listings.clear();
+	}
+
+	/*
+	 * Return the key of the folder, which identifies its repository, path
+	 * and tag. A folder without a tag is on the default branch.
+	 */
+	private String getKey(CVSURI folder) {
+		CVSTag tag = folder.getTag();
+		if (tag == null) {
+			tag = CVSTag.DEFAULT;
+		}
+		return folder.getRepository().getLocation(false) + ' ' + folder.getPath() + ' ' + tag.getName();
+	}
+
+	private long getTimeout() {
+		return getPreferences().getInt(CVSProviderPlugin.FILE_SYSTEM_CACHE_TIMEOUT, CVSProviderPlugin.DEFAULT_FILE_SYSTEM_CACHE_TIMEOUT) * 1000L;
+	}
+
+	private int getMaximumSize() {
+		return getPreferences().getInt(CVSProviderPlugin.FILE_SYSTEM_CACHE_SIZE, CVSProviderPlugin.DEFAULT_FILE_SYSTEM_CACHE_SIZE);
+	}
+
+	private IEclipsePreferences getPreferences() {
+		return InstanceScope.INSTANCE.getNode(CVSProviderPlugin.ID);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2006 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -89,7 +89,11 @@ public class RemoteLogger {
 				verifyRevision(tag, logEntry[0], remoteFile);
 
 			IPath logPath = new Path(null, remoteFile.getRepositoryRelativePath());
-			if (logPath.segmentCount() > 0) {
+			IPath folderPath = new Path(null, project.getRepositoryRelativePath());
+			if (folderPath.segmentCount() > 0 && folderPath.isPrefixOf(logPath)) {
+				//trim the path of the folder
+				logPath = logPath.removeFirstSegments(folderPath.segmentCount());
+			} else if (logPath.segmentCount() > 0) {
 				//trim everything up to the project segment
 				String[] pathSegments = logPath.segments();
 				int index;
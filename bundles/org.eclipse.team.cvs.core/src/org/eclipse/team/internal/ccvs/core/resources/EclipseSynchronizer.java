@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -622,6 +622,9 @@ public class EclipseSynchronizer implements IFlushOperation {
 			// forget about pruned folders however the top level pruned folder will have resource sync (e.g. 
 			// a line in the Entry file). As a result the folder is managed but is not a CVS folder.
 			synchronizerCache.purgeCache(project, true);
+			
+			// the meta files are no longer read for this project
+			EntriesSnapshot.getInstance().forget(project);
 		} finally {
 			if (rule != null) endBatching(rule, Policy.subMonitorFor(monitor, 5));
 			monitor.done();
@@ -1011,10 +1014,11 @@ public class EclipseSynchronizer implements IFlushOperation {
 			monitor.worked(numDirty - dirtyParents.size());
 
 			// resource sync info changes
+			Map entries = new HashMap();
 			for (Iterator it = dirtyParents.iterator(); it.hasNext();) {
 				IContainer folder = (IContainer) it.next();
 				if (folder.exists() && folder.getType() != IResource.ROOT) {
-					// write sync info for all children in one go
+					// collect sync info for all children in one go
 					try {
                         beginOperation();
 						List infos = new ArrayList();
@@ -1028,8 +1032,7 @@ public class EclipseSynchronizer implements IFlushOperation {
 						}
 						// do not overwrite the sync info for linked resources
 						if (infos.size() > 0 || !isLinkedResource(folder))
-							SyncFileWriter.writeAllResourceSync(folder,
-								(byte[][]) infos.toArray(new byte[infos.size()][]));
+							entries.put(folder, infos.toArray(new byte[infos.size()][]));
 					} catch(CVSException e) {
 						try {
 							sessionPropertyCache.purgeCache(folder, false /* depth 1 */);
@@ -1048,7 +1051,20 @@ public class EclipseSynchronizer implements IFlushOperation {
                         endOperation();
                     }
 				}
-				monitor.worked(1);
+			}
+			// write the Entries files of all folders in one workspace operation
+			Map failures = SyncFileWriter.writeAllResourceSync(entries, Policy.subMonitorFor(monitor, dirtyParents.size()));
+			for (Iterator it = failures.entrySet().iterator(); it.hasNext();) {
+				Map.Entry failure = (Map.Entry) it.next();
+				try {
+                    beginOperation();
+					sessionPropertyCache.purgeCache((IContainer) failure.getKey(), false /* depth 1 */);
+				} catch(CVSException pe) {
+					errors.add(pe.getStatus());
+				} finally {
+                    endOperation();
+                }
+				errors.add(((CVSException) failure.getValue()).getStatus());
 			}
 			
 			/*** broadcast events ***/
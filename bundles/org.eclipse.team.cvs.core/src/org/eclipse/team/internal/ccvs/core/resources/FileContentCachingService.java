@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,12 +11,16 @@
 package org.eclipse.team.internal.ccvs.core.resources;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.team.core.TeamException;
 import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSMessages;
 import org.eclipse.team.internal.ccvs.core.CVSProviderPlugin;
 import org.eclipse.team.internal.ccvs.core.CVSTag;
 import org.eclipse.team.internal.ccvs.core.ICVSFile;
@@ -31,12 +35,25 @@ import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
 
 /**
  * This class can be used to fetch and cache file contents for remote files.
+ * <p>
+ * If more than one connection is allowed (see {@link CVSProviderPlugin#getMaximumConnections()}),
+ * the files are fetched in batches over several connections at once. Batches are
+ * sized by the expected number of bytes, which is taken from the local files if
+ * they are known, and progress is reported in bytes.
  */
 public class FileContentCachingService {
 
+	// the expected size of files whose size cannot be estimated
+	private static final int DEFAULT_FILE_SIZE = 8 * 1024;
+	// the maximum expected number of bytes fetched by one batch
+	private static final int MAX_BATCH_SIZE = 512 * 1024;
+	private static final int MAX_BATCH_FILES = 1024;
+
 	String[] fileDiffs;
 	private CVSRepositoryLocation repository;
 	private ICVSFolder remoteRoot;
+	// the local folder corresponding to the remote root, or null
+	private ICVSFolder localRoot;
 
 	public static RemoteFolderTree buildRemoteTree(CVSRepositoryLocation repository, ICVSFolder root, CVSTag tag, IProgressMonitor monitor) throws CVSException {
 		monitor.beginTask(null, 100);
@@ -44,6 +61,7 @@ public class FileContentCachingService {
 			RemoteFolderTreeBuilder builder = new RemoteFolderTreeBuilder(repository, root, tag);
 			RemoteFolderTree tree =  builder.buildTree(new ICVSResource[] { root }, Policy.subMonitorFor(monitor, 50));
 			FileContentCachingService service = new FileContentCachingService(repository, tree, builder.getFileDiffs());
+			service.localRoot = root;
 			service.cacheFileContents(Policy.subMonitorFor(monitor, 50));
 			return tree;
 		} finally {
@@ -89,6 +107,11 @@ public class FileContentCachingService {
 	private void cacheFileContents(IProgressMonitor monitor) throws CVSException {
 		String[] files = getUncachedFiles();
 		if (files.length == 0) return;
+		int connections = CVSProviderPlugin.getPlugin().getMaximumConnections();
+		if (connections > 1 && files.length > 1) {
+			cacheFileContentsConcurrently(files, connections, monitor);
+			return;
+		}
 		// Fetch the file contents for all out-of-sync files by running an update
 		// on the remote tree passing the known changed files as arguments
 		monitor.beginTask(null, 10 + files.length * 100);
@@ -113,6 +136,82 @@ public class FileContentCachingService {
 		}
 	}
 
+	/*
+	 * Fetch the file contents in batches over several connections at once.
+	 * The files are sorted so that the files of a folder end up in the same batch.
+	 */
+	private void cacheFileContentsConcurrently(String[] files, int connections, IProgressMonitor monitor) throws CVSException {
+		files = files.clone();
+		Arrays.sort(files);
+		long[] sizes = new long[files.length];
+		long total = 0;
+		for (int i = 0; i < files.length; i++) {
+			sizes[i] = estimateSize(files[i]);
+			total += sizes[i];
+		}
+		// Make sure that there is a batch for every connection
+		long batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, (total + connections - 1) / connections));
+		List tasks = new ArrayList();
+		int start = 0;
+		while (start < files.length) {
+			long size = 0;
+			int end = start;
+			while (end < files.length && end - start < MAX_BATCH_FILES && (end == start || size + sizes[end] <= batchSize)) {
+				size += sizes[end];
+				end++;
+			}
+			final String[] batch = new String[end - start];
+			System.arraycopy(files, start, batch, 0, batch.length);
+			tasks.add(new SessionPool.Task((int) (size >> 10)) {
+				void run(Session session, IProgressMonitor monitor) throws CVSException {
+					fetchFileContents(session, batch, monitor);
+				}
+			});
+			start = end;
+		}
+		SessionPool pool = new SessionPool(repository, remoteRoot, connections);
+		try {
+			pool.run(tasks, CVSMessages.FileContentCachingService_errorFetchingContents, monitor);
+		} finally {
+			pool.close();
+		}
+	}
+
+	private void fetchFileContents(Session session, String[] files, IProgressMonitor monitor) throws CVSException {
+		IStatus status = Command.UPDATE.execute(session,
+			Command.NO_GLOBAL_OPTIONS,
+			new LocalOption[] { Update.IGNORE_LOCAL_CHANGES },
+			files,
+			null,
+			monitor);
+		if (!status.isOK()) {
+			// No big deal but log the problem anyway
+			CVSProviderPlugin.log (new CVSException(status));
+		}
+	}
+
+	/*
+	 * Return the expected number of bytes of the given file, which is the size
+	 * of the corresponding local file if there is one.
+	 */
+	private long estimateSize(String filePath) {
+		if (localRoot != null) {
+			try {
+				ICVSFile file = localRoot.getFile(filePath);
+				IResource resource = file.getIResource();
+				IPath location = resource != null ? resource.getLocation() : null;
+				if (location != null) {
+					long size = location.toFile().length();
+					if (size > 0)
+						return size;
+				}
+			} catch (CVSException e) {
+				// Use the default size
+			}
+		}
+		return DEFAULT_FILE_SIZE;
+	}
+
 	/*
 	 * Only return those file in the diff list that exist remotely and whose contents are not already cached
 	 */
@@ -36,6 +36,10 @@ import org.eclipse.team.internal.ccvs.core.util.Util;
  * 
  * The provider IManagedFolder can be a local resource or a RemoteFolderTree that
  * that was previously built.
+ * 
+ * If more than one connection is allowed (see CVSProviderPlugin#getMaximumConnections()),
+ * the contents of new directories and the file revisions are fetched concurrently
+ * over a bounded pool of connections.
  */
 public class RemoteFolderTreeBuilder {
 
@@ -64,6 +68,11 @@ public class RemoteFolderTreeBuilder {
 	
 	private boolean newFolderExist = false;
 	
+	// the maximum number of connections used concurrently
+	private int maximumConnections;
+	// the new directories whose members have already been fetched
+	private Set fetchedDirectories = new HashSet();
+	
 	static class DeltaNode {
 		int syncState = Update.STATE_NONE;
 		String name;
@@ -96,6 +105,7 @@ public class RemoteFolderTreeBuilder {
 		this.fileDeltas = new HashMap();
 		this.changedFiles = new ArrayList();
 		this.remoteFolderTable = new HashMap();
+		this.maximumConnections = CVSProviderPlugin.getPlugin().getMaximumConnections();
 		
 		// Build the local options
 		List localOptions = new ArrayList();
@@ -233,7 +243,13 @@ public class RemoteFolderTreeBuilder {
 			new RemoteFolderTree(null, root.getName(), repository,
 				folderSyncInfo.getRepository(),
 				tagForRemoteFolder(root, tag));
-		if (newFolderExist) {
+		SessionPool pool = null;
+		if (newFolderExist && maximumConnections > 1) {
+			// New folders are fetched concurrently, the pool opens the connections as needed
+			session = null;
+			pool = new SessionPool(repository, remoteRoot, maximumConnections);
+			monitor.worked(10);
+		} else if (newFolderExist) {
 			// New folders will require a connection for fetching their members
 			session = new Session(repository, remoteRoot, false);
 			session.open(Policy.subMonitorFor(monitor, 10), false /* read-only */);
@@ -245,11 +261,14 @@ public class RemoteFolderTreeBuilder {
 			IProgressMonitor subProgress = Policy.infiniteSubMonitorFor(monitor, 90);
 			subProgress.beginTask(null, 512);
 			// Build the remote tree
-			buildRemoteTree(session, root, remoteRoot, "", subProgress); //$NON-NLS-1$
+			buildRemoteTree(session, pool, root, remoteRoot, "", subProgress); //$NON-NLS-1$
 		} finally {
 			if (session != null) {
 				session.close();
 			}
+			if (pool != null) {
+				pool.close();
+			}
 			monitor.done();
 		}
 	}
@@ -258,6 +277,10 @@ public class RemoteFolderTreeBuilder {
 		// 3rd+ Connection: Used to fetch file status in groups of 1024
 		if (remoteRoot != null && !changedFiles.isEmpty()) {
 			String[] allChangedFiles = (String[])changedFiles.toArray(new String[changedFiles.size()]);
+			if (maximumConnections > 1) {
+				fetchFileRevisionsConcurrently(allChangedFiles, monitor);
+				return;
+			}
 			int iterations = (allChangedFiles.length / MAX_REVISION_FETCHES_PER_CONNECTION) 
 				+ (allChangedFiles.length % MAX_REVISION_FETCHES_PER_CONNECTION == 0 ? 0 : 1);
 			for (int i = 0; i < iterations ; i++) {
@@ -276,6 +299,32 @@ public class RemoteFolderTreeBuilder {
 		}
 	}
 	
+	/*
+	 * Fetch the file revisions over up to maximumConnections connections at once.
+	 * The files are split evenly over the connections, in groups of at most 1024.
+	 */
+	private void fetchFileRevisionsConcurrently(String[] allChangedFiles, IProgressMonitor monitor) throws CVSException {
+		int chunkSize = (allChangedFiles.length + maximumConnections - 1) / maximumConnections;
+		chunkSize = Math.min(MAX_REVISION_FETCHES_PER_CONNECTION, chunkSize);
+		List tasks = new ArrayList();
+		for (int start = 0; start < allChangedFiles.length; start += chunkSize) {
+			int length = Math.min(chunkSize, allChangedFiles.length - start);
+			final String buffer[] = new String[length];
+			System.arraycopy(allChangedFiles, start, buffer, 0, length);
+			tasks.add(new SessionPool.Task() {
+				void run(Session session, IProgressMonitor monitor) throws CVSException {
+					fetchFileRevisions(session, buffer, monitor);
+				}
+			});
+		}
+		SessionPool pool = new SessionPool(repository, remoteRoot, maximumConnections);
+		try {
+			pool.run(tasks, CVSMessages.RemoteFolder_errorFetchingRevisions, monitor);
+		} finally {
+			pool.close();
+		}
+	}
+	
 	/* package */ RemoteFile buildTree(ICVSFile file, IProgressMonitor monitor) throws CVSException {
 		QuietOption quietness = CVSProviderPlugin.getPlugin().getQuietness();
 		try {
@@ -432,7 +481,7 @@ public class RemoteFolderTreeBuilder {
 	 * 
 	 * Does 1 work for each file and folder delta processed
 	 */
-	private void buildRemoteTree(Session session, ICVSFolder local, RemoteFolderTree remote, String localPath, IProgressMonitor monitor) throws CVSException {
+	private void buildRemoteTree(Session session, SessionPool pool, ICVSFolder local, RemoteFolderTree remote, String localPath, IProgressMonitor monitor) throws CVSException {
 		
 		Policy.checkCanceled(monitor);
 		
@@ -443,7 +492,7 @@ public class RemoteFolderTreeBuilder {
 		Map children = new HashMap();
 		
 		// If there's no corresponding local resource then we need to fetch its contents in order to populate the deltas
-		if (local == null) {
+		if (local == null && !fetchedDirectories.contains(localPath)) {
 			fetchNewDirectory(session, remote, localPath, monitor);
 		}
 		
@@ -533,6 +582,9 @@ public class RemoteFolderTreeBuilder {
 		// We have to delay building the child folders to support the proper fetching of new directories
 		// due to the fact that the same CVS home directory (i.e. the same root directory) must
 		// be used for all requests sent over the same connection
+		if (pool != null) {
+			fetchNewDirectories(pool, children, deltas, localPath, monitor);
+		}
 		Iterator childIterator = children.entrySet().iterator();
 		List emptyChildren = new ArrayList();
 		while (childIterator.hasNext()) {
@@ -547,7 +599,7 @@ public class RemoteFolderTreeBuilder {
 					localFolder = null;
 				else
 					localFolder = local.getFolder(name);
-				buildRemoteTree(session, localFolder, remoteFolder, Util.appendPath(localPath, name), monitor);
+				buildRemoteTree(session, pool, localFolder, remoteFolder, Util.appendPath(localPath, name), monitor);
 				// Record any children that are empty
 				if (isPruneEmptyDirectories() && remoteFolder.getChildren().length == 0) {
 					// Prune if the local folder is also empty.
@@ -573,6 +625,34 @@ public class RemoteFolderTreeBuilder {
 		}
 	}
 	
+	/*
+	 * Fetch the members of the new directories among the given children concurrently,
+	 * before the children are built.
+	 */
+	private void fetchNewDirectories(SessionPool pool, Map children, Map deltas, String localPath, IProgressMonitor monitor) throws CVSException {
+		List tasks = new ArrayList();
+		List paths = new ArrayList();
+		for (Iterator iter = children.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			String name = (String)entry.getKey();
+			DeltaNode d = (DeltaNode)deltas.get(name);
+			if (d == null || d.getRevision() != FOLDER || !((RemoteResource)entry.getValue()).isFolder())
+				continue;
+			final RemoteFolderTree newFolder = (RemoteFolderTree)entry.getValue();
+			final String path = Util.appendPath(localPath, name);
+			tasks.add(new SessionPool.Task() {
+				void run(Session session, IProgressMonitor monitor) throws CVSException {
+					fetchNewDirectory(session, newFolder, path, monitor);
+				}
+			});
+			paths.add(path);
+		}
+		if (tasks.isEmpty())
+			return;
+		pool.run(tasks, CVSMessages.RemoteFolder_errorFetchingRevisions, Policy.subMonitorFor(monitor, tasks.size()));
+		fetchedDirectories.addAll(paths);
+	}
+	
 	/*
 	 * This method fetches the delta between the local state and the remote state of the resource tree
 	 * and records the deltas in the fileDeltas instance variable
@@ -672,7 +752,7 @@ public class RemoteFolderTreeBuilder {
 			}
 			public void fileInformation(int type, ICVSFolder root, String filename) {
 				// NOTE: Check path prefix
-				changedFiles.add(filename);
+				recordChangedFile(filename);
 				recordDelta(filename, ADDED, type);
 				monitor.subTask(NLS.bind(CVSMessages.RemoteFolderTreeBuilder_receivingDelta, new String[] { Util.toTruncatedPath(filename, 3) })); 
 			}
@@ -760,17 +840,26 @@ public class RemoteFolderTreeBuilder {
 	 * from the repository yet.
 	 */
 	private void recordDelta(String path, String revision, int syncState) {
-		if (revision == FOLDER) {
-			newFolderExist = true;
+		// Deltas of new directories may be recorded by several connections at once
+		synchronized (fileDeltas) {
+			if (revision == FOLDER) {
+				newFolderExist = true;
+			}
+			String parent = Util.removeLastSegment(path);
+			Map deltas = (Map)fileDeltas.get(parent);
+			if (deltas == null) {
+				deltas = new HashMap();
+				fileDeltas.put(parent, deltas);
+			}
+			String name = Util.getLastSegment(path);
+			deltas.put(name, new DeltaNode(name, revision, syncState));
 		}
-		String parent = Util.removeLastSegment(path);
-		Map deltas = (Map)fileDeltas.get(parent);
-		if (deltas == null) {
-			deltas = new HashMap();
-			fileDeltas.put(parent, deltas);
+	}
+	
+	private void recordChangedFile(String path) {
+		synchronized (changedFiles) {
+			changedFiles.add(path);
 		}
-		String name = Util.getLastSegment(path);
-		deltas.put(name, new DeltaNode(name, revision, syncState));
 	}
 	
 	private void updateRevision(String path, String revision) throws CVSException {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -40,7 +40,8 @@ public abstract class RemoteResource extends CachedResourceVariant implements IC
 	 */
 	public RemoteResource(RemoteFolder parent, String name) {
 		this.parent = parent;
-		this.name = name;
+		// The same names appear in every tree fetched for a module
+		this.name = Util.intern(name);
 	}
 
 	/*
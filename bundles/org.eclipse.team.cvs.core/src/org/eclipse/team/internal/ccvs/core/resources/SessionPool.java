@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.resources;
+
+import java.util.*;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.team.internal.ccvs.core.*;
+import org.eclipse.team.internal.ccvs.core.client.Session;
+import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
+
+/*
+ * A bounded pool of connections to a repository, all rooted at the same folder.
+ *
+ * Tasks are run by the calling thread and by worker jobs, each of which uses
+ * one connection exclusively at a time. Connections are opened as needed and kept open until the pool is
+ * closed, so that several batches of tasks can share them.
+ */
+class SessionPool {
+
+	/*
+	 * A unit of work performed over one of the connections of the pool.
+	 * The amount of work is used to report progress.
+	 */
+	static abstract class Task {
+		private final int work;
+
+		Task() {
+			this(1);
+		}
+
+		Task(int work) {
+			this.work = Math.max(1, work);
+		}
+
+		int getWork() {
+			return work;
+		}
+
+		abstract void run(Session session, IProgressMonitor monitor) throws CVSException;
+	}
+
+	/*
+	 * A progress monitor that can be canceled from another thread.
+	 */
+	private static class WorkerMonitor extends NullProgressMonitor {
+		private volatile boolean canceled;
+		public boolean isCanceled() {
+			return canceled;
+		}
+		public void setCanceled(boolean canceled) {
+			this.canceled = canceled;
+		}
+	}
+
+	/*
+	 * The work completed by all threads. Progress is only reported to the
+	 * monitor by the thread that runs the pool.
+	 */
+	private static class Progress {
+		private final IProgressMonitor monitor;
+		private long completed;
+		private long reported;
+		Progress(IProgressMonitor monitor) {
+			this.monitor = monitor;
+		}
+		synchronized void completed(int work) {
+			completed += work;
+		}
+		void report() {
+			long work;
+			synchronized (this) {
+				work = completed;
+			}
+			monitor.worked((int)(work - reported));
+			reported = work;
+		}
+	}
+
+	private final CVSRepositoryLocation repository;
+	private final ICVSFolder sessionRoot;
+	private final int size;
+	private final List idleSessions = new ArrayList();
+
+	SessionPool(CVSRepositoryLocation repository, ICVSFolder sessionRoot, int size) {
+		this.repository = repository;
+		this.sessionRoot = sessionRoot;
+		this.size = Math.max(1, size);
+	}
+
+	private Session acquire(IProgressMonitor monitor) throws CVSException {
+		synchronized (idleSessions) {
+			if (!idleSessions.isEmpty())
+				return (Session)idleSessions.remove(idleSessions.size() - 1);
+		}
+		Session session = new Session(repository, sessionRoot, false);
+		session.open(monitor, false /* read-only */);
+		return session;
+	}
+
+	private void release(Session session) {
+		synchronized (idleSessions) {
+			idleSessions.add(session);
+		}
+	}
+
+	/*
+	 * Run the given tasks and wait until they are done. The first failure
+	 * stops the remaining tasks and is rethrown. If several tasks failed,
+	 * their problems are reported in a multi-status with the given message.
+	 *
+	 * The calling thread runs tasks as well and only waits for the worker
+	 * jobs that have started, so the tasks are done even if the jobs cannot
+	 * run (e.g. because the job manager is suspended).
+	 */
+	void run(List tasks, String errorMessage, final IProgressMonitor monitor) throws CVSException {
+		final LinkedList queue = new LinkedList(tasks);
+		final WorkerMonitor workerMonitor = new WorkerMonitor() {
+			public boolean isCanceled() {
+				return super.isCanceled() || monitor.isCanceled();
+			}
+		};
+		final List exceptions = Collections.synchronizedList(new ArrayList());
+		final Progress progress = new Progress(monitor);
+		final int[] running = new int[1];
+		int totalWork = 0;
+		for (Iterator iter = tasks.iterator(); iter.hasNext();) {
+			totalWork += ((Task) iter.next()).getWork();
+		}
+		int workers = Math.min(size, tasks.size());
+		List jobs = new ArrayList();
+		monitor.beginTask(null, totalWork);
+		try {
+			for (int i = 1; i < workers; i++) {
+				Job job = new Job(NLS.bind(CVSMessages.SessionPool_fetching, new String[] { repository.getHost() })) {
+					protected IStatus run(IProgressMonitor jobMonitor) {
+						synchronized (queue) {
+							if (queue.isEmpty() || workerMonitor.isCanceled())
+								return Status.OK_STATUS;
+							running[0]++;
+						}
+						try {
+							runTasks(queue, workerMonitor, progress, false, exceptions);
+						} finally {
+							synchronized (queue) {
+								running[0]--;
+								queue.notifyAll();
+							}
+						}
+						return Status.OK_STATUS;
+					}
+				};
+				job.setSystem(true);
+				job.schedule();
+				jobs.add(job);
+			}
+			runTasks(queue, workerMonitor, progress, true, exceptions);
+			// Jobs that have not started by now will find the queue empty
+			for (Iterator iter = jobs.iterator(); iter.hasNext();) {
+				((Job) iter.next()).cancel();
+			}
+			boolean interrupted = false;
+			while (true) {
+				progress.report();
+				synchronized (queue) {
+					if (running[0] == 0)
+						break;
+					try {
+						queue.wait(100);
+					} catch (InterruptedException e) {
+						interrupted = true;
+						workerMonitor.setCanceled(true);
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		} finally {
+			monitor.done();
+		}
+		if (!exceptions.isEmpty()) {
+			if (exceptions.size() == 1) {
+				throw (CVSException)exceptions.get(0);
+			}
+			MultiStatus multi = new MultiStatus(CVSProviderPlugin.ID, 0, errorMessage, null);
+			for (int i = 0; i < exceptions.size(); i++) {
+				multi.merge(((CVSException)exceptions.get(i)).getStatus());
+			}
+			throw new CVSException(multi);
+		}
+		Policy.checkCanceled(monitor);
+	}
+
+	/*
+	 * Run tasks from the queue until it is empty or the monitor is canceled.
+	 * A failure is recorded and cancels the remaining tasks.
+	 */
+	private void runTasks(LinkedList queue, IProgressMonitor monitor, Progress progress, boolean report, List exceptions) {
+		try {
+			runTasks(queue, monitor, progress, report);
+		} catch (CVSException e) {
+			exceptions.add(e);
+			monitor.setCanceled(true);
+		} catch (OperationCanceledException e) {
+			// The caller reports the cancelation
+		}
+	}
+
+	private void runTasks(LinkedList queue, IProgressMonitor monitor, Progress progress, boolean report) throws CVSException {
+		Session session = null;
+		boolean reusable = false;
+		try {
+			while (true) {
+				Task task;
+				synchronized (queue) {
+					if (queue.isEmpty() || monitor.isCanceled())
+						return;
+					task = (Task)queue.removeFirst();
+				}
+				reusable = false;
+				if (session == null) {
+					session = acquire(monitor);
+				}
+				task.run(session, monitor);
+				reusable = true;
+				progress.completed(task.getWork());
+				if (report)
+					progress.report();
+			}
+		} finally {
+			if (session != null) {
+				// A connection that failed in the middle of a command cannot be reused
+				if (reusable)
+					release(session);
+				else
+					session.close();
+			}
+		}
+	}
+
+	/*
+	 * Close the connections of the pool.
+	 */
+	void close() {
+		synchronized (idleSessions) {
+			for (Iterator iter = idleSessions.iterator(); iter.hasNext();) {
+				Session session = (Session) iter.next();
+				session.close();
+			}
+			idleSessions.clear();
+		}
+	}
+}
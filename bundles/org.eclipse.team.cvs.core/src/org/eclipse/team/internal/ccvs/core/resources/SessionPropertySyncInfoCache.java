@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ import org.eclipse.team.core.RepositoryProvider;
 import org.eclipse.team.internal.ccvs.core.*;
 import org.eclipse.team.internal.ccvs.core.syncinfo.FolderSyncInfo;
 import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
+import org.eclipse.team.internal.ccvs.core.util.EntriesSnapshot;
 import org.eclipse.team.internal.ccvs.core.util.FileNameMatcher;
 import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 
@@ -424,6 +425,8 @@ import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 				// found a project managed by CVS, convert each session property on a
 				// folder to a sync object.
 				if (provider != null) {
+					// persist the snapshot of the meta files read so far
+					EntriesSnapshot.getInstance().save(project);
 					project.accept(new IResourceVisitor() {
 						public boolean visit(IResource resource) throws CoreException {
 							if(resource.getType() != IResource.FILE) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -229,7 +229,7 @@ public class FolderSyncInfo {
 		if (tag == null || tag.equals(CVSTag.DEFAULT)) {
 			this.tag = null;
 		} else {
-			this.tag = new CVSEntryLineTag(tag);
+			this.tag = (CVSEntryLineTag) CVSTag.intern(new CVSEntryLineTag(tag));
 		}
 	}
 	/*
@@ -0,0 +1,350 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.syncinfo;
+
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSMessages;
+
+/**
+ * A read-only view over the sync bytes of a file (a line of the CVS/Entries
+ * file) that locates the separators of the slots once, as they are needed,
+ * and answers the common queries directly on the bytes, without creating
+ * strings.
+ * <p>
+ * The slots are numbered as in <code>ResourceSyncInfo</code>: slot 0 is the
+ * type prefix, followed by the name (1), the revision (2), the timestamp (3),
+ * the keyword mode (4) and the tag (5). The tag slot extends to the end of the
+ * bytes. A view can be reused for other sync bytes with {@link #reset(byte[])}.
+ * The bytes must not be modified while they are viewed.
+ * </p>
+ *
+ * @see ResourceSyncInfo
+ */
+public final class ResourceSyncBytes {
+
+	private static final int TAG_SLOT = 5;
+	private static final byte SEPARATOR_BYTE = ResourceSyncInfo.SEPARATOR_BYTE;
+	private static final byte DELETED_PREFIX_BYTE = '-';
+	private static final byte[] BINARY_MODE = { '-', 'k', 'b' };
+	private static final byte[] LOCKED_BY = { 'l', 'o', 'c', 'k', 'e', 'd', ' ', 'b', 'y' };
+
+	private byte[] syncBytes;
+	// separators[i] is the offset of the slash before slot i, or -1 if there is no such slot
+	private final int[] separators = new int[TAG_SLOT + 1];
+	// the number of slots whose separator has been searched
+	private int scanned;
+	// the offset from which to search the next separator
+	private int next;
+
+	/**
+	 * Create a view over the given sync bytes.
+	 * @param syncBytes the sync bytes of a file
+	 */
+	public ResourceSyncBytes(byte[] syncBytes) {
+		reset(syncBytes);
+	}
+
+	/**
+	 * View other sync bytes.
+	 * @param syncBytes the sync bytes of a file
+	 * @return this view
+	 */
+	public ResourceSyncBytes reset(byte[] syncBytes) {
+		this.syncBytes = syncBytes;
+		separators[0] = -1;
+		scanned = 1;
+		next = 0;
+		return this;
+	}
+
+	/**
+	 * Return the viewed sync bytes.
+	 * @return the sync bytes
+	 */
+	public byte[] getBytes() {
+		return syncBytes;
+	}
+
+	/**
+	 * Return the offset of the slash that occurs before the given slot or -1
+	 * if the bytes do not have that slot. Slot 0 starts at offset 0 and always
+	 * returns -1.
+	 * @param slot the slot, from 0 to 5
+	 * @return the offset of the slash before the slot
+	 */
+	public int startOfSlot(int slot) {
+		while (scanned <= slot) {
+			int separator = -1;
+			for (int i = next; i < syncBytes.length; i++) {
+				if (syncBytes[i] == SEPARATOR_BYTE) {
+					separator = i;
+					break;
+				}
+			}
+			separators[scanned++] = separator;
+			next = separator == -1 ? syncBytes.length : separator + 1;
+		}
+		return separators[slot];
+	}
+
+	/**
+	 * Return the offset after the last byte of the given slot, which is the
+	 * offset of the slash that follows it or the length of the bytes for the
+	 * last slot. The slot must exist.
+	 * @param slot the slot, from 0 to 5
+	 * @return the offset after the last byte of the slot
+	 */
+	public int endOfSlot(int slot) {
+		if (slot < TAG_SLOT) {
+			int end = startOfSlot(slot + 1);
+			if (end != -1) return end;
+		}
+		return syncBytes.length;
+	}
+
+	/**
+	 * Return the contents of the given slot. The tag slot includes the rest
+	 * of the bytes.
+	 * @param slot the slot, from 1 to 5
+	 * @return the contents of the slot
+	 * @throws CVSException if the bytes do not have the slot
+	 */
+	public String getSlot(int slot) throws CVSException {
+		int start = checkSlot(slot) + 1;
+		return new String(syncBytes, start, endOfSlot(slot) - start);
+	}
+
+	/**
+	 * Return a copy of the bytes of the given slot. The tag slot includes the
+	 * rest of the bytes.
+	 * @param slot the slot, from 1 to 5
+	 * @return the bytes of the slot
+	 * @throws CVSException if the bytes do not have the slot
+	 */
+	public byte[] getSlotBytes(int slot) throws CVSException {
+		int start = checkSlot(slot) + 1;
+		byte[] result = new byte[endOfSlot(slot) - start];
+		System.arraycopy(syncBytes, start, result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * Return the name of the file.
+	 * @throws CVSException if the bytes are malformed
+	 */
+	public String getName() throws CVSException {
+		return getSlot(1);
+	}
+
+	/**
+	 * Return the revision without the deletion prefix and the "locked by"
+	 * suffix.
+	 * @throws CVSException if the bytes are malformed
+	 * @see ResourceSyncInfo#getRevision(byte[])
+	 */
+	public String getRevision() throws CVSException {
+		int start = startOfRevision();
+		return new String(syncBytes, start, endOfRevision(start) - start);
+	}
+
+	/**
+	 * Return whether the given bytes have the same revision as these bytes.
+	 * The deletion prefix and the "locked by" suffix are ignored.
+	 * @param other the other sync bytes
+	 * @return whether the revisions are equal
+	 * @throws CVSException if the bytes are malformed
+	 */
+	public boolean revisionEquals(ResourceSyncBytes other) throws CVSException {
+		int start = startOfRevision();
+		int otherStart = other.startOfRevision();
+		return regionEquals(syncBytes, start, endOfRevision(start),
+				other.syncBytes, otherStart, other.endOfRevision(otherStart));
+	}
+
+	/**
+	 * Return whether the given bytes have the same tag as these bytes.
+	 * @param other the other sync bytes
+	 * @return whether the tags are equal
+	 * @throws CVSException if the bytes are malformed
+	 */
+	public boolean tagEquals(ResourceSyncBytes other) throws CVSException {
+		int start = checkSlot(TAG_SLOT) + 1;
+		int otherStart = other.checkSlot(TAG_SLOT) + 1;
+		return regionEquals(syncBytes, start, syncBytes.length,
+				other.syncBytes, otherStart, other.syncBytes.length);
+	}
+
+	/**
+	 * Return whether the bytes represent a newly added file.
+	 * @throws CVSException if the bytes are malformed
+	 * @see ResourceSyncInfo#isAddition(byte[])
+	 */
+	public boolean isAddition() throws CVSException {
+		int start = startOfSlot(2);
+		// There must be a slot and, in the very least, there must be two characters after the slot
+		if (start == -1 || start > syncBytes.length - 3) {
+			throw malformed(syncBytes);
+		}
+		// If the zero is followed by a dot, then it is a valid revision and not an addition
+		return syncBytes[start + 1] == '0' && syncBytes[start + 2] != '.';
+	}
+
+	/**
+	 * Return whether the bytes represent a deleted file.
+	 * @throws CVSException if the bytes are malformed
+	 * @see ResourceSyncInfo#isDeletion(byte[])
+	 */
+	public boolean isDeletion() throws CVSException {
+		int start = startOfSlot(2);
+		if (start == -1 || start >= syncBytes.length - 1) {
+			throw malformed(syncBytes);
+		}
+		return syncBytes[start + 1] == DELETED_PREFIX_BYTE;
+	}
+
+	/**
+	 * Return whether the bytes represent a binary file.
+	 * @throws CVSException if the bytes are malformed
+	 */
+	public boolean isBinary() throws CVSException {
+		int start = checkSlot(4) + 1;
+		return regionEquals(syncBytes, start, endOfSlot(4), BINARY_MODE, 0, BINARY_MODE.length);
+	}
+
+	/**
+	 * Return whether the timestamp marks the file as merged.
+	 * @throws CVSException if the bytes are malformed
+	 * @see ResourceSyncInfo#isMerge(byte[])
+	 */
+	public boolean isMerge() throws CVSException {
+		int syncType = getSyncType();
+		return syncType == ResourceSyncInfo.TYPE_MERGED || syncType == ResourceSyncInfo.TYPE_MERGED_WITH_CONFLICTS;
+	}
+
+	/**
+	 * Return whether the timestamp marks the file as merged with conflicts.
+	 * @throws CVSException if the bytes are malformed
+	 */
+	public boolean isMergedWithConflicts() throws CVSException {
+		return getSyncType() == ResourceSyncInfo.TYPE_MERGED_WITH_CONFLICTS;
+	}
+
+	/**
+	 * Return whether the timestamp marks the file as deleted and restored.
+	 * @throws CVSException if the bytes are malformed
+	 */
+	public boolean wasDeleted() throws CVSException {
+		return getSyncType() == ResourceSyncInfo.TYPE_DELETED_AND_RESTORED;
+	}
+
+	/*
+	 * Same as ResourceSyncInfo#getSyncType(String) for the timestamp slot.
+	 */
+	private int getSyncType() throws CVSException {
+		int start = checkSlot(3) + 1;
+		int end = endOfSlot(3);
+		if (isRegularTimestamp(start, end)) {
+			return ResourceSyncInfo.TYPE_REGULAR;
+		} else if (contains(start, end, ResourceSyncInfo.TIMESTAMP_SERVER_MERGED)) {
+			return ResourceSyncInfo.TYPE_MERGED;
+		} else if (contains(start, end, ResourceSyncInfo.TIMESTAMP_SERVER_MERGED_WITH_CONFLICT)) {
+			return ResourceSyncInfo.TYPE_MERGED_WITH_CONFLICTS;
+		} else if (contains(start, end, ResourceSyncInfo.TIMESTAMP_MERGED_WITH_CONFLICT)) {
+			return ResourceSyncInfo.TYPE_MERGED_WITH_CONFLICTS;
+		} else if (contains(start, end, ResourceSyncInfo.TIMESTAMP_MERGED)) {
+			return ResourceSyncInfo.TYPE_MERGED;
+		} else if (contains(start, end, ResourceSyncInfo.TIMESTAMP_DELETED_AND_RESTORED)) {
+			return ResourceSyncInfo.TYPE_DELETED_AND_RESTORED;
+		}
+		return ResourceSyncInfo.TYPE_REGULAR;
+	}
+
+	/*
+	 * Return whether the timestamp between start and end cannot contain any of
+	 * the markers, which all contain a '+' or an 'R'.
+	 */
+	private boolean isRegularTimestamp(int start, int end) {
+		for (int i = start; i < end; i++) {
+			byte b = syncBytes[i];
+			if (b == '+' || b == 'R') return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Return whether the bytes between start and end contain the given ASCII string.
+	 */
+	private boolean contains(int start, int end, String marker) {
+		int length = marker.length();
+		outer: for (int i = start; i <= end - length; i++) {
+			for (int j = 0; j < length; j++) {
+				if (syncBytes[i + j] != marker.charAt(j)) continue outer;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Return the offset of the revision after the deletion prefix.
+	 */
+	private int startOfRevision() throws CVSException {
+		int start = checkSlot(2) + 1;
+		if (start < endOfSlot(2) && syncBytes[start] == DELETED_PREFIX_BYTE) {
+			start++;
+		}
+		return start;
+	}
+
+	/*
+	 * Return the end of the revision before the "locked by" suffix, which is
+	 * a white space followed by "locked by" and at least one more character
+	 * (see ResourceSyncInfo#LOCKEDBY_REGEX).
+	 */
+	private int endOfRevision(int start) {
+		int end = endOfSlot(2);
+		for (int i = start; i < end - LOCKED_BY.length - 1; i++) {
+			if (isWhitespace(syncBytes[i]) && regionEquals(syncBytes, i + 1, i + 1 + LOCKED_BY.length, LOCKED_BY, 0, LOCKED_BY.length)) {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		// the characters matched by \s
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+
+	private static boolean regionEquals(byte[] bytes, int start, int end, byte[] otherBytes, int otherStart, int otherEnd) {
+		if (end - start != otherEnd - otherStart) return false;
+		for (int i = start, j = otherStart; i < end; i++, j++) {
+			if (bytes[i] != otherBytes[j]) return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Return the offset of the slash before the given slot, failing if there is none.
+	 */
+	private int checkSlot(int slot) throws CVSException {
+		int start = startOfSlot(slot);
+		if (start == -1) {
+			throw malformed(syncBytes);
+		}
+		return start;
+	}
+
+	private static CVSException malformed(byte[] syncBytes) {
+		return new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) }));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -328,7 +328,7 @@ public class ResourceSyncInfo {
 	 */
 	protected void setTag(CVSTag tag) {
 		if(tag!=null) {
-			this.tag = new CVSEntryLineTag(tag);
+			this.tag = (CVSEntryLineTag) CVSTag.intern(new CVSEntryLineTag(tag));
 		} else {
 			this.tag = null;
 		}					
@@ -365,7 +365,7 @@ public class ResourceSyncInfo {
 			this.revision = revision;
 			isDeleted = false;
 		}
-		this.revision = this.revision.replaceFirst(LOCKEDBY_REGEX, ""); //$NON-NLS-1$
+		this.revision = Util.intern(this.revision.replaceFirst(LOCKEDBY_REGEX, "")); //$NON-NLS-1$
 	}
 	
 	/**
@@ -457,7 +457,7 @@ public class ResourceSyncInfo {
 		}
 						
 		if(tagEntry.length()>0) {
-			tag = new CVSEntryLineTag(tagEntry);
+			tag = (CVSEntryLineTag) CVSTag.intern(new CVSEntryLineTag(tagEntry));
 		} else {
 			tag = null;
 		}
@@ -529,11 +529,7 @@ public class ResourceSyncInfo {
 	 * @return String
 	 */
 	public static String getName(byte[] syncBytes) throws CVSException {
-		String name = Util.getSubstring(syncBytes, SEPARATOR_BYTE, 1, false);
-		if (name == null) {
-			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
-		}
-		return name;
+		return new ResourceSyncBytes(syncBytes).getName();
 	}
 	
 	/**
@@ -542,11 +538,7 @@ public class ResourceSyncInfo {
 	 * @return String
 	 */
 	public static KSubstOption getKeywordMode(byte[] syncBytes) throws CVSException {
-		String mode = Util.getSubstring(syncBytes, SEPARATOR_BYTE, 4, false);
-		if (mode == null) {
-			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
-		}
-		return KSubstOption.fromMode(mode);
+		return KSubstOption.fromMode(new ResourceSyncBytes(syncBytes).getSlot(4));
 	}
 	
 	/**
@@ -587,11 +579,7 @@ public class ResourceSyncInfo {
 	 */
 	public static boolean isBinary(byte[] syncBytes)  throws CVSException {
 		if (syncBytes == null) return false;
-		String mode = Util.getSubstring(syncBytes, SEPARATOR_BYTE, 4, false);
-		if (mode == null) {
-			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
-		}
-		return "-kb".equals(mode); //$NON-NLS-1$
+		return new ResourceSyncBytes(syncBytes).isBinary();
 	}
 	
 	/**
@@ -609,13 +597,7 @@ public class ResourceSyncInfo {
 	 * @return boolean
 	 */
 	public static boolean isAddition(byte[] syncBytes) throws CVSException {
-		int start = startOfSlot(syncBytes, 2);
-		// There must be a slot and, in the very least, there must be two characters after the slot
-		if (start == -1 || start > syncBytes.length - 3) {
-			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
-		}
-		// If the zero is followed by a dot, then it is a valid revision and not an addition
-		return syncBytes[start + 1] == '0' && syncBytes[start + 2] != '.';
+		return new ResourceSyncBytes(syncBytes).isAddition();
 	}
 	
 	/**
@@ -624,11 +606,7 @@ public class ResourceSyncInfo {
 	 * @return boolean
 	 */
 	public static boolean isDeletion(byte[] syncBytes) throws CVSException {
-		int start = startOfSlot(syncBytes, 2);
-		if (start == -1 || start >= syncBytes.length) {
-			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
-		}
-		return syncBytes[start + 1] == DELETED_PREFIX_BYTE;
+		return new ResourceSyncBytes(syncBytes).isDeletion();
 	}
 		
 	/**
@@ -724,11 +702,12 @@ public class ResourceSyncInfo {
 	 *             thrown when the entry lines bytes are malformed.
 	 */
 	public static byte[] setSlot(byte[] syncBytes, int slot, byte[] newBytes) throws CVSException {
-		int start = startOfSlot(syncBytes, slot);
+		ResourceSyncBytes view = new ResourceSyncBytes(syncBytes);
+		int start = view.startOfSlot(slot);
 		if (start == -1) {
 			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
 		}
-		int end = startOfSlot(syncBytes, slot + 1);
+		int end = slot < 5 ? view.startOfSlot(slot + 1) : -1;
 		int totalLength = start + 1 + newBytes.length;
 		if (end != -1) {
 			totalLength += syncBytes.length - end;
@@ -825,11 +804,7 @@ public class ResourceSyncInfo {
 	 * @return String
 	 */
 	public static byte[] getTagBytes(byte[] syncBytes) throws CVSException {
-		byte[] tag = Util.getBytesForSlot(syncBytes, SEPARATOR_BYTE, 5, true);
-		if (tag == null) {
-			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
-		}
-		return tag;
+		return new ResourceSyncBytes(syncBytes).getSlotBytes(5);
 	}
 	
 	/**
@@ -869,15 +844,22 @@ public class ResourceSyncInfo {
 	 * @see #LOCKEDBY_REGEX
 	 */
 	public static String getRevision(byte[] syncBytes) throws CVSException {
-		String revision = Util.getSubstring(syncBytes, SEPARATOR_BYTE, 2, false);
-		if (revision == null) {
-			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
-		}
-		if(revision.startsWith(DELETED_PREFIX)) {
-			revision = revision.substring(DELETED_PREFIX.length());
-		}
-		revision = revision.replaceFirst(LOCKEDBY_REGEX, ""); //$NON-NLS-1$
-		return revision;
+		return new ResourceSyncBytes(syncBytes).getRevision();
+	}
+
+	/**
+	 * Return whether the given synchronization bytes have the same revision.
+	 * As for {@link #getRevision(byte[])}, the deleted prefix and the "locked
+	 * by" suffix are ignored.
+	 * 
+	 * @param syncBytes1
+	 *            the bytes that represent the synchronization information
+	 * @param syncBytes2
+	 *            the bytes that represent the synchronization information
+	 * @return whether the revisions are equal
+	 */
+	public static boolean isSameRevision(byte[] syncBytes1, byte[] syncBytes2) throws CVSException {
+		return new ResourceSyncBytes(syncBytes1).revisionEquals(new ResourceSyncBytes(syncBytes2));
 	}
 
 	/**
@@ -896,12 +878,7 @@ public class ResourceSyncInfo {
 	 * @return boolean
 	 */
 	public static boolean isMerge(byte[] syncBytes) throws CVSException {
-		String timestamp = Util.getSubstring(syncBytes, SEPARATOR_BYTE, 3, false);
-		if (timestamp == null) {
-			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
-		}
-		int syncType = getSyncType(timestamp);
-		return syncType == TYPE_MERGED || syncType == TYPE_MERGED_WITH_CONFLICTS;
+		return new ResourceSyncBytes(syncBytes).isMerge();
 	}
 
 	/**
@@ -912,15 +889,7 @@ public class ResourceSyncInfo {
 	 * @return boolean
 	 */
 	public static boolean wasDeleted(byte[] syncBytes) throws CVSException {
-		String timestamp = Util.getSubstring(syncBytes, SEPARATOR_BYTE, 3,
-				false);
-		if (timestamp == null) {
-			throw new CVSException(NLS.bind(
-					CVSMessages.ResourceSyncInfo_malformedSyncBytes,
-					new String[] { new String(syncBytes) }));
-		}
-		int syncType = getSyncType(timestamp);
-		return syncType == TYPE_DELETED_AND_RESTORED;
+		return new ResourceSyncBytes(syncBytes).wasDeleted();
 	}
 
 	/**
@@ -929,12 +898,7 @@ public class ResourceSyncInfo {
 	 * @return boolean
 	 */
 	public static boolean isMergedWithConflicts(byte[] syncBytes) throws CVSException {
-		String timestamp = Util.getSubstring(syncBytes, SEPARATOR_BYTE, 3, false);
-		if (timestamp == null) {
-			throw new CVSException(NLS.bind(CVSMessages.ResourceSyncInfo_malformedSyncBytes, new String[] { new String(syncBytes) })); 
-		}
-		int syncType = getSyncType(timestamp);
-		return syncType == TYPE_MERGED_WITH_CONFLICTS;
+		return new ResourceSyncBytes(syncBytes).isMergedWithConflicts();
 	}
 	
 	
@@ -950,14 +914,12 @@ public class ResourceSyncInfo {
 		// If the two byte arrays are the same, then the remote isn't a later revision
 		if (remoteBytes == localBytes) return false;
 		//	If the tags differ, then the remote isn't a later revision
-		byte[] remoteTag = ResourceSyncInfo.getTagBytes(remoteBytes);
-		byte[] localTag = ResourceSyncInfo.getTagBytes(localBytes);
-		if (!Util.equals(remoteTag, localTag)) return false;
+		ResourceSyncBytes remote = new ResourceSyncBytes(remoteBytes);
+		ResourceSyncBytes local = new ResourceSyncBytes(localBytes);
+		if (!remote.tagEquals(local)) return false;
 		// If the revisions are the same, the remote isn't later
-		String remoteRevision = ResourceSyncInfo.getRevision(remoteBytes);
-		String localRevision = ResourceSyncInfo.getRevision(localBytes);
-		if (remoteRevision.equals(localRevision)) return false;
-		return isLaterRevision(remoteRevision, localRevision);
+		if (remote.revisionEquals(local)) return false;
+		return isLaterRevision(remote.getRevision(), local.getRevision());
 	}
 
 	/**
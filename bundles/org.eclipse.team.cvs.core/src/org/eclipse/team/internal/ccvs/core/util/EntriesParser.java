@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.util;
+
+import java.util.*;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.team.internal.ccvs.core.*;
+import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
+
+/**
+ * Parses the contents of the CVS/Entries and CVS/Entries.Log files of a folder
+ * into the sync bytes of its children, sorted by name.
+ * <p>
+ * The contents are parsed as bytes. A line that is already in the form in which
+ * {@link ResourceSyncInfo#getBytes()} would write it, which is the case for the
+ * lines written by this client, is copied into the sync bytes as it is. Any other
+ * line (e.g. with non-ASCII characters, a merge time stamp or the default keyword
+ * mode spelled out) is converted through a <code>ResourceSyncInfo</code>, so that
+ * the sync bytes are the same as if every line had been.
+ * </p><p>
+ * The entries are sorted by name and the additions and removals of the log
+ * are merged into them, so no map of the entries is needed.
+ * </p>
+ */
+public class EntriesParser {
+
+	private static final byte SEPARATOR = '/';
+	private static final byte DIRECTORY = 'D';
+	private static final byte DELETED = '-';
+
+	// Command characters found in the Entries.log file
+	private static final byte ADD = 'A';
+	private static final byte REMOVE = 'R';
+
+	// the time stamp written for entries without one
+	private static final byte[] TIMESTAMP_DUMMY = "dummy timestamp".getBytes(); //$NON-NLS-1$
+	private static final byte[] ADDED_REVISION = "0".getBytes(); //$NON-NLS-1$
+	// the keyword mode that is written as an empty mode
+	private static final byte[] DEFAULT_KEYWORD_MODE = "-kkv".getBytes(); //$NON-NLS-1$
+
+	// the entry line time stamp format is "EEE MMM dd HH:mm:ss yyyy" in GMT
+	private static final int DATE_LENGTH = 24;
+	private static final String[] DAYS = { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+	private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$
+	private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+	private static final int[] WEEKDAY_OFFSETS = { 0, 3, 2, 5, 0, 3, 5, 1, 4, 6, 2, 4 };
+
+	/*
+	 * Orders sync bytes by the name of their resource.
+	 */
+	private static final Comparator NAME_ORDER = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			return compareNames((byte[]) o1, (byte[]) o2);
+		}
+	};
+
+	/*
+	 * An addition or removal recorded in the Entries.log file.
+	 */
+	private static class LogEntry {
+		final byte[] syncBytes;
+		final boolean removed;
+		LogEntry(byte[] syncBytes, boolean removed) {
+			this.syncBytes = syncBytes;
+			this.removed = removed;
+		}
+	}
+
+	private static final Comparator LOG_ENTRY_NAME_ORDER = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			return compareNames(((LogEntry) o1).syncBytes, ((LogEntry) o2).syncBytes);
+		}
+	};
+
+	private EntriesParser() {
+		// only static methods
+	}
+
+	/**
+	 * Return the sync bytes of the entries in the given CVS/Entries file contents
+	 * with the changes in the given CVS/Entries.Log file contents applied, sorted by
+	 * name. Entries that cannot be parsed are logged and skipped.
+	 * @param entries the contents of the CVS/Entries file
+	 * @param entriesLog the contents of the CVS/Entries.Log file or <code>null</code>
+	 * @param folder the path of the folder, used to report invalid entries
+	 * @return the sync bytes of the entries
+	 * @throws CVSException if a line of the CVS/Entries.Log file cannot be parsed
+	 */
+	public static byte[][] parse(byte[] entries, byte[] entriesLog, String folder) throws CVSException {
+		byte[][] infos = parseEntries(entries, folder);
+		if (entriesLog == null)
+			return infos;
+		LogEntry[] log = parseLog(entriesLog);
+		if (log.length == 0)
+			return infos;
+
+		// merge the log into the entries, both being sorted by name
+		List result = new ArrayList(infos.length + log.length);
+		int i = 0;
+		int j = 0;
+		while (i < infos.length || j < log.length) {
+			int order;
+			if (i == infos.length) {
+				order = 1;
+			} else if (j == log.length) {
+				order = -1;
+			} else {
+				order = compareNames(infos[i], log[j].syncBytes);
+			}
+			if (order < 0) {
+				result.add(infos[i++]);
+			} else {
+				if (order == 0)
+					i++;
+				if (!log[j].removed)
+					result.add(log[j].syncBytes);
+				j++;
+			}
+		}
+		return (byte[][]) result.toArray(new byte[result.size()][]);
+	}
+
+	/*
+	 * Return the sync bytes of the entries sorted by name. If there are
+	 * several entries with the same name, the last one wins.
+	 */
+	private static byte[][] parseEntries(byte[] contents, String folder) {
+		List infos = new ArrayList();
+		int start = 0;
+		while (start < contents.length) {
+			int end = endOfLine(contents, start);
+			int length = end - start;
+			// Some older CVS clients may of added a line to the entries file consisting
+			// of only a 'D'. It is safe to ignore these entries.
+			if (length > 0 && !(length == 1 && contents[start] == DIRECTORY)) {
+				try {
+					infos.add(toSyncBytes(contents, start, end));
+				} catch (CVSException e) {
+					// There was a problem parsing the entry line.
+					// Log the problem and skip the entry
+					CVSProviderPlugin.log(new CVSStatus(IStatus.ERROR, NLS.bind(CVSMessages.SyncFileWriter_0, new String[] { folder }), e));
+				}
+			}
+			start = startOfNextLine(contents, end);
+		}
+		// the entries written by this client are sorted already, which the sort detects quickly
+		Collections.sort(infos, NAME_ORDER);
+		int size = 0;
+		for (int i = 0; i < infos.size(); i++) {
+			if (i + 1 < infos.size() && compareNames((byte[]) infos.get(i), (byte[]) infos.get(i + 1)) == 0)
+				continue;
+			infos.set(size++, infos.get(i));
+		}
+		return (byte[][]) infos.subList(0, size).toArray(new byte[size][]);
+	}
+
+	/*
+	 * Return the last addition or removal of each name, sorted by name.
+	 */
+	private static LogEntry[] parseLog(byte[] contents) throws CVSException {
+		List log = new ArrayList();
+		int start = 0;
+		while (start < contents.length) {
+			int end = endOfLine(contents, start);
+			if (end - start >= 2 && contents[start + 1] == ' ') {
+				byte command = contents[start];
+				if (command == ADD || command == REMOVE) {
+					log.add(new LogEntry(toSyncBytes(contents, start + 2, end), command == REMOVE));
+				}
+			}
+			start = startOfNextLine(contents, end);
+		}
+		Collections.sort(log, LOG_ENTRY_NAME_ORDER);
+		int size = 0;
+		for (int i = 0; i < log.size(); i++) {
+			if (i + 1 < log.size() && compareNames(((LogEntry) log.get(i)).syncBytes, ((LogEntry) log.get(i + 1)).syncBytes) == 0)
+				continue;
+			log.set(size++, log.get(i));
+		}
+		return (LogEntry[]) log.subList(0, size).toArray(new LogEntry[size]);
+	}
+
+	/*
+	 * Lines end with a linefeed, a carriage return or both, like for BufferedReader.readLine().
+	 */
+	private static int endOfLine(byte[] contents, int start) {
+		int end = start;
+		while (end < contents.length && contents[end] != '\n' && contents[end] != '\r') {
+			end++;
+		}
+		return end;
+	}
+
+	private static int startOfNextLine(byte[] contents, int end) {
+		if (end < contents.length && contents[end] == '\r') {
+			end++;
+			if (end < contents.length && contents[end] == '\n')
+				end++;
+		} else if (end < contents.length) {
+			end++;
+		}
+		return end;
+	}
+
+	/*
+	 * Return the sync bytes of the given entry line.
+	 */
+	private static byte[] toSyncBytes(byte[] contents, int start, int end) throws CVSException {
+		if (isCanonical(contents, start, end)) {
+			byte[] syncBytes = new byte[end - start];
+			System.arraycopy(contents, start, syncBytes, 0, syncBytes.length);
+			return syncBytes;
+		}
+		return new ResourceSyncInfo(new String(contents, start, end - start), null).getBytes();
+	}
+
+	/*
+	 * Return whether ResourceSyncInfo would write the given entry line as it is.
+	 */
+	private static boolean isCanonical(byte[] contents, int start, int end) {
+		int[] separators = new int[5];
+		int count = 0;
+		for (int i = start; i < end; i++) {
+			byte b = contents[i];
+			if (b < 0) {
+				// non-ASCII characters are decoded with the default encoding
+				return false;
+			}
+			if (b == SEPARATOR && count < separators.length)
+				separators[count++] = i;
+		}
+		if (count < separators.length)
+			return false;
+		if (separators[1] == separators[0] + 1) {
+			// the name is missing
+			return false;
+		}
+		if (separators[0] == start + 1 && contents[start] == DIRECTORY) {
+			// D/name////
+			return separators[2] == separators[1] + 1
+				&& separators[3] == separators[2] + 1
+				&& separators[4] == separators[3] + 1
+				&& end == separators[4] + 1;
+		}
+		if (separators[0] != start)
+			return false;
+		int revisionStart = separators[1] + 1;
+		int revisionEnd = separators[2];
+		if (!isRevision(contents, revisionStart, revisionEnd))
+			return false;
+		// an added entry has no time stamp
+		boolean added = equals(contents, revisionStart, revisionEnd, ADDED_REVISION);
+		int timestampStart = separators[2] + 1;
+		int timestampEnd = separators[3];
+		if (!equals(contents, timestampStart, timestampEnd, TIMESTAMP_DUMMY)
+				&& (added || !isDate(contents, timestampStart, timestampEnd)))
+			return false;
+		if (equals(contents, separators[3] + 1, separators[4], DEFAULT_KEYWORD_MODE))
+			return false;
+		// version tags are written like branch tags
+		int tagStart = separators[4] + 1;
+		return tagStart == end || contents[tagStart] == 'T' || contents[tagStart] == 'D';
+	}
+
+	private static boolean isRevision(byte[] contents, int start, int end) {
+		if (start < end && contents[start] == DELETED)
+			start++;
+		if (start == end)
+			return false;
+		for (int i = start; i < end; i++) {
+			byte b = contents[i];
+			if (b != '.' && (b < '0' || b > '9'))
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Return whether the given time stamp is a valid date that CVSDateFormatter
+	 * would format the same way after parsing it.
+	 */
+	private static boolean isDate(byte[] contents, int start, int end) {
+		if (end - start != DATE_LENGTH)
+			return false;
+		if (contents[start + 3] != ' ' || contents[start + 7] != ' ' || contents[start + 10] != ' '
+				|| contents[start + 13] != ':' || contents[start + 16] != ':' || contents[start + 19] != ' ')
+			return false;
+		int weekday = indexOf(DAYS, contents, start);
+		int month = indexOf(MONTHS, contents, start + 4);
+		// the tens of the day are written as a space rather than a zero
+		int day = contents[start + 8] == ' ' ? toNumber(contents, start + 9, 1) : toNumber(contents, start + 8, 2);
+		int hour = toNumber(contents, start + 11, 2);
+		int minute = toNumber(contents, start + 14, 2);
+		int second = toNumber(contents, start + 17, 2);
+		int year = toNumber(contents, start + 20, 4);
+		if (weekday == -1 || month == -1 || contents[start + 8] == '0' || day < 1 || hour < 0 || hour > 23
+				|| minute < 0 || minute > 59 || second < 0 || second > 59 || year < 1970)
+			return false;
+		boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+		int days = DAYS_IN_MONTH[month] + (month == 1 && leap ? 1 : 0);
+		if (day > days)
+			return false;
+		// the day of the week is not parsed but computed when formatting
+		int y = month < 2 ? year - 1 : year;
+		return (y + y / 4 - y / 100 + y / 400 + WEEKDAY_OFFSETS[month] + day) % 7 == weekday;
+	}
+
+	private static int indexOf(String[] names, byte[] contents, int start) {
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i];
+			if (contents[start] == name.charAt(0) && contents[start + 1] == name.charAt(1) && contents[start + 2] == name.charAt(2))
+				return i;
+		}
+		return -1;
+	}
+
+	/*
+	 * Return the number in the given digits or -1 if they are not all digits.
+	 */
+	private static int toNumber(byte[] contents, int start, int length) {
+		int number = 0;
+		for (int i = start; i < start + length; i++) {
+			byte b = contents[i];
+			if (b < '0' || b > '9')
+				return -1;
+			number = number * 10 + (b - '0');
+		}
+		return number;
+	}
+
+	private static boolean equals(byte[] contents, int start, int end, byte[] bytes) {
+		if (end - start != bytes.length)
+			return false;
+		for (int i = 0; i < bytes.length; i++) {
+			if (contents[start + i] != bytes[i])
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Compare the names in the given sync bytes, which are the bytes between
+	 * the first and second separator.
+	 */
+	private static int compareNames(byte[] syncBytes1, byte[] syncBytes2) {
+		int start1 = indexOf(syncBytes1, SEPARATOR, 0) + 1;
+		int start2 = indexOf(syncBytes2, SEPARATOR, 0) + 1;
+		int end1 = indexOf(syncBytes1, SEPARATOR, start1);
+		int end2 = indexOf(syncBytes2, SEPARATOR, start2);
+		int length1 = end1 - start1;
+		int length2 = end2 - start2;
+		for (int i = 0; i < length1 && i < length2; i++) {
+			int b1 = syncBytes1[start1 + i] & 0xFF;
+			int b2 = syncBytes2[start2 + i] & 0xFF;
+			if (b1 != b2)
+				return b1 - b2;
+		}
+		return length1 - length2;
+	}
+
+	private static int indexOf(byte[] bytes, byte b, int start) {
+		for (int i = start; i < bytes.length; i++) {
+			if (bytes[i] == b)
+				return i;
+		}
+		return bytes.length;
+	}
+}
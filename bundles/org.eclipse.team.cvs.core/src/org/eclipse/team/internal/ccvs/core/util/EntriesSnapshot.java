@@ -0,0 +1,432 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.util;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.team.internal.ccvs.core.*;
+import org.eclipse.team.internal.ccvs.core.syncinfo.FolderSyncInfo;
+
+/**
+ * A per-project binary snapshot of the contents of the CVS meta files, used
+ * to avoid reading and parsing the CVS/Entries, CVS/Root, CVS/Repository, ...
+ * files of every folder after a restart.
+ * <p>
+ * Each record of the snapshot holds the resource sync bytes or the folder
+ * sync info of a folder along with the last modification times and lengths
+ * of the meta files it was read from, as reported by the file system. A record
+ * is only used while these stamps are unchanged, so folders whose meta files
+ * have been modified, by this client or externally and whether or not the
+ * workspace has been refreshed since, are read from the meta files again. The snapshots are written to the plug-in state location when the
+ * workspace is saved and each one is loaded with a single memory-mapped read
+ * on first access to its project.
+ * </p>
+ * <p>
+ * The snapshot listens to resource changes: the records of a project are
+ * saved and dropped from memory when the project is closed, its snapshot is
+ * deleted with the project, and the records of removed folders are pruned.
+ * </p>
+ */
+public class EntriesSnapshot implements IResourceChangeListener {
+
+	private static final String SNAPSHOT_DIRNAME = "entries"; //$NON-NLS-1$
+	private static final String SNAPSHOT_EXTENSION = ".snapshot"; //$NON-NLS-1$
+	private static final int MAGIC = 0x43565345; // CVSE
+	private static final int VERSION = 1;
+
+	private static final byte RESOURCE_SYNC = 1;
+	private static final byte FOLDER_SYNC = 2;
+
+	// the meta files that the records of each kind are read from
+	private static final String[] RESOURCE_SYNC_FILES = { SyncFileWriter.ENTRIES, SyncFileWriter.ENTRIES_LOG };
+	private static final String[] FOLDER_SYNC_FILES = { SyncFileWriter.ROOT, SyncFileWriter.REPOSITORY, SyncFileWriter.TAG, SyncFileWriter.STATIC };
+
+	private static EntriesSnapshot instance;
+
+	// project name -> ProjectSnapshot
+	private final Map projects = new HashMap();
+
+	/*
+	 * The records of a project, keyed by kind and project relative path.
+	 */
+	private static class ProjectSnapshot {
+		final Map records = new HashMap();
+		boolean dirty;
+	}
+
+	/*
+	 * The contents of meta files along with their stamps.
+	 */
+	private static class Record {
+		final long[] stamps;
+		final byte[] contents;
+		Record(long[] stamps, byte[] contents) {
+			this.stamps = stamps;
+			this.contents = contents;
+		}
+	}
+
+	public static synchronized EntriesSnapshot getInstance() {
+		if (instance == null) {
+			instance = new EntriesSnapshot();
+		}
+		return instance;
+	}
+
+	/**
+	 * Return the stamps of the meta files that the resource sync bytes of the
+	 * given folder are read from. The stamps must be obtained before the
+	 * files are read.
+	 * @param cvsSubDir the CVS subdirectory of the folder
+	 * @return the stamps of the meta files
+	 */
+	public static long[] getResourceSyncStamps(IFolder cvsSubDir) {
+		return getStamps(cvsSubDir, RESOURCE_SYNC_FILES);
+	}
+
+	/**
+	 * Return the stamps of the meta files that the folder sync info of the
+	 * given folder is read from. The stamps must be obtained before the files
+	 * are read.
+	 * @param cvsSubDir the CVS subdirectory of the folder
+	 * @return the stamps of the meta files
+	 */
+	public static long[] getFolderSyncStamps(IFolder cvsSubDir) {
+		return getStamps(cvsSubDir, FOLDER_SYNC_FILES);
+	}
+
+	private static long[] getStamps(IFolder cvsSubDir, String[] names) {
+		long[] stamps = new long[names.length * 2];
+		IPath location = cvsSubDir.getLocation();
+		for (int i = 0; i < names.length; i++) {
+			// the workspace stamps are not updated by external changes until a refresh
+			File file = location == null ? null : location.append(names[i]).toFile();
+			if (file != null && file.isFile()) {
+				stamps[2 * i] = file.lastModified();
+				stamps[2 * i + 1] = file.length();
+			} else {
+				stamps[2 * i] = IResource.NULL_STAMP;
+				stamps[2 * i + 1] = IResource.NULL_STAMP;
+			}
+		}
+		return stamps;
+	}
+
+	/**
+	 * Return the resource sync bytes of the children of the given folder if
+	 * the snapshot holds them and the meta files have not changed since.
+	 * @param folder the folder
+	 * @param stamps the current stamps of the meta files
+	 * @return the resource sync bytes or <code>null</code>
+	 */
+	public byte[][] getResourceSync(IContainer folder, long[] stamps) {
+		byte[] contents = getContents(folder, RESOURCE_SYNC, stamps);
+		if (contents == null) return null;
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(contents));
+			byte[][] infos = new byte[in.readInt()][];
+			for (int i = 0; i < infos.length; i++) {
+				infos[i] = new byte[in.readInt()];
+				in.readFully(infos[i]);
+			}
+			return infos;
+		} catch (IOException e) {
+			// cannot happen for a well-formed record, read the meta files instead
+			return null;
+		}
+	}
+
+	/**
+	 * Remember the resource sync bytes of the children of the given folder.
+	 * @param folder the folder
+	 * @param stamps the stamps of the meta files when they were read
+	 * @param infos the resource sync bytes
+	 */
+	public void setResourceSync(IContainer folder, long[] stamps, byte[][] infos) {
+		if (stamps[0] == IResource.NULL_STAMP) return; // there is no Entries file on disk
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(infos.length);
+			for (int i = 0; i < infos.length; i++) {
+				out.writeInt(infos[i].length);
+				out.write(infos[i]);
+			}
+			out.close();
+		} catch (IOException e) {
+			// cannot happen when writing to memory
+			return;
+		}
+		setContents(folder, RESOURCE_SYNC, stamps, bytes.toByteArray());
+	}
+
+	/**
+	 * Return the folder sync info of the given folder if the snapshot holds
+	 * it and the meta files have not changed since.
+	 * @param folder the folder
+	 * @param stamps the current stamps of the meta files
+	 * @return the folder sync info or <code>null</code>
+	 */
+	public FolderSyncInfo getFolderSync(IContainer folder, long[] stamps) {
+		byte[] contents = getContents(folder, FOLDER_SYNC, stamps);
+		if (contents == null) return null;
+		try {
+			return FolderSyncInfo.getFolderSyncInfo(contents);
+		} catch (CVSException e) {
+			// read the meta files instead
+			return null;
+		}
+	}
+
+	/**
+	 * Remember the folder sync info of the given folder.
+	 * @param folder the folder
+	 * @param stamps the stamps of the meta files when they were read
+	 * @param info the folder sync info
+	 */
+	public void setFolderSync(IContainer folder, long[] stamps, FolderSyncInfo info) {
+		// there must be a Root and a Repository file on disk
+		if (stamps[0] == IResource.NULL_STAMP || stamps[2] == IResource.NULL_STAMP) return;
+		try {
+			setContents(folder, FOLDER_SYNC, stamps, info.getBytes());
+		} catch (CVSException e) {
+			// the info will be read from the meta files again
+		}
+	}
+
+	private synchronized byte[] getContents(IContainer folder, byte kind, long[] stamps) {
+		if (stamps[0] == IResource.NULL_STAMP) return null;
+		ProjectSnapshot snapshot = getProjectSnapshot(folder.getProject());
+		Record record = (Record) snapshot.records.get(getKey(folder, kind));
+		if (record == null || !Arrays.equals(record.stamps, stamps)) return null;
+		return record.contents;
+	}
+
+	private synchronized void setContents(IContainer folder, byte kind, long[] stamps, byte[] contents) {
+		ProjectSnapshot snapshot = getProjectSnapshot(folder.getProject());
+		snapshot.records.put(getKey(folder, kind), new Record(stamps, contents));
+		snapshot.dirty = true;
+	}
+
+	private static String getKey(IContainer folder, byte kind) {
+		return kind + folder.getProjectRelativePath().toString();
+	}
+
+	private static String getPath(String key) {
+		// the kind is a single digit
+		return key.substring(1);
+	}
+
+	private ProjectSnapshot getProjectSnapshot(IProject project) {
+		ProjectSnapshot snapshot = (ProjectSnapshot) projects.get(project.getName());
+		if (snapshot == null) {
+			snapshot = new ProjectSnapshot();
+			if (!CVSProviderPlugin.getPlugin().crashOnLastRun()) {
+				load(project, snapshot);
+			}
+			projects.put(project.getName(), snapshot);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Write the snapshot of the given project to disk if it changed since it
+	 * was loaded or last saved.
+	 * @param project the project
+	 */
+	public synchronized void save(IProject project) {
+		ProjectSnapshot snapshot = (ProjectSnapshot) projects.get(project.getName());
+		if (snapshot == null || !snapshot.dirty) return;
+		File file = getSnapshotFile(project);
+		File tempFile = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			file.getParentFile().mkdirs();
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(snapshot.records.size());
+				for (Iterator iter = snapshot.records.entrySet().iterator(); iter.hasNext();) {
+					Map.Entry entry = (Map.Entry) iter.next();
+					Record record = (Record) entry.getValue();
+					byte[] key = ((String) entry.getKey()).getBytes("UTF-8"); //$NON-NLS-1$
+					out.writeInt(key.length);
+					out.write(key);
+					out.writeInt(record.stamps.length);
+					for (int i = 0; i < record.stamps.length; i++) {
+						out.writeLong(record.stamps[i]);
+					}
+					out.writeInt(record.contents.length);
+					out.write(record.contents);
+				}
+			} finally {
+				out.close();
+			}
+			if ((!file.exists() || file.delete()) && tempFile.renameTo(file)) {
+				snapshot.dirty = false;
+			} else {
+				// the previous snapshot may still be mapped, try again on the next save
+				tempFile.delete();
+			}
+		} catch (IOException e) {
+			tempFile.delete();
+			CVSProviderPlugin.log(CVSException.wrapException(e));
+		}
+	}
+
+	/**
+	 * Forget the snapshot of the given project, for instance because it is
+	 * no longer shared with CVS.
+	 * @param project the project
+	 */
+	public synchronized void forget(IProject project) {
+		projects.remove(project.getName());
+		getSnapshotFile(project).delete();
+	}
+
+	/**
+	 * Save the snapshot of the given project and drop its records from
+	 * memory. They are loaded from disk again on the next access.
+	 * @param project the project
+	 */
+	public synchronized void release(IProject project) {
+		save(project);
+		projects.remove(project.getName());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+	 */
+	public void resourceChanged(IResourceChangeEvent event) {
+		switch (event.getType()) {
+			case IResourceChangeEvent.PRE_CLOSE :
+				release((IProject) event.getResource());
+				break;
+			case IResourceChangeEvent.PRE_DELETE :
+				forget((IProject) event.getResource());
+				break;
+			case IResourceChangeEvent.POST_CHANGE :
+				IResourceDelta[] deltas = event.getDelta().getAffectedChildren();
+				for (int i = 0; i < deltas.length; i++) {
+					try {
+						pruneRemovedFolders(deltas[i]);
+					} catch (CoreException e) {
+						CVSProviderPlugin.log(e);
+					}
+				}
+				break;
+		}
+	}
+
+	/*
+	 * Remove the records of the folders removed from the project of the given
+	 * delta and of the folders whose CVS subdirectory was removed.
+	 */
+	private void pruneRemovedFolders(IResourceDelta projectDelta) throws CoreException {
+		IProject project = (IProject) projectDelta.getResource();
+		if (projectDelta.getKind() == IResourceDelta.REMOVED) {
+			// the project was moved, its snapshot is no longer used
+			forget(project);
+			return;
+		}
+		synchronized (this) {
+			if (!projects.containsKey(project.getName())) return;
+		}
+		final Set removedTrees = new HashSet();
+		final Set removedFolders = new HashSet();
+		projectDelta.accept(new IResourceDeltaVisitor() {
+			public boolean visit(IResourceDelta delta) {
+				IResource resource = delta.getResource();
+				if (resource.getType() == IResource.FILE) return false;
+				if (delta.getKind() != IResourceDelta.REMOVED) return true;
+				if (resource.getName().equals(SyncFileWriter.CVS_DIRNAME)) {
+					removedFolders.add(resource.getParent().getProjectRelativePath().toString());
+				} else {
+					removedTrees.add(resource.getProjectRelativePath().toString());
+				}
+				return false;
+			}
+		});
+		if (removedTrees.isEmpty() && removedFolders.isEmpty()) return;
+		synchronized (this) {
+			ProjectSnapshot snapshot = (ProjectSnapshot) projects.get(project.getName());
+			if (snapshot == null) return;
+			for (Iterator iter = snapshot.records.keySet().iterator(); iter.hasNext();) {
+				String path = getPath((String) iter.next());
+				if (removedFolders.contains(path) || isInTree(path, removedTrees)) {
+					iter.remove();
+					snapshot.dirty = true;
+				}
+			}
+		}
+	}
+
+	private static boolean isInTree(String path, Set trees) {
+		for (String parent = path; parent.length() > 0; parent = parent.substring(0, Math.max(0, parent.lastIndexOf('/')))) {
+			if (trees.contains(parent)) return true;
+		}
+		return false;
+	}
+
+	private void load(IProject project, ProjectSnapshot snapshot) {
+		File file = getSnapshotFile(project);
+		if (!file.exists()) return;
+		try {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				FileChannel channel = in.getChannel();
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return;
+				int count = buffer.getInt();
+				for (int i = 0; i < count; i++) {
+					byte[] key = readBytes(buffer);
+					long[] stamps = new long[buffer.getInt()];
+					for (int j = 0; j < stamps.length; j++) {
+						stamps[j] = buffer.getLong();
+					}
+					byte[] contents = readBytes(buffer);
+					snapshot.records.put(new String(key, "UTF-8"), new Record(stamps, contents)); //$NON-NLS-1$
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			snapshot.records.clear();
+			CVSProviderPlugin.log(CVSException.wrapException(e));
+		} catch (BufferUnderflowException e) {
+			// the snapshot is truncated or corrupt, read the meta files instead
+			snapshot.records.clear();
+		} catch (NegativeArraySizeException e) {
+			// the snapshot is corrupt, read the meta files instead
+			snapshot.records.clear();
+		}
+	}
+
+	private static byte[] readBytes(MappedByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length > buffer.remaining()) throw new BufferUnderflowException();
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private File getSnapshotFile(IProject project) {
+		IPath location = CVSProviderPlugin.getPlugin().getStateLocation().append(SNAPSHOT_DIRNAME);
+		return location.append(project.getName() + SNAPSHOT_EXTENSION).toFile();
+	}
+}
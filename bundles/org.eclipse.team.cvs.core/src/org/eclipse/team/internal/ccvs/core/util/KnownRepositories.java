@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -126,6 +126,7 @@ public class KnownRepositories implements INodeChangeListener, IPreferenceChange
 			((CVSRepositoryLocation)repository).dispose();
 			removed = getRepositoriesMap().remove(repository.getLocation(false));
 		}
+		LogEntryStore.disposeStore(repository);
 		if (removed != null) {
 			fireNotification(new Notification() {
 				public void notify(ICVSListener listener) {
@@ -0,0 +1,619 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.util;
+
+import java.io.*;
+import java.lang.ref.SoftReference;
+import java.util.*;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.team.internal.ccvs.core.*;
+import org.eclipse.team.internal.ccvs.core.client.listeners.LogEntry;
+import org.eclipse.team.internal.ccvs.core.client.listeners.LogListener;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFile;
+
+/**
+ * A disk-backed store of the log entries fetched from a repository location,
+ * keyed by repository relative file path and revision, so that the history
+ * of files does not have to be fetched from the server again after a
+ * restart.
+ * <p>
+ * The entries of each location are kept in a file of the plug-in state
+ * location. New entries are appended to the file when the store is flushed
+ * and the file is rewritten when it contains many superseded records. The
+ * file is scanned on first access to the store of its location, but only
+ * the position and date of each record are kept in memory: the entries of a
+ * file are read from disk when they are asked for.
+ * </p><p>
+ * The stores are held softly once their entries have been written to disk
+ * and are forgotten when their location is disposed.
+ * </p><p>
+ * The store holds the entries as they were received, so the tags of an
+ * entry are those known when it was fetched and entries fetched without
+ * tags have none.
+ * </p>
+ */
+public class LogEntryStore {
+
+	private static final String STORE_DIRNAME = "logs"; //$NON-NLS-1$
+	private static final String STORE_EXTENSION = ".log"; //$NON-NLS-1$
+	private static final int MAGIC = 0x4356534C; // CVSL
+	private static final int VERSION = 1;
+
+	// the largest string or array length accepted when reading, to detect corrupt files
+	private static final int MAX_LENGTH = 1 << 24;
+
+	private static final CVSTag[] NO_TAGS = new CVSTag[0];
+	private static final String[] NO_REVISIONS = new String[0];
+
+	// location string -> SoftReference (LogEntryStore)
+	private static final Map stores = new HashMap();
+
+	// the stores with entries not yet written to disk, which must not be collected
+	private static final Set unflushed = new HashSet();
+
+	private final ICVSRepositoryLocation location;
+	private final File file;
+
+	// String:path -> Map (String:revision -> long[] { position of the record in the file, date })
+	private Map index;
+
+	// String:path -> Map (String:revision -> Record) of the records not yet written to the file
+	private final Map pending = new HashMap();
+
+	// the number of records in the file, including superseded ones
+	private int recordCount;
+
+	// whether the file must be rewritten before records can be appended
+	private boolean rewrite;
+
+	// whether the location of the store has been disposed
+	private boolean disposed;
+
+	/*
+	 * The fields of a log entry.
+	 */
+	private static class Record {
+		String path;
+		String revision;
+		String author;
+		long date;
+		String comment;
+		String state;
+		CVSTag[] tags;
+		CVSTag[] branches;
+		String[] revisions;
+	}
+
+	/*
+	 * A stream that counts the bytes read from it, to find the position of
+	 * the records while the file is scanned.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		long position;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) position++;
+			return b;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) position += read;
+			return read;
+		}
+
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			position += skipped;
+			return skipped;
+		}
+	}
+
+	/**
+	 * Return the store of the given repository location.
+	 * @param location the repository location
+	 * @return the log entry store of the location
+	 */
+	public static synchronized LogEntryStore getStore(ICVSRepositoryLocation location) {
+		String key = location.getLocation(false);
+		SoftReference reference = (SoftReference) stores.get(key);
+		LogEntryStore store = reference == null ? null : (LogEntryStore) reference.get();
+		if (store == null) {
+			IPath stateLocation = CVSProviderPlugin.getPlugin().getStateLocation().append(STORE_DIRNAME);
+			// the location string is checked when the file is read in case of hash collisions
+			store = new LogEntryStore(location, stateLocation.append(Integer.toHexString(key.hashCode()) + STORE_EXTENSION).toFile());
+			stores.put(key, new SoftReference(store));
+		}
+		return store;
+	}
+
+	/**
+	 * Forget the store of the given repository location and delete its file.
+	 * Called when the location is disposed.
+	 * @param location the repository location
+	 */
+	public static void disposeStore(ICVSRepositoryLocation location) {
+		LogEntryStore store = getStore(location);
+		synchronized (LogEntryStore.class) {
+			stores.remove(location.getLocation(false));
+		}
+		store.dispose();
+	}
+
+	/**
+	 * Write the pending entries of all stores to disk.
+	 */
+	public static void flushAll() {
+		LogEntryStore[] all;
+		synchronized (LogEntryStore.class) {
+			all = (LogEntryStore[]) unflushed.toArray(new LogEntryStore[unflushed.size()]);
+		}
+		for (int i = 0; i < all.length; i++) {
+			all[i].flush();
+		}
+	}
+
+	/**
+	 * Create a store of the entries of the given location kept in the given
+	 * file. Clients should use {@link #getStore(ICVSRepositoryLocation)}.
+	 * @param location the repository location
+	 * @param file the file of the store
+	 */
+	public LogEntryStore(ICVSRepositoryLocation location, File file) {
+		this.location = location;
+		this.file = file;
+	}
+
+	/**
+	 * Return the stored log entries of the file at the given path.
+	 * @param path the repository relative path of the file
+	 * @return the stored log entries or <code>null</code> if there are none
+	 */
+	public synchronized ILogEntry[] getLogEntries(String path) {
+		Map records = getRecords(path);
+		if (records == null) return null;
+		ILogEntry[] result = new ILogEntry[records.size()];
+		RemoteFile remoteFile = RemoteFile.create(path, location);
+		int i = 0;
+		for (Iterator iter = records.values().iterator(); iter.hasNext();) {
+			Record record = (Record) iter.next();
+			result[i++] = new LogEntry(remoteFile, record.revision, record.author,
+					record.date == -1 ? null : new Date(record.date), record.comment, record.state,
+					record.tags, record.branches, record.revisions);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the date of the most recent stored log entry of the file at the
+	 * given path.
+	 * @param path the repository relative path of the file
+	 * @return the date of the most recent entry or <code>null</code> if
+	 * there are none
+	 */
+	public synchronized Date getLatestDate(String path) {
+		long latest = -1;
+		Map stored = (Map) getIndex().get(path);
+		if (stored != null) {
+			for (Iterator iter = stored.values().iterator(); iter.hasNext();) {
+				latest = Math.max(latest, ((long[]) iter.next())[1]);
+			}
+		}
+		Map added = (Map) pending.get(path);
+		if (added != null) {
+			for (Iterator iter = added.values().iterator(); iter.hasNext();) {
+				latest = Math.max(latest, ((Record) iter.next()).date);
+			}
+		}
+		return latest == -1 ? null : new Date(latest);
+	}
+
+	/**
+	 * Add the given log entry to the store. The entry is written to disk on
+	 * the next flush.
+	 * @param entry a log entry fetched from the location of this store
+	 */
+	public synchronized void add(ILogEntry entry) {
+		// entries of branches without revisions are not real revisions
+		if (disposed || LogListener.BRANCH_REVISION.equals(entry.getRevision())) return;
+		Record record = new Record();
+		record.path = entry.getRemoteFile().getRepositoryRelativePath();
+		record.revision = entry.getRevision();
+		record.author = entry.getAuthor();
+		record.date = entry.getDate() == null ? -1 : entry.getDate().getTime();
+		record.comment = entry.getComment();
+		record.state = entry.getState();
+		record.tags = entry.getTags();
+		record.branches = entry.getBranches();
+		String[] revisions = entry instanceof LogEntry ? ((LogEntry) entry).getBranchRevisions() : null;
+		record.revisions = revisions == null ? NO_REVISIONS : revisions;
+		put(pending, record.path, record.revision, record);
+		synchronized (LogEntryStore.class) {
+			unflushed.add(this);
+		}
+	}
+
+	private static void put(Map map, String path, String revision, Object value) {
+		Map fileEntries = (Map) map.get(path);
+		if (fileEntries == null) {
+			fileEntries = new HashMap();
+			map.put(path, fileEntries);
+		}
+		fileEntries.put(revision, value);
+	}
+
+	/*
+	 * Return the records of the file at the given path, read from disk and
+	 * not yet written, keyed by revision, or null if there are none.
+	 */
+	private Map getRecords(String path) {
+		Map stored = (Map) getIndex().get(path);
+		Map added = (Map) pending.get(path);
+		if (stored == null && added == null) return null;
+		Map records = new HashMap();
+		if (stored != null) {
+			try {
+				readRecords(stored.values(), records);
+			} catch (IOException e) {
+				// forget the entries on disk and rewrite the file on the next flush
+				index.clear();
+				recordCount = 0;
+				rewrite = true;
+				CVSProviderPlugin.log(CVSException.wrapException(e));
+				records.clear();
+			}
+		}
+		if (added != null) {
+			records.putAll(added);
+		}
+		return records.isEmpty() ? null : records;
+	}
+
+	/*
+	 * Read the records at the given positions of the file.
+	 */
+	private void readRecords(Collection positions, Map records) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			readRecords(in, positions, records);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void readRecords(RandomAccessFile in, Collection positions, Map records) throws IOException {
+		for (Iterator iter = positions.iterator(); iter.hasNext();) {
+			in.seek(((long[]) iter.next())[0]);
+			Record record = readRecord(in);
+			if (record == null) throw new EOFException();
+			records.put(record.revision, record);
+		}
+	}
+
+	/**
+	 * Write the entries added since the last flush to disk.
+	 */
+	public synchronized void flush() {
+		if (!disposed && (!pending.isEmpty() || rewrite)) {
+			try {
+				file.getParentFile().mkdirs();
+				getIndex();
+				if (rewrite || !file.exists() || recordCount > 2 * countEntries()) {
+					write();
+				} else {
+					append();
+				}
+				pending.clear();
+			} catch (IOException e) {
+				// the file may be partially written, rewrite it on the next flush
+				rewrite = true;
+				CVSProviderPlugin.log(CVSException.wrapException(e));
+				return;
+			}
+		}
+		synchronized (LogEntryStore.class) {
+			unflushed.remove(this);
+		}
+	}
+
+	/*
+	 * Append the pending records to the file.
+	 */
+	private void append() throws IOException {
+		long start = file.length();
+		Map appended = new HashMap();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+		try {
+			for (Iterator iter = pending.values().iterator(); iter.hasNext();) {
+				for (Iterator records = ((Map) iter.next()).values().iterator(); records.hasNext();) {
+					Record record = (Record) records.next();
+					put(appended, record.path, record.revision, new long[] { start + out.size(), record.date });
+					writeRecord(out, record);
+					recordCount++;
+				}
+			}
+		} finally {
+			out.close();
+		}
+		for (Iterator iter = appended.entrySet().iterator(); iter.hasNext();) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			Map stored = (Map) index.get(entry.getKey());
+			if (stored == null) {
+				index.put(entry.getKey(), entry.getValue());
+			} else {
+				stored.putAll((Map) entry.getValue());
+			}
+		}
+	}
+
+	/*
+	 * Rewrite the file with the current entries only.
+	 */
+	private void write() throws IOException {
+		File tempFile = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		Map paths = new HashMap(index);
+		paths.putAll(pending);
+		Map newIndex = new HashMap();
+		int count = 0;
+		RandomAccessFile in = file.exists() && !index.isEmpty() ? new RandomAccessFile(file, "r") : null; //$NON-NLS-1$
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, location.getLocation(false));
+			for (Iterator iter = paths.keySet().iterator(); iter.hasNext();) {
+				String path = (String) iter.next();
+				Map records = new HashMap();
+				Map stored = (Map) index.get(path);
+				if (stored != null && in != null) {
+					try {
+						readRecords(in, stored.values(), records);
+					} catch (EOFException e) {
+						// the records are corrupt, the entries will be fetched again
+						records.clear();
+					}
+				}
+				Map added = (Map) pending.get(path);
+				if (added != null) {
+					records.putAll(added);
+				}
+				for (Iterator iterator = records.values().iterator(); iterator.hasNext();) {
+					Record record = (Record) iterator.next();
+					put(newIndex, path, record.revision, new long[] { out.size(), record.date });
+					writeRecord(out, record);
+					count++;
+				}
+			}
+		} catch (IOException e) {
+			if (out != null) out.close();
+			tempFile.delete();
+			throw e;
+		} finally {
+			if (in != null) in.close();
+		}
+		out.close();
+		if ((file.exists() && !file.delete()) || !tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("Could not replace " + file); //$NON-NLS-1$
+		}
+		index = newIndex;
+		recordCount = count;
+		rewrite = false;
+	}
+
+	private int countEntries() {
+		int count = 0;
+		for (Iterator iter = index.values().iterator(); iter.hasNext();) {
+			count += ((Map) iter.next()).size();
+		}
+		return count;
+	}
+
+	private synchronized void dispose() {
+		disposed = true;
+		pending.clear();
+		index = null;
+		recordCount = 0;
+		file.delete();
+		synchronized (LogEntryStore.class) {
+			unflushed.remove(this);
+		}
+	}
+
+	private Map getIndex() {
+		if (index == null) {
+			index = new HashMap();
+			if (!disposed) load();
+		}
+		return index;
+	}
+
+	/*
+	 * Scan the file to find the position and date of the latest record of
+	 * each entry.
+	 */
+	private void load() {
+		if (!file.exists()) return;
+		try {
+			CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+			DataInputStream in = new DataInputStream(counter);
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION
+						|| !location.getLocation(false).equals(readString(in))) {
+					// the file is from another version or location, replace it
+					rewrite = true;
+					return;
+				}
+				while (true) {
+					long position = counter.position;
+					try {
+						if (!scanRecord(in, index, position)) break;
+					} catch (EOFException e) {
+						// a record that was not fully written or is corrupt
+						rewrite = true;
+						break;
+					}
+					recordCount++;
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			index.clear();
+			recordCount = 0;
+			rewrite = true;
+			CVSProviderPlugin.log(CVSException.wrapException(e));
+		}
+	}
+
+	private static void writeRecord(DataOutputStream out, Record record) throws IOException {
+		writeString(out, record.path);
+		writeString(out, record.revision);
+		writeString(out, record.author);
+		out.writeLong(record.date);
+		writeString(out, record.comment);
+		writeString(out, record.state);
+		writeTags(out, record.tags);
+		writeTags(out, record.branches);
+		out.writeInt(record.revisions.length);
+		for (int i = 0; i < record.revisions.length; i++) {
+			writeString(out, record.revisions[i]);
+		}
+	}
+
+	/*
+	 * Return the next record or null at the end of the file. An EOFException
+	 * is thrown if the file ends within a record.
+	 */
+	private static Record readRecord(DataInput in) throws IOException {
+		Record record = new Record();
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		record.path = readString(in, length);
+		record.revision = Util.intern(readString(in));
+		record.author = Util.intern(readString(in));
+		record.date = in.readLong();
+		record.comment = Util.intern(readString(in));
+		record.state = Util.intern(readString(in));
+		record.tags = readTags(in);
+		record.branches = readTags(in);
+		record.revisions = new String[readCount(in)];
+		for (int i = 0; i < record.revisions.length; i++) {
+			record.revisions[i] = Util.intern(readString(in));
+		}
+		return record;
+	}
+
+	/*
+	 * Read the record at the given position and add its position and date to
+	 * the given index, skipping the fields that are not indexed. Return false
+	 * at the end of the file.
+	 */
+	private static boolean scanRecord(DataInputStream in, Map index, long position) throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			return false;
+		}
+		String path = readString(in, length);
+		String revision = readString(in);
+		skipString(in); // author
+		long date = in.readLong();
+		skipString(in); // comment
+		skipString(in); // state
+		for (int tagArrays = 0; tagArrays < 2; tagArrays++) {
+			for (int count = readCount(in); count > 0; count--) {
+				skipString(in); // name
+				skipString(in); // branch revision
+				in.readInt(); // type
+			}
+		}
+		for (int count = readCount(in); count > 0; count--) {
+			skipString(in);
+		}
+		put(index, path, revision, new long[] { position, date });
+		return true;
+	}
+
+	private static void writeTags(DataOutputStream out, CVSTag[] tags) throws IOException {
+		if (tags == null) tags = NO_TAGS;
+		out.writeInt(tags.length);
+		for (int i = 0; i < tags.length; i++) {
+			writeString(out, tags[i].getName());
+			writeString(out, tags[i].getBranchRevision());
+			out.writeInt(tags[i].getType());
+		}
+	}
+
+	private static CVSTag[] readTags(DataInput in) throws IOException {
+		int count = readCount(in);
+		if (count == 0) return NO_TAGS;
+		CVSTag[] tags = new CVSTag[count];
+		for (int i = 0; i < count; i++) {
+			String name = readString(in);
+			String branchRevision = readString(in);
+			tags[i] = CVSTag.intern(new CVSTag(name, branchRevision, in.readInt()));
+		}
+		return tags;
+	}
+
+	private static int readCount(DataInput in) throws IOException {
+		int count = in.readInt();
+		if (count < 0 || count > MAX_LENGTH) throw new EOFException();
+		return count;
+	}
+
+	/*
+	 * Strings are written as their UTF-8 bytes preceded by their length so
+	 * that comments are not limited in size. A length of -1 is written for null.
+	 */
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes("UTF-8"); //$NON-NLS-1$
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		return readString(in, in.readInt());
+	}
+
+	private static void skipString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length == -1) return;
+		if (length < 0 || length > MAX_LENGTH) throw new EOFException();
+		// read rather than skip the bytes as skipping does not detect the end of the file
+		in.readFully(new byte[length]);
+	}
+
+	private static String readString(DataInput in, int length) throws IOException {
+		if (length == -1) return null;
+		if (length < 0 || length > MAX_LENGTH) throw new EOFException();
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8"); //$NON-NLS-1$
+	}
+}
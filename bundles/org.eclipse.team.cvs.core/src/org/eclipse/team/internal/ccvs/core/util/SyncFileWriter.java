@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,12 +14,16 @@ package org.eclipse.team.internal.ccvs.core.util;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.*;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.team.internal.ccvs.core.*;
 import org.eclipse.team.internal.ccvs.core.resources.CVSEntryLineTag;
@@ -43,6 +47,7 @@ public class SyncFileWriter {
 	public static final String ENTRIES = "Entries"; //$NON-NLS-1$
 	//private static final String PERMISSIONS = "Permissions"; //$NON-NLS-1$
 	public static final String ENTRIES_LOG="Entries.Log"; //$NON-NLS-1$
+	private static final String ENTRIES_BACKUP = "Entries.Backup"; //$NON-NLS-1$
 	public static final String NOTIFY = "Notify"; //$NON-NLS-1$
 	public static final String BASE_DIRNAME = "Base"; //$NON-NLS-1$
 	public static final String BASEREV = "Baserev"; //$NON-NLS-1$
@@ -50,16 +55,12 @@ public class SyncFileWriter {
 	// the local workspace file that contains pattern for ignored resources
 	public static final String IGNORE_FILE = ".cvsignore"; //$NON-NLS-1$
 
-	// Some older CVS clients may of added a line to the entries file consisting
-	// of only a 'D'. It is safe to ignore these entries.	
-	private static final String FOLDER_TAG="D"; //$NON-NLS-1$
-	
-	// Command characters found in the Entries.log file
-	private static final String ADD_TAG="A "; //$NON-NLS-1$
-	private static final String REMOVE_TAG="R "; //$NON-NLS-1$	
-	
 	// key for saving the mod stamp for each written meta file
 	public static final QualifiedName MODSTAMP_KEY = new QualifiedName("org.eclipse.team.cvs.core", "meta-file-modtime"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	// the number of CVS/Entries files from which on they are written concurrently
+	private static final int CONCURRENT_WRITE_THRESHOLD = 32;
+	private static final int MAX_WRITERS = 4;
 	
 	/**
 	 * Reads the CVS/Entries, CVS/Entries.log and CVS/Permissions files from the
@@ -69,6 +70,13 @@ public class SyncFileWriter {
 	public static byte[][] readAllResourceSync(IContainer parent) throws CVSException {
         IFolder cvsSubDir = getCVSSubdirectory(parent);
         
+		// use the snapshot if the meta files have not changed since it was taken
+		long[] stamps = EntriesSnapshot.getResourceSyncStamps(cvsSubDir);
+		byte[][] snapshot = EntriesSnapshot.getInstance().getResourceSync(parent, stamps);
+		if (snapshot != null) {
+			return snapshot;
+		}
+        
         if (!folderExists(cvsSubDir)){
         	return null;
         }
@@ -77,48 +85,12 @@ public class SyncFileWriter {
 			System.out.println("Reading Entries file for " + parent.getFullPath()); //$NON-NLS-1$
 		}
 
-		// process Entries file contents
-		String[] entries = readLines(cvsSubDir.getFile(ENTRIES));
+		// process Entries and Entries.log file contents
+		byte[] entries = readBytes(cvsSubDir.getFile(ENTRIES));
 		if (entries == null) return null;
-		Map infos = new TreeMap();
-		for (int i = 0; i < entries.length; i++) {
-			String line = entries[i];
-			if(!FOLDER_TAG.equals(line) && !"".equals(line)) { //$NON-NLS-1$
-				try {
-					ResourceSyncInfo info = new ResourceSyncInfo(line, null);
-					infos.put(info.getName(), info);
-				} catch (CVSException e) {
-					// There was a problem parsing the entry line.
-					// Log the problem and skip the entry
-					CVSProviderPlugin.log(new CVSStatus(IStatus.ERROR, NLS.bind(CVSMessages.SyncFileWriter_0, new String[] { parent.getFullPath().toString() }), e)); 
-				}			
-			}
-		}
-		
-		// process Entries.log file contents
-		String[] entriesLog = readLines(cvsSubDir.getFile(ENTRIES_LOG));
-		if (entriesLog != null) {
-			for (int i = 0; i < entriesLog.length; i++) {
-				String line = entriesLog[i];
-				if (line.startsWith(ADD_TAG)) {
-					line = line.substring(ADD_TAG.length());
-					ResourceSyncInfo info = new ResourceSyncInfo(line, null);
-					infos.put(info.getName(), info);
-				} else if (line.startsWith(REMOVE_TAG)) {
-					line = line.substring(REMOVE_TAG.length());
-					ResourceSyncInfo info = new ResourceSyncInfo(line, null);
-					infos.remove(info.getName());
-				}
-			}
-		}
-		
-		//return (ResourceSyncInfo[])infos.values().toArray(new ResourceSyncInfo[infos.size()]);
-		byte[][] result = new byte[infos.size()][];
-		int i = 0;
-		for (Iterator iter = infos.values().iterator(); iter.hasNext();) {
-			ResourceSyncInfo info = (ResourceSyncInfo) iter.next();
-			result[i++] = info.getBytes();
-		}
+		byte[] entriesLog = readBytes(cvsSubDir.getFile(ENTRIES_LOG));
+		byte[][] result = EntriesParser.parse(entries, entriesLog, parent.getFullPath().toString());
+		EntriesSnapshot.getInstance().setResourceSync(parent, stamps, result);
 		return result;
 	}
 	
@@ -160,6 +132,224 @@ public class SyncFileWriter {
 			throw CVSException.wrapException(e);
 		}
 	}
+
+	/**
+	 * Writes the CVS/Entries files of several folders at once. Like the command line
+	 * client, each file is first written to CVS/Entries.Backup and then renamed, so that
+	 * an interrupted write never leaves a truncated CVS/Entries file behind. Instead of
+	 * setting the contents of each file through the workspace, the written files are
+	 * refreshed in a single workspace operation. If there are many folders, their files
+	 * are written concurrently.
+	 * <p>
+	 * The files of folders that are not stored in the local file system are written
+	 * one at a time as by {@link #writeAllResourceSync(IContainer, byte[][])}.
+	 * </p>
+	 * @param infos maps each folder (<code>IContainer</code>) to the sync bytes of its children (<code>byte[][]</code>)
+	 * @param monitor a progress monitor
+	 * @return maps the folders whose CVS/Entries file could not be written to the
+	 * <code>CVSException</code> describing the failure
+	 */
+	public static Map writeAllResourceSync(Map infos, IProgressMonitor monitor) {
+		final Map failures = new HashMap();
+		monitor = Policy.monitorFor(monitor);
+		monitor.beginTask(null, infos.size() * 2);
+		try {
+			// create the CVS subdirectories and find out where the files go
+			final List files = new ArrayList();
+			for (Iterator iter = infos.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry entry = (Map.Entry) iter.next();
+				IContainer parent = (IContainer) entry.getKey();
+				byte[][] syncBytes = (byte[][]) entry.getValue();
+				try {
+					IFolder cvsSubDir = createCVSSubdirectory(parent);
+					IPath location = cvsSubDir.getFile(ENTRIES).getLocation();
+					if (location == null) {
+						writeAllResourceSync(parent, syncBytes);
+						monitor.worked(2);
+					} else {
+						files.add(new EntriesFile(parent, cvsSubDir, location.toFile(), syncBytes));
+						monitor.worked(1);
+					}
+				} catch (CVSException e) {
+					failures.put(parent, e);
+					monitor.worked(2);
+				}
+			}
+			if (files.isEmpty())
+				return failures;
+
+			// write the files outside of the workspace
+			writeEntriesFiles(files);
+
+			// refresh the files that were written in one operation
+			final List written = new ArrayList();
+			ISchedulingRule[] rules = new ISchedulingRule[files.size()];
+			for (int i = 0; i < files.size(); i++) {
+				EntriesFile file = (EntriesFile) files.get(i);
+				rules[i] = ResourcesPlugin.getWorkspace().getRuleFactory().refreshRule(file.cvsSubDir.getFile(ENTRIES));
+				if (file.error != null) {
+					failures.put(file.parent, file.error);
+				} else {
+					written.add(file);
+				}
+			}
+			final IProgressMonitor refreshMonitor = Policy.subMonitorFor(monitor, files.size());
+			try {
+				ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+					public void run(IProgressMonitor pm) throws CoreException {
+						refreshMonitor.beginTask(null, written.size());
+						for (Iterator iter = written.iterator(); iter.hasNext();) {
+							EntriesFile file = (EntriesFile) iter.next();
+							try {
+								file.refresh();
+							} catch (CoreException e) {
+								failures.put(file.parent, CVSException.wrapException(e));
+							}
+							refreshMonitor.worked(1);
+						}
+						refreshMonitor.done();
+					}
+				}, MultiRule.combine(rules), IWorkspace.AVOID_UPDATE, null);
+			} catch (CoreException e) {
+				for (Iterator iter = written.iterator(); iter.hasNext();) {
+					EntriesFile file = (EntriesFile) iter.next();
+					if (!failures.containsKey(file.parent))
+						failures.put(file.parent, CVSException.wrapException(e));
+				}
+			}
+			return failures;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/*
+	 * A CVS/Entries file that is written outside of the workspace and refreshed afterwards.
+	 */
+	private static class EntriesFile {
+		final IContainer parent;
+		final IFolder cvsSubDir;
+		final File target;
+		final byte[][] infos;
+		// the time stamp of the file when it was last read or written through the workspace
+		final long oldTimeStamp;
+		CVSException error;
+
+		EntriesFile(IContainer parent, IFolder cvsSubDir, File target, byte[][] infos) {
+			this.parent = parent;
+			this.cvsSubDir = cvsSubDir;
+			this.target = target;
+			this.infos = infos;
+			this.oldTimeStamp = cvsSubDir.getFile(ENTRIES).getLocalTimeStamp();
+		}
+
+		/*
+		 * Write the file to CVS/Entries.Backup and rename it to CVS/Entries.
+		 * This does not touch the workspace and may run in any thread.
+		 */
+		void write() {
+			if (Policy.DEBUG_METAFILE_CHANGES) {
+				System.out.println("Writing Entries file for folder " + parent.getFullPath()); //$NON-NLS-1$
+			}
+			File backup = new File(target.getParentFile(), ENTRIES_BACKUP);
+			try {
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(backup));
+				try {
+					byte[] lineEnd = getLineDelimiter();
+					for (int i = 0; i < infos.length; i++) {
+						out.write(infos[i]);
+						out.write(lineEnd);
+					}
+				} finally {
+					out.close();
+				}
+				// The refresh only notices the change if the time stamp changed, which may not be the
+				// case if the file was written less than a time stamp unit ago
+				if (oldTimeStamp != IResource.NULL_STAMP && backup.lastModified() <= oldTimeStamp) {
+					backup.setLastModified(oldTimeStamp + 1000);
+				}
+				try {
+					Files.move(backup.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(backup.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			} catch (IOException e) {
+				backup.delete();
+				error = CVSException.wrapException(e);
+			}
+		}
+
+		/*
+		 * Bring the workspace in sync with the written file and delete CVS/Entries.log.
+		 */
+		void refresh() throws CoreException {
+			IFile file = cvsSubDir.getFile(ENTRIES);
+			file.refreshLocal(IResource.DEPTH_ZERO, null);
+			file.setSessionProperty(MODSTAMP_KEY, new Long(file.getModificationStamp()));
+			cvsSubDir.getFile(ENTRIES_LOG).delete(IResource.NONE, null);
+			// the sync bytes need not be read again
+			EntriesSnapshot.getInstance().setResourceSync(parent, EntriesSnapshot.getResourceSyncStamps(cvsSubDir), infos);
+		}
+	}
+
+	/*
+	 * Write the given files. If there are enough of them, worker jobs help
+	 * the calling thread. The calling thread does not depend on the jobs
+	 * being run: it writes the files that no job has started writing and only
+	 * waits for the jobs that are writing a file.
+	 */
+	private static void writeEntriesFiles(List files) {
+		final LinkedList queue = new LinkedList(files);
+		final int[] running = new int[1];
+		int workers = Math.min(MAX_WRITERS, Runtime.getRuntime().availableProcessors());
+		if (files.size() >= CONCURRENT_WRITE_THRESHOLD) {
+			for (int i = 1; i < workers; i++) {
+				Job job = new Job(CVSMessages.SyncFileWriter_1) {
+					protected IStatus run(IProgressMonitor monitor) {
+						writeEntriesFiles(queue, running);
+						return Status.OK_STATUS;
+					}
+				};
+				job.setSystem(true);
+				job.schedule();
+			}
+		}
+		writeEntriesFiles(queue, running);
+		boolean interrupted = false;
+		synchronized (queue) {
+			while (running[0] > 0) {
+				try {
+					queue.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void writeEntriesFiles(LinkedList queue, int[] running) {
+		while (true) {
+			EntriesFile file;
+			synchronized (queue) {
+				if (queue.isEmpty())
+					return;
+				file = (EntriesFile) queue.removeFirst();
+				running[0]++;
+			}
+			try {
+				file.write();
+			} finally {
+				synchronized (queue) {
+					running[0]--;
+					queue.notifyAll();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Reads the CVS/Root, CVS/Repository, CVS/Tag, and CVS/Entries.static files from
 	 * the specified folder and returns a FolderSyncInfo instance for the data stored therein.
@@ -168,6 +358,13 @@ public class SyncFileWriter {
 	public static FolderSyncInfo readFolderSync(IContainer folder) throws CVSException {
 		IFolder cvsSubDir = getCVSSubdirectory(folder);
 		
+		// use the snapshot if the meta files have not changed since it was taken
+		long[] stamps = EntriesSnapshot.getFolderSyncStamps(cvsSubDir);
+		FolderSyncInfo snapshot = EntriesSnapshot.getInstance().getFolderSync(folder, stamps);
+		if (snapshot != null) {
+			return snapshot;
+		}
+		
         if (!folderExists(cvsSubDir)){
         	return null;
         }
@@ -208,7 +405,9 @@ public class SyncFileWriter {
 		boolean isStatic = (staticDir != null);
 		
 		// return folder sync
-		return new FolderSyncInfo(repository, root, cvsTag, isStatic);		
+		FolderSyncInfo info = new FolderSyncInfo(repository, root, cvsTag, isStatic);
+		EntriesSnapshot.getInstance().setFolderSync(folder, stamps, info);
+		return info;
 	}
 	
 	/**
@@ -582,6 +781,43 @@ public class SyncFileWriter {
 		}
 	}
 	
+	/*
+	 * Reads the contents of the specified file.
+	 * Returns null if the file does not exist.
+	 */
+	private static byte[] readBytes(IFile file) throws CVSException {
+		try {
+			InputStream in = getInputStream(file);
+			if (in != null) {
+				try {
+					ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+					byte[] buffer = new byte[4096];
+					int read;
+					while ((read = in.read(buffer)) != -1) {
+						out.write(buffer, 0, read);
+					}
+					return out.toByteArray();
+				} finally {
+					in.close();
+				}
+			}
+			return null;
+		} catch (IOException e) {
+			throw CVSException.wrapException(e);
+		} catch (CoreException e) {
+			// If the IFile doesn't exist or the underlying File doesn't exist,
+			// just return null to indicate the absence of the file
+			switch (e.getStatus().getCode()) {
+			case IResourceStatus.RESOURCE_NOT_FOUND:
+			case IResourceStatus.NOT_FOUND_LOCAL:
+			case IResourceStatus.FAILED_READ_LOCAL:
+				return null;
+			default:
+				throw CVSException.wrapException(e);
+			}
+		}
+	}
+	
 	/*
 	 * Writes all lines to the specified file, using linefeed terminators for
 	 * compatibility with other CVS clients.
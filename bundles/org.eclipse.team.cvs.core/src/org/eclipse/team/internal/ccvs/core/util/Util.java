@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,9 @@ import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
  */
 public class Util {
 	
+	// Canonical instances of the strings that are retained by many log entries, sync infos and remote resources
+	private static final WeakInterner strings = new WeakInterner();
+	
 	/**
 	 * Return the last segment of the given path
 	 * @param path
@@ -527,4 +530,17 @@ public class Util {
 		}
 		return buffer.toString();
 	}
+	
+	/**
+	 * Return the canonical instance of the given string. This is used for the
+	 * values that are repeated across many files and revisions, such as the
+	 * revisions, authors, states and comments of log entries, so that each is
+	 * retained once. Unlike <code>String.intern()</code>, the canonical instances
+	 * are released once they are no longer referenced.
+	 * @param string a string or <code>null</code>
+	 * @return the canonical instance or <code>null</code> if the string is <code>null</code>
+	 */
+	public static String intern(String string) {
+		return (String) strings.intern(string);
+	}
 }
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.core.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Maps objects to a canonical instance, like <code>String.intern()</code>,
+ * so that equal values that are retained by many objects are shared.
+ * The canonical instances are only weakly referenced: once no one else
+ * references an instance, it is garbage collected and removed.
+ * <p>
+ * Objects are equivalent when they are equal. Subclasses can override
+ * {@link #hash(Object)} and {@link #equivalent(Object, Object)} for
+ * objects whose <code>equals</code> method is too coarse for sharing.
+ * </p>
+ */
+public class WeakInterner {
+
+	private static final int INITIAL_CAPACITY = 256;
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private final ReferenceQueue queue = new ReferenceQueue();
+	private Entry[] table = new Entry[INITIAL_CAPACITY];
+	private int size;
+
+	/*
+	 * A canonical instance, chained with the instances of the same bucket.
+	 */
+	private static class Entry extends WeakReference {
+		final int hash;
+		Entry next;
+
+		Entry(Object object, int hash, Entry next, ReferenceQueue queue) {
+			super(object, queue);
+			this.hash = hash;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * Return the canonical instance that is equivalent to the given object.
+	 * If there is none, the given object becomes the canonical instance.
+	 * @param object an object or <code>null</code>
+	 * @return the canonical instance or <code>null</code> if the object is <code>null</code>
+	 */
+	public synchronized Object intern(Object object) {
+		if (object == null)
+			return null;
+		expungeStaleEntries();
+		int hash = spread(hash(object));
+		int index = indexFor(hash, table.length);
+		for (Entry entry = table[index]; entry != null; entry = entry.next) {
+			if (entry.hash == hash) {
+				Object canonical = entry.get();
+				if (canonical != null && equivalent(canonical, object))
+					return canonical;
+			}
+		}
+		table[index] = new Entry(object, hash, table[index], queue);
+		if (++size > table.length * LOAD_FACTOR)
+			resize();
+		return object;
+	}
+
+	/**
+	 * Return the number of canonical instances that are still referenced.
+	 * @return the number of canonical instances
+	 */
+	public synchronized int size() {
+		expungeStaleEntries();
+		return size;
+	}
+
+	/**
+	 * Return the hash code of the given object, which must be the same
+	 * for equivalent objects.
+	 * @param object an object
+	 * @return the hash code of the object
+	 */
+	protected int hash(Object object) {
+		return object.hashCode();
+	}
+
+	/**
+	 * Return whether the given canonical instance can be used in place
+	 * of the given object.
+	 * @param canonical a canonical instance
+	 * @param object an object being interned
+	 * @return whether the objects are equivalent
+	 */
+	protected boolean equivalent(Object canonical, Object object) {
+		return canonical.equals(object);
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int indexFor(int hash, int length) {
+		return hash & (length - 1);
+	}
+
+	private void resize() {
+		Entry[] oldTable = table;
+		Entry[] newTable = new Entry[oldTable.length * 2];
+		for (int i = 0; i < oldTable.length; i++) {
+			Entry entry = oldTable[i];
+			while (entry != null) {
+				Entry next = entry.next;
+				int index = indexFor(entry.hash, newTable.length);
+				entry.next = newTable[index];
+				newTable[index] = entry;
+				entry = next;
+			}
+		}
+		table = newTable;
+	}
+
+	/*
+	 * Remove the entries whose canonical instance was garbage collected.
+	 */
+	private void expungeStaleEntries() {
+		Entry stale;
+		while ((stale = (Entry) queue.poll()) != null) {
+			int index = indexFor(stale.hash, table.length);
+			Entry previous = null;
+			for (Entry entry = table[index]; entry != null; entry = entry.next) {
+				if (entry == stale) {
+					if (previous == null)
+						table[index] = entry.next;
+					else
+						previous.next = entry.next;
+					size--;
+					break;
+				}
+				previous = entry;
+			}
+		}
+	}
+}
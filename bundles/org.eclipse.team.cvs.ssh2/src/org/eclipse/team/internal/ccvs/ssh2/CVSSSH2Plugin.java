@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,12 +11,17 @@
  *******************************************************************************/
 package org.eclipse.team.internal.ccvs.ssh2;
 
-import java.util.Hashtable;
+import java.lang.management.ManagementFactory;
+import java.util.*;
 
-import org.eclipse.core.runtime.Plugin;
+import javax.management.*;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jsch.core.IJSchService;
 import org.eclipse.osgi.service.debug.DebugOptions;
 import org.eclipse.osgi.service.debug.DebugOptionsListener;
+import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.util.tracker.ServiceTracker;
@@ -26,8 +31,38 @@ public class CVSSSH2Plugin extends Plugin {
 	public static String ID = "org.eclipse.team.cvs.ssh2"; //$NON-NLS-1$
 	private static CVSSSH2Plugin plugin;
 
+	static final String EXTSSH_METHOD = "extssh"; //$NON-NLS-1$
+
+	/**
+	 * Preference for the interval in seconds between the keep-alive messages
+	 * sent on idle sessions. A value of 0 disables the keep-alive messages.
+	 */
+	public static final String KEEP_ALIVE_INTERVAL = "ssh2.keepAliveInterval"; //$NON-NLS-1$
+	/**
+	 * Preference for the time in seconds after which a session that is not
+	 * used by any connection is closed. A value of 0 keeps the sessions open
+	 * until shutdown.
+	 */
+	public static final String IDLE_TIMEOUT = "ssh2.idleTimeout"; //$NON-NLS-1$
+	/**
+	 * Preference for whether sessions to the recently used repository
+	 * locations are connected in the background when the plug-in starts.
+	 */
+	public static final String PRE_AUTHENTICATE = "ssh2.preAuthenticate"; //$NON-NLS-1$
+	// The recently used locations, most recent first, separated by new lines
+	private static final String RECENT_LOCATIONS = "ssh2.recentLocations"; //$NON-NLS-1$
+
+	public static final int DEFAULT_KEEP_ALIVE_INTERVAL = 60;
+	public static final int DEFAULT_IDLE_TIMEOUT = 900;
+	private static final int MAX_RECENT_LOCATIONS = 5;
+
 	private ServiceRegistration debugRegistration;
+	private ServiceRegistration metricsRegistration;
+	private ObjectName metricsName;
+	private boolean metricsPublished;
+	private final Object metricsLock = new Object();
 	private ServiceTracker tracker;
+	private Job preAuthenticationJob;
 	
 	public CVSSSH2Plugin() {
 		super();
@@ -40,8 +75,15 @@ public class CVSSSH2Plugin extends Plugin {
 			debugRegistration.unregister();
 			debugRegistration = null;
 
+			if (preAuthenticationJob != null) {
+				preAuthenticationJob.cancel();
+				preAuthenticationJob = null;
+			}
+			unregisterSessionPoolMetrics();
+
 			JSchSession.shutdown();
 			tracker.close();
+			savePluginPreferences();
 		} finally {
 			super.stop(context);
 		}
@@ -61,6 +103,138 @@ public class CVSSSH2Plugin extends Plugin {
 
 	    tracker = new ServiceTracker(getBundle().getBundleContext(), IJSchService.class.getName(), null);
 	    tracker.open();
+
+	    registerSessionPoolMetrics(context);
+
+	    if (getPluginPreferences().getBoolean(PRE_AUTHENTICATE)) {
+	    	preAuthenticationJob = new PreAuthenticationJob();
+	    	preAuthenticationJob.schedule();
+	    }
+	}
+
+	/*
+	 * Make the session pool metrics available as a service. The MBean is only
+	 * registered once a session is pooled so that the platform MBean
+	 * server is not created on startup.
+	 */
+	private void registerSessionPoolMetrics(BundleContext context) {
+		synchronized (metricsLock) {
+			metricsRegistration = context.registerService(ISessionPoolMetrics.class.getName(), SessionPoolMetrics.getInstance(), new Hashtable());
+		}
+	}
+
+	/*
+	 * Make the session pool metrics available as an MBean in the platform
+	 * MBean server if they are not already. Called by JSchSession when a
+	 * session is pooled.
+	 */
+	void registerSessionPoolMetricsMBean() {
+		synchronized (metricsLock) {
+			// Nothing to register before the plug-in is started or after it is stopped
+			if (metricsRegistration == null || metricsPublished) return;
+			// Register at most once, even if the registration fails
+			metricsPublished = true;
+			try {
+				ObjectName name = new ObjectName(ISessionPoolMetrics.OBJECT_NAME);
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				if (!server.isRegistered(name)) {
+					server.registerMBean(SessionPoolMetrics.getInstance(), name);
+					metricsName = name;
+				}
+			} catch (JMException e) {
+				// The metrics are still available as a service
+				log(IStatus.WARNING, "The SSH session pool metrics could not be registered with the MBean server", e); //$NON-NLS-1$
+			} catch (SecurityException e) {
+				log(IStatus.WARNING, "The SSH session pool metrics could not be registered with the MBean server", e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private void unregisterSessionPoolMetrics() {
+		synchronized (metricsLock) {
+			if (metricsRegistration != null) {
+				metricsRegistration.unregister();
+				metricsRegistration = null;
+			}
+			if (metricsName != null) {
+				try {
+					ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+				} catch (JMException e) {
+					// The MBean was already unregistered
+				}
+				metricsName = null;
+			}
+			metricsPublished = false;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.runtime.Plugin#initializeDefaultPluginPreferences()
+	 */
+	protected void initializeDefaultPluginPreferences() {
+		Preferences store = getPluginPreferences();
+		store.setDefault(KEEP_ALIVE_INTERVAL, DEFAULT_KEEP_ALIVE_INTERVAL);
+		store.setDefault(IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT);
+		store.setDefault(PRE_AUTHENTICATE, false);
+		store.setDefault(RECENT_LOCATIONS, ""); //$NON-NLS-1$
+	}
+
+	/**
+	 * Return the interval in seconds between the keep-alive messages sent on idle sessions.
+	 * @return the keep-alive interval or 0 if the keep-alive messages are disabled
+	 */
+	public int getKeepAliveInterval() {
+		return getPluginPreferences().getInt(KEEP_ALIVE_INTERVAL);
+	}
+
+	/**
+	 * Return the time in seconds after which an unused session is closed.
+	 * @return the idle timeout or 0 if the sessions are never closed
+	 */
+	public int getIdleTimeout() {
+		return getPluginPreferences().getInt(IDLE_TIMEOUT);
+	}
+
+	/**
+	 * Return the recently used <code>extssh</code> locations, most recent first.
+	 * The locations are given as returned by {@link ICVSRepositoryLocation#getLocation(boolean)}
+	 * with the password hidden.
+	 * @return the recently used locations
+	 */
+	public synchronized String[] getRecentLocations() {
+		List locations = new ArrayList();
+		StringTokenizer tokenizer = new StringTokenizer(getPluginPreferences().getString(RECENT_LOCATIONS), "\n"); //$NON-NLS-1$
+		while (tokenizer.hasMoreTokens()) {
+			locations.add(tokenizer.nextToken());
+		}
+		return (String[]) locations.toArray(new String[locations.size()]);
+	}
+
+	/**
+	 * Remember that a session was connected for the given location so that
+	 * it can be connected in the background the next time the plug-in starts.
+	 * @param location a repository location
+	 */
+	synchronized void addRecentLocation(ICVSRepositoryLocation location) {
+		if (!location.getMethod().getName().equals(EXTSSH_METHOD))
+			return;
+		String added = location.getLocation(true);
+		String[] recent = getRecentLocations();
+		if (recent.length > 0 && recent[0].equals(added))
+			return;
+		StringBuffer buffer = new StringBuffer(added);
+		int count = 1;
+		for (int i = 0; i < recent.length && count < MAX_RECENT_LOCATIONS; i++) {
+			if (!recent[i].equals(added)) {
+				buffer.append('\n').append(recent[i]);
+				count++;
+			}
+		}
+		getPluginPreferences().setValue(RECENT_LOCATIONS, buffer.toString());
+	}
+
+	private void log(int severity, String message, Throwable e) {
+		getLog().log(new Status(severity, ID, 0, message, e));
 	}
 	
     public IJSchService getJSchService() {
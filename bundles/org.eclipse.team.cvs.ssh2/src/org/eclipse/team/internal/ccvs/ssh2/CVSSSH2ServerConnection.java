@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -94,6 +94,11 @@ public class CVSSSH2ServerConnection implements IServerConnection {
 			} finally {
 				if (channel != null)
 					channel.disconnect();
+				if (session != null) {
+					// The session stays pooled for the next connection
+					session.release();
+					session = null;
+				}
 			}
 		} 
 	}
@@ -124,6 +129,7 @@ public class CVSSSH2ServerConnection implements IServerConnection {
 	 * @throws CVSAuthenticationException
 	 */
 	private void internalOpen(IProgressMonitor monitor) throws IOException, CVSAuthenticationException {
+		boolean opened = false;
 		try {
 			OutputStream channel_out = null;
 			InputStream channel_in = null;
@@ -153,7 +159,9 @@ public class CVSSSH2ServerConnection implements IServerConnection {
                         }
                     } finally {
                         // Always dispose of the current session when a failure occurs so we can start from scratch
+                        session.release();
                         session.dispose();
+                        session = null;
                     }
 				}
                 firstTime = false; // the first time is done
@@ -171,6 +179,7 @@ public class CVSSSH2ServerConnection implements IServerConnection {
 						}
 					},
 					8192 /*buffersize*/, (timeout>0 ? 1000 : 0) /*writeTimeout*/, (timeout>0 ? 1000 : 0) /*closeTimeout*/), timeout > 0 ? timeout : 1, monitor);
+			opened = true;
 		} catch (final JSchException e) {
 			if (isSSH2Unsupported(e)) {
 				ssh1 = createSSH1Connection();
@@ -205,6 +214,17 @@ public class CVSSSH2ServerConnection implements IServerConnection {
 			    }
  				throw new SSH2IOException(message, e);
 			}
+		} finally {
+			if (!opened && session != null) {
+				// The session was obtained but the channel could not be opened.
+				// Release it so that the pool can evict it once it is idle
+				if (channel != null) {
+					channel.disconnect();
+					channel = null;
+				}
+				session.release();
+				session = null;
+			}
 		}
 	}
 	
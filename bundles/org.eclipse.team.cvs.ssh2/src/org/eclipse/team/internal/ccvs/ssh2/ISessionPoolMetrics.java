@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.ssh2;
+
+import javax.management.MXBean;
+
+/**
+ * Provides the metrics of the pool of SSH sessions shared by the CVS
+ * connections. The metrics are available as an OSGi service registered
+ * under this interface and, once a session has been pooled, as the JMX
+ * MBean named {@link #OBJECT_NAME} in the platform MBean server.
+ */
+@MXBean
+public interface ISessionPoolMetrics {
+
+	/**
+	 * The name of the MBean that exposes the metrics.
+	 */
+	public static final String OBJECT_NAME = "org.eclipse.team.cvs.ssh2:type=SessionPool"; //$NON-NLS-1$
+
+	/**
+	 * Returns the number of sessions currently in the pool.
+	 */
+	public int getPooledSessions();
+
+	/**
+	 * Returns the number of pooled sessions that are used by open connections.
+	 */
+	public int getActiveSessions();
+
+	/**
+	 * Returns the number of times a connected session was reused from the pool.
+	 */
+	public long getHits();
+
+	/**
+	 * Returns the number of times a new session had to be connected
+	 * because there was none in the pool.
+	 */
+	public long getMisses();
+
+	/**
+	 * Returns the number of times a pooled session was found disconnected
+	 * and had to be connected again.
+	 */
+	public long getReconnects();
+
+	/**
+	 * Returns the number of sessions that were closed because they were idle.
+	 */
+	public long getEvictions();
+
+	/**
+	 * Returns the number of sessions connected in the background at startup.
+	 */
+	public long getPreAuthentications();
+
+	/**
+	 * Returns the number of sessions that could not be connected in the background.
+	 */
+	public long getFailedPreAuthentications();
+
+	/**
+	 * Discards the counts collected so far.
+	 */
+	public void reset();
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,10 +11,16 @@
  *******************************************************************************/
 package org.eclipse.team.internal.ccvs.ssh2;
 
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jsch.core.IJSchService;
 import org.eclipse.jsch.core.IJSchLocation;
 import org.eclipse.jsch.core.IPasswordStore;
@@ -23,12 +29,67 @@ import org.eclipse.team.internal.ccvs.core.*;
 
 import com.jcraft.jsch.*;
 
-class JSchSession {
+/**
+ * A JSch session that is pooled by user, host and port and shared by the
+ * connections to the locations that use them.
+ */
+public class JSchSession {
 	private static final int SSH_DEFAULT_PORT = 22;
+	// The number of keep-alive messages without reply after which the session is considered down
+	private static final int KEEP_ALIVE_COUNT_MAX = 3;
+	// The longest time between two checks for idle sessions
+	private static final long MAX_EVICTION_DELAY = 60000;
 	private static java.util.Hashtable pool = new java.util.Hashtable();
+	private static final Job evictionJob = new IdleSessionJob();
 	
     private final Session session;
-    private final ICVSRepositoryLocation location;
+    // The key of the session in the pool
+    private final String key;
+    // The number of open connections using the session and the last time one was opened or closed
+    private int users;
+    private long lastUsed;
+
+    /*
+     * Closes the pooled sessions that have not been used for the idle timeout
+     * and reschedules itself as long as there are pooled sessions.
+     */
+    private static class IdleSessionJob extends Job {
+    	IdleSessionJob() {
+    		super(CVSSSH2Messages.JSchSession_6);
+    		setSystem(true);
+    	}
+		protected IStatus run(IProgressMonitor monitor) {
+			evictIdleSessions(CVSSSH2Plugin.getDefault().getIdleTimeout() * 1000L);
+			scheduleEviction();
+			return Status.OK_STATUS;
+		}
+    }
+
+    /*
+     * Answers the prompts of JSch when connecting in the background: the
+     * password known to the location is given to the session directly so
+     * authentication fails instead of prompting and unknown host keys are rejected.
+     */
+    private static class BackgroundUserInfo implements UserInfo {
+		public String getPassphrase() {
+			return null;
+		}
+		public String getPassword() {
+			return null;
+		}
+		public boolean promptPassword(String message) {
+			return false;
+		}
+		public boolean promptPassphrase(String message) {
+			return false;
+		}
+		public boolean promptYesNo(String message) {
+			return false;
+		}
+		public void showMessage(String message) {
+			// Nothing to show
+		}
+    }
 
     protected static int getCVSTimeoutInMillis() {
         //return CVSProviderPlugin.getPlugin().getTimeout() * 1000;
@@ -49,10 +110,18 @@ class JSchSession {
 		String key = getPoolKey(username, hostname, actualPort);
 
 		try {
-			JSchSession jschSession = (JSchSession) pool.get(key);
-			if (jschSession != null && !jschSession.getSession().isConnected()) {
-				pool.remove(key);
-                jschSession = null;
+			JSchSession jschSession;
+			boolean reconnect = false;
+			synchronized (pool) {
+				jschSession = (JSchSession) pool.get(key);
+				if (jschSession != null && !jschSession.getSession().isConnected()) {
+					pool.remove(key);
+					jschSession = null;
+					reconnect = true;
+				} else if (jschSession != null) {
+					jschSession.acquire();
+					SessionPoolMetrics.getInstance().sessionReused();
+				}
 			}
 
 			if (jschSession == null) {
@@ -80,21 +149,29 @@ class JSchSession {
                 
                 Session session = null;
                 try {
-                    session = createSession(service, jlocation, password, monitor);
+                    session = createSession(service, jlocation, password, null, monitor);
                 } catch (JSchException e) {
                 	throw e;
                 }
                 if (session == null)
                 	throw new JSchException(CVSSSH2Messages.JSchSession_4);
-                if (session.getTimeout() != location.getTimeout() * 1000)
-                	session.setTimeout(location.getTimeout() * 1000);
-                JSchSession schSession = new JSchSession(session, location);
-                pool.put(key, schSession);
+                try {
+                	configureSession(session, location);
+                } catch (JSchException e) {
+                	session.disconnect();
+                	throw e;
+                }
+                JSchSession schSession = poolSession(key, session, true);
+                if (schSession.getSession() == session)
+                	SessionPoolMetrics.getInstance().sessionCreated(reconnect);
+                else
+                	SessionPoolMetrics.getInstance().sessionReused();
+                CVSSSH2Plugin.getDefault().addRecentLocation(location);
                 return schSession;
 			}
             return jschSession;
 		} catch (JSchException e) {
-			pool.remove(key);
+			// A session is only pooled once it is connected, so there is nothing to remove
 			if(e.toString().indexOf("Auth cancel")!=-1){  //$NON-NLS-1$
 				throw new OperationCanceledException();
 			}
@@ -102,10 +179,55 @@ class JSchSession {
 		}
 	}
 
-    private static Session createSession(IJSchService service, IJSchLocation location, String password, IProgressMonitor monitor) throws JSchException {
+    /**
+     * Connect a session to the given location in the background, using the
+     * password held in memory for the location if there is one, and add it to
+     * the pool so that the first connection to the location does not have to
+     * wait for the key exchange and the authentication. The secure storage is
+     * not read as it may prompt for its own password, so locations that do
+     * not include a username are skipped. The user is never
+     * prompted: if the authentication requires input, the session is not
+     * connected and will be connected when a connection is opened.
+     * @param location an <code>extssh</code> repository location
+     * @param monitor a progress monitor
+     * @return whether a connected session is pooled for the location
+     */
+    static boolean preAuthenticate(ICVSRepositoryLocation location, IProgressMonitor monitor) {
+    	// The username of a location that does not fix it is read from the secure storage
+    	if (location instanceof IUserInfo && ((IUserInfo) location).isUsernameMutable())
+    		return false;
+    	JSchSession jschSession = getPooledSession(location);
+    	if (jschSession != null && jschSession.getSession().isConnected())
+    		return true;
+    	try {
+    		String password = null;
+    		IUserInfo info = location.getUserInfo(false);
+    		if (info instanceof org.eclipse.team.internal.ccvs.core.connection.UserInfo)
+    			password = ((org.eclipse.team.internal.ccvs.core.connection.UserInfo) info).getPassword();
+    		IJSchService service = getJSchService();
+    		IJSchLocation jlocation = service.getLocation(location.getUsername(), location.getHost(), getPort(location));
+    		Session session = createSession(service, jlocation, password, new BackgroundUserInfo(), monitor);
+    		try {
+    			configureSession(session, location);
+    		} catch (JSchException e) {
+    			session.disconnect();
+    			throw e;
+    		}
+    		addSession(location, session);
+    		SessionPoolMetrics.getInstance().sessionPreAuthenticated(true);
+    		return true;
+    	} catch (JSchException e) {
+    		SessionPoolMetrics.getInstance().sessionPreAuthenticated(false);
+    		if (Policy.DEBUG)
+    			e.printStackTrace();
+    		return false;
+    	}
+    }
+
+    private static Session createSession(IJSchService service, IJSchLocation location, String password, UserInfo userInfo, IProgressMonitor monitor) throws JSchException {
     	if (password != null)
     		location.setPassword(password);
-    	Session session = service.createSession(location, null);
+    	Session session = service.createSession(location, userInfo);
         session.setTimeout(getCVSTimeoutInMillis());
         if (password != null)
 			session.setPassword(password);
@@ -113,6 +235,127 @@ class JSchSession {
         return session;
     }
 
+    /**
+     * Return the session pooled for the given location or <code>null</code>.
+     * The returned session is not acquired.
+     * @param location a repository location
+     * @return the pooled session or <code>null</code>
+     */
+    public static JSchSession getPooledSession(ICVSRepositoryLocation location) {
+    	return (JSchSession) pool.get(getPoolKey(location));
+    }
+
+    /**
+     * Add the given session to the pool for the location and return the pooled
+     * session. If a connected session is pooled for the location already, the
+     * given session is disconnected and the pooled one is returned instead.
+     * The returned session is not acquired.
+     * @param location the location the session is connected to
+     * @param session a session
+     * @return the pooled session
+     */
+    public static JSchSession addSession(ICVSRepositoryLocation location, Session session) {
+    	return poolSession(getPoolKey(location), session, false);
+    }
+
+    /*
+     * Pool the given session under the key unless a connected session is
+     * pooled already, in which case the given session is disconnected. Return
+     * the pooled session, acquired if requested so that it cannot be evicted
+     * before it is used.
+     */
+    private static JSchSession poolSession(String key, Session session, boolean acquire) {
+    	JSchSession jschSession;
+    	synchronized (pool) {
+    		jschSession = (JSchSession) pool.get(key);
+    		if (jschSession != null && jschSession.getSession().isConnected()) {
+    			// Another connection pooled a session in the meantime
+    			session.disconnect();
+    		} else {
+    			jschSession = new JSchSession(session, key);
+    			pool.put(key, jschSession);
+    		}
+    		if (acquire)
+    			jschSession.acquire();
+    	}
+    	CVSSSH2Plugin.getDefault().registerSessionPoolMetricsMBean();
+    	scheduleEviction();
+    	return jschSession;
+    }
+
+    private static void configureSession(Session session, ICVSRepositoryLocation location) throws JSchException {
+    	int timeout = location.getTimeout() * 1000;
+    	int keepAliveInterval = CVSSSH2Plugin.getDefault().getKeepAliveInterval() * 1000;
+    	if (keepAliveInterval > 0) {
+    		// JSch sends a keep-alive message instead of failing whenever a read
+    		// times out, so the interval is also the socket timeout. It is shortened
+    		// so that a server that stops replying is still detected within the
+    		// timeout of the location
+    		if (timeout > 0)
+    			keepAliveInterval = Math.min(keepAliveInterval, timeout / (KEEP_ALIVE_COUNT_MAX + 1));
+    		session.setServerAliveInterval(keepAliveInterval);
+    		session.setServerAliveCountMax(KEEP_ALIVE_COUNT_MAX);
+    	} else if (session.getTimeout() != timeout) {
+    		session.setTimeout(timeout);
+    	}
+    }
+
+    /*
+     * Schedule the check for idle sessions if there are pooled sessions
+     * and an idle timeout.
+     */
+    private static void scheduleEviction() {
+    	long timeout = CVSSSH2Plugin.getDefault().getIdleTimeout() * 1000L;
+    	if (timeout > 0 && !pool.isEmpty() && evictionJob.getState() == Job.NONE) {
+    		evictionJob.schedule(Math.min(timeout, MAX_EVICTION_DELAY));
+    	}
+    }
+
+    /**
+     * Close the pooled sessions that are not used by any connection
+     * and were last used longer than the given timeout ago.
+     * @param timeout the idle timeout in milliseconds or 0 to keep the sessions
+     */
+    public static void evictIdleSessions(long timeout) {
+    	if (timeout <= 0)
+    		return;
+    	long now = System.currentTimeMillis();
+    	List idle = new ArrayList();
+    	synchronized (pool) {
+    		for (Iterator iter = pool.values().iterator(); iter.hasNext();) {
+    			JSchSession jschSession = (JSchSession) iter.next();
+    			if (jschSession.isIdle(now, timeout)) {
+    				iter.remove();
+    				idle.add(jschSession);
+    			}
+    		}
+    	}
+    	for (Iterator iter = idle.iterator(); iter.hasNext();) {
+    		JSchSession jschSession = (JSchSession) iter.next();
+    		try {
+    			jschSession.getSession().disconnect();
+    		} catch (Exception e) {
+    			// Ignore
+    		}
+    		SessionPoolMetrics.getInstance().sessionEvicted();
+    	}
+    }
+
+    static int getPoolSize() {
+    	return pool.size();
+    }
+
+    static int getActiveCount() {
+    	int count = 0;
+    	synchronized (pool) {
+    		for (Iterator iter = pool.values().iterator(); iter.hasNext();) {
+    			if (((JSchSession) iter.next()).isUsed())
+    				count++;
+    		}
+    	}
+    	return count;
+    }
+
     private static IJSchService getJSchService(){
         return CVSSSH2Plugin.getDefault().getJSchService();
     }
@@ -133,6 +376,7 @@ class JSchSession {
     }
 
 	static void shutdown() {
+		evictionJob.cancel();
 		if (getJSch() != null && pool.size() > 0) {
 			for (Enumeration e = pool.elements(); e.hasMoreElements();) {
 				JSchSession session = (JSchSession) (e.nextElement());
@@ -150,9 +394,42 @@ class JSchSession {
 		return getJSchService().getJSch();
 	}
   
-    private JSchSession(Session session, ICVSRepositoryLocation location) {
+    private JSchSession(Session session, String key) {
         this.session = session;
-        this.location = location;
+        this.key = key;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Indicate that a connection uses the session. Each call must be
+     * matched by a call to {@link #release()}.
+     */
+    public synchronized void acquire() {
+    	users++;
+    	lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Indicate that a connection obtained the session from
+     * {@link #getSession} no longer uses it. The session stays
+     * in the pool until it has been idle for the idle timeout.
+     */
+    public synchronized void release() {
+    	if (users > 0)
+    		users--;
+    	lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Return whether a connection uses the session.
+     * @return whether the session is in use
+     */
+    public synchronized boolean isUsed() {
+    	return users > 0;
+    }
+
+    private synchronized boolean isIdle(long now, long timeout) {
+    	return users == 0 && now - lastUsed >= timeout;
     }
 
     public Session getSession() {
@@ -163,7 +440,11 @@ class JSchSession {
         if (session.isConnected()) {
             session.disconnect();
         }
-        pool.remove(getPoolKey(location));
+        synchronized (pool) {
+        	// Another session may have been pooled for the location since
+        	if (pool.get(key) == this)
+        		pool.remove(key);
+        }
     }
 
 }
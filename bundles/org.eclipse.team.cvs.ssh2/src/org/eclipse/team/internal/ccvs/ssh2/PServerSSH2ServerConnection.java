@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,7 @@ public class PServerSSH2ServerConnection implements IServerConnection {
 
 	private ICVSRepositoryLocation location;
 	private String password;
+	private JSchSession jschSession;
 	private Session session;
 	private static int localport = 2403;
 	private IServerConnection psc = null;
@@ -35,7 +36,19 @@ public class PServerSSH2ServerConnection implements IServerConnection {
 	}
 
 	public void close() throws IOException {
-		psc.close();
+		try {
+			psc.close();
+		} finally {
+			// The forwarding session stays pooled for the next connection
+			releaseSession();
+		}
+	}
+
+	private void releaseSession() {
+		if (jschSession != null) {
+			jschSession.release();
+			jschSession = null;
+		}
 	}
 
 	public InputStream getInputStream() {
@@ -88,7 +101,8 @@ public class PServerSSH2ServerConnection implements IServerConnection {
 		int retry = 1;
 		while (true) {
 			try {
-				session = JSchSession.getSession(location, ssh_user, null, ssh_host, ssh_port, monitor).getSession();
+				jschSession = JSchSession.getSession(location, ssh_user, null, ssh_host, ssh_port, monitor);
+				session = jschSession.getSession();
 				String[] list = session.getPortForwardingL();
 				String name = ":" + rhost + ":" + rport; //$NON-NLS-1$ //$NON-NLS-2$
 				boolean done = false;
@@ -109,6 +123,7 @@ public class PServerSSH2ServerConnection implements IServerConnection {
 					session.setPortForwardingL(lport, rhost, rport);
 				}
 			} catch (JSchException ee) {
+				  releaseSession();
 				  retry--;
 				  if(retry<0){
 				    throw new CVSAuthenticationException(CVSSSH2Messages.CVSSSH2ServerConnection_3, CVSAuthenticationException.NO_RETRY, location); 
@@ -123,6 +138,19 @@ public class PServerSSH2ServerConnection implements IServerConnection {
 		// password for location will be over-written in JSchSession ;-<
 		((CVSRepositoryLocation)location).setPassword(password);
 		
+		boolean opened = false;
+		try {
+			openForwardedConnection(lport, cvs_root, monitor);
+			opened = true;
+		} finally {
+			if (!opened) {
+				// Release the forwarding session so that the pool can evict it once it is idle
+				releaseSession();
+			}
+		}
+	}
+
+	private void openForwardedConnection(int lport, String cvs_root, IProgressMonitor monitor) throws IOException, CVSAuthenticationException {
 		// CVSROOT=":pserver:localhost:"+lport+""cvs_root
 		try {
 			// If user does not give a password, it must be null.
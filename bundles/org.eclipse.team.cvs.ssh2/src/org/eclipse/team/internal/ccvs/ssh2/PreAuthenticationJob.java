@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.ssh2;
+
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.util.KnownRepositories;
+
+/**
+ * Connects SSH sessions to the recently used <code>extssh</code> repository
+ * locations in the background, so that the first operation on them does not
+ * wait for the key exchange and the authentication.
+ * @see CVSSSH2Plugin#PRE_AUTHENTICATE
+ */
+class PreAuthenticationJob extends Job {
+
+	PreAuthenticationJob() {
+		super(CVSSSH2Messages.PreAuthenticationJob_0);
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	protected IStatus run(IProgressMonitor monitor) {
+		String[] recent = CVSSSH2Plugin.getDefault().getRecentLocations();
+		ICVSRepositoryLocation[] known = KnownRepositories.getInstance().getRepositories();
+		monitor.beginTask(null, recent.length * 100);
+		try {
+			for (int i = 0; i < recent.length; i++) {
+				if (monitor.isCanceled())
+					return Status.CANCEL_STATUS;
+				ICVSRepositoryLocation location = findLocation(known, recent[i]);
+				if (location != null && location.getMethod().getName().equals(CVSSSH2Plugin.EXTSSH_METHOD)) {
+					JSchSession.preAuthenticate(location, new SubProgressMonitor(monitor, 100));
+				} else {
+					monitor.worked(100);
+				}
+			}
+		} finally {
+			monitor.done();
+		}
+		return Status.OK_STATUS;
+	}
+
+	private ICVSRepositoryLocation findLocation(ICVSRepositoryLocation[] locations, String location) {
+		for (int i = 0; i < locations.length; i++) {
+			if (locations[i].getLocation(true).equals(location))
+				return locations[i];
+		}
+		return null;
+	}
+}
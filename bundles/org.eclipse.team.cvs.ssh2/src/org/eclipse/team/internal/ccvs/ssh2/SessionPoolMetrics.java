@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.ssh2;
+
+/**
+ * Counts the use of the pool of SSH sessions maintained by {@link JSchSession}.
+ */
+public class SessionPoolMetrics implements ISessionPoolMetrics {
+
+	private static final SessionPoolMetrics instance = new SessionPoolMetrics();
+
+	private long hits;
+	private long misses;
+	private long reconnects;
+	private long evictions;
+	private long preAuthentications;
+	private long failedPreAuthentications;
+
+	public static SessionPoolMetrics getInstance() {
+		return instance;
+	}
+
+	synchronized void sessionReused() {
+		hits++;
+	}
+
+	synchronized void sessionCreated(boolean reconnect) {
+		if (reconnect)
+			reconnects++;
+		else
+			misses++;
+	}
+
+	synchronized void sessionEvicted() {
+		evictions++;
+	}
+
+	synchronized void sessionPreAuthenticated(boolean success) {
+		if (success)
+			preAuthentications++;
+		else
+			failedPreAuthentications++;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.ssh2.ISessionPoolMetrics#getPooledSessions()
+	 */
+	public int getPooledSessions() {
+		return JSchSession.getPoolSize();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.ssh2.ISessionPoolMetrics#getActiveSessions()
+	 */
+	public int getActiveSessions() {
+		return JSchSession.getActiveCount();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.ssh2.ISessionPoolMetrics#getHits()
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.ssh2.ISessionPoolMetrics#getMisses()
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.ssh2.ISessionPoolMetrics#getReconnects()
+	 */
+	public synchronized long getReconnects() {
+		return reconnects;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.ssh2.ISessionPoolMetrics#getEvictions()
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.ssh2.ISessionPoolMetrics#getPreAuthentications()
+	 */
+	public synchronized long getPreAuthentications() {
+		return preAuthentications;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.ssh2.ISessionPoolMetrics#getFailedPreAuthentications()
+	 */
+	public synchronized long getFailedPreAuthentications() {
+		return failedPreAuthentications;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.ccvs.ssh2.ISessionPoolMetrics#reset()
+	 */
+	public synchronized void reset() {
+		hits = 0;
+		misses = 0;
+		reconnects = 0;
+		evictions = 0;
+		preAuthentications = 0;
+		failedPreAuthentications = 0;
+	}
+}
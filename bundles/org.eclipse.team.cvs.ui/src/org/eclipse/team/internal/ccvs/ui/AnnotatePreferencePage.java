@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * Copyright (c) 2006, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,6 +37,8 @@ public class AnnotatePreferencePage extends FieldEditorPreferencePage implements
 		binaryPrompt = new RadioGroupFieldEditor(ICVSUIConstants.PREF_ANNOTATE_PROMPTFORBINARY, CVSUIMessages.AnnotatePreferencePage_AnnotatePrefPageBinaryFileMessage, 3, new String[][] { {CVSUIMessages.CVSPreferencesPage_11, MessageDialogWithToggle.ALWAYS}, {CVSUIMessages.CVSPreferencesPage_12, MessageDialogWithToggle.NEVER}, {CVSUIMessages.CVSPreferencesPage_13, MessageDialogWithToggle.PROMPT}}, getFieldEditorParent(), true /* use a group */);
 		addField(binaryPrompt);
 
+		addField(new BooleanFieldEditor(ICVSUIConstants.PREF_ANNOTATE_LOCALLY, CVSUIMessages.AnnotatePreferencePage_AnnotateLocally, getFieldEditorParent()));
+
 		Dialog.applyDialogFont(getFieldEditorParent());
 		getFieldEditorParent().layout(true);
 	}
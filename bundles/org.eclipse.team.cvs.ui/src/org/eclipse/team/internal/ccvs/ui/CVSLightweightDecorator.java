@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,7 +20,6 @@ import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.jface.viewers.*;
-import org.eclipse.swt.widgets.Display;
 import org.eclipse.team.core.RepositoryProvider;
 import org.eclipse.team.core.diff.IDiff;
 import org.eclipse.team.core.diff.IThreeWayDiff;
@@ -62,8 +61,16 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
 			 CVSDecoratorConfiguration.IGNORED_FOREGROUND_COLOR};
 	
 	private static final SynchronizationStateTester DEFAULT_TESTER = new SynchronizationStateTester();
+	
+	// The counts of dirty resources used to decorate folders with their deep dirty state
+	private static DirtyStateCounters dirtyCounters;
+	private final DirtyStateCounters counters = new DirtyStateCounters();
+	
+	// Coalesces the label updates sent to the UI thread
+	private final DecoratorUpdateHandler updateHandler = new DecoratorUpdateHandler(this);
 
 	public CVSLightweightDecorator() {
+		dirtyCounters = counters;
 		ResourceStateChangeListeners.getListener().addResourceStateChangeListener(this);
 		TeamUI.addPropertyChangeListener(this);
 		CVSUIPlugin.addPropertyChangeListener(this);
@@ -112,6 +119,18 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
 		}
 	}
 	
+	/*
+	 * Return whether the container contains dirty resources, using the counts
+	 * of dirty resources if the decorator is enabled.
+	 */
+	private static boolean isDeepDirty(IContainer container) throws CVSException {
+		DirtyStateCounters active = dirtyCounters;
+		if (active == null) {
+			return getSubscriber().isDirty(container, null);
+		}
+		return active.isDirty(container);
+	}
+	
 	/*
 	 * Answers null if a provider does not exist or the provider is not a CVS provider. These resources
 	 * will be ignored by the decorator.
@@ -140,6 +159,10 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
 		if (resource != null && resource.getType() == IResource.ROOT)
 			return;
 		
+		// Remember that the label is shown so that it is updated when the state changes
+		if (resource != null)
+			updateHandler.decorated(resource);
+		
 		// Get the mapping for the object and ensure it overlaps with CVS projects
 		ResourceMapping mapping = Utils.getResourceMapping(element);
 		if (mapping == null)
@@ -209,11 +232,18 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
 		if (isSupervised(element)) {
 			// TODO: Not quite right
 			result.setHasRemote(true);
-			state = tester.getState(element, 
-					store.getBoolean(ICVSUIConstants.PREF_CALCULATE_DIRTY) 
-						? IDiff.ADD | IDiff.REMOVE | IDiff.CHANGE | IThreeWayDiff.OUTGOING 
-						: 0, 
-					new NullProgressMonitor());
+			if (tester == DEFAULT_TESTER 
+					&& element instanceof IContainer 
+					&& store.getBoolean(ICVSUIConstants.PREF_CALCULATE_DIRTY)) {
+				// Use the counts of dirty resources rather than visiting the container
+				state = getDeepDirtyState((IContainer) element);
+			} else {
+				state = tester.getState(element, 
+						store.getBoolean(ICVSUIConstants.PREF_CALCULATE_DIRTY) 
+							? IDiff.ADD | IDiff.REMOVE | IDiff.CHANGE | IThreeWayDiff.OUTGOING 
+							: 0, 
+						new NullProgressMonitor());
+			}
 			result.setStateFlags(state);
         } else {
         	result.setIgnored(true);
@@ -244,6 +274,18 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
         return result;
     }
     
+	/*
+	 * Return the outgoing state of the container as the subscriber would
+	 * for a deep traversal of the container.
+	 */
+	private static int getDeepDirtyState(IContainer container) throws CoreException {
+		if (!isDeepDirty(container)) {
+			return IDiff.NO_CHANGE;
+		}
+		IDiff node = getSubscriber().getDiff(container);
+		return IThreeWayDiff.OUTGOING | (node == null ? IDiff.CHANGE : node.getKind());
+	}
+	
 	private static boolean isSupervised(Object element) throws CoreException {
 		IResource[] resources = getTraversalRoots(element);
 		for (int i = 0; i < resources.length; i++) {
@@ -343,8 +385,15 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
             if (includeDirtyCheck) {
     			boolean computeDeepDirtyCheck = store.getBoolean(ICVSUIConstants.PREF_CALCULATE_DIRTY);
     			int type = resource.getType();
-    			if (type == IResource.FILE || computeDeepDirtyCheck) {
+    			if (type == IResource.FILE) {
     				cvsDecoration.setDirty(CVSLightweightDecorator.isDirty(resource));
+    			} else if (computeDeepDirtyCheck) {
+    				try {
+    					cvsDecoration.setDirty(isDeepDirty((IContainer) resource));
+    				} catch (CVSException e) {
+    					handleException(resource, e);
+    					cvsDecoration.setDirty(true);
+    				}
     			}
             }
 		}
@@ -457,19 +506,6 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
 		return tag;
 	}
 
-	/*
-	 * Add resource and its parents to the List
-	 */
-	 
-	private void addWithParents(IResource resource, Set resources) {
-		IResource current = resource;
-
-		while (current.getType() != IResource.ROOT) {
-			resources.add(current);
-			current = current.getParent();
-		}
-	}
-	
 	/*
 	* Perform a blanket refresh of all CVS decorations
 	*/
@@ -482,18 +518,7 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
 	 */
 	 
 	public void refresh(IProject project) {
-		final List resources = new ArrayList();
-		try {
-			project.accept(new IResourceVisitor() {
-				public boolean visit(IResource resource) {
-					resources.add(resource);
-					return true;
-				}
-			});
-			postLabelEvent(new LabelProviderChangedEvent(this, resources.toArray()));
-		} catch (CoreException e) {
-			handleException(project, e);
-		}
+		updateHandler.projectChanged(project);
 	}
 	
 	/* (non-Javadoc)
@@ -521,50 +546,47 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
 	 * @see org.eclipse.team.internal.ccvs.core.IResourceStateChangeListener#resourceStateChanged(org.eclipse.core.resources.IResource[])
 	 */
 	public void resourceStateChanged(IResource[] changedResources) {
-		// add depth first so that update thread processes parents first.
 		//System.out.println(">> State Change Event");
 		Set resourcesToUpdate = new HashSet();
 
 		IPreferenceStore store = CVSUIPlugin.getPlugin().getPreferenceStore();
 		boolean showingDeepDirtyIndicators = store.getBoolean(ICVSUIConstants.PREF_CALCULATE_DIRTY);
 
-		for (int i = 0; i < changedResources.length; i++) {
-			IResource resource = changedResources[i];
-
-			if(showingDeepDirtyIndicators) {
-				addWithParents(resource, resourcesToUpdate);
-			} else {
-				resourcesToUpdate.add(resource);
-			}
+		resourcesToUpdate.addAll(Arrays.asList(changedResources));
+		if(showingDeepDirtyIndicators) {
+			// only the ancestors whose dirty state flipped need to be decorated again
+			resourcesToUpdate.addAll(counters.update(changedResources));
+		} else {
+			// the counts are not maintained while deep dirty decoration is off
+			counters.clear();
 		}
 
-		postLabelEvent(new LabelProviderChangedEvent(this, resourcesToUpdate.toArray()));
+		updateHandler.resourcesChanged((IResource[]) resourcesToUpdate.toArray(new IResource[resourcesToUpdate.size()]));
 	}
 	
 	/**
 	 * @see org.eclipse.team.internal.ccvs.core.IResourceStateChangeListener#projectConfigured(org.eclipse.core.resources.IProject)
 	 */
 	public void projectConfigured(IProject project) {
+		counters.forget(project);
 		refresh(project);
 	}
 	/**
 	 * @see org.eclipse.team.internal.ccvs.core.IResourceStateChangeListener#projectDeconfigured(org.eclipse.core.resources.IProject)
 	 */
 	public void projectDeconfigured(IProject project) {
+		counters.forget(project);
 		refresh(project);
 	}
 
 	/**
-	 * Post the label event to the UI thread
+	 * Notify the listeners that the labels of the given resources have changed.
+	 * Must be called from the UI thread.
 	 *
-	 * @param events  the events to post
+	 * @param resources the resources whose labels have changed
 	 */
-	private void postLabelEvent(final LabelProviderChangedEvent event) {
-		Display.getDefault().asyncExec(new Runnable() {
-			public void run() {
-				fireLabelProviderChanged(event);
-			}
-		});
+	/* package */ void fireLabelUpdates(IResource[] resources) {
+		fireLabelProviderChanged(new LabelProviderChangedEvent(this, resources));
 	}
 	
 	/* (non-Javadoc)
@@ -576,6 +598,11 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
 		CVSProviderPlugin.broadcastDecoratorEnablementChanged(false /* disabled */);
 		TeamUI.removePropertyChangeListener(this);
 		CVSUIPlugin.removePropertyChangeListener(this);
+		updateHandler.shutdown();
+		counters.dispose();
+		if (dirtyCounters == counters) {
+			dirtyCounters = null;
+		}
 	}
 	
 	/**
@@ -614,6 +641,8 @@ public class CVSLightweightDecorator extends LabelProvider implements ILightweig
 	 */
 	public void propertyChange(PropertyChangeEvent event) {
 		if (isEventOfInterest(event)) {
+			// ignore patterns or the deep dirty preference may have changed
+			counters.clear();
 			ensureFontAndColorsCreated(fonts, colors);
 		    refresh();
 		}	
@@ -282,6 +282,8 @@ public class CVSPreferencesPage extends PreferencePage implements IWorkbenchPref
 	
 	private final String [] COMPRESSION_LABELS;
 	private final Integer [] COMPRESSION_VALUES;
+	private final String [] CONNECTIONS_LABELS;
+	private final Integer [] CONNECTIONS_VALUES;
 	
 	protected final ArrayList fFields;
 	private final String [] PERSPECTIVE_VALUES;
@@ -333,6 +335,13 @@ public class CVSPreferencesPage extends PreferencePage implements IWorkbenchPref
 			COMPRESSION_VALUES[i]= new Integer(i);
 		}
 		
+		CONNECTIONS_LABELS= new String[8];
+		CONNECTIONS_VALUES= new Integer[CONNECTIONS_LABELS.length];
+		for (int i = 0; i < CONNECTIONS_VALUES.length; i++) {
+			CONNECTIONS_LABELS[i]= String.valueOf(i + 1);
+			CONNECTIONS_VALUES[i]= new Integer(i + 1);
+		}
+		
 	    final IPerspectiveDescriptor [] perspectives= PlatformUI.getWorkbench().getPerspectiveRegistry().getPerspectives();
 	    PERSPECTIVE_VALUES= new String[perspectives.length + 1];
 	    PERSPECTIVE_LABELS= new String [perspectives.length + 1];
@@ -482,6 +491,13 @@ public class CVSPreferencesPage extends PreferencePage implements IWorkbenchPref
 				IHelpContextIds.PREF_COMPRESSION, 
 				COMPRESSION_LABELS, COMPRESSION_VALUES);
 		
+		new IntegerComboBox(
+				textComposite, 
+				ICVSUIConstants.PREF_MAXIMUM_CONNECTIONS, 
+				CVSUIMessages.CVSPreferencesPage_56,  
+				IHelpContextIds.PREF_MAXIMUM_CONNECTIONS, 
+				CONNECTIONS_LABELS, CONNECTIONS_VALUES);
+		
 		SWTUtils.createPreferenceLink((IWorkbenchPreferenceContainer) getContainer(), composite, CVSUIMessages.CVSPreferencesPage_52, CVSUIMessages.CVSPreferencesPage_53);
 		
 		SWTUtils.createPreferenceLink((IWorkbenchPreferenceContainer) getContainer(), composite, CVSUIMessages.CVSPreferencesPage_54, CVSUIMessages.CVSPreferencesPage_55);
@@ -589,6 +605,7 @@ public class CVSPreferencesPage extends PreferencePage implements IWorkbenchPref
 		CVSProviderPlugin.getPlugin().setTimeout(store.getInt(ICVSUIConstants.PREF_TIMEOUT));
 		CVSProviderPlugin.getPlugin().setQuietness(getQuietnessOptionFor(store.getInt(ICVSUIConstants.PREF_QUIETNESS)));
 		CVSProviderPlugin.getPlugin().setCompressionLevel(store.getInt(ICVSUIConstants.PREF_COMPRESSION_LEVEL));
+		CVSProviderPlugin.getPlugin().setMaximumConnections(store.getInt(ICVSUIConstants.PREF_MAXIMUM_CONNECTIONS));
 		CVSProviderPlugin.getPlugin().setDebugProtocol(store.getBoolean(ICVSUIConstants.PREF_DEBUG_PROTOCOL));
 		CVSProviderPlugin.getPlugin().setRepositoriesAreBinary(store.getBoolean(ICVSUIConstants.PREF_REPOSITORIES_ARE_BINARY));
 		KSubstOption oldKSubst = CVSProviderPlugin.getPlugin().getDefaultTextKSubstOption();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,7 @@ public class CVSUIMessages extends NLS {
 	
 	public static String AddAction_confirmAddingResourcesMessage;
 	public static String AddAction_confirmAddingResourcesTitle;
+	public static String AnnotatePreferencePage_AnnotateLocally;
 	public static String AnnotatePreferencePage_AnnotatePrefPageBinaryFileMessage;
 	public static String AnnotatePreferencePage_AnnotatePrefPageMessage;
 	public static String AnnotatePreferencePage_AnnotatePrefPageTitle;
@@ -69,6 +70,7 @@ public class CVSUIMessages extends NLS {
 	public static String CVSPreferencesPage_53;
 	public static String CVSPreferencesPage_54;
 	public static String CVSPreferencesPage_55;
+	public static String CVSPreferencesPage_56;
 	public static String DiffOperation_ThePatchDoesNotContainAllTheChanges;
 	public static String DiffOperation_ThePatchMayNotContainAllTheChanges;
 	public static String DiffOperation_CreatePatchConflictMessage;
@@ -909,6 +911,7 @@ public class CVSUIMessages extends NLS {
 	public static String CVSModelElement_0;
 	public static String CVSModelElement_1;
 	public static String CVSDecorator_exceptionMessage;
+	public static String DecoratorUpdateHandler_0;
 	public static String FetchMembersOperation_0;
 
 	public static String RemoteRevisionQuickDiffProvider_readingFile;
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.ui;
+
+import java.util.*;
+
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.team.core.TeamException;
+import org.eclipse.team.internal.core.BackgroundEventHandler;
+
+/**
+ * Sends the label updates of the CVS decorator to the UI thread from a
+ * background job. Changes that arrive within a short time of each other are
+ * merged and each resource is sent once, in batches of bounded size.
+ * <p>
+ * Only resources that have been decorated since their label was last updated
+ * are sent. The labels of other resources are not shown, so they will be
+ * decorated with their current state when they are shown. In particular, the
+ * update of a whole project only sends the resources of the project that are
+ * shown rather than all of its resources.
+ * </p>
+ */
+class DecoratorUpdateHandler extends BackgroundEventHandler implements IResourceChangeListener {
+
+	private static final int RESOURCES_CHANGED = 1;
+	private static final int PROJECT_CHANGED = 2;
+
+	// The maximum number of elements in a single label event
+	private static final int BATCH_SIZE = 500;
+
+	// Wait for more changes before sending labels updates and
+	// send them at most once a second when changes keep coming
+	private static final long SHORT_DISPATCH_DELAY = 250;
+	private static final long LONG_DISPATCH_DELAY = 1000;
+
+	private final CVSLightweightDecorator decorator;
+
+	/*
+	 * IProject -> Set of the resources of the project that have been decorated
+	 * since their label was last updated
+	 */
+	private final Map decorated = new HashMap();
+
+	/*
+	 * The resources whose label is to be updated. This set is only modified
+	 * and accessed from the event processing thread.
+	 */
+	private final Set pending = new LinkedHashSet();
+
+	private static class ResourcesChangedEvent extends Event {
+		private final IResource[] resources;
+		public ResourcesChangedEvent(IResource[] resources) {
+			super(RESOURCES_CHANGED);
+			this.resources = resources;
+		}
+		public IResource[] getResources() {
+			return resources;
+		}
+	}
+
+	public DecoratorUpdateHandler(CVSLightweightDecorator decorator) {
+		super(CVSUIMessages.DecoratorUpdateHandler_0, CVSUIMessages.CVSDecorator_exceptionMessage);
+		this.decorator = decorator;
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+	}
+
+	/**
+	 * Record that the label of the given resource has been decorated.
+	 * @param resource the decorated resource
+	 */
+	public void decorated(IResource resource) {
+		IProject project = resource.getProject();
+		if (project == null) return;
+		synchronized (decorated) {
+			Set resources = (Set) decorated.get(project);
+			if (resources == null) {
+				resources = new HashSet();
+				decorated.put(project, resources);
+			}
+			resources.add(resource);
+		}
+	}
+
+	/**
+	 * Queue the update of the labels of the given resources.
+	 * @param resources the resources whose state has changed
+	 */
+	public void resourcesChanged(IResource[] resources) {
+		queueEvent(new ResourcesChangedEvent(resources), false /* not on front of queue */);
+	}
+
+	/**
+	 * Queue the update of the labels of all the resources of the given project.
+	 * @param project the project whose state has changed
+	 */
+	public void projectChanged(IProject project) {
+		queueEvent(new ResourceEvent(project, PROJECT_CHANGED, IResource.DEPTH_INFINITE), false /* not on front of queue */);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.core.BackgroundEventHandler#processEvent(org.eclipse.team.internal.core.BackgroundEventHandler.Event, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	protected void processEvent(Event event, IProgressMonitor monitor) throws CoreException {
+		switch (event.getType()) {
+			case RESOURCES_CHANGED :
+				IResource[] resources = ((ResourcesChangedEvent) event).getResources();
+				synchronized (decorated) {
+					for (int i = 0; i < resources.length; i++) {
+						IResource resource = resources[i];
+						Set projectResources = (Set) decorated.get(resource.getProject());
+						if (projectResources != null && projectResources.remove(resource)) {
+							pending.add(resource);
+						}
+					}
+				}
+				break;
+			case PROJECT_CHANGED :
+				synchronized (decorated) {
+					Set projectResources = (Set) decorated.remove(event.getResource());
+					if (projectResources != null) {
+						pending.addAll(projectResources);
+					}
+				}
+				break;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.core.BackgroundEventHandler#doDispatchEvents(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	protected boolean doDispatchEvents(IProgressMonitor monitor) throws TeamException {
+		if (pending.isEmpty()) {
+			return false;
+		}
+		IResource[] resources = (IResource[]) pending.toArray(new IResource[pending.size()]);
+		pending.clear();
+		for (int i = 0; i < resources.length && !isShutdown(); i += BATCH_SIZE) {
+			IResource[] batch = new IResource[Math.min(BATCH_SIZE, resources.length - i)];
+			System.arraycopy(resources, i, batch, 0, batch.length);
+			fireLabelUpdates(batch);
+		}
+		return true;
+	}
+
+	/*
+	 * Send the updates to the UI thread and wait for them to be handled so
+	 * that the UI thread is not flooded with updates.
+	 */
+	private void fireLabelUpdates(final IResource[] resources) {
+		Display display = Display.getDefault();
+		if (display.isDisposed()) return;
+		display.syncExec(new Runnable() {
+			public void run() {
+				decorator.fireLabelUpdates(resources);
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.core.BackgroundEventHandler#getShortDispatchDelay()
+	 */
+	protected long getShortDispatchDelay() {
+		return SHORT_DISPATCH_DELAY;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.core.BackgroundEventHandler#getLongDispatchDelay()
+	 */
+	protected long getLongDispatchDelay() {
+		return LONG_DISPATCH_DELAY;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+	 */
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResource resource = event.getResource();
+		if (resource != null) {
+			synchronized (decorated) {
+				decorated.remove(resource);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.team.internal.core.BackgroundEventHandler#shutdown()
+	 */
+	public void shutdown() {
+		super.shutdown();
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		synchronized (decorated) {
+			decorated.clear();
+		}
+	}
+}
@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.ui;
+
+import java.util.*;
+
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.team.internal.ccvs.core.*;
+import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
+
+/**
+ * Keeps, for each CVS folder of the projects whose deep dirty state has been
+ * asked for, the number of dirty resources the folder contains. The counts of
+ * a project are built by visiting the project the first time the state of one
+ * of its folders is asked for and are then adjusted as the state of resources
+ * changes, so that the deep dirty state of a folder is answered without
+ * visiting its members and only the folders whose state flips need to be
+ * decorated again.
+ * <p>
+ * A resource is counted the way {@link ICVSResource#isModified(org.eclipse.core.runtime.IProgressMonitor)}
+ * determines the state of a folder: each modified unignored file and each
+ * unignored folder that is not a CVS folder is counted in all of its CVS
+ * folder ancestors.
+ * </p>
+ */
+public class DirtyStateCounters implements IResourceChangeListener {
+
+	// IProject -> ProjectCounters
+	private final Map projects = new HashMap();
+
+	// IProject -> int[] { generation }, incremented on each change to the
+	// project so that counts of the project built concurrently are discarded
+	private final Map generations = new HashMap();
+
+	/*
+	 * The dirty resources of a project and the counts of its CVS folders.
+	 * The counted resources are indexed by parent so that the resources
+	 * below a folder are found without looking at the rest of the project.
+	 */
+	private static class ProjectCounters {
+		// paths of the counted dirty resources
+		final Set dirty = new HashSet();
+		// folder path -> int[] { number of dirty resources in the folder }
+		final Map counts = new HashMap();
+		// folder path -> Set of the paths of its counted dirty resources and CVS folders
+		final Map children = new HashMap();
+
+		void addFolder(IPath path) {
+			counts.put(path, new int[1]);
+			addChild(path);
+		}
+
+		void add(IPath path) {
+			dirty.add(path);
+			addChild(path);
+			for (IPath parent = path.removeLastSegments(1); parent.segmentCount() > 0; parent = parent.removeLastSegments(1)) {
+				int[] count = (int[]) counts.get(parent);
+				if (count != null) count[0]++;
+			}
+		}
+
+		private void addChild(IPath path) {
+			IPath parent = path.removeLastSegments(1);
+			Set members = (Set) children.get(parent);
+			if (members == null) {
+				members = new HashSet();
+				children.put(parent, members);
+			}
+			members.add(path);
+		}
+
+		/*
+		 * Add the resources counted in the given subtree, without adjusting
+		 * the counts of the ancestors of the subtree.
+		 */
+		void addAll(ProjectCounters subtree) {
+			dirty.addAll(subtree.dirty);
+			counts.putAll(subtree.counts);
+			for (Iterator iter = subtree.children.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry entry = (Map.Entry) iter.next();
+				Set members = (Set) children.get(entry.getKey());
+				if (members == null) {
+					children.put(entry.getKey(), new HashSet((Set) entry.getValue()));
+				} else {
+					members.addAll((Set) entry.getValue());
+				}
+			}
+		}
+
+		/*
+		 * Remove the resource at the given path and the resources counted
+		 * below it, without adjusting the counts of its ancestors. Return the
+		 * number of dirty resources removed.
+		 */
+		int remove(IPath path) {
+			Set siblings = (Set) children.get(path.removeLastSegments(1));
+			if (siblings != null) siblings.remove(path);
+			return removeTree(path);
+		}
+
+		private int removeTree(IPath path) {
+			int removed = dirty.remove(path) ? 1 : 0;
+			counts.remove(path);
+			Set members = (Set) children.remove(path);
+			if (members != null) {
+				for (Iterator iter = members.iterator(); iter.hasNext();) {
+					removed += removeTree((IPath) iter.next());
+				}
+			}
+			return removed;
+		}
+	}
+
+	public DirtyStateCounters() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+	}
+
+	/**
+	 * Return whether the given container contains dirty resources. The counts
+	 * of the project of the container are built if needed.
+	 * @param container a container of a CVS project
+	 * @return whether the container is dirty
+	 * @throws CVSException
+	 */
+	public boolean isDirty(IContainer container) throws CVSException {
+		ProjectCounters counters = getCounters(container.getProject());
+		synchronized (this) {
+			int[] count = (int[]) counters.counts.get(container.getFullPath());
+			if (count != null) return count[0] > 0;
+		}
+		// the container is not counted because it is ignored or is not a CVS folder
+		return CVSProviderPlugin.getPlugin().getCVSWorkspaceSubscriber().isDirty(container, null);
+	}
+
+	private ProjectCounters getCounters(IProject project) throws CVSException {
+		int start;
+		synchronized (this) {
+			ProjectCounters counters = (ProjectCounters) projects.get(project);
+			if (counters != null) return counters;
+			start = getGeneration(project);
+		}
+		ProjectCounters counters = count(CVSWorkspaceRoot.getCVSFolderFor(project));
+		synchronized (this) {
+			ProjectCounters existing = (ProjectCounters) projects.get(project);
+			if (existing != null) return existing;
+			if (getGeneration(project) == start && project.isAccessible()) {
+				projects.put(project, counters);
+			}
+			return counters;
+		}
+	}
+
+	/**
+	 * Adjust the counts for the given resources whose state has changed.
+	 * Return the containers whose deep dirty state has flipped as a result.
+	 * The state of the ancestors of resources whose project is not counted is
+	 * unknown so all of them are returned.
+	 * @param resources the changed resources
+	 * @return the containers whose state has changed
+	 */
+	public Set update(IResource[] resources) {
+		Set changed = new HashSet();
+		for (int i = 0; i < resources.length; i++) {
+			IResource resource = resources[i];
+			if (resource.getType() == IResource.ROOT) continue;
+			IProject project = resource.getProject();
+			if (!isCounted(project)) {
+				addParents(resource, changed);
+				continue;
+			}
+			if (resource.getType() == IResource.PROJECT) {
+				// the project will be counted again the next time it is decorated
+				forget(project);
+				continue;
+			}
+			try {
+				apply(resource, count(CVSWorkspaceRoot.getCVSResourceFor(resource)), changed);
+			} catch (CVSException e) {
+				// the project will be counted again the next time it is decorated
+				forget(project);
+				addParents(resource, changed);
+			}
+		}
+		return changed;
+	}
+
+	private synchronized boolean isCounted(IProject project) {
+		invalidate(project);
+		return projects.containsKey(project);
+	}
+
+	private int getGeneration(IProject project) {
+		int[] generation = (int[]) generations.get(project);
+		if (generation == null) {
+			generation = new int[1];
+			generations.put(project, generation);
+		}
+		return generation[0];
+	}
+
+	/*
+	 * Discard the counts of the given project that are being built. There is
+	 * nothing to discard if the project has never been counted.
+	 */
+	private void invalidate(IProject project) {
+		int[] generation = (int[]) generations.get(project);
+		if (generation != null) generation[0]++;
+	}
+
+	private void addParents(IResource resource, Set changed) {
+		for (IContainer parent = resource.getParent(); parent.getType() != IResource.ROOT; parent = parent.getParent()) {
+			changed.add(parent);
+		}
+	}
+
+	/*
+	 * Replace the counted resources at or below the given resource with the
+	 * given ones and adjust the counts of the ancestors of the resource.
+	 */
+	private synchronized void apply(IResource resource, ProjectCounters subtree, Set changed) {
+		invalidate(resource.getProject());
+		ProjectCounters counters = (ProjectCounters) projects.get(resource.getProject());
+		if (counters == null) {
+			addParents(resource, changed);
+			return;
+		}
+		IPath path = resource.getFullPath();
+		// the resource is not counted if its parent is ignored or is not a CVS folder
+		if (!counters.counts.containsKey(path.removeLastSegments(1))) return;
+		int delta = subtree.dirty.size() - counters.remove(path);
+		counters.addAll(subtree);
+		if (delta == 0) return;
+		for (IContainer parent = resource.getParent(); parent.getType() != IResource.ROOT; parent = parent.getParent()) {
+			int[] count = (int[]) counters.counts.get(parent.getFullPath());
+			boolean wasDirty = count[0] > 0;
+			count[0] += delta;
+			if (wasDirty != count[0] > 0) {
+				changed.add(parent);
+			}
+		}
+	}
+
+	/*
+	 * Count the dirty resources at or below the given resource.
+	 */
+	private static ProjectCounters count(ICVSResource resource) throws CVSException {
+		ProjectCounters counters = new ProjectCounters();
+		if (!resource.isIgnored() && (resource.isFolder() || resource.exists() || resource.isManaged())) {
+			count(resource, counters);
+		}
+		return counters;
+	}
+
+	private static void count(ICVSResource resource, ProjectCounters counters) throws CVSException {
+		if (resource.isFolder() && ((ICVSFolder) resource).isCVSFolder()) {
+			counters.addFolder(resource.getIResource().getFullPath());
+			ICVSResource[] members = ((ICVSFolder) resource).members(ICVSFolder.ALL_UNIGNORED_MEMBERS);
+			for (int i = 0; i < members.length; i++) {
+				count(members[i], counters);
+			}
+		} else if (resource.isModified(null)) {
+			counters.add(resource.getIResource().getFullPath());
+		}
+	}
+
+	/**
+	 * Forget the counts of the given project, for instance because it is no
+	 * longer shared with CVS.
+	 * @param project the project
+	 */
+	public synchronized void forget(IProject project) {
+		invalidate(project);
+		projects.remove(project);
+	}
+
+	/**
+	 * Forget the counts of all projects.
+	 */
+	public synchronized void clear() {
+		for (Iterator iter = generations.values().iterator(); iter.hasNext();) {
+			((int[]) iter.next())[0]++;
+		}
+		projects.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+	 */
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResource resource = event.getResource();
+		if (resource != null && resource.getType() == IResource.PROJECT) {
+			forget((IProject) resource);
+		}
+	}
+
+	public void dispose() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		clear();
+	}
+}
@@ -0,0 +1,336 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.internal.ccvs.ui.operations;
+
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+import org.eclipse.compare.rangedifferencer.*;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.team.core.TeamException;
+import org.eclipse.team.internal.ccvs.core.*;
+import org.eclipse.team.internal.ccvs.core.client.listeners.AnnotateListener;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFile;
+import org.eclipse.team.internal.ccvs.core.util.Util;
+import org.eclipse.team.internal.ccvs.ui.Policy;
+import org.eclipse.team.internal.core.TeamPlugin;
+
+/**
+ * Computes the annotations of a file revision on the client from the log
+ * entries of the file and the cached contents of its revisions. The lines
+ * of each revision are attributed by comparing it with its predecessor,
+ * starting from the first revision of the file or from the most recent
+ * predecessor whose annotations were computed before.
+ * <p>
+ * The annotations are only computed when the contents of all the revisions
+ * involved are cached so that annotating never takes more server round
+ * trips than the <code>cvs annotate</code> it replaces. The annotations are
+ * written to an {@link AnnotateListener} in the format of the output of the
+ * annotate command.
+ * </p><p>
+ * The contents of the revisions are decoded with the charset of the local
+ * file if there is one. Otherwise the charset is described from the name
+ * and contents of each revision, falling back to the encoding of the
+ * repository location with which the server output is decoded.
+ * </p>
+ */
+public class LocalAnnotator {
+
+	// The number of annotated revisions kept for incremental annotation
+	private static final int CACHE_SIZE = 20;
+
+	/*
+	 * String:location, path and revision -> Annotation
+	 */
+	private static final Map annotations = new LinkedHashMap(CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private static final String[] NO_LINES = new String[0];
+
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MMM-yy", Locale.US); //$NON-NLS-1$
+
+	private final ICVSRemoteFile file;
+
+	// the charset of the local file or null
+	private final String charset;
+
+	// String:revision -> ILogEntry
+	private final Map entries = new HashMap();
+
+	/*
+	 * The lines of a revision and the revision each line was added in.
+	 */
+	private static class Annotation {
+		final String[] lines;
+		final String[] revisions;
+		// the distinct revisions the lines were added in
+		final Set added;
+		Annotation(String[] lines, String[] revisions) {
+			this.lines = lines;
+			this.revisions = revisions;
+			this.added = new HashSet(Arrays.asList(revisions));
+		}
+	}
+
+	/*
+	 * Compares the lines of two revisions.
+	 */
+	private static class LineComparator implements IRangeComparator {
+		private final String[] lines;
+		LineComparator(String[] lines) {
+			this.lines = lines;
+		}
+		public int getRangeCount() {
+			return lines.length;
+		}
+		public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+			return lines[thisIndex].equals(((LineComparator) other).lines[otherIndex]);
+		}
+		public boolean skipRangeComparison(int length, int maxLength, IRangeComparator other) {
+			return false;
+		}
+	}
+
+	/**
+	 * Create an annotator for the given file.
+	 * @param file the remote file
+	 * @param logEntries the log entries of the file
+	 * @param charset the charset of the local file or <code>null</code>
+	 */
+	public LocalAnnotator(ICVSRemoteFile file, ILogEntry[] logEntries, String charset) {
+		this.file = file;
+		this.charset = charset;
+		for (int i = 0; i < logEntries.length; i++) {
+			entries.put(logEntries[i].getRevision(), logEntries[i]);
+		}
+	}
+
+	/**
+	 * Write the annotations of the given revision to the listener. Nothing is
+	 * written if a revision involved, including the immediate predecessor of
+	 * each revision, is missing from the log entries or its contents are not
+	 * cached.
+	 * @param revision the revision to annotate
+	 * @param listener the listener that receives the annotations
+	 * @param monitor a progress monitor
+	 * @return whether the annotations were written
+	 * @throws CVSException
+	 */
+	public boolean annotate(String revision, AnnotateListener listener, IProgressMonitor monitor) throws CVSException {
+		monitor = Policy.monitorFor(monitor);
+		// Walk back to the first revision or to a revision that was annotated before
+		List chain = new ArrayList();
+		Annotation annotation = null;
+		for (String r = revision; r != null; r = getPredecessor(r)) {
+			annotation = getCachedAnnotation(r);
+			if (annotation != null) break;
+			ILogEntry entry = (ILogEntry) entries.get(r);
+			if (entry == null || !isContentsAvailable(entry)) return false;
+			chain.add(0, entry);
+			// the lines cannot be attributed if the predecessor is missing from the log entries
+			if (getPredecessor(r) == null && !isFirstRevision(r)) return false;
+		}
+		monitor.beginTask(null, chain.size() + 1);
+		try {
+			if (annotation == null) {
+				annotation = new Annotation(NO_LINES, NO_LINES);
+			}
+			for (Iterator iter = chain.iterator(); iter.hasNext();) {
+				ILogEntry entry = (ILogEntry) iter.next();
+				annotation = annotate(annotation, entry, Policy.subMonitorFor(monitor, 1));
+				synchronized (annotations) {
+					annotations.put(getKey(entry.getRevision()), annotation);
+				}
+			}
+			for (int i = 0; i < annotation.lines.length; i++) {
+				ILogEntry entry = (ILogEntry) entries.get(annotation.revisions[i]);
+				listener.messageLine(getAnnotateLine(entry, annotation.lines[i]), file.getRepository(), null, monitor);
+			}
+			monitor.worked(1);
+			return true;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/*
+	 * Attribute the lines of the revision of the given entry that differ from
+	 * the lines of its predecessor to the revision.
+	 */
+	private Annotation annotate(Annotation predecessor, ILogEntry entry, IProgressMonitor monitor) throws CVSException {
+		String[] lines = entry.isDeletion() ? NO_LINES : getLines(entry, monitor);
+		String[] revisions = new String[lines.length];
+		RangeDifference[] differences = RangeDifferencer.findDifferences(new LineComparator(predecessor.lines), new LineComparator(lines));
+		int left = 0;
+		int right = 0;
+		for (int i = 0; i <= differences.length; i++) {
+			int rightEnd = i < differences.length ? differences[i].rightStart() : lines.length;
+			// The lines between differences are unchanged
+			while (right < rightEnd) {
+				revisions[right++] = predecessor.revisions[left++];
+			}
+			if (i < differences.length) {
+				for (int j = 0; j < differences[i].rightLength(); j++) {
+					revisions[right++] = entry.getRevision();
+				}
+				left = differences[i].leftEnd();
+			}
+		}
+		return new Annotation(lines, revisions);
+	}
+
+	private boolean isContentsAvailable(ILogEntry entry) {
+		if (entry.isDeletion()) return true;
+		ICVSRemoteFile remoteFile = entry.getRemoteFile();
+		return remoteFile instanceof RemoteFile && ((RemoteFile) remoteFile).isContentsCached();
+	}
+
+	private String[] getLines(ILogEntry entry, IProgressMonitor monitor) throws CVSException {
+		List lines = new ArrayList();
+		try {
+			byte[] contents = readContents(entry.getRemoteFile().getContents(monitor));
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(contents), getCharset(contents)));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					lines.add(line);
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw CVSException.wrapException(e);
+		} catch (TeamException e) {
+			throw CVSException.wrapException(e);
+		}
+		return (String[]) lines.toArray(new String[lines.size()]);
+	}
+
+	private static byte[] readContents(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private String getCharset(byte[] contents) throws IOException {
+		if (charset != null) return charset;
+		String described = TeamPlugin.getCharset(file.getName(), new ByteArrayInputStream(contents));
+		return described != null ? described : file.getRepository().getEncoding();
+	}
+
+	/**
+	 * Return the revision that the given revision was derived from or null
+	 * for the first revision of the file. <code>null</code> is also returned
+	 * if the predecessor is missing from the log entries.
+	 * @param revision a revision of the file
+	 * @return the predecessor of the revision or <code>null</code>
+	 */
+	public String getPredecessor(String revision) {
+		int[] digits = Util.convertToDigits(revision);
+		if (digits.length < 2) return null;
+		String predecessor;
+		if (digits[digits.length - 1] > 1) {
+			digits[digits.length - 1]--;
+			predecessor = toRevision(digits, digits.length);
+		} else if (digits.length > 2) {
+			// The first revision of a branch is derived from the branch point
+			predecessor = toRevision(digits, digits.length - 2);
+		} else {
+			// The first revision of a trunk number is derived from the last revision of the previous one
+			predecessor = getLastTrunkRevision(digits[0]);
+		}
+		return predecessor != null && entries.containsKey(predecessor) ? predecessor : null;
+	}
+
+	/*
+	 * Return whether the given revision is the first revision of the file.
+	 */
+	private boolean isFirstRevision(String revision) {
+		int[] digits = Util.convertToDigits(revision);
+		return digits.length == 2 && digits[1] == 1 && getLastTrunkRevision(digits[0]) == null;
+	}
+
+	/*
+	 * Return the last revision of the log entries on the trunk with a number
+	 * lower than the given one or null.
+	 */
+	private String getLastTrunkRevision(int before) {
+		String predecessor = null;
+		int[] predecessorDigits = null;
+		for (Iterator iter = entries.keySet().iterator(); iter.hasNext();) {
+			String candidate = (String) iter.next();
+			int[] candidateDigits = Util.convertToDigits(candidate);
+			if (candidateDigits.length == 2 && candidateDigits[0] < before
+					&& (predecessorDigits == null || candidateDigits[0] > predecessorDigits[0]
+						|| (candidateDigits[0] == predecessorDigits[0] && candidateDigits[1] > predecessorDigits[1]))) {
+				predecessor = candidate;
+				predecessorDigits = candidateDigits;
+			}
+		}
+		return predecessor;
+	}
+
+	private String toRevision(int[] digits, int length) {
+		StringBuffer buffer = new StringBuffer();
+		for (int i = 0; i < length; i++) {
+			if (i > 0) buffer.append('.');
+			buffer.append(digits[i]);
+		}
+		return buffer.toString();
+	}
+
+	/*
+	 * Return the cached annotations of the given revision if the revisions
+	 * its lines were added in are all among the log entries.
+	 */
+	private Annotation getCachedAnnotation(String revision) {
+		Annotation annotation;
+		synchronized (annotations) {
+			annotation = (Annotation) annotations.get(getKey(revision));
+		}
+		if (annotation == null || !entries.keySet().containsAll(annotation.added)) return null;
+		return annotation;
+	}
+
+	private String getKey(String revision) {
+		return Util.appendPath(file.getRepository().getLocation(false), file.getRepositoryRelativePath()) + ' ' + revision;
+	}
+
+	/*
+	 * Return the line in the format of the output of the annotate command.
+	 */
+	private String getAnnotateLine(ILogEntry entry, String line) {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(entry.getRevision());
+		buffer.append(" ("); //$NON-NLS-1$
+		buffer.append(entry.getAuthor());
+		buffer.append(' ');
+		if (entry.getDate() != null) {
+			buffer.append(dateFormat.format(entry.getDate()));
+		}
+		buffer.append("): "); //$NON-NLS-1$
+		buffer.append(line);
+		return buffer.toString();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2005 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,9 @@
 package org.eclipse.team.internal.ccvs.ui.operations;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -31,6 +33,7 @@ import org.eclipse.team.internal.ccvs.core.client.Session;
 import org.eclipse.team.internal.ccvs.core.client.listeners.ILogEntryListener;
 import org.eclipse.team.internal.ccvs.core.client.listeners.LogListener;
 import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
+import org.eclipse.team.internal.ccvs.core.util.LogEntryStore;
 import org.eclipse.team.internal.ccvs.core.util.Util;
 import org.eclipse.team.internal.ccvs.ui.CVSUIMessages;
 import org.eclipse.team.internal.ccvs.ui.CVSUIPlugin;
@@ -49,7 +52,9 @@ public class RemoteLogOperation extends RepositoryLocationOperation {
 	
 	/** 
 	 * A log entry cache that can be shared by multiple instances of the
-	 * remote log operation.
+	 * remote log operation. The entries received are also added to the
+	 * {@link LogEntryStore} of their repository location and the entries of
+	 * files that were not fetched in this session are obtained from it.
 	 */
 	public static class LogEntryCache implements ILogEntryListener {
 	    
@@ -62,6 +67,26 @@ public class RemoteLogOperation extends RepositoryLocationOperation {
             return (Map)entries.get(path);
         }
         
+        /*
+         * Return the entries of the given resource, loading the stored
+         * entries of the resource if they were not fetched in this session.
+         */
+        private Map internalGetLogEntries(ICVSRemoteResource resource) {
+            String path = getFullPath(resource);
+            Map fileEntries = internalGetLogEntries(path);
+            if (fileEntries == null && resource instanceof ICVSRemoteFile) {
+                ILogEntry[] stored = LogEntryStore.getStore(resource.getRepository()).getLogEntries(resource.getRepositoryRelativePath());
+                if (stored != null) {
+                    fileEntries = new HashMap();
+                    for (int i = 0; i < stored.length; i++) {
+                        fileEntries.put(stored[i].getRevision(), stored[i]);
+                    }
+                    entries.put(path, fileEntries);
+                }
+            }
+            return fileEntries;
+        }
+        
         /**
          * Return all the log entries at the given path
          * @param path the file path
@@ -72,8 +97,8 @@ public class RemoteLogOperation extends RepositoryLocationOperation {
             return (ILogEntry[]) map.values().toArray(new ILogEntry[map.values().size()]);
         }
         
-        private ILogEntry internalGetLogEntry(String path, String revision) {
-	        Map fileEntries = internalGetLogEntries(path);
+        private ILogEntry internalGetLogEntry(ICVSRemoteResource resource, String revision) {
+	        Map fileEntries = internalGetLogEntries(resource);
 	        if (fileEntries != null) {
 	            return (ILogEntry)fileEntries.get(revision);
 	        }
@@ -94,9 +119,8 @@ public class RemoteLogOperation extends RepositoryLocationOperation {
 		public synchronized ILogEntry getLogEntry(ICVSRemoteResource resource) {
 		    if (resource instanceof ICVSRemoteFile) {
 		        try {
-                    String path = getFullPath(resource);
                     String revision = ((ICVSRemoteFile)resource).getRevision();
-                    return internalGetLogEntry(path, revision);
+                    return internalGetLogEntry(resource, revision);
                 } catch (TeamException e) {
                     // Log and return null
                     CVSUIPlugin.log(e);
@@ -112,7 +136,7 @@ public class RemoteLogOperation extends RepositoryLocationOperation {
 		 * @return the fetched log entries or an empty list is none were found
 		 */
 		public synchronized ILogEntry[] getLogEntries(ICVSRemoteResource resource) {
-		    Map fileEntries = internalGetLogEntries(getFullPath(resource));
+		    Map fileEntries = internalGetLogEntries(resource);
 		    if (fileEntries != null) {
 		        return (ILogEntry[]) fileEntries.values().toArray(new ILogEntry[fileEntries.size()]);
 		    }
@@ -227,7 +251,8 @@ public class RemoteLogOperation extends RepositoryLocationOperation {
     		ICVSRemoteFile file = entry.getRemoteFile();
     		String fullPath = getFullPath(file);
     		String revision = entry.getRevision();
-            Map fileEntries = internalGetLogEntries(fullPath);
+            Map fileEntries = internalGetLogEntries(file);
+            LogEntryStore.getStore(file.getRepository()).add(entry);
             if (fileEntries == null) {
                 fileEntries = new HashMap();
                 entries.put(fullPath, fileEntries);
@@ -267,14 +292,70 @@ public class RemoteLogOperation extends RepositoryLocationOperation {
 			remotes = (ICVSRemoteResource[]) unCachedRemotes.toArray(new ICVSRemoteResource[unCachedRemotes.size()]);
 		}
 		if (remotes.length > 0) {
+			LogEntryStore store = LogEntryStore.getStore(location);
 			try {
 				s.open(Policy.subMonitorFor(monitor, 10));
-				IStatus status = rlog.execute(s, Command.NO_GLOBAL_OPTIONS, localOptions, remotes, listener, Policy.subMonitorFor(monitor, 90));
-				collectStatus(status);
+				if ((tag1 == null || tag2 == null) && !isDateTag(tag1) && !isDateTag(tag2)) {
+					// Only fetch the entries that are newer than the stored ones for the
+					// files that have stored entries. The files whose revision is still
+					// missing afterwards are fetched in full.
+					remotes = fetchNewerEntries(s, store, remotes, localOptions, listener, Policy.subMonitorFor(monitor, 30));
+				}
+				if (remotes.length > 0) {
+					IStatus status = rlog.execute(s, Command.NO_GLOBAL_OPTIONS, localOptions, remotes, listener, Policy.subMonitorFor(monitor, 60));
+					collectStatus(status);
+				}
 			} finally {
 				s.close();
+				store.flush();
+			}
+		}
+	}
+	
+	/*
+	 * Fetch the entries that are newer than the most recent stored entry of
+	 * the files that have stored entries and return the remotes whose entry
+	 * is still not cached.
+	 */
+	private ICVSRemoteResource[] fetchNewerEntries(Session s, LogEntryStore store, ICVSRemoteResource[] remotes, Command.LocalOption[] localOptions, LogListener listener, IProgressMonitor monitor) throws CVSException {
+		List known = new ArrayList();
+		List unknown = new ArrayList();
+		Date since = null;
+		for (int i = 0; i < remotes.length; i++) {
+			ICVSRemoteResource r = remotes[i];
+			Date latest = r instanceof ICVSRemoteFile ? store.getLatestDate(r.getRepositoryRelativePath()) : null;
+			if (latest == null) {
+				unknown.add(r);
+			} else {
+				known.add(r);
+				if (since == null || latest.before(since)) {
+					since = latest;
+				}
+			}
+		}
+		if (known.isEmpty()) {
+			return remotes;
+		}
+		Command.LocalOption[] options = new Command.LocalOption[localOptions.length + 1];
+		System.arraycopy(localOptions, 0, options, 0, localOptions.length);
+		options[localOptions.length] = RLog.makeAfterDateOption(since);
+		IStatus status = rlog.execute(s, Command.NO_GLOBAL_OPTIONS, options, (ICVSRemoteResource[]) known.toArray(new ICVSRemoteResource[known.size()]), listener, monitor);
+		collectStatus(status);
+		for (int i = 0; i < known.size(); i++) {
+			ICVSRemoteResource r = (ICVSRemoteResource) known.get(i);
+			if (entryCache.getLogEntry(r) == null) {
+				unknown.add(r);
 			}
 		}
+		return (ICVSRemoteResource[]) unknown.toArray(new ICVSRemoteResource[unknown.size()]);
+	}
+	
+	/*
+	 * The revisions of a date tag are selected with a date option which
+	 * cannot be combined with the date option of an incremental fetch.
+	 */
+	private boolean isDateTag(CVSTag tag) {
+		return tag != null && tag.getType() == CVSTag.DATE;
 	}
 
     /* (non-Javadoc)
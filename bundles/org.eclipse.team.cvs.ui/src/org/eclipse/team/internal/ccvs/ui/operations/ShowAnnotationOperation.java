@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,7 @@ import java.util.*;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jface.action.ToolBarManager;
@@ -36,8 +37,10 @@ import org.eclipse.team.internal.ccvs.core.client.*;
 import org.eclipse.team.internal.ccvs.core.client.Command.LocalOption;
 import org.eclipse.team.internal.ccvs.core.client.listeners.AnnotateListener;
 import org.eclipse.team.internal.ccvs.core.connection.CVSServerException;
+import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
 import org.eclipse.team.internal.ccvs.core.syncinfo.FolderSyncInfo;
 import org.eclipse.team.internal.ccvs.core.util.KnownRepositories;
+import org.eclipse.team.internal.ccvs.core.util.LogEntryStore;
 import org.eclipse.team.internal.ccvs.ui.*;
 import org.eclipse.team.internal.ccvs.ui.Policy;
 import org.eclipse.team.internal.core.TeamPlugin;
@@ -73,12 +76,18 @@ public class ShowAnnotationOperation extends CVSOperation {
     	
 		monitor.beginTask(null, 100);
 
-		// Get the annotations from the repository.
+		// Compute the annotations locally if possible, otherwise get them from the repository.
 		final AnnotateListener listener= new AnnotateListener();
-		fetchAnnotation(listener, fCVSResource, fRevision, Policy.subMonitorFor(monitor, 80));
+		ILogEntry[] logEntries= null;
+		if (CVSUIPlugin.getPlugin().getPreferenceStore().getBoolean(ICVSUIConstants.PREF_ANNOTATE_LOCALLY)) {
+			logEntries= annotateLocally(listener, Policy.subMonitorFor(monitor, 80));
+		}
+		if (logEntries == null) {
+			fetchAnnotation(listener, fCVSResource, fRevision, Policy.subMonitorFor(monitor, 80));
+		}
 
 		// this is not needed if there is no live annotate
-		final RevisionInformation information = createRevisionInformation(listener, Policy.subMonitorFor(monitor, 20));
+		final RevisionInformation information = createRevisionInformation(listener, logEntries, Policy.subMonitorFor(monitor, 20));
 
 		// Open the view and display it from the UI thread.
 		final Display display= getPart().getSite().getShell().getDisplay();
@@ -188,15 +197,53 @@ public class ShowAnnotationOperation extends CVSOperation {
         }
     }
 
-    private RevisionInformation createRevisionInformation(final AnnotateListener listener, IProgressMonitor monitor) throws CVSException {
+    /*
+     * Compute the annotations from the stored log entries and the cached
+     * contents of the file. Return the log entries used or null if the
+     * annotations could not be computed locally.
+     */
+    private ILogEntry[] annotateLocally(AnnotateListener listener, IProgressMonitor monitor) throws CVSException {
+    	if (fBinary || fRevision == null || !(fCVSResource instanceof ICVSFile))
+    		return null;
+    	ICVSRemoteResource remote= fCVSResource instanceof ICVSRemoteFile ? (ICVSRemoteResource) fCVSResource : CVSWorkspaceRoot.getRemoteResourceFor(fCVSResource);
+    	if (!(remote instanceof ICVSRemoteFile))
+    		return null;
+    	ILogEntry[] logEntries= LogEntryStore.getStore(remote.getRepository()).getLogEntries(remote.getRepositoryRelativePath());
+    	if (logEntries == null)
+    		return null;
+    	String charset= null;
+    	IResource local= fCVSResource.getIResource();
+    	if (local instanceof IFile) {
+    		try {
+    			charset= ((IFile) local).getCharset();
+    		} catch (CoreException e) {
+    			throw CVSException.wrapException(e);
+    		}
+    	}
+    	LocalAnnotator annotator= new LocalAnnotator((ICVSRemoteFile) remote, logEntries, charset);
+    	return annotator.annotate(fRevision, listener, monitor) ? logEntries : null;
+    }
+
+    /*
+     * Remember the fetched log entries so that the file can be annotated
+     * locally the next time.
+     */
+    private void storeLogEntries(ILogEntry[] logEntries) {
+    	if (logEntries.length == 0)
+    		return;
+    	LogEntryStore store= LogEntryStore.getStore(logEntries[0].getRemoteFile().getRepository());
+    	for (int i= 0; i < logEntries.length; i++) {
+    		store.add(logEntries[i]);
+    	}
+    	store.flush();
+    }
+
+    private RevisionInformation createRevisionInformation(final AnnotateListener listener, ILogEntry[] logEntries, IProgressMonitor monitor) throws CVSException {
 	    Map logEntriesByRevision= new HashMap();
-		if (fCVSResource instanceof ICVSFile) {
+		if (logEntries == null && fCVSResource instanceof ICVSFile) {
 			try {
-				ILogEntry[] logEntries= ((ICVSFile) fCVSResource).getLogEntries(monitor);
-				for (int i= 0; i < logEntries.length; i++) {
-					ILogEntry entry= logEntries[i];
-					logEntriesByRevision.put(entry.getRevision(), entry);
-				}
+				logEntries= ((ICVSFile) fCVSResource).getLogEntries(monitor);
+				storeLogEntries(logEntries);
 			} catch (CVSException e) {
 				throw e;
 			} catch (TeamException e) {
@@ -204,6 +251,12 @@ public class ShowAnnotationOperation extends CVSOperation {
 				throw CVSException.wrapException(e);
 			}
 		}
+		if (logEntries != null) {
+			for (int i= 0; i < logEntries.length; i++) {
+				ILogEntry entry= logEntries[i];
+				logEntriesByRevision.put(entry.getRevision(), entry);
+			}
+		}
 
 		final CommitterColors colors= CommitterColors.getDefault();
 		RevisionInformation info= new RevisionInformation();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -41,6 +41,10 @@ public class RepositoryRoot extends PlatformObject {
 	Object modulesCacheLock = new Object();
 	// List of date tags
 	List dateTags = new ArrayList();
+	// Index of the version and branch tags of the tag cache entries, built on demand
+	private TagIndex tagIndex;
+	// Lock held while the version and branch tags of the tag cache entries change and while the index is built
+	private final Object tagCacheLock = new Object();
 	
 	public static class TagCacheEntry {
 		IPath path;
@@ -85,6 +89,37 @@ public class RepositoryRoot extends PlatformObject {
 		}
 	}
 	
+	/*
+	 * The version and branch tags known for the repository along with the
+	 * paths of the tag cache entries that hold each tag. The index is built
+	 * from the tag cache entries on first use after the tags change so that
+	 * the tags of the repository and the paths that have a tag are obtained
+	 * without visiting the whole tree for each request.
+	 */
+	private static class TagIndex {
+		// CVSTag -> Set of IPath (the paths of the entries that hold the tag)
+		final Map paths = new HashMap();
+
+		TagIndex(TagCacheEntry root) {
+			add(root);
+		}
+
+		private void add(TagCacheEntry entry) {
+			for (Iterator iter = entry.tags.iterator(); iter.hasNext();) {
+				CVSTag tag = (CVSTag) iter.next();
+				Set tagPaths = (Set) paths.get(tag);
+				if (tagPaths == null) {
+					tagPaths = new HashSet();
+					paths.put(tag, tagPaths);
+				}
+				tagPaths.add(entry.path);
+			}
+			for (Iterator iter = entry.getChildrenIterator(); iter.hasNext();) {
+				add((TagCacheEntry) iter.next());
+			}
+		}
+	}
+	
 	public RepositoryRoot(ICVSRepositoryLocation root) {
 		this.root = root;
 	}
@@ -228,18 +263,24 @@ public class RepositoryRoot extends PlatformObject {
 	}
 
 	private void addVersionAndBranchTags(String remotePath, CVSTag[] tags) {
-		TagCacheEntry entry = getTagCacheEntryFor(remotePath, true);
+		synchronized (tagCacheLock) {
+			TagCacheEntry entry = getTagCacheEntryFor(remotePath, true);
 
-		// Store the tag with the appropriate ancestor
-		for (int i = 0; i < tags.length; i++) {
-			if (tags[i].getType() != CVSTag.DATE) {
-				Set parentTags = new HashSet();
-				addAllKnownTagsForParents(entry, parentTags);
-				if (!parentTags.contains(tags[i])) {
+			// Store the tag with the appropriate ancestor
+			Set parentTags = new HashSet();
+			addAllKnownTagsForParents(entry, parentTags);
+			Set addedTags = new HashSet();
+			for (int i = 0; i < tags.length; i++) {
+				if (tags[i].getType() != CVSTag.DATE && parentTags.add(tags[i])) {
 					entry.getTags().add(tags[i]);
-					removeTagFromChildrenCacheEntries(entry, tags[i]);
+					addedTags.add(tags[i]);
 				}
 			}
+			// The children no longer need to hold the tags held by the entry
+			if (!addedTags.isEmpty()) {
+				removeTagsFromDescendantCacheEntries(entry, addedTags);
+			}
+			tagIndex = null;
 		}
 	}
 
@@ -284,41 +325,44 @@ public class RepositoryRoot extends PlatformObject {
 	}
 
 	private void removeVersionAndBranchTags(String remotePath, CVSTag[] tags) {
-		TagCacheEntry entry = getTagCacheEntryFor(remotePath, false);
-		// remove tags from this path and its children
-		if (entry != null) {
-			removeTagsFromChildrenCacheEntries(entry, tags);
-		}
-
-		// remove tags from all parents of this path
-		entry = getKnownParentTagCacheEntryFor(remotePath);
-		for (int i = 0; i < tags.length; i++) {
-			if (entry.getTags().contains(tags[i])) {
-				entry.getTags().remove(tags[i]);
-				continue;
+		synchronized (tagCacheLock) {
+			TagCacheEntry entry = getTagCacheEntryFor(remotePath, false);
+			// remove tags from this path and its children
+			if (entry != null) {
+				removeTagsFromChildrenCacheEntries(entry, tags);
 			}
-			TagCacheEntry currentEntry = entry;
-			while (currentEntry.parent != null) {
-				if (currentEntry.parent.getTags().contains(tags[i])) {
-					// remove tag from parent and add it to siblings
-					currentEntry.parent.getTags().remove(tags[i]);
-					Iterator siblingIterator = currentEntry.parent
-							.getChildrenIterator();
-					while (siblingIterator.hasNext()) {
-						TagCacheEntry sibling = (TagCacheEntry) siblingIterator
-								.next();
-						if (!sibling.equals(currentEntry)) {
-							sibling.getTags().add(tags[i]);
+
+			// remove tags from all parents of this path
+			entry = getKnownParentTagCacheEntryFor(remotePath);
+			for (int i = 0; i < tags.length; i++) {
+				if (entry.getTags().contains(tags[i])) {
+					entry.getTags().remove(tags[i]);
+					continue;
+				}
+				TagCacheEntry currentEntry = entry;
+				while (currentEntry.parent != null) {
+					if (currentEntry.parent.getTags().contains(tags[i])) {
+						// remove tag from parent and add it to siblings
+						currentEntry.parent.getTags().remove(tags[i]);
+						Iterator siblingIterator = currentEntry.parent
+								.getChildrenIterator();
+						while (siblingIterator.hasNext()) {
+							TagCacheEntry sibling = (TagCacheEntry) siblingIterator
+									.next();
+							if (!sibling.equals(currentEntry)) {
+								sibling.getTags().add(tags[i]);
+							}
 						}
+						break;
+					} else {
+						currentEntry = currentEntry.parent;
 					}
-					break;
-				} else {
-					currentEntry = currentEntry.parent;
 				}
 			}
-		}
-		if (entry.isEmpty()) {
-			removeTagCacheEntry(entry);
+			if (entry.isEmpty()) {
+				removeTagCacheEntry(entry);
+			}
+			tagIndex = null;
 		}
 	}
 
@@ -572,11 +616,20 @@ public class RepositoryRoot extends PlatformObject {
 
 	private void removeTagFromChildrenCacheEntries(TagCacheEntry entry,
 			CVSTag tag) {
+		removeTagsFromDescendantCacheEntries(entry, Collections.singleton(tag));
+	}
+
+	/*
+	 * Remove the given tags from the descendants of the given entry in a
+	 * single pass over the descendants.
+	 */
+	private void removeTagsFromDescendantCacheEntries(TagCacheEntry entry,
+			Set tags) {
 		Iterator childrenIterator = entry.getChildrenIterator();
 		while (childrenIterator.hasNext()) {
 			TagCacheEntry child = (TagCacheEntry) childrenIterator.next();
-			removeTagFromChildrenCacheEntries(child, tag);
-			child.getTags().remove(tag);
+			removeTagsFromDescendantCacheEntries(child, tags);
+			child.getTags().removeAll(tags);
 			if (child.isEmpty()) {
 				// remove this entry when the last tag was removed
 				// keep the entry if there are any children that have tags
@@ -695,10 +748,19 @@ public class RepositoryRoot extends PlatformObject {
 
 	public CVSTag[] getAllKnownTags() {
 		Set tags = new HashSet(dateTags);
-		addAllKnownTagsForChildren(rootTagCacheEntry, tags);
+		tags.addAll(getTagIndex().paths.keySet());
 		return (CVSTag[]) tags.toArray(new CVSTag[tags.size()]);
 	}
 
+	private TagIndex getTagIndex() {
+		synchronized (tagCacheLock) {
+			if (tagIndex == null) {
+				tagIndex = new TagIndex(rootTagCacheEntry);
+			}
+			return tagIndex;
+		}
+	}
+
 	public String[] getRemoteChildrenForTag(String remotePath, CVSTag tag) {
 		TagCacheEntry entry;
 		if (remotePath == null) {
@@ -710,14 +772,17 @@ public class RepositoryRoot extends PlatformObject {
 			return new String[0];
 		}
 
+		// The children whose subtree holds the tag are the ancestors of the
+		// entries that hold the tag at the depth of the children
 		Set paths = new HashSet();
-		Iterator childrenIterator = entry.getChildrenIterator();
-		while (childrenIterator.hasNext()) {
-			TagCacheEntry child = (TagCacheEntry) childrenIterator.next();
-			Set childTags = new HashSet();
-			addAllKnownTagsForChildren(child, childTags);
-			if (childTags.contains(tag)) {
-				paths.add(child.path.toString());
+		Set tagPaths = (Set) getTagIndex().paths.get(tag);
+		if (tagPaths != null) {
+			int depth = entry.path.segmentCount() + 1;
+			for (Iterator iter = tagPaths.iterator(); iter.hasNext();) {
+				IPath path = (IPath) iter.next();
+				if (path.segmentCount() >= depth && entry.path.isPrefixOf(path)) {
+					paths.add(path.uptoSegment(depth).toString());
+				}
 			}
 		}
 		return (String[]) paths.toArray(new String[paths.size()]);
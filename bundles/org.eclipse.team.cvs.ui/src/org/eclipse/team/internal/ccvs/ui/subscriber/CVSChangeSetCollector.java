@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,11 @@
 package org.eclipse.team.internal.ccvs.ui.subscriber;
 
 import com.ibm.icu.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRunnable;
@@ -59,6 +63,14 @@ public class CVSChangeSetCollector extends SyncInfoSetChangeSetCollector impleme
 
     private LogEntryCache logEntryCache;
     
+    /*
+     * Indexes of the sets of this collector so that the set of an incoming
+     * change is found without scanning all the sets. The sets are indexed by
+     * author and comment and by name.
+     */
+    private final Map setsByComment = new HashMap(); /* String:author and comment -> List of CheckedInChangeSet */
+    private final Map setsByName = new HashMap(); /* String:name -> List of CheckedInChangeSet */
+    
 	/* *****************************************************************************
 	 * Special sync info that has its kind already calculated.
 	 */
@@ -380,27 +392,65 @@ public class CVSChangeSetCollector extends SyncInfoSetChangeSetCollector impleme
     }
 
     private CheckedInChangeSet getChangeSetFor(ILogEntry logEntry) {
-    	ChangeSet[] sets = getSets();
-        for (int i = 0; i < sets.length; i++) {
-        	ChangeSet set = sets[i];
-            if (set instanceof CheckedInChangeSet &&
-                    set.getComment().equals(logEntry.getComment()) &&
-                    ((CheckedInChangeSet)set).getAuthor().equals(logEntry.getAuthor())) {
-                return (CheckedInChangeSet)set;
-            }
-        }
-        return null;
+        return getIndexedSet(setsByComment, getCommentKey(logEntry.getAuthor(), logEntry.getComment()));
     }
 
     private CheckedInChangeSet getChangeSetFor(String name) {
-        ChangeSet[] sets = getSets();
-        for (int i = 0; i < sets.length; i++) {
-            ChangeSet set = sets[i];
-            if (set.getName().equals(name)) {
-                return (CheckedInChangeSet)set;
+        return getIndexedSet(setsByName, name);
+    }
+    
+    private String getCommentKey(String author, String comment) {
+        // Authors cannot contain line breaks
+        return author + '\n' + comment;
+    }
+    
+    private CheckedInChangeSet getIndexedSet(Map index, String key) {
+        synchronized (index) {
+            List sets = (List)index.get(key);
+            if (sets == null) return null;
+            return (CheckedInChangeSet)sets.get(0);
+        }
+    }
+    
+    private void addToIndex(Map index, String key, ChangeSet set) {
+        synchronized (index) {
+            List sets = (List)index.get(key);
+            if (sets == null) {
+                // Sets rarely share a key
+                sets = new ArrayList(1);
+                index.put(key, sets);
             }
+            sets.add(set);
         }
-        return null;
+    }
+    
+    private void removeFromIndex(Map index, String key, ChangeSet set) {
+        synchronized (index) {
+            List sets = (List)index.get(key);
+            if (sets != null && sets.remove(set) && sets.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+    
+    /* (non-Javadoc)
+     * @see org.eclipse.team.internal.ui.synchronize.SyncInfoSetChangeSetCollector#handleSetAdded(org.eclipse.team.internal.core.subscribers.ChangeSet)
+     */
+    protected void handleSetAdded(ChangeSet set) {
+        CheckedInChangeSet checkedInSet = (CheckedInChangeSet)set;
+        addToIndex(setsByComment, getCommentKey(checkedInSet.getAuthor(), checkedInSet.getComment()), set);
+        addToIndex(setsByName, set.getName(), set);
+        super.handleSetAdded(set);
+    }
+    
+    /* (non-Javadoc)
+     * @see org.eclipse.team.internal.ui.synchronize.SyncInfoSetChangeSetCollector#handleSetRemoved(org.eclipse.team.internal.core.subscribers.ChangeSet)
+     */
+    protected void handleSetRemoved(ChangeSet set) {
+        CheckedInChangeSet checkedInSet = (CheckedInChangeSet)set;
+        removeFromIndex(setsByComment, getCommentKey(checkedInSet.getAuthor(), checkedInSet.getComment()), set);
+        removeFromIndex(setsByName, set.getName(), set);
+        super.handleSetRemoved(set);
     }
     
     private boolean requiresCustomSyncInfo(SyncInfo info, ICVSRemoteResource remoteResource, ILogEntry logEntry) {
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.core.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+
+/**
+ * The inputs of the benchmarks.
+ * <p>
+ * The synthetic corpora are generated from a fixed seed so that runs are
+ * comparable:
+ * <ul>
+ * <li><code>smallEdits</code> - source-like text with about one percent of the
+ * lines changed, inserted or deleted</li>
+ * <li><code>largeRewrite</code> - half of the text rewritten in blocks</li>
+ * <li><code>binaryLike</code> - long lines of random characters with hardly any
+ * common lines</li>
+ * <li><code>movedBlocks</code> - blocks of lines moved to other places</li>
+ * <li><code>drifted</code> - small edits whose patch is applied to a target
+ * that has drifted from the original, so hunks have to be shifted and fuzzed</li>
+ * </ul>
+ * The <code>real</code> corpus is read from the directory given by the system
+ * property <code>compare.benchmarks.corpus</code>. Every pair of files
+ * <code>&lt;name&gt;.old</code> and <code>&lt;name&gt;.new</code> in that
+ * directory is a sample; the patch is created from the pair and applied to the
+ * old file, or to <code>&lt;name&gt;.target</code> if that exists.
+ * </p>
+ */
+public class Corpus {
+
+	public static final String CORPUS_PROPERTY= "compare.benchmarks.corpus"; //$NON-NLS-1$
+
+	private static final long SEED= 0x5eed;
+	private static final int CONTEXT= 3;
+
+	private static final String[] KEYWORDS= {
+		"if", "for", "while", "return", "int", "String", "final", "new", "null", "this" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+	};
+
+	/**
+	 * One pair of texts and the patch between them.
+	 */
+	public static class Sample {
+		public final String name;
+		public final String[] before;
+		public final String[] after;
+		public final String[] target;
+		public final String beforeText;
+		public final String afterText;
+		public final String targetText;
+		public final String patch;
+
+		Sample(String name, String[] before, String[] after, String[] target) {
+			this.name= name;
+			this.before= before;
+			this.after= after;
+			this.target= target;
+			this.beforeText= join(before);
+			this.afterText= join(after);
+			this.targetText= join(target);
+			this.patch= createPatch(name, before, after);
+		}
+	}
+
+	private final List<Sample> fSamples;
+
+	private Corpus(List<Sample> samples) {
+		fSamples= samples;
+	}
+
+	public List<Sample> getSamples() {
+		return fSamples;
+	}
+
+	/**
+	 * Creates the corpus of the given kind.
+	 *
+	 * @param kind one of the kinds described above
+	 * @param lines the number of lines of the synthetic texts
+	 * @return the corpus
+	 * @throws IOException if the real-world corpus cannot be read
+	 */
+	public static Corpus create(String kind, int lines) throws IOException {
+		if ("real".equals(kind)) //$NON-NLS-1$
+			return load();
+		Random random= new Random(SEED);
+		String[] before= kind.equals("binaryLike") ? binaryLines(random, lines) : sourceLines(random, lines); //$NON-NLS-1$
+		String[] after;
+		String[] target= before;
+		switch (kind) {
+		case "smallEdits": //$NON-NLS-1$
+			after= edit(random, before, 0.01, 1, false);
+			break;
+		case "largeRewrite": //$NON-NLS-1$
+			after= edit(random, before, 0.02, 25, false);
+			break;
+		case "binaryLike": //$NON-NLS-1$
+			after= edit(random, before, 0.05, 4, true);
+			break;
+		case "movedBlocks": //$NON-NLS-1$
+			after= move(random, before, Math.max(1, lines / 200), 20);
+			break;
+		case "drifted": //$NON-NLS-1$
+			after= edit(random, before, 0.01, 1, false);
+			target= drift(random, before);
+			break;
+		default:
+			throw new IllegalArgumentException(kind);
+		}
+		List<Sample> samples= new ArrayList<>(1);
+		samples.add(new Sample(kind + ".txt", before, after, target)); //$NON-NLS-1$
+		return new Corpus(samples);
+	}
+
+	private static Corpus load() throws IOException {
+		String path= System.getProperty(CORPUS_PROPERTY);
+		if (path == null)
+			throw new IOException("System property " + CORPUS_PROPERTY + " is not set"); //$NON-NLS-1$ //$NON-NLS-2$
+		File[] files= new File(path).listFiles();
+		if (files == null)
+			throw new IOException("Cannot list " + path); //$NON-NLS-1$
+		Arrays.sort(files);
+		List<Sample> samples= new ArrayList<>();
+		for (int i= 0; i < files.length; i++) {
+			String name= files[i].getName();
+			if (!name.endsWith(".old")) //$NON-NLS-1$
+				continue;
+			String base= name.substring(0, name.length() - 4);
+			File after= new File(files[i].getParentFile(), base + ".new"); //$NON-NLS-1$
+			if (!after.isFile())
+				continue;
+			File target= new File(files[i].getParentFile(), base + ".target"); //$NON-NLS-1$
+			String[] beforeLines= read(files[i]);
+			samples.add(new Sample(base, beforeLines, read(after), target.isFile() ? read(target) : beforeLines));
+		}
+		if (samples.isEmpty())
+			throw new IOException("No samples found in " + path); //$NON-NLS-1$
+		return new Corpus(samples);
+	}
+
+	private static String[] read(File file) throws IOException {
+		List<String> lines= Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1);
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	private static String[] sourceLines(Random random, int count) {
+		String[] lines= new String[count];
+		for (int i= 0; i < count; i++)
+			lines[i]= sourceLine(random);
+		return lines;
+	}
+
+	private static String sourceLine(Random random) {
+		StringBuilder line= new StringBuilder();
+		int indent= random.nextInt(4);
+		for (int i= 0; i < indent; i++)
+			line.append('\t');
+		if (random.nextInt(8) == 0)
+			return line.append('}').toString();
+		int words= 2 + random.nextInt(6);
+		for (int i= 0; i < words; i++) {
+			if (i > 0)
+				line.append(' ');
+			if (random.nextBoolean())
+				line.append(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+			else
+				line.append("value").append(random.nextInt(1000)); //$NON-NLS-1$
+		}
+		return line.append(';').toString();
+	}
+
+	private static String[] binaryLines(Random random, int count) {
+		String[] lines= new String[count];
+		for (int i= 0; i < count; i++) {
+			char[] chars= new char[40 + random.nextInt(200)];
+			for (int j= 0; j < chars.length; j++) {
+				char c;
+				do {
+					c= (char) random.nextInt(256);
+				} while (c == '\n' || c == '\r');
+				chars[j]= c;
+			}
+			lines[i]= new String(chars);
+		}
+		return lines;
+	}
+
+	/*
+	 * Changes blocks of up to maxBlock lines at the given rate.
+	 */
+	private static String[] edit(Random random, String[] lines, double rate, int maxBlock, boolean binary) {
+		List<String> result= new ArrayList<>(lines.length);
+		for (int i= 0; i < lines.length; i++) {
+			if (random.nextDouble() >= rate) {
+				result.add(lines[i]);
+				continue;
+			}
+			int block= 1 + random.nextInt(maxBlock);
+			switch (random.nextInt(3)) {
+			case 0: // insert
+				for (int j= 0; j < block; j++)
+					result.add(binary ? binaryLines(random, 1)[0] : sourceLine(random));
+				result.add(lines[i]);
+				break;
+			case 1: // delete
+				i+= block - 1;
+				break;
+			default: // change
+				for (int j= 0; j < block && i < lines.length; j++, i++)
+					result.add(binary ? binaryLines(random, 1)[0] : sourceLine(random));
+				i--;
+				break;
+			}
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	private static String[] move(Random random, String[] lines, int blocks, int blockLength) {
+		List<String> result= new ArrayList<>(Arrays.asList(lines));
+		for (int b= 0; b < blocks && result.size() > blockLength; b++) {
+			int from= random.nextInt(result.size() - blockLength);
+			List<String> block= new ArrayList<>(result.subList(from, from + blockLength));
+			result.subList(from, from + blockLength).clear();
+			result.addAll(random.nextInt(result.size() + 1), block);
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	/*
+	 * Inserts a header, which shifts all hunks, and modifies some lines, which
+	 * forces some hunks to be applied with fuzz.
+	 */
+	private static String[] drift(Random random, String[] lines) {
+		List<String> result= new ArrayList<>(lines.length + 20);
+		for (int i= 0; i < 20; i++)
+			result.add("// header " + i); //$NON-NLS-1$
+		for (int i= 0; i < lines.length; i++) {
+			if (random.nextInt(50) == 0)
+				result.add(lines[i] + " // drifted"); //$NON-NLS-1$
+			else
+				result.add(lines[i]);
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	static String join(String[] lines) {
+		int length= 0;
+		for (int i= 0; i < lines.length; i++)
+			length+= lines[i].length() + 1;
+		StringBuilder text= new StringBuilder(length);
+		for (int i= 0; i < lines.length; i++)
+			text.append(lines[i]).append('\n');
+		return text.toString();
+	}
+
+	/*
+	 * Creates a unified diff with three lines of context.
+	 */
+	static String createPatch(String name, String[] before, String[] after) {
+		RangeDifference[] differences= RangeDifferencer.findDifferences(new LineComparator(before), new LineComparator(after));
+		StringBuilder patch= new StringBuilder();
+		patch.append("--- ").append(name).append('\n'); //$NON-NLS-1$
+		patch.append("+++ ").append(name).append('\n'); //$NON-NLS-1$
+		int i= 0;
+		while (i < differences.length) {
+			// collect the differences whose contexts overlap
+			int j= i;
+			while (j + 1 < differences.length
+					&& differences[j + 1].leftStart() - differences[j].leftEnd() <= 2 * CONTEXT)
+				j++;
+			int leftStart= Math.max(0, differences[i].leftStart() - CONTEXT);
+			int leftEnd= Math.min(before.length, differences[j].leftEnd() + CONTEXT);
+			int rightStart= Math.max(0, differences[i].rightStart() - CONTEXT);
+			int rightEnd= Math.min(after.length, differences[j].rightEnd() + CONTEXT);
+			patch.append("@@ -").append(leftStart + 1).append(',').append(leftEnd - leftStart); //$NON-NLS-1$
+			patch.append(" +").append(rightStart + 1).append(',').append(rightEnd - rightStart).append(" @@\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			int left= leftStart;
+			for (int k= i; k <= j; k++) {
+				RangeDifference d= differences[k];
+				for (; left < d.leftStart(); left++)
+					patch.append(' ').append(before[left]).append('\n');
+				for (int l= d.leftStart(); l < d.leftEnd(); l++)
+					patch.append('-').append(before[l]).append('\n');
+				for (int r= d.rightStart(); r < d.rightEnd(); r++)
+					patch.append('+').append(after[r]).append('\n');
+				left= d.leftEnd();
+			}
+			for (; left < leftEnd; left++)
+				patch.append(' ').append(before[left]).append('\n');
+			i= j + 1;
+		}
+		return patch.toString();
+	}
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.core.benchmarks;
+
+import org.eclipse.compare.rangedifferencer.IRangeComparator;
+
+/**
+ * Compares the lines of two texts, the way the document line comparator of
+ * org.eclipse.compare does it for plain text without whitespace options.
+ */
+class LineComparator implements IRangeComparator {
+
+	private final String[] fLines;
+	private final int[] fHashes;
+
+	LineComparator(String[] lines) {
+		fLines= lines;
+		fHashes= new int[lines.length];
+		for (int i= 0; i < lines.length; i++)
+			fHashes[i]= lines[i].hashCode();
+	}
+
+	@Override
+	public int getRangeCount() {
+		return fLines.length;
+	}
+
+	@Override
+	public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+		LineComparator o= (LineComparator) other;
+		return fHashes[thisIndex] == o.fHashes[otherIndex] && fLines[thisIndex].equals(o.fLines[otherIndex]);
+	}
+
+	@Override
+	public boolean skipRangeComparison(int length, int maxLength, IRangeComparator other) {
+		return false;
+	}
+}
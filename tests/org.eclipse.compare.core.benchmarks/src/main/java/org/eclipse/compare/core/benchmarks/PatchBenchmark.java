@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.core.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.compare.internal.core.patch.FileDiffResult;
+import org.eclipse.compare.internal.core.patch.FilePatch2;
+import org.eclipse.compare.internal.core.patch.Hunk;
+import org.eclipse.compare.internal.core.patch.HunkResult;
+import org.eclipse.compare.internal.core.patch.PatchReader;
+import org.eclipse.compare.patch.IHunk;
+import org.eclipse.compare.patch.PatchConfiguration;
+import org.eclipse.compare.patch.ReaderCreator;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures reading patches with {@link PatchReader} and applying them with
+ * {@link FileDiffResult} and {@link HunkResult}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(1)
+public class PatchBenchmark {
+
+	@Param({ "smallEdits", "largeRewrite", "drifted" })
+	public String kind;
+
+	@Param({ "1000", "10000" })
+	public int lines;
+
+	private String[] fPatches;
+	private String[] fTargets;
+	private List<String>[] fTargetLines;
+	private FilePatch2[] fDiffs;
+	private PatchConfiguration fConfiguration;
+	private PatchConfiguration fFuzzConfiguration;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() throws IOException {
+		List<Corpus.Sample> samples= Corpus.create(kind, lines).getSamples();
+		int n= samples.size();
+		fPatches= new String[n];
+		fTargets= new String[n];
+		fTargetLines= new List[n];
+		fDiffs= new FilePatch2[n];
+		for (int i= 0; i < n; i++) {
+			Corpus.Sample sample= samples.get(i);
+			fPatches[i]= sample.patch;
+			fTargets[i]= sample.targetText;
+			fTargetLines[i]= new ArrayList<>(Arrays.asList(sample.target));
+			fDiffs[i]= parse(sample.patch)[0];
+		}
+		fConfiguration= new PatchConfiguration();
+		fFuzzConfiguration= new PatchConfiguration();
+		fFuzzConfiguration.setFuzz(-1);
+	}
+
+	@Benchmark
+	public void parse(Blackhole blackhole) throws IOException {
+		for (int i= 0; i < fPatches.length; i++)
+			blackhole.consume(parse(fPatches[i]));
+	}
+
+	/*
+	 * Applies the patch the way the patch wizard does, including reading the
+	 * target.
+	 */
+	@Benchmark
+	public void apply(Blackhole blackhole) {
+		for (int i= 0; i < fDiffs.length; i++)
+			blackhole.consume(fDiffs[i].apply(reader(fTargets[i]), fConfiguration, null));
+	}
+
+	@Benchmark
+	public void applyWithFuzz(Blackhole blackhole) {
+		for (int i= 0; i < fDiffs.length; i++)
+			blackhole.consume(fDiffs[i].apply(reader(fTargets[i]), fFuzzConfiguration, null));
+	}
+
+	@Benchmark
+	public void calculateFuzz(Blackhole blackhole) {
+		for (int i= 0; i < fDiffs.length; i++) {
+			FileDiffResult result= new FileDiffResult(fDiffs[i], fFuzzConfiguration);
+			blackhole.consume(result.calculateFuzz(new ArrayList<>(fTargetLines[i]), new NullProgressMonitor()));
+		}
+	}
+
+	/*
+	 * Applies the hunks one by one on already split lines, without the
+	 * bookkeeping of FileDiffResult.
+	 */
+	@Benchmark
+	public void patchHunks(Blackhole blackhole) {
+		for (int i= 0; i < fDiffs.length; i++) {
+			FileDiffResult result= new FileDiffResult(fDiffs[i], fConfiguration);
+			List<String> lines= new ArrayList<>(fTargetLines[i]);
+			IHunk[] hunks= fDiffs[i].getHunks();
+			int shift= 0;
+			for (int j= 0; j < hunks.length; j++) {
+				HunkResult hunkResult= new HunkResult(result, (Hunk) hunks[j]);
+				hunkResult.setShift(shift);
+				blackhole.consume(hunkResult.patch(lines));
+				shift= hunkResult.getShift();
+			}
+			blackhole.consume(lines);
+		}
+	}
+
+	private static FilePatch2[] parse(String patch) throws IOException {
+		PatchReader reader= new PatchReader();
+		reader.parse(new BufferedReader(new StringReader(patch)));
+		return reader.getDiffs();
+	}
+
+	private static ReaderCreator reader(final String contents) {
+		return new ReaderCreator() {
+			@Override
+			public Reader createReader() {
+				return new StringReader(contents);
+			}
+		};
+	}
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.core.benchmarks;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the line differencing of {@link RangeDifferencer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(1)
+public class RangeDifferencerBenchmark {
+
+	@Param({ "smallEdits", "largeRewrite", "binaryLike", "movedBlocks" })
+	public String kind;
+
+	@Param({ "1000", "10000" })
+	public int lines;
+
+	private LineComparator[] fBefore;
+	private LineComparator[] fAfter;
+	private int[][] fBeforeIds;
+	private int[][] fAfterIds;
+	private RangeDifference[][] fDifferences;
+
+	@Setup
+	public void setUp() throws IOException {
+		List<Corpus.Sample> samples= Corpus.create(kind, lines).getSamples();
+		int n= samples.size();
+		fBefore= new LineComparator[n];
+		fAfter= new LineComparator[n];
+		fBeforeIds= new int[n][];
+		fAfterIds= new int[n][];
+		fDifferences= new RangeDifference[n][];
+		Map<String, Integer> ids= new HashMap<>();
+		for (int i= 0; i < n; i++) {
+			Corpus.Sample sample= samples.get(i);
+			fBefore[i]= new LineComparator(sample.before);
+			fAfter[i]= new LineComparator(sample.after);
+			fBeforeIds[i]= ids(ids, sample.before);
+			fAfterIds[i]= ids(ids, sample.after);
+			fDifferences[i]= RangeDifferencer.findDifferences(fBefore[i], fAfter[i]);
+		}
+	}
+
+	@Benchmark
+	public void findDifferences(Blackhole blackhole) {
+		for (int i= 0; i < fBefore.length; i++)
+			blackhole.consume(RangeDifferencer.findDifferences(fBefore[i], fAfter[i]));
+	}
+
+	@Benchmark
+	public void findRanges(Blackhole blackhole) {
+		for (int i= 0; i < fBefore.length; i++)
+			blackhole.consume(RangeDifferencer.findRanges(fBefore[i], fAfter[i]));
+	}
+
+	@Benchmark
+	public void findMoves(Blackhole blackhole) {
+		for (int i= 0; i < fBefore.length; i++)
+			blackhole.consume(RangeDifferencer.findMoves(fBeforeIds[i], fAfterIds[i], fDifferences[i], 3));
+	}
+
+	private static int[] ids(Map<String, Integer> interned, String[] lines) {
+		int[] ids= new int[lines.length];
+		for (int i= 0; i < lines.length; i++) {
+			Integer id= interned.get(lines[i]);
+			if (id == null) {
+				id= Integer.valueOf(interned.size());
+				interned.put(lines[i], id);
+			}
+			ids[i]= id.intValue();
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.core.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.compare.internal.core.TextLineLCS;
+import org.eclipse.compare.internal.core.TextLineLCS.TextLine;
+import org.eclipse.core.runtime.SubMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link TextLineLCS}, the line LCS used when patches are created and
+ * merged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(1)
+public class TextLineLCSBenchmark {
+
+	@Param({ "smallEdits", "largeRewrite", "binaryLike", "movedBlocks" })
+	public String kind;
+
+	@Param({ "1000", "10000" })
+	public int lines;
+
+	private String[] fBeforeTexts;
+	private String[] fAfterTexts;
+	private TextLine[][] fBefore;
+	private TextLine[][] fAfter;
+
+	@Setup
+	public void setUp() throws IOException {
+		List<Corpus.Sample> samples= Corpus.create(kind, lines).getSamples();
+		int n= samples.size();
+		fBeforeTexts= new String[n];
+		fAfterTexts= new String[n];
+		fBefore= new TextLine[n][];
+		fAfter= new TextLine[n][];
+		for (int i= 0; i < n; i++) {
+			fBeforeTexts[i]= samples.get(i).beforeText;
+			fAfterTexts[i]= samples.get(i).afterText;
+			fBefore[i]= TextLineLCS.getTextLines(fBeforeTexts[i]);
+			fAfter[i]= TextLineLCS.getTextLines(fAfterTexts[i]);
+		}
+	}
+
+	@Benchmark
+	public void getTextLines(Blackhole blackhole) {
+		for (int i= 0; i < fBeforeTexts.length; i++) {
+			blackhole.consume(TextLineLCS.getTextLines(fBeforeTexts[i]));
+			blackhole.consume(TextLineLCS.getTextLines(fAfterTexts[i]));
+		}
+	}
+
+	@Benchmark
+	public void longestCommonSubsequence(Blackhole blackhole) {
+		for (int i= 0; i < fBefore.length; i++) {
+			TextLineLCS lcs= new TextLineLCS(fBefore[i], fAfter[i]);
+			lcs.longestCommonSubsequence(SubMonitor.convert(null));
+			blackhole.consume(lcs.getResult());
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -35,9 +35,12 @@ public class AllTests {
 		suite.addTestSuite(PatchLinesTest.class);
 		suite.addTestSuite(PatchUITest.class);
 		suite.addTestSuite(RangeDifferencerThreeWayDiffTest.class);
+		suite.addTestSuite(RangeDifferencerMoveTest.class);
 		suite.addTestSuite(CompareUIPluginTest.class);
 		suite.addTestSuite(StructureCreatorTest.class);
 		suite.addTestSuite(CompareFileRevisionEditorInputTest.class);
+		suite.addTestSuite(DocumentMergerTest.class);
+		suite.addTestSuite(StructureCacheTest.class);
 		// $JUnit-END$
 		return suite;
 	}
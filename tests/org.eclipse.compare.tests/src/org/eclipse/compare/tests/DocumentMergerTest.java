@@ -0,0 +1,496 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.CompareConfiguration;
+import org.eclipse.compare.contentmergeviewer.ITokenComparator;
+import org.eclipse.compare.contentmergeviewer.TokenComparator;
+import org.eclipse.compare.internal.CompareContainer;
+import org.eclipse.compare.internal.MergeViewerContentProvider;
+import org.eclipse.compare.internal.merge.DocumentMerger;
+import org.eclipse.compare.internal.merge.DocumentMerger.Diff;
+import org.eclipse.compare.internal.merge.DocumentMerger.IDocumentMergerInput;
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.operation.IRunnableWithProgress;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
+
+public class DocumentMergerTest extends TestCase {
+
+	private static final char LEFT= MergeViewerContentProvider.LEFT_CONTRIBUTOR;
+	private static final char RIGHT= MergeViewerContentProvider.RIGHT_CONTRIBUTOR;
+
+	/** More line diffs than the merger keeps the token diffs of */
+	private static final int MANY_CHANGES= 600;
+
+	/*
+	 * A two-way input that counts the token comparators the merger creates,
+	 * two for each token diff that is computed.
+	 */
+	private static class MergerInput implements IDocumentMergerInput {
+		final IDocument left;
+		final IDocument right;
+		final CompareConfiguration configuration= new CompareConfiguration();
+		int tokenComparators;
+
+		MergerInput(String left, String right) {
+			this.left= new Document(left);
+			this.right= new Document(right);
+			// run the line diff in the calling thread
+			configuration.setContainer(new CompareContainer() {
+				public void run(boolean fork, boolean cancelable, IRunnableWithProgress runnable) throws InvocationTargetException, InterruptedException {
+					runnable.run(new NullProgressMonitor());
+				}
+			});
+		}
+
+		public IDocument getDocument(char contributor) {
+			if (contributor == LEFT)
+				return left;
+			if (contributor == RIGHT)
+				return right;
+			return null;
+		}
+
+		public Position getRegion(char contributor) {
+			return null;
+		}
+
+		public boolean isIgnoreAncestor() {
+			return true;
+		}
+
+		public boolean isThreeWay() {
+			return false;
+		}
+
+		public CompareConfiguration getCompareConfiguration() {
+			return configuration;
+		}
+
+		public ITokenComparator createTokenComparator(String s) {
+			tokenComparators++;
+			return new TokenComparator(s);
+		}
+
+		public boolean isHunkOnLeft() {
+			return false;
+		}
+
+		public int getHunkStart() {
+			return 0;
+		}
+
+		public boolean isPatchHunk() {
+			return false;
+		}
+
+		public boolean isShowPseudoConflicts() {
+			return false;
+		}
+
+		public boolean isPatchHunkOk() {
+			return false;
+		}
+	}
+
+	public DocumentMergerTest(String name) {
+		super(name);
+	}
+
+	public void testTokenDiffsAreComputedLazily() throws CoreException {
+		MergerInput input= createInput(3);
+		DocumentMerger merger= new DocumentMerger(input);
+		merger.doDiff();
+		assertEquals(3, merger.changesCount());
+		assertEquals(0, input.tokenComparators);
+
+		List<Diff> changes= getChanges(merger);
+		assertTrue(changes.get(1).hasChildren());
+		assertEquals(2, input.tokenComparators);
+		// the token diffs are computed once
+		assertTrue(changes.get(1).childIterator().hasNext());
+		assertEquals(2, input.tokenComparators);
+
+		// painting a region computes the token diffs of the diffs it shows only
+		Position first= changes.get(0).getPosition(LEFT);
+		Diff[] tokenDiffs= merger.getChangeDiffs(LEFT, new Region(first.getOffset(), first.getLength()));
+		assertEquals(1, tokenDiffs.length);
+		assertSame(changes.get(0), tokenDiffs[0].getParent());
+		assertEquals(4, input.tokenComparators);
+	}
+
+	public void testLeastRecentlyUsedTokenDiffsAreRecomputed() throws CoreException {
+		MergerInput input= createInput(MANY_CHANGES);
+		DocumentMerger merger= new DocumentMerger(input);
+		merger.doDiff();
+		List<Diff> changes= getChanges(merger);
+		Diff first= changes.get(0);
+		Diff last= changes.get(MANY_CHANGES - 1);
+		List<String> firstTokenDiffs= getTokenDiffs(first);
+
+		for (Iterator<Diff> iterator= changes.iterator(); iterator.hasNext();) {
+			assertTrue(iterator.next().hasChildren());
+		}
+		assertEquals(2 * MANY_CHANGES, input.tokenComparators);
+
+		// the most recently used token diffs are kept
+		assertTrue(last.hasChildren());
+		assertEquals(2 * MANY_CHANGES, input.tokenComparators);
+
+		// the least recently used ones have been released and are computed again
+		assertEquals(firstTokenDiffs, getTokenDiffs(first));
+		assertEquals(2 * MANY_CHANGES + 2, input.tokenComparators);
+	}
+
+	public void testDisplayedTokenDiffsAreKept() throws CoreException {
+		MergerInput input= createInput(MANY_CHANGES);
+		DocumentMerger merger= new DocumentMerger(input);
+		merger.doDiff();
+		List<Diff> changes= getChanges(merger);
+		Diff first= changes.get(0);
+		Diff second= changes.get(1);
+		Position p= first.getPosition(LEFT);
+		merger.getChangeDiffs(LEFT, new Region(p.getOffset(), p.getLength()));
+		merger.setCurrentDiff(second);
+
+		for (Iterator<Diff> iterator= changes.iterator(); iterator.hasNext();) {
+			iterator.next().hasChildren();
+		}
+		int computed= input.tokenComparators;
+		assertEquals(2 * MANY_CHANGES, computed);
+		assertTrue(first.hasChildren());
+		assertTrue(second.hasChildren());
+		assertEquals(computed, input.tokenComparators);
+		// the third was neither displayed nor selected
+		assertTrue(changes.get(2).hasChildren());
+		assertEquals(computed + 2, input.tokenComparators);
+	}
+
+	public void testLazyTokenDiffsMatchEagerComputation() throws CoreException {
+		MergerInput input= createInput(MANY_CHANGES);
+		DocumentMerger merger= new DocumentMerger(input);
+		merger.doDiff();
+		List<Diff> changes= getChanges(merger);
+		// visit the diffs twice in opposite directions so that most of them
+		// are released and computed again
+		for (int i= 0; i < changes.size(); i++) {
+			changes.get(i).hasChildren();
+		}
+		for (int i= changes.size() - 1; i >= 0; i--) {
+			Diff diff= changes.get(i);
+			assertEquals(computeTokenDiffs(input, diff), getTokenDiffs(diff));
+		}
+		assertTrue(input.tokenComparators > 2 * MANY_CHANGES);
+	}
+
+	public void testLineMappingMatchesLinearScan() throws CoreException {
+		DocumentMerger merger= createMerger(createVariedInput());
+		assertTrue(merger.hasChanges());
+		assertEquals(getLinearVirtualHeight(merger), merger.getVirtualHeight());
+		assertEquals(getLinearHeight(merger, RIGHT) + 1, merger.getRightHeight());
+		assertLineMappingMatchesLinearScan(merger);
+	}
+
+	public void testOffsetLookupsMatchLinearScan() throws CoreException {
+		MergerInput input= createVariedInput();
+		DocumentMerger merger= createMerger(input);
+		assertOffsetLookupsMatchLinearScan(merger, input);
+	}
+
+	public void testLookupsWithoutChanges() throws CoreException {
+		MergerInput input= new MergerInput("a\nb\n", "a\nb\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		DocumentMerger merger= createMerger(input);
+		assertFalse(merger.hasChanges());
+		assertEquals(getLinearVirtualHeight(merger), merger.getVirtualHeight());
+		assertLineMappingMatchesLinearScan(merger);
+		assertOffsetLookupsMatchLinearScan(merger, input);
+		assertNull(merger.findNext(LEFT, 0, 0, false));
+		assertNull(merger.findPrev(LEFT, 4, 4, false));
+
+		input= new MergerInput("", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		merger= createMerger(input);
+		assertFalse(merger.hasChanges());
+		assertEquals(getLinearVirtualHeight(merger), merger.getVirtualHeight());
+		assertLineMappingMatchesLinearScan(merger);
+		assertOffsetLookupsMatchLinearScan(merger, input);
+		assertNull(merger.findDiff(LEFT, 0, 0));
+	}
+
+	public void testLookupsPastLastDiff() throws CoreException {
+		MergerInput input= createVariedInput();
+		DocumentMerger merger= createMerger(input);
+		List<Diff> changes= getChanges(merger);
+		Diff last= changes.get(changes.size() - 1);
+		int leftEnd= input.left.getLength();
+		assertNull(merger.findNext(LEFT, leftEnd, leftEnd, false));
+		assertSame(last, merger.findPrev(LEFT, leftEnd + 1, leftEnd + 1, false));
+		assertNull(merger.findDiff(LEFT, leftEnd + 1, leftEnd + 1));
+		int virtualHeight= getLinearHeight(merger, 'V');
+		assertEquals(virtualHeight, merger.realToVirtualPosition(LEFT, getLinearHeight(merger, LEFT) + 5));
+		assertEquals(getLinearHeight(merger, RIGHT), merger.virtualToRealPosition(RIGHT, virtualHeight + 5));
+	}
+
+	/*
+	 * Creates an input whose documents differ in one token of the given
+	 * number of lines, separated by unchanged lines.
+	 */
+	private static MergerInput createInput(int changes) {
+		StringBuffer left= new StringBuffer();
+		StringBuffer right= new StringBuffer();
+		for (int i= 0; i < changes; i++) {
+			left.append("same line " + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			right.append("same line " + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			left.append("changed line " + i + " left end\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			right.append("changed line " + i + " right end\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return new MergerInput(left.toString(), right.toString());
+	}
+
+	/*
+	 * Creates an input with additions, deletions and changes of different
+	 * heights on both sides, starting and ending with a change.
+	 */
+	private static MergerInput createVariedInput() {
+		StringBuffer left= new StringBuffer();
+		StringBuffer right= new StringBuffer();
+		for (int i= 0; i < 40; i++) {
+			if (i > 0) {
+				left.append("same line " + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				right.append("same line " + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			int leftLines= i % 3;
+			int rightLines= (i + 1) % 4;
+			if (leftLines == 0 && rightLines == 0)
+				rightLines= 1;
+			for (int j= 0; j < leftLines; j++)
+				left.append("left " + i + " " + j + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			for (int j= 0; j < rightLines; j++)
+				right.append("right " + i + " " + j + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return new MergerInput(left.toString(), right.toString());
+	}
+
+	private static DocumentMerger createMerger(MergerInput input) throws CoreException {
+		DocumentMerger merger= new DocumentMerger(input);
+		merger.doDiff();
+		return merger;
+	}
+
+	private static void assertLineMappingMatchesLinearScan(DocumentMerger merger) {
+		char[] contributors= { LEFT, RIGHT };
+		for (int c= 0; c < contributors.length; c++) {
+			char contributor= contributors[c];
+			for (int line= 0; line <= getLinearHeight(merger, contributor) + 2; line++) {
+				assertEquals(contributor + ":" + line, realToVirtualPosition(merger, contributor, line), merger.realToVirtualPosition(contributor, line)); //$NON-NLS-1$
+			}
+			for (int line= 0; line <= getLinearHeight(merger, 'V') + 2; line++) {
+				assertEquals(contributor + ":" + line, virtualToRealPosition(merger, contributor, line), merger.virtualToRealPosition(contributor, line)); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private static void assertOffsetLookupsMatchLinearScan(DocumentMerger merger, MergerInput input) {
+		char[] contributors= { LEFT, RIGHT };
+		for (int c= 0; c < contributors.length; c++) {
+			char contributor= contributors[c];
+			int length= input.getDocument(contributor).getLength();
+			for (int start= 0; start <= length + 2; start++) {
+				for (int end= start; end <= start + 3; end++) {
+					String message= contributor + ":" + start + "-" + end; //$NON-NLS-1$ //$NON-NLS-2$
+					assertSame(message, findDiff(merger, contributor, start, end, length), merger.findDiff(contributor, start, end));
+					assertSame(message, findNext(merger, contributor, end), merger.findNext(contributor, start, end, false));
+					assertSame(message, findPrev(merger, contributor, start), merger.findPrev(contributor, start, end, false));
+				}
+				assertSame(contributor + ":" + start, findDiff(merger, contributor, start), merger.findDiff(new Position(start), contributor == LEFT)); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/*
+	 * The linear scans that were used by DocumentMerger before the diffs were
+	 * indexed. The height of 'V' is the virtual height.
+	 */
+
+	private static int getHeight(Diff diff, char contributor) {
+		if (contributor == LEFT)
+			return diff.getLeftHeight();
+		if (contributor == RIGHT)
+			return diff.getRightHeight();
+		return diff.getMaxDiffHeight();
+	}
+
+	private static int getLinearHeight(DocumentMerger merger, char contributor) {
+		int height= 0;
+		for (Iterator<Diff> iterator= merger.rangesIterator(); iterator.hasNext();) {
+			height+= getHeight(iterator.next(), contributor);
+		}
+		return height;
+	}
+
+	private static int getLinearVirtualHeight(DocumentMerger merger) {
+		return getLinearHeight(merger, 'V') + 1;
+	}
+
+	private static int realToVirtualPosition(DocumentMerger merger, char contributor, int vpos) {
+		int viewPos= 0;
+		int virtualPos= 0;
+		for (Iterator<Diff> iterator= merger.rangesIterator(); iterator.hasNext();) {
+			Diff diff= iterator.next();
+			int realHeight= getHeight(diff, contributor);
+			int virtualHeight= diff.getMaxDiffHeight();
+			if (vpos <= viewPos + realHeight) {
+				vpos-= viewPos;
+				if (realHeight <= 0)
+					vpos= 0;
+				else
+					vpos= (vpos * virtualHeight) / realHeight;
+				return virtualPos + vpos;
+			}
+			viewPos+= realHeight;
+			virtualPos+= virtualHeight;
+		}
+		return virtualPos;
+	}
+
+	private static int virtualToRealPosition(DocumentMerger merger, char contributor, int v) {
+		int virtualPos= 0;
+		int viewPos= 0;
+		for (Iterator<Diff> iterator= merger.rangesIterator(); iterator.hasNext();) {
+			Diff diff= iterator.next();
+			int viewHeight= getHeight(diff, contributor);
+			int virtualHeight= diff.getMaxDiffHeight();
+			if (v < (virtualPos + virtualHeight)) {
+				v-= virtualPos;
+				if (viewHeight <= 0)
+					v= 0;
+				else
+					v= (int) (v * ((double) viewHeight / virtualHeight));
+				return viewPos + v;
+			}
+			virtualPos+= virtualHeight;
+			viewPos+= viewHeight;
+		}
+		return viewPos;
+	}
+
+	private static Diff findDiff(DocumentMerger merger, char contributor, int start, int end, int length) {
+		for (Iterator<Diff> iterator= merger.changesIterator(); iterator.hasNext();) {
+			Diff diff= iterator.next();
+			if (diff.isDeleted() || diff.getKind() == RangeDifference.NOCHANGE)
+				continue;
+			if (diff.overlaps(contributor, start, end, length))
+				return diff;
+		}
+		return null;
+	}
+
+	private static Diff findDiff(DocumentMerger merger, char contributor, int offset) {
+		for (Iterator<Diff> iterator= merger.rangesIterator(); iterator.hasNext();) {
+			Diff diff= iterator.next();
+			Position p= diff.getPosition(contributor);
+			if (p.getOffset() + p.getLength() >= offset && diff.getKind() != RangeDifference.NOCHANGE)
+				return diff;
+			if (p.getOffset() >= offset)
+				return diff;
+		}
+		return null;
+	}
+
+	private static Diff findNext(DocumentMerger merger, char contributor, int end) {
+		for (Iterator<Diff> iterator= merger.changesIterator(); iterator.hasNext();) {
+			Diff diff= iterator.next();
+			if (end < diff.getPosition(contributor).getOffset())
+				return diff;
+		}
+		return null;
+	}
+
+	private static Diff findPrev(DocumentMerger merger, char contributor, int start) {
+		Diff previous= null;
+		for (Iterator<Diff> iterator= merger.changesIterator(); iterator.hasNext();) {
+			Diff diff= iterator.next();
+			Position p= diff.getPosition(contributor);
+			if (start > p.getOffset() + p.getLength())
+				previous= diff;
+		}
+		return previous;
+	}
+
+	private static List<Diff> getChanges(DocumentMerger merger) {
+		List<Diff> changes= new ArrayList<>();
+		for (Iterator<Diff> iterator= merger.changesIterator(); iterator.hasNext();) {
+			changes.add(iterator.next());
+		}
+		return changes;
+	}
+
+	private static List<String> getTokenDiffs(Diff diff) {
+		List<String> result= new ArrayList<>();
+		for (Iterator<Diff> iterator= diff.childIterator(); iterator.hasNext();) {
+			Diff child= iterator.next();
+			result.add(toString(child.getPosition(LEFT), child.getPosition(RIGHT)));
+		}
+		return result;
+	}
+
+	/*
+	 * Computes the token diffs of the given line diff the way they were
+	 * computed eagerly by doDiff.
+	 */
+	private static List<String> computeTokenDiffs(MergerInput input, Diff diff) {
+		Position left= diff.getPosition(LEFT);
+		Position right= diff.getPosition(RIGHT);
+		List<String> result= new ArrayList<>();
+		try {
+			ITokenComparator l= new TokenComparator(input.left.get(left.getOffset(), left.getLength()));
+			ITokenComparator r= new TokenComparator(input.right.get(right.getOffset(), right.getLength()));
+			RangeDifference[] differences= RangeDifferencer.findRanges(l, r);
+			for (int i= 0; i < differences.length; i++) {
+				RangeDifference d= differences[i];
+				if (d.kind() == RangeDifference.NOCHANGE)
+					continue;
+				Position tokenLeft= new Position(left.getOffset() + l.getTokenStart(d.leftStart()), getTokenLength(l, d.leftStart(), d.leftLength()));
+				Position tokenRight= new Position(right.getOffset() + r.getTokenStart(d.rightStart()), getTokenLength(r, d.rightStart(), d.rightLength()));
+				// token diffs that cover the whole line diff are not added
+				if (tokenLeft.getOffset() != left.getOffset() || tokenLeft.getLength() != left.getLength()
+						|| tokenRight.getOffset() != right.getOffset() || tokenRight.getLength() != right.getLength())
+					result.add(toString(tokenLeft, tokenRight));
+			}
+		} catch (org.eclipse.jface.text.BadLocationException e) {
+			fail(e.getMessage());
+		}
+		return result;
+	}
+
+	private static int getTokenLength(ITokenComparator tc, int start, int count) {
+		if (count <= 0)
+			return 0;
+		int last= start + count - 1;
+		return tc.getTokenStart(last) + tc.getTokenLength(last) - tc.getTokenStart(start);
+	}
+
+	private static String toString(Position left, Position right) {
+		return left.getOffset() + "+" + left.getLength() + "/" + right.getOffset() + "+" + right.getLength(); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.rangedifferencer.IRangeComparator;
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+
+public class RangeDifferencerMoveTest extends TestCase {
+
+	private static class IdComparator implements IRangeComparator {
+		final int[] ids;
+
+		IdComparator(int[] ids) {
+			this.ids= ids;
+		}
+
+		@Override
+		public int getRangeCount() {
+			return ids.length;
+		}
+
+		@Override
+		public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+			return ids[thisIndex] == ((IdComparator) other).ids[otherIndex];
+		}
+
+		@Override
+		public boolean skipRangeComparison(int length, int maxLength, IRangeComparator other) {
+			return false;
+		}
+	}
+
+	private final Map<String, Integer> interned= new HashMap<>();
+
+	public RangeDifferencerMoveTest(String name) {
+		super(name);
+	}
+
+	public void testBlockMovedDown() {
+		int[] left= ids("a b c d e f g h");
+		int[] right= ids("a e f g b c d h");
+
+		RangeDifference[] moves= findMoves(left, right, 3);
+
+		assertEquals(1, moves.length);
+		assertEquals(RangeDifference.MOVE, moves[0].kind());
+		assertEquals(3, moves[0].leftLength());
+		assertEquals(moves[0].leftLength(), moves[0].rightLength());
+		assertMoved(left, right, moves[0]);
+	}
+
+	public void testMovedBlockWithChanges() {
+		int[] left= ids("a b c m1 m2 m3 m4 m5 d e f g h");
+		int[] right= ids("a b c d e f g h m1 m2 x m4 m5");
+
+		RangeDifference[] moves= findMoves(left, right, 2);
+
+		assertEquals(2, moves.length);
+		assertEquals(2, moves[0].leftLength());
+		assertEquals(2, moves[1].leftLength());
+		assertTrue(moves[0].leftStart() < moves[1].leftStart());
+		assertMoved(left, right, moves[0]);
+		assertMoved(left, right, moves[1]);
+	}
+
+	public void testShortBlockIsIgnored() {
+		int[] left= ids("a b c d e");
+		int[] right= ids("a d b c e");
+
+		assertEquals(0, findMoves(left, right, 3).length);
+	}
+
+	public void testNoChanges() {
+		int[] left= ids("a b c d");
+		int[] right= ids("a b c d");
+
+		assertEquals(0, findMoves(left, right, 1).length);
+	}
+
+	public void testEntitiesMovedOnce() {
+		int[] left= ids("p q r s t u v");
+		int[] right= ids("s t u v p q r p q r");
+
+		RangeDifference[] moves= findMoves(left, right, 3);
+
+		// "p q r" is removed at 0 and added at 4 and 7; only the first copy is a move
+		assertEquals(1, moves.length);
+		assertEquals(0, moves[0].leftStart());
+		assertEquals(3, moves[0].leftLength());
+		assertEquals(4, moves[0].rightStart());
+		assertEquals(3, moves[0].rightLength());
+	}
+
+	public void testCandidatesAreBounded() {
+		// the block is found after 7 shorter occurrences of its start
+		RangeDifference[] moves= findMovedBlock(7);
+		assertEquals(1, moves.length);
+		assertEquals(5, moves[0].leftLength());
+		assertEquals(10 + 7 * 4, moves[0].rightStart());
+
+		// only the first 8 occurrences are candidates, so the longest one is missed
+		moves= findMovedBlock(8);
+		assertEquals(1, moves.length);
+		assertEquals(3, moves[0].leftLength());
+		assertEquals(10, moves[0].rightStart());
+	}
+
+	/*
+	 * Moves the block "a b c d e" from the start of the left side to the end
+	 * of the right side, after the given number of occurrences of "a b c".
+	 */
+	private RangeDifference[] findMovedBlock(int occurrences) {
+		StringBuilder common= new StringBuilder();
+		for (int i= 0; i < 10; i++)
+			common.append(" t").append(i); //$NON-NLS-1$
+		StringBuilder right= new StringBuilder(common.substring(1));
+		for (int i= 0; i < occurrences; i++)
+			right.append(" a b c k").append(i); //$NON-NLS-1$
+		right.append(" a b c d e"); //$NON-NLS-1$
+		return findMoves(ids("a b c d e" + common), ids(right.toString()), 3); //$NON-NLS-1$
+	}
+
+	private RangeDifference[] findMoves(int[] left, int[] right, int minLength) {
+		RangeDifference[] differences= RangeDifferencer.findDifferences(new IdComparator(left), new IdComparator(right));
+		return RangeDifferencer.findMoves(left, right, differences, minLength);
+	}
+
+	private static void assertMoved(int[] left, int[] right, RangeDifference move) {
+		for (int i= 0; i < move.leftLength(); i++)
+			assertEquals(left[move.leftStart() + i], right[move.rightStart() + i]);
+	}
+
+	private int[] ids(String text) {
+		String[] tokens= text.split(" "); //$NON-NLS-1$
+		int[] ids= new int[tokens.length];
+		for (int i= 0; i < tokens.length; i++) {
+			Integer id= interned.get(tokens[i]);
+			if (id == null) {
+				id= Integer.valueOf(interned.size());
+				interned.put(tokens[i], id);
+			}
+			ids[i]= id.intValue();
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.compare.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.compare.IEditableContent;
+import org.eclipse.compare.IModificationDate;
+import org.eclipse.compare.IStreamContentAccessor;
+import org.eclipse.compare.ITypedElement;
+import org.eclipse.compare.contentmergeviewer.IDocumentRange;
+import org.eclipse.compare.internal.StructureCache;
+import org.eclipse.compare.internal.StructureCache.Key;
+import org.eclipse.compare.structuremergeviewer.IStructureComparator;
+import org.eclipse.compare.structuremergeviewer.IStructureCreator;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.ui.services.IDisposable;
+
+public class StructureCacheTest extends TestCase {
+
+	private final IStructureCreator creator= new Creator();
+
+	/*
+	 * A read-only input that counts how often its contents are read.
+	 */
+	private static class Input implements IStreamContentAccessor, ITypedElement, IModificationDate {
+		final String name;
+		final String contents;
+		final long date;
+		int reads;
+
+		Input(String name, String contents, long date) {
+			this.name= name;
+			this.contents= contents;
+			this.date= date;
+		}
+
+		public InputStream getContents() {
+			reads++;
+			return contents != null ? new ByteArrayInputStream(contents.getBytes()) : null;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Image getImage() {
+			return null;
+		}
+
+		public String getType() {
+			return ITypedElement.TEXT_TYPE;
+		}
+
+		public long getModificationDate() {
+			return date;
+		}
+	}
+
+	private static class EditableInput extends Input implements IEditableContent {
+		EditableInput(String name, String contents, long date) {
+			super(name, contents, date);
+		}
+
+		public boolean isEditable() {
+			return true;
+		}
+
+		public void setContent(byte[] newContent) {
+			// not used
+		}
+
+		public ITypedElement replace(ITypedElement dest, ITypedElement src) {
+			return dest;
+		}
+	}
+
+	/*
+	 * A structure based on a document that records whether it has been
+	 * destroyed.
+	 */
+	private static class Structure implements IStructureComparator, IDocumentRange, IDisposable {
+		final IDocument document;
+		boolean disposed;
+
+		Structure(String contents) {
+			document= new Document(contents);
+		}
+
+		public Object[] getChildren() {
+			return new Object[0];
+		}
+
+		public IDocument getDocument() {
+			return document;
+		}
+
+		public Position getRange() {
+			return new Position(0, document.getLength());
+		}
+
+		public void dispose() {
+			disposed= true;
+		}
+	}
+
+	private static class Creator implements IStructureCreator {
+		public String getName() {
+			return "Test"; //$NON-NLS-1$
+		}
+
+		public IStructureComparator getStructure(Object input) {
+			return new Structure(((Input) input).contents);
+		}
+
+		public IStructureComparator locate(Object path, Object input) {
+			return null;
+		}
+
+		public String getContents(Object node, boolean ignoreWhitespace) {
+			return null;
+		}
+
+		public void save(IStructureComparator node, Object input) {
+			// not used
+		}
+	}
+
+	public StructureCacheTest() {
+		super();
+	}
+
+	public StructureCacheTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		StructureCache.clear();
+	}
+
+	protected void tearDown() throws Exception {
+		StructureCache.clear();
+		super.tearDown();
+	}
+
+	public void testHit() {
+		Input input= new Input("a.txt", "contents", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		Structure structure= put(input);
+		// the contents of a cached input are digested once
+		assertEquals(1, input.reads);
+		assertTrue(StructureCache.release(structure));
+
+		Input same= new Input("a.txt", "contents", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(structure, StructureCache.acquire(StructureCache.getKey(creator, same)));
+		assertEquals(1, same.reads);
+		assertEquals(1, input.reads);
+		assertFalse(structure.disposed);
+	}
+
+	public void testMiss() {
+		Input input= new Input("a.txt", "contents", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		Key key= StructureCache.getKey(creator, input);
+		assertNull(StructureCache.acquire(key));
+		// inputs that miss the cache are not read
+		assertEquals(0, input.reads);
+		StructureCache.release(put(input));
+
+		// a different identity is not read either
+		Input newer= new Input("a.txt", "contents", 2); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(StructureCache.acquire(StructureCache.getKey(creator, newer)));
+		assertEquals(0, newer.reads);
+		Input other= new Input("b.txt", "contents", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(StructureCache.acquire(StructureCache.getKey(creator, other)));
+		assertEquals(0, other.reads);
+
+		// the same identity with other contents
+		Input modified= new Input("a.txt", "modified", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(StructureCache.acquire(StructureCache.getKey(creator, modified)));
+		assertEquals(1, modified.reads);
+	}
+
+	public void testEditableInputIsNotCached() {
+		assertNull(StructureCache.getKey(creator, new EditableInput("a.txt", "contents", 1))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(StructureCache.getKey(creator, new Object()));
+	}
+
+	public void testUnreadableInputIsNotCached() {
+		Input input= new Input("a.txt", null, 1); //$NON-NLS-1$
+		Key key= StructureCache.getKey(creator, input);
+		Structure structure= new Structure(""); //$NON-NLS-1$
+		StructureCache.put(key, creator, structure);
+		assertFalse(StructureCache.isCached(structure));
+		// the viewer destroys the structure itself
+		assertFalse(StructureCache.release(structure));
+		assertFalse(structure.disposed);
+	}
+
+	public void testLeasedStructureIsNotShared() {
+		Input input= new Input("a.txt", "contents", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		Structure structure= put(input);
+		Key key= StructureCache.getKey(creator, new Input("a.txt", "contents", 1)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(StructureCache.acquire(key));
+		assertTrue(StructureCache.release(structure));
+		assertSame(structure, StructureCache.acquire(key));
+	}
+
+	public void testModifiedDocumentInvalidates() throws BadLocationException {
+		Input input= new Input("a.txt", "contents", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		Structure structure= put(input);
+		assertTrue(StructureCache.release(structure));
+		structure.document.replace(0, 0, "modified "); //$NON-NLS-1$
+		assertTrue(structure.disposed);
+		assertFalse(StructureCache.isCached(structure));
+		assertNull(StructureCache.acquire(StructureCache.getKey(creator, new Input("a.txt", "contents", 1)))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testEvictedStructureIsDestroyedWhenReleased() {
+		Input input= new Input("a.txt", "contents", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		Structure structure= put(input);
+		StructureCache.clear();
+		// the viewer still shows the structure
+		assertFalse(structure.disposed);
+		assertTrue(StructureCache.release(structure));
+		assertTrue(structure.disposed);
+		// the viewer destroys the structures that the cache does not own
+		assertFalse(StructureCache.release(structure));
+		assertNull(StructureCache.acquire(StructureCache.getKey(creator, new Input("a.txt", "contents", 1)))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testLeastRecentlyUsedIsEvicted() {
+		Structure first= put(new Input("0.txt", "contents", 1)); //$NON-NLS-1$ //$NON-NLS-2$
+		StructureCache.release(first);
+		for (int i= 1; i <= 32; i++) {
+			StructureCache.release(put(new Input(i + ".txt", "contents", 1))); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		assertTrue(first.disposed);
+		assertNull(StructureCache.acquire(StructureCache.getKey(creator, new Input("0.txt", "contents", 1)))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNotNull(StructureCache.acquire(StructureCache.getKey(creator, new Input("1.txt", "contents", 1)))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/*
+	 * Creates the structure of the given input and caches it the way the
+	 * structure diff viewer does. The caller holds the lease.
+	 */
+	private Structure put(Input input) {
+		Key key= StructureCache.getKey(creator, input);
+		assertNotNull(key);
+		Structure structure= (Structure) creator.getStructure(input);
+		StructureCache.put(key, creator, structure);
+		assertTrue(StructureCache.isCached(structure));
+		return structure;
+	}
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.cvs.core.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
+import org.eclipse.team.internal.ccvs.core.util.EntriesParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading the sync bytes of a folder from the contents of its
+ * CVS/Entries and CVS/Entries.Log files, as done for every folder that is
+ * loaded into the synchronizer cache. The <code>readLines</code> benchmark
+ * measures the former implementation, which parsed each line into a
+ * <code>ResourceSyncInfo</code> kept in a <code>TreeMap</code>, as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(1)
+public class EntriesParserBenchmark {
+
+	@Param({ "1000" })
+	public int entries;
+
+	@Param({ "0", "20" })
+	public int logEntries;
+
+	private byte[] fEntries;
+	private byte[] fEntriesLog;
+
+	@Setup
+	public void setUp() {
+		StringBuilder builder= new StringBuilder();
+		for (int i= 0; i < entries; i++) {
+			if (i % 50 == 0) {
+				builder.append("D/folder").append(i).append("////\n");
+			} else {
+				builder.append("/File").append(i).append(".java/1.").append(i % 97 + 1)
+					.append("/Tue Mar  4 19:47:36 2003/").append(i % 10 == 0 ? "-kb" : "").append("/Tperf_branch\n");
+			}
+		}
+		fEntries= builder.toString().getBytes();
+		if (logEntries > 0) {
+			builder= new StringBuilder();
+			for (int i= 0; i < logEntries; i++) {
+				// alternately replace an existing file and remove one
+				builder.append(i % 2 == 0 ? "A " : "R ").append("/File").append(i * 7 + 1).append(".java/1.1/dummy timestamp//\n");
+			}
+			fEntriesLog= builder.toString().getBytes();
+		}
+	}
+
+	@Benchmark
+	public byte[][] parse() throws CVSException {
+		return EntriesParser.parse(fEntries, fEntriesLog, "/project/folder");
+	}
+
+	@Benchmark
+	public byte[][] readLines() throws CVSException, IOException {
+		Map<String, ResourceSyncInfo> infos= new TreeMap<>();
+		for (String line : readLines(fEntries)) {
+			if (!"D".equals(line) && !"".equals(line)) {
+				ResourceSyncInfo info= new ResourceSyncInfo(line, null);
+				infos.put(info.getName(), info);
+			}
+		}
+		if (fEntriesLog != null) {
+			for (String line : readLines(fEntriesLog)) {
+				if (line.startsWith("A ")) {
+					ResourceSyncInfo info= new ResourceSyncInfo(line.substring(2), null);
+					infos.put(info.getName(), info);
+				} else if (line.startsWith("R ")) {
+					ResourceSyncInfo info= new ResourceSyncInfo(line.substring(2), null);
+					infos.remove(info.getName());
+				}
+			}
+		}
+		byte[][] result= new byte[infos.size()][];
+		int i= 0;
+		for (Iterator<ResourceSyncInfo> iter= infos.values().iterator(); iter.hasNext();) {
+			result[i++]= iter.next().getBytes();
+		}
+		return result;
+	}
+
+	private static String[] readLines(byte[] contents) throws IOException {
+		BufferedReader reader= new BufferedReader(new InputStreamReader(new ByteArrayInputStream(contents)), 512);
+		List<String> lines= new ArrayList<>();
+		String line;
+		while ((line= reader.readLine()) != null) {
+			lines.add(line);
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.cvs.core.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.team.internal.ccvs.core.CVSTag;
+import org.eclipse.team.internal.ccvs.core.util.Util;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap retained by the history of a module. The
+ * <code>retainedBytes</code> counter sums the growth of the used heap after
+ * a full collection over the <code>invocations</code> of an iteration, so
+ * their ratio is the heap retained by the history. The <code>perListener</code>
+ * mode measures the former implementation as a baseline: strings were only
+ * shared within the log of one file and each log entry had its own tags.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(value= 1, jvmArgs= { "-Xms1g", "-Xmx1g" })
+public class InternerHeapBenchmark {
+
+	private static final String[] AUTHORS= { "alice", "bob", "carol", "dave", "erin", "frank", "grace", "heidi" };
+
+	@Param({ "shared", "perListener" })
+	public String mode;
+
+	@Param({ "2000" })
+	public int files;
+
+	@Param({ "20" })
+	public int revisions;
+
+	/**
+	 * The heap retained by the invocations of an iteration.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Heap {
+		public long retainedBytes;
+		public long invocations;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			retainedBytes= 0;
+			invocations= 0;
+		}
+	}
+
+	/*
+	 * The values retained by a log entry.
+	 */
+	private static class Entry {
+		String revision;
+		String author;
+		String state;
+		String comment;
+		CVSTag[] tags;
+		CVSTag[] branches;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime= Runtime.getRuntime();
+		for (int i= 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/*
+	 * Return a copy of the string, as if it was parsed from a line sent by the server.
+	 */
+	private static String parsed(String string) {
+		return new String(string.toCharArray());
+	}
+
+	private String intern(Map<String, String> strings, String string) {
+		if (strings == null)
+			return Util.intern(string);
+		String interned= strings.get(string);
+		if (interned == null) {
+			interned= string;
+			strings.put(interned, interned);
+		}
+		return interned;
+	}
+
+	private CVSTag tag(String name, String branchRevision, int type) {
+		CVSTag tag= new CVSTag(name, branchRevision, type);
+		return mode.equals("shared") ? CVSTag.intern(tag) : tag;
+	}
+
+	/*
+	 * The log of each file is received by its own listener, as when the
+	 * history of the files is shown one after the other. The revisions of
+	 * a commit share its comment and the revisions 1.n are tagged build_n.
+	 */
+	@Benchmark
+	public Object logEntries(Heap heap) {
+		long before= usedHeap();
+		Entry[][] entries= new Entry[files][];
+		for (int i= 0; i < files; i++) {
+			Map<String, String> strings= mode.equals("shared") ? null : new HashMap<String, String>();
+			entries[i]= new Entry[revisions];
+			for (int j= 0; j < revisions; j++) {
+				Entry entry= new Entry();
+				entry.revision= intern(strings, parsed("1." + (j + 1)));
+				entry.author= intern(strings, parsed(AUTHORS[(i + j) % AUTHORS.length]));
+				entry.state= intern(strings, parsed("Exp"));
+				entry.comment= intern(strings, parsed("Commit " + j + " of the module, touching all its files"));
+				entry.tags= new CVSTag[] { tag(intern(strings, parsed("build_" + (j + 1))), intern(strings, parsed("1")), CVSTag.VERSION) };
+				entry.branches= new CVSTag[] { tag(CVSTag.HEAD_BRANCH, CVSTag.HEAD_REVISION, CVSTag.HEAD) };
+				entries[i][j]= entry;
+			}
+		}
+		heap.retainedBytes+= usedHeap() - before;
+		heap.invocations++;
+		return entries;
+	}
+}
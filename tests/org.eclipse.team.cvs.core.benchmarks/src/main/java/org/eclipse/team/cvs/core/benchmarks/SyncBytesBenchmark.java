@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.cvs.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncBytes;
+import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
+import org.eclipse.team.internal.ccvs.core.util.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the accessors of the sync bytes that are called for every file
+ * when the CVS metadata is read, decorated and synchronized. The
+ * <code>substring</code> benchmarks measure the former implementation, which
+ * created a string for each slot, as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations= 3, time= 2)
+@Measurement(iterations= 5, time= 2)
+@Fork(1)
+public class SyncBytesBenchmark {
+
+	private static final byte SEPARATOR= '/';
+
+	@Param({ "regular", "merged", "locked" })
+	public String kind;
+
+	private byte[] fLocal;
+	private byte[] fRemote;
+	private ResourceSyncBytes fView;
+
+	@Setup
+	public void setUp() {
+		String revision= "1.42.2.7";
+		String timestamp= "Tue Mar  4 19:47:36 2003";
+		if (kind.equals("merged")) {
+			timestamp= "Result of merge+" + timestamp;
+		} else if (kind.equals("locked")) {
+			revision= revision + " locked by someone";
+		}
+		fLocal= ("/ResourceSyncInfo.java/" + revision + "/" + timestamp + "/-kb/Nperf_branch").getBytes();
+		fRemote= "/ResourceSyncInfo.java/1.42.2.8/dummy timestamp/-kb/Nperf_branch".getBytes();
+		fView= new ResourceSyncBytes(fLocal);
+	}
+
+	@Benchmark
+	public String getRevision() throws CVSException {
+		return ResourceSyncInfo.getRevision(fLocal);
+	}
+
+	@Benchmark
+	public String getRevisionSubstring() {
+		String revision= Util.getSubstring(fLocal, SEPARATOR, 2, false);
+		if (revision.startsWith("-")) { //$NON-NLS-1$
+			revision= revision.substring(1);
+		}
+		return revision.replaceFirst(ResourceSyncInfo.LOCKEDBY_REGEX, ""); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public boolean isSameRevision() throws CVSException {
+		return ResourceSyncInfo.isSameRevision(fLocal, fRemote);
+	}
+
+	@Benchmark
+	public boolean isSameRevisionSubstring() {
+		return getRevisionSubstring().equals(Util.getSubstring(fRemote, SEPARATOR, 2, false));
+	}
+
+	@Benchmark
+	public boolean isBinary() throws CVSException {
+		return ResourceSyncInfo.isBinary(fLocal);
+	}
+
+	@Benchmark
+	public boolean isBinarySubstring() {
+		return "-kb".equals(Util.getSubstring(fLocal, SEPARATOR, 4, false)); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public boolean isMerge() throws CVSException {
+		return ResourceSyncInfo.isMerge(fLocal);
+	}
+
+	@Benchmark
+	public boolean isMergeSubstring() {
+		String timestamp= Util.getSubstring(fLocal, SEPARATOR, 3, false);
+		return timestamp.indexOf("+modified") != -1 || timestamp.indexOf("+=") != -1 || timestamp.indexOf("Result of merge") != -1; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	@Benchmark
+	public boolean isLaterRevisionOnSameBranch() throws CVSException {
+		return ResourceSyncInfo.isLaterRevisionOnSameBranch(fRemote, fLocal);
+	}
+
+	@Benchmark
+	public String getName() throws CVSException {
+		return ResourceSyncInfo.getName(fLocal);
+	}
+
+	/*
+	 * The checks done when a file is decorated, on a single reused view.
+	 */
+	@Benchmark
+	public void dirtyChecks(Blackhole blackhole) throws CVSException {
+		ResourceSyncBytes view= fView.reset(fLocal);
+		blackhole.consume(view.isAddition());
+		blackhole.consume(view.isDeletion());
+		blackhole.consume(view.isMerge());
+		blackhole.consume(view.wasDeleted());
+	}
+
+	@Benchmark
+	public void dirtyChecksStatic(Blackhole blackhole) throws CVSException {
+		blackhole.consume(ResourceSyncInfo.isAddition(fLocal));
+		blackhole.consume(ResourceSyncInfo.isDeletion(fLocal));
+		blackhole.consume(ResourceSyncInfo.isMerge(fLocal));
+		blackhole.consume(ResourceSyncInfo.wasDeleted(fLocal));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,14 +11,21 @@
 package org.eclipse.team.tests.core;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 import org.eclipse.team.internal.core.streams.CRLFtoLFInputStream;
 import org.eclipse.team.internal.core.streams.LFtoCRLFInputStream;
+import org.eclipse.team.internal.core.streams.TimeoutInputStream;
+import org.eclipse.team.internal.core.streams.TimeoutOutputStream;
 
 public class StreamTests extends TestCase {
 
@@ -68,6 +75,91 @@ public class StreamTests extends TestCase {
 		assertStreamEquals(inExpected, in);
 	}
 
+	public void testTimeoutInputStream() throws IOException {
+		PipedOutputStream pout = new PipedOutputStream();
+		InputStream in = new TimeoutInputStream(new PipedInputStream(pout), 4, 100, -1);
+		try {
+			in.read();
+			fail("Read should time out");
+		} catch (InterruptedIOException e) {
+			assertEquals(0, e.bytesTransferred);
+		}
+		pout.write("The quick brown fox".getBytes());
+		assertEquals('T', readRetrying(in));
+		byte[] buffer = new byte[64];
+		StringBuilder read = new StringBuilder();
+		while (read.length() < 18) {
+			try {
+				int count = in.read(buffer);
+				read.append(new String(buffer, 0, count));
+			} catch (InterruptedIOException e) {
+				// not yet available
+			}
+		}
+		assertEquals("he quick brown fox", read.toString());
+		pout.close();
+		assertEquals(-1, readRetrying(in));
+		in.close();
+	}
+
+	public void testTimeoutInputStreamWaitsForDeadline() throws IOException {
+		// an underlying stream that times out with no bytes every 10 ms
+		InputStream polling = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				return read(new byte[1], 0, 1);
+			}
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					// fall through
+				}
+				throw new InterruptedIOException();
+			}
+		};
+		InputStream in = new TimeoutInputStream(polling, 4, 300, -1);
+		long start = System.currentTimeMillis();
+		try {
+			in.read();
+			fail("Read should time out");
+		} catch (InterruptedIOException e) {
+			assertEquals(0, e.bytesTransferred);
+		}
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue("Timed out after " + elapsed + " ms", elapsed >= 300);
+		in.close();
+	}
+
+	public void testTimeoutOutputStream() throws IOException {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		OutputStream out = new TimeoutOutputStream(bout, 4, 1000, 1000);
+		out.write('T');
+		out.write("he quick brown fox".getBytes());
+		out.flush();
+		assertEquals("The quick brown fox", bout.toString());
+		out.write(" jumped".getBytes());
+		out.close();
+		assertEquals("The quick brown fox jumped", bout.toString());
+		try {
+			out.write('!');
+			fail("Write should fail after close");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private int readRetrying(InputStream in) throws IOException {
+		for (;;) {
+			try {
+				return in.read();
+			} catch (InterruptedIOException e) {
+				// not yet available
+			}
+		}
+	}
+
 	private void assertStreamEquals(InputStream in1, InputStream in2) throws IOException {
 		try {
 			for (;;) {
@@ -41,6 +41,10 @@ public class AllCoreTests extends EclipseTest {
 
 		suite.addTest(AllTestsCVSResources.suite());
 		suite.addTest(AllJschTests.suite());
+		suite.addTest(StreamCompressionTest.suite());
+		suite.addTest(ReadAheadInputStreamTest.suite());
+		suite.addTest(ProtocolMetricsTest.suite());
+		suite.addTest(FileInfoCacheTest.suite());
 		return new TestSetup(suite);
 	}
 }
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core;
+
+import java.util.HashMap;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.team.internal.ccvs.core.CVSProviderPlugin;
+import org.eclipse.team.internal.ccvs.core.CVSTag;
+import org.eclipse.team.internal.ccvs.core.ICVSRemoteResource;
+import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.client.Update;
+import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.filesystem.CVSURI;
+import org.eclipse.team.internal.ccvs.core.filesystem.FileInfoCache;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFile;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFolderTree;
+
+/**
+ * Tests the expiry and the eviction of the folder listings cached for the
+ * CVS file system. The listings are added from trees built locally so no
+ * connection is made.
+ */
+public class FileInfoCacheTest extends EclipseTest {
+
+	private ICVSRepositoryLocation location;
+	private FileInfoCache cache;
+
+	public FileInfoCacheTest() {
+		super();
+	}
+
+	public FileInfoCacheTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(FileInfoCacheTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		location = CVSRepositoryLocation.fromString(":pserver:user@host.here:/root/path");
+		cache = FileInfoCache.getCache();
+		cache.clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		IEclipsePreferences preferences = getPreferences();
+		preferences.remove(CVSProviderPlugin.FILE_SYSTEM_CACHE_TIMEOUT);
+		preferences.remove(CVSProviderPlugin.FILE_SYSTEM_CACHE_SIZE);
+		cache.clear();
+		super.tearDown();
+	}
+
+	public void testCachedListing() {
+		CVSURI module = getURI("module");
+		RemoteFolderTree tree = new RemoteFolderTree(null, location, "module", null);
+		RemoteFolderTree folder = new RemoteFolderTree(tree, "folder", location, "module/folder", null);
+		folder.setChildren(new ICVSRemoteResource[0]);
+		RemoteFile file = new RemoteFile(tree, Update.STATE_NONE, "file.txt", "1.1", null, null);
+		tree.setChildren(new ICVSRemoteResource[] { folder, file });
+		cache.addTree(module, tree, new HashMap<>());
+
+		IFileInfo[] children = cache.getCachedChildren(module);
+		assertNotNull(children);
+		assertEquals(2, children.length);
+		assertEquals("folder", children[0].getName());
+		assertTrue(children[0].isDirectory());
+		assertEquals("file.txt", children[1].getName());
+		assertFalse(children[1].isDirectory());
+		// the listings of the subfolders are cached as well
+		children = cache.getCachedChildren(module.append("folder"));
+		assertNotNull(children);
+		assertEquals(0, children.length);
+		// listings are cached per tag
+		CVSTag branch = new CVSTag("branch", CVSTag.BRANCH);
+		assertNull(cache.getCachedChildren(new CVSURI(location, new Path(null, "module"), branch)));
+	}
+
+	public void testListingExpires() throws InterruptedException {
+		getPreferences().putInt(CVSProviderPlugin.FILE_SYSTEM_CACHE_TIMEOUT, 1);
+		CVSURI module = addFolder("module");
+		assertNotNull(cache.getCachedChildren(module));
+		Thread.sleep(1100);
+		assertNull(cache.getCachedChildren(module));
+		// the expired listing has been dropped
+		getPreferences().putInt(CVSProviderPlugin.FILE_SYSTEM_CACHE_TIMEOUT, 60);
+		assertNull(cache.getCachedChildren(module));
+	}
+
+	public void testNoCachingWithoutTimeout() {
+		getPreferences().putInt(CVSProviderPlugin.FILE_SYSTEM_CACHE_TIMEOUT, 0);
+		CVSURI module = addFolder("module");
+		assertNull(cache.getCachedChildren(module));
+	}
+
+	public void testLeastRecentlyUsedIsEvicted() {
+		getPreferences().putInt(CVSProviderPlugin.FILE_SYSTEM_CACHE_SIZE, 2);
+		CVSURI module1 = addFolder("module1");
+		CVSURI module2 = addFolder("module2");
+		// using the first listing makes the second the least recently used
+		assertNotNull(cache.getCachedChildren(module1));
+		CVSURI module3 = addFolder("module3");
+		assertNotNull(cache.getCachedChildren(module1));
+		assertNull(cache.getCachedChildren(module2));
+		assertNotNull(cache.getCachedChildren(module3));
+	}
+
+	private CVSURI addFolder(String path) {
+		RemoteFolderTree tree = new RemoteFolderTree(null, location, path, null);
+		tree.setChildren(new ICVSRemoteResource[0]);
+		CVSURI uri = getURI(path);
+		cache.addTree(uri, tree, new HashMap<>());
+		return uri;
+	}
+
+	private CVSURI getURI(String path) {
+		return new CVSURI(location, new Path(null, path), null);
+	}
+
+	private IEclipsePreferences getPreferences() {
+		return InstanceScope.INSTANCE.getNode(CVSProviderPlugin.ID);
+	}
+}
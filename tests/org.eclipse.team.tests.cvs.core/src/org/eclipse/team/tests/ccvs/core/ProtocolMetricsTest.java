@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core;
+
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.team.internal.ccvs.core.CVSProtocolStatistics;
+import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.connection.ProtocolMetrics;
+
+/**
+ * Tests the accumulation of the metrics of the communication with CVS servers.
+ */
+public class ProtocolMetricsTest extends EclipseTest {
+
+	private static final long MILLIS = 1000000L;
+
+	private ProtocolMetrics metrics;
+	private ICVSRepositoryLocation location1;
+	private ICVSRepositoryLocation location2;
+
+	public ProtocolMetricsTest() {
+		super();
+	}
+
+	public ProtocolMetricsTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(ProtocolMetricsTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		metrics = ProtocolMetrics.getInstance();
+		metrics.reset();
+		location1 = CVSRepositoryLocation.fromString(":pserver:user:secret@host1:/root/path");
+		location2 = CVSRepositoryLocation.fromString(":pserver:user@host2:/root/path");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		metrics.reset();
+		super.tearDown();
+	}
+
+	public void testHistogramBucket() {
+		assertEquals(0, CVSProtocolStatistics.getHistogramBucket(0));
+		assertEquals(1, CVSProtocolStatistics.getHistogramBucket(1));
+		assertEquals(2, CVSProtocolStatistics.getHistogramBucket(2));
+		assertEquals(2, CVSProtocolStatistics.getHistogramBucket(3));
+		assertEquals(3, CVSProtocolStatistics.getHistogramBucket(4));
+		assertEquals(10, CVSProtocolStatistics.getHistogramBucket(1023));
+		assertEquals(11, CVSProtocolStatistics.getHistogramBucket(1024));
+		// longer durations are counted in the last bucket
+		assertEquals(CVSProtocolStatistics.HISTOGRAM_BUCKETS - 1, CVSProtocolStatistics.getHistogramBucket(1L << 20));
+		assertEquals(CVSProtocolStatistics.HISTOGRAM_BUCKETS - 1, CVSProtocolStatistics.getHistogramBucket(Long.MAX_VALUE));
+	}
+
+	public void testRequestStatistics() {
+		metrics.requestCompleted(location1, "update", 3 * MILLIS, 2 * MILLIS, 100, 1000, 200, 4000, 1, 5);
+		metrics.requestCompleted(location2, "update", 1500 * MILLIS, 500 * MILLIS, 50, 500, 50, 500, 0, 2);
+		metrics.requestCompleted(location1, "co", 10 * MILLIS, 10 * MILLIS, 10, 20, 10, 20, 0, 0);
+
+		Map<String, CVSProtocolStatistics> requests = metrics.getRequestStatistics();
+		assertEquals(2, requests.size());
+		CVSProtocolStatistics update = requests.get("update");
+		assertEquals(2, update.getRequests());
+		assertEquals(1503, update.getRequestTime());
+		assertEquals(502, update.getNetworkTime());
+		assertEquals(1001, update.getHandlerTime());
+		assertEquals(150, update.getBytesSent());
+		assertEquals(1500, update.getBytesReceived());
+		assertEquals(250, update.getUncompressedBytesSent());
+		assertEquals(4500, update.getUncompressedBytesReceived());
+		assertEquals(1, update.getFilesSent());
+		assertEquals(7, update.getFilesReceived());
+		long[] histogram = update.getRequestTimeHistogram();
+		assertEquals(1, histogram[CVSProtocolStatistics.getHistogramBucket(3)]);
+		assertEquals(1, histogram[CVSProtocolStatistics.getHistogramBucket(1500)]);
+		assertEquals(1, requests.get("co").getRequests());
+
+		CVSProtocolStatistics total = metrics.getTotalStatistics();
+		assertEquals(3, total.getRequests());
+		assertEquals(1513, total.getRequestTime());
+		assertEquals(160, total.getBytesSent());
+	}
+
+	public void testLocationStatistics() {
+		metrics.connectionOpened(location1, 5 * MILLIS);
+		metrics.connectionOpened(location1, 7 * MILLIS);
+		metrics.connectionFailed(location2);
+		metrics.requestCompleted(location1, "update", 3 * MILLIS, 2 * MILLIS, 100, 1000, 100, 1000, 0, 1);
+
+		Map<String, CVSProtocolStatistics> locations = metrics.getLocationStatistics();
+		assertEquals(2, locations.size());
+		// the locations are keyed without their password
+		CVSProtocolStatistics statistics1 = locations.get(location1.getLocation(true));
+		assertNotNull(statistics1);
+		assertEquals(-1, location1.getLocation(true).indexOf("secret"));
+		assertEquals(2, statistics1.getConnections());
+		assertEquals(0, statistics1.getFailedConnections());
+		assertEquals(12, statistics1.getConnectionTime());
+		assertEquals(2, statistics1.getConnectionTimeHistogram()[CVSProtocolStatistics.getHistogramBucket(5)]);
+		assertEquals(1, statistics1.getRequests());
+		CVSProtocolStatistics statistics2 = locations.get(location2.getLocation(true));
+		assertEquals(0, statistics2.getConnections());
+		assertEquals(1, statistics2.getFailedConnections());
+		assertEquals(0, statistics2.getRequests());
+
+		CVSProtocolStatistics total = metrics.getTotalStatistics();
+		assertEquals(2, total.getConnections());
+		assertEquals(1, total.getFailedConnections());
+	}
+
+	public void testStatisticsAreSnapshots() {
+		metrics.requestCompleted(location1, "update", 3 * MILLIS, 2 * MILLIS, 100, 1000, 100, 1000, 0, 1);
+		CVSProtocolStatistics before = metrics.getTotalStatistics();
+		metrics.requestCompleted(location1, "update", 3 * MILLIS, 2 * MILLIS, 100, 1000, 100, 1000, 0, 1);
+		assertEquals(1, before.getRequests());
+		assertEquals(1, before.getRequestTimeHistogram()[CVSProtocolStatistics.getHistogramBucket(3)]);
+		assertEquals(2, metrics.getTotalStatistics().getRequests());
+
+		metrics.reset();
+		assertEquals(0, metrics.getTotalStatistics().getRequests());
+		assertTrue(metrics.getLocationStatistics().isEmpty());
+		assertTrue(metrics.getRequestStatistics().isEmpty());
+	}
+}
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.team.internal.ccvs.core.connection.ReadAheadInputStream;
+
+/**
+ * Tests the stream that reads the responses of the server in large chunks.
+ */
+public class ReadAheadInputStreamTest extends EclipseTest {
+
+	/*
+	 * A stream that returns the bytes fed to it, at most maxRead at a time,
+	 * and blocks while there are none. If a poll interval is given, a blocked
+	 * read throws an InterruptedIOException after that interval, as socket
+	 * streams do.
+	 */
+	private static class FeedInputStream extends InputStream {
+		private final long pollInterval;
+		private final int maxRead;
+		private byte[] bytes = new byte[0];
+		private int position;
+		private int reads;
+
+		FeedInputStream(long pollInterval, int maxRead) {
+			this.pollInterval = pollInterval;
+			this.maxRead = maxRead;
+		}
+
+		synchronized void feed(byte[] b) {
+			byte[] grown = new byte[bytes.length + b.length];
+			System.arraycopy(bytes, 0, grown, 0, bytes.length);
+			System.arraycopy(b, 0, grown, bytes.length, b.length);
+			bytes = grown;
+			notifyAll();
+		}
+
+		synchronized int getReads() {
+			return reads;
+		}
+
+		@Override
+		public synchronized int available() {
+			return bytes.length - position;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) throws IOException {
+			reads++;
+			while (position == bytes.length) {
+				try {
+					wait(pollInterval);
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+				if (pollInterval != 0 && position == bytes.length)
+					throw new InterruptedIOException();
+			}
+			int read = Math.min(maxRead, Math.min(len, bytes.length - position));
+			System.arraycopy(bytes, position, b, off, read);
+			position += read;
+			return read;
+		}
+	}
+
+	public ReadAheadInputStreamTest() {
+		super();
+	}
+
+	public ReadAheadInputStreamTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(ReadAheadInputStreamTest.class);
+	}
+
+	public void testReadAndEndOfStream() throws IOException {
+		byte[] contents = new byte[10000];
+		for (int i = 0; i < contents.length; i++) {
+			contents[i] = (byte) i;
+		}
+		ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(contents), 1024);
+		byte[] read = new byte[contents.length];
+		int count = 0;
+		while (count < read.length) {
+			int n = in.read(read, count, Math.min(333, read.length - count));
+			assertTrue(n > 0);
+			count += n;
+		}
+		for (int i = 0; i < contents.length; i++) {
+			assertEquals(contents[i], read[i]);
+		}
+		assertEquals(-1, in.read());
+		assertEquals(-1, in.read(read, 0, read.length));
+	}
+
+	public void testBytesConsumed() throws IOException {
+		FeedInputStream feed = new FeedInputStream(0, Integer.MAX_VALUE);
+		ReadAheadInputStream in = new ReadAheadInputStream(feed, 1024);
+		feed.feed(new byte[100]);
+		assertEquals(0, in.getBytesConsumed());
+		in.read();
+		assertEquals(1, in.getBytesConsumed());
+		byte[] buffer = new byte[10];
+		int count = in.read(buffer, 0, buffer.length);
+		assertEquals(1 + count, in.getBytesConsumed());
+		// the bytes in the buffer do not count until they are read
+		assertEquals(100 - 1 - count, in.available());
+		assertEquals(1 + count, in.getBytesConsumed());
+	}
+
+	public void testReceivedBytesAreTaken() throws IOException {
+		// the underlying stream returns one byte per read
+		FeedInputStream feed = new FeedInputStream(0, 1);
+		ReadAheadInputStream in = new ReadAheadInputStream(feed, 8);
+		feed.feed(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 });
+		assertEquals(1, in.read());
+		// the bytes that were received are taken up to the size of the buffer
+		assertEquals(7, in.available());
+		assertEquals(8, feed.getReads());
+		byte[] buffer = new byte[10];
+		assertEquals(7, in.read(buffer, 0, buffer.length));
+		assertEquals(9, in.read());
+		assertEquals(10, in.read());
+	}
+
+	public void testTimeoutIsReported() throws IOException {
+		FeedInputStream feed = new FeedInputStream(50, Integer.MAX_VALUE);
+		ReadAheadInputStream in = new ReadAheadInputStream(feed, 1024);
+		try {
+			in.read();
+			fail("Read should time out");
+		} catch (InterruptedIOException e) {
+			assertEquals(0, e.bytesTransferred);
+		}
+		// the read can be retried once the server responds
+		feed.feed(new byte[] { 42 });
+		assertEquals(42, in.read());
+	}
+
+	public void testPartialTransferIsKept() throws IOException {
+		InputStream partial = new InputStream() {
+			private boolean timedOut;
+			@Override
+			public int read() throws IOException {
+				return -1;
+			}
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (timedOut)
+					return -1;
+				timedOut = true;
+				b[off] = 1;
+				b[off + 1] = 2;
+				InterruptedIOException e = new InterruptedIOException();
+				e.bytesTransferred = 2;
+				throw e;
+			}
+		};
+		ReadAheadInputStream in = new ReadAheadInputStream(partial, 1024);
+		assertEquals(1, in.read());
+		assertEquals(2, in.read());
+		assertEquals(-1, in.read());
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.team.internal.ccvs.core.connection.ZlibInputStream;
+
+/**
+ * Tests the decompression of a <code>Gzip-stream</code> session and measures
+ * the bytes on the wire saved for typical request traffic.
+ */
+public class StreamCompressionTest extends EclipseTest {
+
+	/*
+	 * A stream that returns the bytes written so far and fails when a read
+	 * would block waiting for bytes that have not been sent yet.
+	 */
+	private static class WireInputStream extends InputStream {
+		private final ByteArrayOutputStream wire;
+		private int position;
+
+		WireInputStream(ByteArrayOutputStream wire) {
+			this.wire = wire;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			byte[] bytes = wire.toByteArray();
+			if (position >= bytes.length)
+				throw new IOException("Read would block");
+			int read = Math.min(len, bytes.length - position);
+			System.arraycopy(bytes, position, b, off, read);
+			position += read;
+			return read;
+		}
+	}
+
+	public StreamCompressionTest() {
+		super();
+	}
+
+	public StreamCompressionTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(StreamCompressionTest.class);
+	}
+
+	public void testReadsDoNotBlock() throws IOException {
+		ByteArrayOutputStream wire = new ByteArrayOutputStream();
+		DeflaterOutputStream out = new DeflaterOutputStream(wire, new Deflater(6), 4096, true);
+		InputStream in = new ZlibInputStream(new WireInputStream(wire));
+		for (int i = 0; i < 100; i++) {
+			String request = "Directory folder" + i + "\n/repo/project/folder" + i + "\n";
+			out.write(request.getBytes("ASCII"));
+			out.flush();
+			// All flushed bytes must be readable without reading ahead
+			byte[] buffer = new byte[request.length()];
+			int read = 0;
+			while (read < buffer.length) {
+				read += in.read(buffer, read, buffer.length - read);
+			}
+			assertEquals(request, new String(buffer, "ASCII"));
+			assertEquals(0, in.available());
+		}
+		in.close();
+	}
+
+	public void testBytesOnWire() throws IOException {
+		String requests = createStatusRequests(2000);
+		byte[] raw = requests.getBytes("ASCII");
+		for (int level = 1; level <= 9; level += 4) {
+			ByteArrayOutputStream wire = new ByteArrayOutputStream();
+			DeflaterOutputStream out = new DeflaterOutputStream(wire, new Deflater(level), 4096, true);
+			// Flush after every folder, as done when sending the requests of a command
+			int start = 0;
+			int next;
+			while ((next = requests.indexOf("Directory ", start + 1)) != -1) {
+				out.write(raw, start, next - start);
+				out.flush();
+				start = next;
+			}
+			out.write(raw, start, raw.length - start);
+			out.flush();
+			int compressed = wire.size();
+			if (CVSTestSetup.DEBUG)
+				System.out.println("Gzip-stream level " + level + ": " + raw.length + " bytes, " + compressed + " on the wire (" + (compressed * 100 / raw.length) + "%)");
+			assertTrue(compressed < raw.length / 4);
+
+			InputStream in = new ZlibInputStream(new WireInputStream(wire));
+			byte[] inflated = new byte[raw.length];
+			int read = 0;
+			while (read < inflated.length) {
+				read += in.read(inflated, read, inflated.length - read);
+			}
+			assertEquals(requests, new String(inflated, "ASCII"));
+			in.close();
+		}
+	}
+
+	/*
+	 * Returns the requests sent for a status of the given number of unchanged
+	 * files, ten per folder.
+	 */
+	private String createStatusRequests(int files) {
+		StringBuilder requests = new StringBuilder();
+		for (int i = 0; i < files; i++) {
+			if (i % 10 == 0) {
+				requests.append("Directory src/org/eclipse/folder").append(i / 10).append('\n');
+				requests.append("/cvsroot/project/src/org/eclipse/folder").append(i / 10).append('\n');
+			}
+			String name = "File" + i + ".java";
+			requests.append("Entry /").append(name).append("/1.").append(i % 37 + 1).append("/Tue Feb 13 10:1").append(i % 10).append(":43 2018//\n");
+			requests.append("Unchanged ").append(name).append('\n');
+		}
+		requests.append("status\n");
+		return requests.toString();
+	}
+}
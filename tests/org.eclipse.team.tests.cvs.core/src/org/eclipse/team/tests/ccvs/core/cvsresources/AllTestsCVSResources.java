@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ public class AllTestsCVSResources extends EclipseTest {
 		suite.addTest(EclipseFolderTest.suite());
 		suite.addTest(ResourceSyncBytesTest.suite());
 		suite.addTest(CVSURITest.suite());
+		suite.addTest(LogEntryStoreTest.suite());
     	return suite; 	
 	}	
 	
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,14 @@
 package org.eclipse.team.tests.ccvs.core.cvsresources;
 
 
+import java.io.File;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import junit.framework.Test;
@@ -44,6 +47,7 @@ import org.eclipse.team.internal.ccvs.core.resources.EclipseSynchronizer;
 import org.eclipse.team.internal.ccvs.core.syncinfo.FolderSyncInfo;
 import org.eclipse.team.internal.ccvs.core.syncinfo.MutableResourceSyncInfo;
 import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
+import org.eclipse.team.internal.ccvs.core.util.EntriesSnapshot;
 import org.eclipse.team.internal.ccvs.core.util.SyncFileWriter;
 import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
 import org.eclipse.team.tests.ccvs.core.EclipseTest;
@@ -577,6 +581,100 @@ public class EclipseSynchronizerTest extends EclipseTest {
 
 	}
 	
+	public void testEntriesSnapshot() throws CoreException, CVSException {
+		IProject project = getUniqueTestProject(getName());
+		IFolder folder = project.getFolder("folder1");
+		folder.create(false, true, null);
+		IFile file = folder.getFile("file1");
+		file.create(getRandomContents(), false, null);
+		SyncFileWriter.writeFolderSync(folder, dummyFolderSync(folder));
+		SyncFileWriter.writeAllResourceSync(folder, new byte[][] { dummyResourceSync(file).getBytes() });
+
+		// reading the meta files records them in the snapshot
+		EntriesSnapshot snapshot = EntriesSnapshot.getInstance();
+		IFolder cvsSubDir = folder.getFolder(SyncFileWriter.CVS_DIRNAME);
+		byte[][] infos = SyncFileWriter.readAllResourceSync(folder);
+		FolderSyncInfo folderInfo = SyncFileWriter.readFolderSync(folder);
+		byte[][] snapshotInfos = snapshot.getResourceSync(folder, EntriesSnapshot.getResourceSyncStamps(cvsSubDir));
+		assertNotNull(snapshotInfos);
+		assertEquals(infos.length, snapshotInfos.length);
+		for (int i = 0; i < infos.length; i++) {
+			assertTrue(Arrays.equals(infos[i], snapshotInfos[i]));
+		}
+		assertEquals(folderInfo, snapshot.getFolderSync(folder, EntriesSnapshot.getFolderSyncStamps(cvsSubDir)));
+
+		// the records are still used after they are saved
+		snapshot.save(project);
+		assertNotNull(snapshot.getResourceSync(folder, EntriesSnapshot.getResourceSyncStamps(cvsSubDir)));
+
+		// the records are loaded from the saved snapshot once they have been dropped from memory
+		snapshot.release(project);
+		snapshotInfos = snapshot.getResourceSync(folder, EntriesSnapshot.getResourceSyncStamps(cvsSubDir));
+		assertNotNull(snapshotInfos);
+		assertEquals(infos.length, snapshotInfos.length);
+		for (int i = 0; i < infos.length; i++) {
+			assertTrue(Arrays.equals(infos[i], snapshotInfos[i]));
+		}
+		assertEquals(folderInfo, snapshot.getFolderSync(folder, EntriesSnapshot.getFolderSyncStamps(cvsSubDir)));
+
+		// a modified meta file is read again
+		SyncFileWriter.writeAllResourceSync(folder, new byte[0][]);
+		assertNull(snapshot.getResourceSync(folder, EntriesSnapshot.getResourceSyncStamps(cvsSubDir)));
+		assertEquals(0, SyncFileWriter.readAllResourceSync(folder).length);
+		assertNotNull(snapshot.getFolderSync(folder, EntriesSnapshot.getFolderSyncStamps(cvsSubDir)));
+
+		// a meta file that is modified outside of the workspace is read again without a refresh
+		File entries = cvsSubDir.getFile(SyncFileWriter.ENTRIES).getLocation().toFile();
+		assertNotNull(snapshot.getResourceSync(folder, EntriesSnapshot.getResourceSyncStamps(cvsSubDir)));
+		entries.setLastModified(entries.lastModified() + 2000);
+		assertNull(snapshot.getResourceSync(folder, EntriesSnapshot.getResourceSyncStamps(cvsSubDir)));
+		assertEquals(0, SyncFileWriter.readAllResourceSync(folder).length);
+		assertNotNull(snapshot.getResourceSync(folder, EntriesSnapshot.getResourceSyncStamps(cvsSubDir)));
+
+		// forgetting the project discards its records
+		snapshot.forget(project);
+		assertNull(snapshot.getFolderSync(folder, EntriesSnapshot.getFolderSyncStamps(cvsSubDir)));
+
+		// the snapshot of a closed project is saved and loaded again when it is reopened
+		SyncFileWriter.readFolderSync(folder);
+		project.close(null);
+		project.open(null);
+		assertEquals(folderInfo, snapshot.getFolderSync(folder, EntriesSnapshot.getFolderSyncStamps(cvsSubDir)));
+	}
+
+	public void testBatchedResourceSync() throws CoreException, CVSException {
+		IProject project = getUniqueTestProject(getName());
+		Map<IContainer, byte[][]> infos = new HashMap<>();
+		// enough folders for the files to be written concurrently
+		for (int i = 0; i < 40; i++) {
+			IFolder folder = project.getFolder("folder" + i);
+			folder.create(false, true, null);
+			IFile file = folder.getFile("file" + i);
+			file.create(getRandomContents(), false, null);
+			SyncFileWriter.writeFolderSync(folder, dummyFolderSync(folder));
+			SyncFileWriter.writeAllResourceSync(folder, new byte[0][]);
+			infos.put(folder, new byte[][] { dummyResourceSync(file).getBytes() });
+		}
+		IFolder logged = project.getFolder("folder0").getFolder(SyncFileWriter.CVS_DIRNAME);
+		logged.getFile(SyncFileWriter.ENTRIES_LOG).create(getRandomContents(), false, null);
+
+		Map<?, ?> failures = SyncFileWriter.writeAllResourceSync(infos, null);
+		assertTrue(failures.isEmpty());
+		assertFalse(logged.getFile(SyncFileWriter.ENTRIES_LOG).exists());
+
+		// the workspace is in sync with the written files, which are read again once the snapshot is gone
+		EntriesSnapshot.getInstance().forget(project);
+		for (Map.Entry<IContainer, byte[][]> entry : infos.entrySet()) {
+			IFolder cvsSubDir = entry.getKey().getFolder(new Path(SyncFileWriter.CVS_DIRNAME));
+			IFile entries = cvsSubDir.getFile(SyncFileWriter.ENTRIES);
+			assertTrue(entries.isSynchronized(IResource.DEPTH_ZERO));
+			assertFalse(cvsSubDir.getFile("Entries.Backup").getLocation().toFile().exists());
+			byte[][] written = SyncFileWriter.readAllResourceSync(entry.getKey());
+			assertEquals(1, written.length);
+			assertTrue(Arrays.equals(entry.getValue()[0], written[0]));
+		}
+	}
+
 	public void testMembers() throws CoreException, CVSException {
 		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
 		IProject project1 = getUniqueTestProject(getName() + "1");
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.cvsresources;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Date;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSTag;
+import org.eclipse.team.internal.ccvs.core.ILogEntry;
+import org.eclipse.team.internal.ccvs.core.client.listeners.LogEntry;
+import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFile;
+import org.eclipse.team.internal.ccvs.core.util.LogEntryStore;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+
+/**
+ * Tests the file format of the log entry store and its compaction.
+ */
+public class LogEntryStoreTest extends EclipseTest {
+
+	private CVSRepositoryLocation location;
+	private File file;
+
+	public LogEntryStoreTest() {
+		super();
+	}
+
+	public LogEntryStoreTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(LogEntryStoreTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		location = CVSRepositoryLocation.fromString(":pserver:user@host.here:/root/path");
+		file = File.createTempFile("logEntryStore", ".log");
+		file.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	public void testHeader() throws IOException {
+		LogEntryStore store = new LogEntryStore(location, file);
+		store.add(createEntry("module/a.txt", "1.1", "first"));
+		store.flush();
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			assertEquals(0x4356534C, in.readInt());
+			assertEquals(1, in.readInt());
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			assertEquals(location.getLocation(false), new String(bytes, "UTF-8"));
+		} finally {
+			in.close();
+		}
+	}
+
+	public void testEntriesAreReadBack() throws CVSException {
+		LogEntryStore store = new LogEntryStore(location, file);
+		CVSTag[] tags = new CVSTag[] { new CVSTag("v1", CVSTag.VERSION), new CVSTag("b1", "1.1.0.2", CVSTag.BRANCH) };
+		ILogEntry entry = new LogEntry(RemoteFile.create("module/a.txt", location), "1.1", "user", new Date(1000),
+				"a comment\nover lines \u00e9", "Exp", tags, new CVSTag[] { new CVSTag("1.1.2", CVSTag.BRANCH) }, new String[] { "1.1.2.1" });
+		store.add(entry);
+		store.add(createEntry("module/a.txt", "1.2", "second"));
+		store.add(createEntry("module/folder/b.txt", "1.1", null));
+		assertEquals(2, store.getLogEntries("module/a.txt").length);
+		store.flush();
+
+		store = new LogEntryStore(location, file);
+		ILogEntry[] entries = store.getLogEntries("module/a.txt");
+		assertEquals(2, entries.length);
+		ILogEntry read = entries[0].getRevision().equals("1.1") ? entries[0] : entries[1];
+		assertEquals("user", read.getAuthor());
+		assertEquals(new Date(1000), read.getDate());
+		assertEquals(entry.getComment(), read.getComment());
+		assertEquals("Exp", read.getState());
+		assertEquals(2, read.getTags().length);
+		assertEquals("v1", read.getTags()[0].getName());
+		assertEquals(CVSTag.VERSION, read.getTags()[0].getType());
+		assertEquals("1.1.0.2", read.getTags()[1].getBranchRevision());
+		assertEquals("1.1.2", read.getBranches()[0].getName());
+		assertEquals("1.1.2.1", ((LogEntry) read).getBranchRevisions()[0]);
+		assertEquals(new Date(2000), store.getLatestDate("module/a.txt"));
+		assertNull(store.getLogEntries("module/folder/b.txt")[0].getComment());
+		assertNull(store.getLogEntries("module/c.txt"));
+		assertNull(store.getLatestDate("module/c.txt"));
+	}
+
+	public void testAppendedEntriesReplaceEarlierOnes() {
+		LogEntryStore store = new LogEntryStore(location, file);
+		store.add(createEntry("module/a.txt", "1.1", "first"));
+		store.flush();
+		long length = file.length();
+		store.add(createEntry("module/a.txt", "1.1", "again"));
+		store.add(createEntry("module/b.txt", "1.1", "other"));
+		store.flush();
+		assertTrue("Records should be appended", file.length() > length);
+
+		store = new LogEntryStore(location, file);
+		assertEquals(1, store.getLogEntries("module/a.txt").length);
+		assertEquals("again", store.getLogEntries("module/a.txt")[0].getComment());
+		assertEquals("other", store.getLogEntries("module/b.txt")[0].getComment());
+	}
+
+	public void testCompaction() {
+		LogEntryStore store = new LogEntryStore(location, file);
+		store.add(createEntry("module/a.txt", "1.1", "comment 0"));
+		store.flush();
+		long length = file.length();
+		for (int i = 1; i < 20; i++) {
+			store.add(createEntry("module/a.txt", "1.1", "comment " + (i % 10)));
+			store.flush();
+			assertEquals("comment " + (i % 10), store.getLogEntries("module/a.txt")[0].getComment());
+		}
+		// the superseded records are dropped when they outnumber the entries
+		assertTrue("The file should be compacted", file.length() < 4 * length);
+
+		store = new LogEntryStore(location, file);
+		ILogEntry[] entries = store.getLogEntries("module/a.txt");
+		assertEquals(1, entries.length);
+		assertEquals("comment 9", entries[0].getComment());
+	}
+
+	public void testTruncatedFile() throws IOException {
+		LogEntryStore store = new LogEntryStore(location, file);
+		store.add(createEntry("module/a.txt", "1.1", "first"));
+		store.flush();
+		long length = file.length();
+		store.add(createEntry("module/b.txt", "1.1", "second"));
+		store.flush();
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.setLength(length + 10);
+		} finally {
+			out.close();
+		}
+
+		store = new LogEntryStore(location, file);
+		assertEquals("first", store.getLogEntries("module/a.txt")[0].getComment());
+		assertNull(store.getLogEntries("module/b.txt"));
+		// the file is rewritten rather than appended to
+		store.add(createEntry("module/c.txt", "1.1", "third"));
+		store.flush();
+		store = new LogEntryStore(location, file);
+		assertEquals("first", store.getLogEntries("module/a.txt")[0].getComment());
+		assertEquals("third", store.getLogEntries("module/c.txt")[0].getComment());
+	}
+
+	public void testFileOfAnotherLocation() throws CVSException {
+		LogEntryStore store = new LogEntryStore(location, file);
+		store.add(createEntry("module/a.txt", "1.1", "first"));
+		store.flush();
+
+		CVSRepositoryLocation other = CVSRepositoryLocation.fromString(":pserver:user@other.host:/root/path");
+		store = new LogEntryStore(other, file);
+		assertNull(store.getLogEntries("module/a.txt"));
+		store.add(new LogEntry(RemoteFile.create("module/a.txt", other), "1.1", "user", new Date(1000), "other", "Exp", new CVSTag[0], new CVSTag[0]));
+		store.flush();
+		store = new LogEntryStore(location, file);
+		assertNull(store.getLogEntries("module/a.txt"));
+	}
+
+	private ILogEntry createEntry(String path, String revision, String comment) {
+		long date = Integer.parseInt(revision.substring(revision.lastIndexOf('.') + 1)) * 1000L;
+		return new LogEntry(RemoteFile.create(path, location), revision, "user", new Date(date), comment, "Exp", new CVSTag[0], new CVSTag[0]);
+	}
+}
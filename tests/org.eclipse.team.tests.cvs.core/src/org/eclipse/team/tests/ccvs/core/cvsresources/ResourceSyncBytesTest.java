@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ import org.eclipse.team.internal.ccvs.core.CVSProviderPlugin;
 import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
 import org.eclipse.team.internal.ccvs.core.client.Session;
 import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
+import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncBytes;
 import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
 import org.eclipse.team.internal.ccvs.core.util.*;
 import org.eclipse.team.internal.ccvs.core.util.CVSDateFormatter;
@@ -89,6 +90,64 @@ public class ResourceSyncBytesTest extends EclipseTest {
 		assertNull(getBytesForSlot(input, -1));
 	}
 
+	public void testSyncBytesView() throws CVSException {
+		ResourceSyncBytes bytes = new ResourceSyncBytes("/file.txt/1.4/Tue Mar  4 19:47:36 2003/-kb/Nbranch".getBytes());
+		assertEquals("file.txt", bytes.getName());
+		assertEquals("1.4", bytes.getRevision());
+		assertEqualBytes("Nbranch", bytes.getSlotBytes(5));
+		assertTrue(bytes.isBinary());
+		assertFalse(bytes.isAddition());
+		assertFalse(bytes.isDeletion());
+		assertFalse(bytes.isMerge());
+		
+		// the view can be reused
+		bytes.reset("/file.txt/-1.4 locked by joe/Result of merge+Thu Mar 20 16:36:56 2003/-ko/Nbranch".getBytes());
+		assertEquals("1.4", bytes.getRevision());
+		assertTrue(bytes.isDeletion());
+		assertTrue(bytes.isMerge());
+		assertTrue(bytes.isMergedWithConflicts());
+		assertFalse(bytes.isBinary());
+		
+		bytes.reset("/file.txt/0/dummy timestamp//".getBytes());
+		assertTrue(bytes.isAddition());
+		assertEqualBytes("", bytes.getSlotBytes(5));
+		
+		// slot 5 includes the rest of the bytes
+		bytes.reset("/a/1.1///x/y".getBytes());
+		assertEquals("x/y", bytes.getSlot(5));
+		
+		// test failure cases
+		bytes.reset("/file.txt/1.4".getBytes());
+		assertEquals("1.4", bytes.getRevision());
+		try {
+			bytes.isBinary();
+			fail();
+		} catch (CVSException e) {
+			// Error expected
+		}
+		try {
+			bytes.reset("/file.txt/".getBytes()).isDeletion();
+			fail();
+		} catch (CVSException e) {
+			// Error expected
+		}
+	}
+	
+	public void testSyncBytesComparison() throws CVSException {
+		ResourceSyncBytes bytes1 = new ResourceSyncBytes("/file.txt/1.4/dummy timestamp//Nb1".getBytes());
+		ResourceSyncBytes bytes2 = new ResourceSyncBytes("/file.txt/-1.4 locked by joe/dummy timestamp//Nb1".getBytes());
+		ResourceSyncBytes bytes3 = new ResourceSyncBytes("/file.txt/1.40/dummy timestamp//Tv1".getBytes());
+		
+		assertTrue(bytes1.revisionEquals(bytes2));
+		assertTrue(bytes2.revisionEquals(bytes1));
+		assertFalse(bytes1.revisionEquals(bytes3));
+		assertTrue(bytes1.tagEquals(bytes2));
+		assertFalse(bytes1.tagEquals(bytes3));
+		
+		assertTrue(ResourceSyncInfo.isSameRevision(bytes1.getBytes(), bytes2.getBytes()));
+		assertFalse(ResourceSyncInfo.isSameRevision(bytes3.getBytes(), bytes2.getBytes()));
+	}
+
 	public void testSendEntry() throws CVSException, ParseException {
 		ICVSRepositoryLocation location = KnownRepositories.getInstance().getRepository(":test:user:password@host:/path");
 		// disable version detemrination to reduce traffic
@@ -100,26 +159,31 @@ public class ResourceSyncBytesTest extends EclipseTest {
 		// test a normal entry line
 		byte[] entryLine = "/plugin.xml/1.27/Tue Mar  4 19:47:36 2003/-ko/".getBytes();
 		session.sendEntry(entryLine, ResourceSyncInfo.getTimestampToServer(entryLine, CVSDateFormatter.entryLineToDate("Tue Mar  4 19:47:36 2003")));
+		session.flush();
 		assertEquals("Entry /plugin.xml/1.27//-ko/", TestConnection.getLastLine());
 		
 		// test a server merged with conflict entry line
 		entryLine = "/newfile.txt/1.10/Result of merge+Thu Mar 20 16:36:56 2003//".getBytes();
 		session.sendEntry(entryLine, ResourceSyncInfo.getTimestampToServer(entryLine, CVSDateFormatter.entryLineToDate("Thu Mar 20 16:36:56 2003")));
+		session.flush();
 		assertEquals("Entry /newfile.txt/1.10/+=//", TestConnection.getLastLine());
 		
 		// test a server merged entry line
 		entryLine = "/newfile.txt/1.10/Result of merge+Thu Mar 20 16:36:56 2003//".getBytes();
 		session.sendEntry(entryLine, ResourceSyncInfo.getTimestampToServer(entryLine, CVSDateFormatter.entryLineToDate("Thu Mar 20 16:37:56 2003")));
+		session.flush();
 		assertEquals("Entry /newfile.txt/1.10/+modified//", TestConnection.getLastLine());
 		
 		// test added entry line
 		entryLine = "/plugin.xml/0/dummy timestamp/-ko/".getBytes();
 		session.sendEntry(entryLine, ResourceSyncInfo.getTimestampToServer(entryLine, CVSDateFormatter.entryLineToDate("Tue Mar  4 19:47:36 2003")));
+		session.flush();
 		assertEquals("Entry /plugin.xml/0//-ko/", TestConnection.getLastLine());
 		
 		// test empty timestamp entry line
 		entryLine = "/plugin.xml/1.1//-ko/".getBytes();
 		session.sendEntry(entryLine, ResourceSyncInfo.getTimestampToServer(entryLine, CVSDateFormatter.entryLineToDate("Tue Mar  4 19:47:36 2003")));
+		session.flush();
 		assertEquals("Entry /plugin.xml/1.1//-ko/", TestConnection.getLastLine());
 		
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,9 +16,11 @@ import junit.framework.TestSuite;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSTag;
 import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
 import org.eclipse.team.internal.ccvs.core.syncinfo.FolderSyncInfo;
 import org.eclipse.team.internal.ccvs.core.syncinfo.ResourceSyncInfo;
+import org.eclipse.team.internal.ccvs.core.util.EntriesParser;
 import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
 import org.eclipse.team.tests.ccvs.core.EclipseTest;
 
@@ -179,6 +181,70 @@ public class ResourceSyncInfoTest extends EclipseTest {
 		assertTrue( ! ResourceSyncInfo.isLaterRevisionOnSameBranch(syncInfo5.getBytes(), syncInfo5.getBytes()));
 	}
 	
+	public void testSharedTagsAndRevisions() throws CVSException {
+		ResourceSyncInfo info1 = new ResourceSyncInfo(new String("/file1.txt/1.2.2.1/Thu Sep 27 10:11:12 2018//Tbranch"), null);
+		ResourceSyncInfo info2 = new ResourceSyncInfo(new String("/file2.txt/1.2.2.1/Thu Sep 27 10:11:12 2018//Tbranch"), null);
+		assertSame(info1.getRevision(), info2.getRevision());
+		assertSame(info1.getTag(), info2.getTag());
+		
+		ResourceSyncInfo info3 = new ResourceSyncInfo(new String("/file3.txt/1.2.2.1/Thu Sep 27 10:11:12 2018//Nbranch"), null);
+		assertNotSame(info1.getTag(), info3.getTag());
+	}
+	
+	public void testCanonicalTags() {
+		CVSTag tag1 = CVSTag.intern(new CVSTag(new String("v1"), "1", CVSTag.VERSION));
+		CVSTag tag2 = CVSTag.intern(new CVSTag(new String("v1"), "1", CVSTag.VERSION));
+		assertSame(tag1, tag2);
+		
+		// Equal tags with other branch revisions are not shared
+		CVSTag tag3 = CVSTag.intern(new CVSTag(new String("v1"), "1.2.0.2", CVSTag.VERSION));
+		assertEquals(tag1, tag3);
+		assertNotSame(tag1, tag3);
+		assertEquals("1.2.0.2", tag3.getBranchRevision());
+		
+		CVSTag tag4 = CVSTag.intern(new CVSTag(new String("v1"), "1", CVSTag.BRANCH));
+		assertNotSame(tag1, tag4);
+		assertNull(CVSTag.intern(null));
+	}
+	
+	public void testEntriesParser() throws CVSException {
+		String[] lines = new String[] {
+			"/b.txt/1.2/Thu Sep 27 10:11:12 2018//Tbranch",
+			"D/folder////",
+			"D",
+			"",
+			// lines that are normalized when written
+			"/a.txt/1.1/Thu Sep  7 10:11:12 2018/-kkv/Nv1",
+			"/added.txt/0/Initial added.txt//",
+			"/merged.txt/1.3/Result of merge+Thu Sep 27 10:11:12 2018/-kb/",
+			"/restored.txt/1.3/Thu Sep 07 10:11:12 2018//",
+			"/weekday.txt/1.3/Mon Sep 27 10:11:12 2018//",
+			"/b.txt/1.4/dummy timestamp//",
+		};
+		StringBuffer entries = new StringBuffer();
+		for (int i = 0; i < lines.length; i++) {
+			entries.append(lines[i]).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		String log = "A /c.txt/1.1/dummy timestamp//\nR /a.txt/1.1///\nA D/folder2////\n";
+		byte[][] infos = EntriesParser.parse(entries.toString().getBytes(), log.getBytes(), "/project/folder");
+		
+		// the sync bytes are sorted by name and the same as if each line had been read by ResourceSyncInfo
+		String[] expected = new String[] {
+			"/added.txt/0/Initial added.txt//",
+			"/b.txt/1.4/dummy timestamp//",
+			"/c.txt/1.1/dummy timestamp//",
+			"D/folder////",
+			"D/folder2////",
+			"/merged.txt/1.3/Result of merge+Thu Sep 27 10:11:12 2018/-kb/",
+			"/restored.txt/1.3/Thu Sep 07 10:11:12 2018//",
+			"/weekday.txt/1.3/Mon Sep 27 10:11:12 2018//",
+		};
+		assertEquals(expected.length, infos.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(new String(new ResourceSyncInfo(expected[i], null).getBytes()), new String(infos[i]));
+		}
+	}
+	
 	public void testRepositoryLocationFormats() throws CVSException {
 	    assertPathCorrect(CVSRepositoryLocation.fromString(":pserver:user@host:/home/path"), "/home/path");
 	    assertPathCorrect(CVSRepositoryLocation.fromString(":pserver:user:password@host:/home/path"), "/home/path");
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011 IBM Corporation and others.
+ * Copyright (c) 2011, 2018 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,6 +28,7 @@ public class AllJschTests extends EclipseTest {
 	public static Test suite() {
 		TestSuite suite = new TestSuite();
 		suite.addTest(PreferenceInitializerTest.suite());
+		suite.addTest(JSchSessionTest.suite());
 		return suite;
 	}
 }
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.jsch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.ssh2.JSchSession;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+
+/**
+ * Tests the reference counting and the eviction of the pooled SSH sessions.
+ * The sessions are never connected.
+ */
+public class JSchSessionTest extends EclipseTest {
+
+	private ICVSRepositoryLocation location1;
+	private ICVSRepositoryLocation location2;
+	private final List<JSchSession> sessions = new ArrayList<>();
+
+	public JSchSessionTest() {
+		super();
+	}
+
+	public JSchSessionTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(JSchSessionTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		location1 = CVSRepositoryLocation.fromString(":extssh:user@host1.here:/root/path");
+		location2 = CVSRepositoryLocation.fromString(":extssh:user@host2.here:/root/path");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (JSchSession session : sessions) {
+			session.dispose();
+		}
+		super.tearDown();
+	}
+
+	public void testReferenceCounting() throws JSchException {
+		JSchSession session = addSession(location1);
+		assertFalse(session.isUsed());
+		session.acquire();
+		session.acquire();
+		assertTrue(session.isUsed());
+		session.release();
+		assertTrue(session.isUsed());
+		session.release();
+		assertFalse(session.isUsed());
+		// releasing a session that is not used does not hide the next use
+		session.release();
+		session.acquire();
+		assertTrue(session.isUsed());
+	}
+
+	public void testIdleSessionsAreEvicted() throws JSchException, InterruptedException {
+		JSchSession used = addSession(location1);
+		used.acquire();
+		JSchSession idle = addSession(location2);
+		JSchSession.evictIdleSessions(60000);
+		assertSame(used, JSchSession.getPooledSession(location1));
+		assertSame(idle, JSchSession.getPooledSession(location2));
+
+		Thread.sleep(50);
+		JSchSession.evictIdleSessions(10);
+		assertSame(used, JSchSession.getPooledSession(location1));
+		assertNull(JSchSession.getPooledSession(location2));
+
+		// the idle time starts when the session is released
+		used.release();
+		JSchSession.evictIdleSessions(10000);
+		assertSame(used, JSchSession.getPooledSession(location1));
+		Thread.sleep(50);
+		JSchSession.evictIdleSessions(10);
+		assertNull(JSchSession.getPooledSession(location1));
+	}
+
+	public void testNoEvictionWithoutTimeout() throws JSchException, InterruptedException {
+		JSchSession session = addSession(location1);
+		Thread.sleep(50);
+		JSchSession.evictIdleSessions(0);
+		assertSame(session, JSchSession.getPooledSession(location1));
+	}
+
+	public void testDisposeKeepsReplacement() throws JSchException {
+		JSchSession first = addSession(location1);
+		// a session that is not connected is replaced
+		JSchSession second = addSession(location1);
+		assertNotSame(first, second);
+		assertSame(second, JSchSession.getPooledSession(location1));
+		first.dispose();
+		assertSame(second, JSchSession.getPooledSession(location1));
+		second.dispose();
+		assertNull(JSchSession.getPooledSession(location1));
+	}
+
+	private JSchSession addSession(ICVSRepositoryLocation location) throws JSchException {
+		JSchSession session = JSchSession.addSession(location, new JSch().getSession(location.getUsername(), location.getHost(), 22));
+		sessions.add(session);
+		return session;
+	}
+}
@@ -27,6 +27,7 @@ import org.eclipse.team.core.TeamException;
 import org.eclipse.team.core.variants.CachedResourceVariant;
 import org.eclipse.team.core.variants.IResourceVariant;
 import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSProviderPlugin;
 import org.eclipse.team.internal.ccvs.core.CVSTag;
 import org.eclipse.team.internal.ccvs.core.ICVSFolder;
 import org.eclipse.team.internal.ccvs.core.ICVSRemoteFile;
@@ -143,7 +144,40 @@ public class RemoteResourceTest extends EclipseTest {
 	
 	/**
 	 * RemoteFolderTreeBuilder test
-	 * 
+	 *
+	 * Add nested folders and change files remotely and build the remote tree
+	 * over several connections at once.
+	 */
+	public void testConcurrentBuild() throws TeamException, CoreException, IOException {
+		int connections = CVSProviderPlugin.getPlugin().getMaximumConnections();
+		try {
+			CVSProviderPlugin.getPlugin().setMaximumConnections(3);
+
+			// Create a test project
+			IProject project = createProject("testConcurrentBuild", new String[] { "file1.txt", "file2.txt", "file3.txt", "folder1/", "folder1/a.txt", "folder1/b.txt", "folder1/c.txt", "folder2/", "folder2/d.txt"});
+
+			// Checkout and modify a copy
+			IProject copy = checkoutCopy(project, "-copy");
+			setContentsAndEnsureModified(copy.getFile("file1.txt"));
+			setContentsAndEnsureModified(copy.getFile("file3.txt"));
+			setContentsAndEnsureModified(copy.getFile("folder1/a.txt"));
+			setContentsAndEnsureModified(copy.getFile("folder1/c.txt"));
+			setContentsAndEnsureModified(copy.getFile("folder2/d.txt"));
+			addResources(copy, new String[] { "folder3/e.txt", "folder3/folder4/f.txt", "folder3/folder5/g.txt", "folder6/h.txt", "folder1/folder7/i.txt" }, false);
+			deleteResources(new IResource[] {copy.getFile("folder1/b.txt")});
+			commitResources(new IResource[] {copy}, IResource.DEPTH_INFINITE);
+
+			// Build the remote tree from the project
+			RemoteFolderTree tree = RemoteFolderTreeBuilder.buildRemoteTree(getRepository(), project, CVSTag.DEFAULT, DEFAULT_MONITOR);
+			assertRemoteMatchesLocal("testConcurrentBuild", tree, copy);
+		} finally {
+			CVSProviderPlugin.getPlugin().setMaximumConnections(connections);
+		}
+	}
+
+	/**
+	 * RemoteFolderTreeBuilder test
+	 *
 	 * Add a nested folder structure remotely and build the remote tree
 	 * from a child
 	 */
@@ -413,4 +413,120 @@ public class RepositoryRootTest extends EclipseTest {
 		assertEquals(1, allTags.length);
 		assertEquals(dateTag, allTags[0]);
 	}
+
+	private void assertChildren(String remotePath, CVSTag tag, String[] expected) {
+		List children = Arrays.asList(repositoryRoot.getRemoteChildrenForTag(
+				remotePath, tag));
+		assertEquals("Unexpected children of " + remotePath + " for "
+				+ tag.getName() + ": " + children, expected.length,
+				children.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertTrue("Missing child " + expected[i],
+					children.contains(expected[i]));
+		}
+	}
+
+	public void testAddAndRemoveTags() {
+		String module = "Module_" + System.currentTimeMillis();
+		CVSTag branch = new CVSTag("Branch_" + module, CVSTag.BRANCH);
+		CVSTag version = new CVSTag("Root_" + branch.getName(), CVSTag.VERSION);
+		repositoryRoot.addTags(module + "/project1", new CVSTag[] { branch,
+				version });
+		repositoryRoot.addTags(module + "/project2/folder",
+				new CVSTag[] { branch });
+
+		List knownTags = Arrays.asList(repositoryRoot.getAllKnownTags());
+		assertTags(knownTags, new CVSTag[] { branch, version }, new CVSTag[0]);
+		assertChildren(null, branch, new String[] { module });
+		assertChildren(module, branch, new String[] { module + "/project1",
+				module + "/project2" });
+		assertChildren(module, version, new String[] { module + "/project1" });
+		assertChildren(module + "/project2", branch,
+				new String[] { module + "/project2/folder" });
+		assertChildren(module + "/project2", version, new String[0]);
+
+		repositoryRoot.removeTags(module + "/project1", new CVSTag[] {
+				branch, version });
+		knownTags = Arrays.asList(repositoryRoot.getAllKnownTags());
+		assertTags(knownTags, new CVSTag[] { branch }, new CVSTag[] { version });
+		assertChildren(module, branch, new String[] { module + "/project2" });
+		assertChildren(null, version, new String[0]);
+
+		repositoryRoot.removeTags(module + "/project2/folder",
+				new CVSTag[] { branch });
+		assertEquals(0, repositoryRoot.getAllKnownTags().length);
+		assertChildren(null, branch, new String[0]);
+	}
+
+	public void testTagsMovedToParent() {
+		String module = "Module_" + System.currentTimeMillis();
+		CVSTag branch = new CVSTag("Branch_" + module, CVSTag.BRANCH);
+		repositoryRoot.addTags(module + "/project1", new CVSTag[] { branch });
+		repositoryRoot.addTags(module + "/project2", new CVSTag[] { branch });
+		assertChildren(module, branch, new String[] { module + "/project1",
+				module + "/project2" });
+		// a tag of the parent is no longer held by its children
+		repositoryRoot.addTags(module, new CVSTag[] { branch });
+		assertChildren(null, branch, new String[] { module });
+		assertChildren(module, branch, new String[0]);
+		List knownTags = Arrays.asList(repositoryRoot
+				.getAllKnownTags(module + "/project1"));
+		assertTags(knownTags, new CVSTag[] { branch }, new CVSTag[0]);
+		// removing the tag from a child removes it from the parent holding it
+		repositoryRoot.removeTags(module + "/project1", new CVSTag[] { branch });
+		knownTags = Arrays.asList(repositoryRoot.getAllKnownTags());
+		assertTags(knownTags, new CVSTag[0], new CVSTag[] { branch });
+		assertChildren(null, branch, new String[0]);
+	}
+
+	public void testRemoteChildrenMatchWholeSegments() {
+		String module = "Module_" + System.currentTimeMillis();
+		CVSTag branch = new CVSTag("Branch_" + module, CVSTag.BRANCH);
+		repositoryRoot.addTags(module + "/project", new CVSTag[] { branch });
+		repositoryRoot.addTags(module + "Other/project",
+				new CVSTag[] { branch });
+		assertChildren(null, branch, new String[] { module, module + "Other" });
+		// the path of a module is not a prefix of the paths of other modules
+		// that start with the same characters
+		assertChildren(module, branch, new String[] { module + "/project" });
+		assertChildren(module + "/pro", branch, new String[0]);
+	}
+
+	public void testTagIndexInvalidation() {
+		String module = "Module_" + System.currentTimeMillis();
+		CVSTag branch1 = new CVSTag("Branch_1_" + module, CVSTag.BRANCH);
+		CVSTag branch2 = new CVSTag("Branch_2_" + module, CVSTag.BRANCH);
+		repositoryRoot.addTags(module + "/project1", new CVSTag[] { branch1 });
+		// build the index
+		assertEquals(1, repositoryRoot.getAllKnownTags().length);
+		assertChildren(module, branch1, new String[] { module + "/project1" });
+
+		// the index reflects the tags added after it was built
+		repositoryRoot.addTags(module + "/project2", new CVSTag[] { branch1,
+				branch2 });
+		List knownTags = Arrays.asList(repositoryRoot.getAllKnownTags());
+		assertTags(knownTags, new CVSTag[] { branch1, branch2 }, new CVSTag[0]);
+		assertChildren(module, branch1, new String[] { module + "/project1",
+				module + "/project2" });
+		assertChildren(module, branch2, new String[] { module + "/project2" });
+
+		// and the tags removed after it was built
+		repositoryRoot.removeTags(module + "/project2",
+				new CVSTag[] { branch2 });
+		knownTags = Arrays.asList(repositoryRoot.getAllKnownTags());
+		assertTags(knownTags, new CVSTag[] { branch1 }, new CVSTag[] { branch2 });
+		assertChildren(module, branch2, new String[0]);
+
+		// date tags are not part of the index
+		CVSTag dateTag = new CVSTag(new Date());
+		repositoryRoot.addDateTag(dateTag);
+		try {
+			knownTags = Arrays.asList(repositoryRoot.getAllKnownTags());
+			assertTags(knownTags, new CVSTag[] { branch1, dateTag },
+					new CVSTag[] { branch2 });
+			assertChildren(null, dateTag, new String[0]);
+		} finally {
+			repositoryRoot.removeDateTag(dateTag);
+		}
+	}
 }
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.server;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * A CVS pserver that runs in the test process and serves a
+ * {@link SyntheticRepository}. It allows the client to be exercised and
+ * measured without a real CVS server.
+ * <p>
+ * The server accepts any user and password and implements the subset of
+ * the protocol used by the client to check out, update, get the status and
+ * get the log of resources: the requests that describe the local state
+ * (<code>Directory</code>, <code>Entry</code>, <code>Modified</code>,
+ * <code>Unchanged</code>, <code>Questionable</code>, ...) and the
+ * <code>valid-requests</code>, <code>version</code>, <code>noop</code>,
+ * <code>expand-modules</code>, <code>co</code>, <code>update</code>,
+ * <code>status</code>, <code>log</code> and <code>rlog</code> commands.
+ * Files modified on both sides are reported as conflicts rather than merged
+ * and tags and branches are not supported.
+ * </p><p>
+ * A latency can be set to simulate a remote server. The server waits for
+ * the latency before answering each request that has a response, which
+ * makes the cost of each round trip visible in measurements.
+ * </p>
+ */
+public class FakeCVSServer {
+
+	public static final String USER = "fake";
+	public static final String PASSWORD = "fake";
+
+	private final SyntheticRepository repository;
+	private final ServerStatistics statistics = new ServerStatistics();
+	private volatile long latency;
+	private ServerSocket serverSocket;
+	private Thread acceptThread;
+
+	/**
+	 * Counts the bytes read from the client.
+	 */
+	private class CountingInputStream extends FilterInputStream {
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) statistics.received(1);
+			return b;
+		}
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count = super.read(b, off, len);
+			if (count > 0) statistics.received(count);
+			return count;
+		}
+	}
+
+	/**
+	 * Counts the bytes written to the client.
+	 */
+	private class CountingOutputStream extends FilterOutputStream {
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			statistics.sent(1);
+		}
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			statistics.sent(len);
+		}
+	}
+
+	/**
+	 * Create a server for the given repository. The server must be started
+	 * before it accepts connections.
+	 * @param repository the repository served
+	 */
+	public FakeCVSServer(SyntheticRepository repository) {
+		this.repository = repository;
+	}
+
+	/**
+	 * Start accepting connections on a free port of the loopback interface.
+	 * @throws IOException if the server socket cannot be opened
+	 */
+	public synchronized void start() throws IOException {
+		if (serverSocket != null) return;
+		serverSocket = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+		acceptThread = new Thread("Fake CVS server") {
+			@Override
+			public void run() {
+				acceptConnections();
+			}
+		};
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	/**
+	 * Stop accepting connections. Sessions in progress end when their
+	 * client closes the connection.
+	 */
+	public synchronized void stop() {
+		if (serverSocket == null) return;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// Ignore since the server is stopping
+		}
+		serverSocket = null;
+		acceptThread = null;
+	}
+
+	private void acceptConnections() {
+		ServerSocket socket = serverSocket;
+		while (socket != null && !socket.isClosed()) {
+			try {
+				final Socket client = socket.accept();
+				client.setTcpNoDelay(true);
+				statistics.connectionOpened();
+				Thread thread = new Thread("Fake CVS server session") {
+					@Override
+					public void run() {
+						serve(client);
+					}
+				};
+				thread.setDaemon(true);
+				thread.start();
+			} catch (SocketException e) {
+				// The server socket was closed
+				return;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void serve(Socket client) {
+		try {
+			try {
+				ServerSession session = new ServerSession(this,
+						new CountingInputStream(client.getInputStream()),
+						new CountingOutputStream(client.getOutputStream()));
+				session.run();
+			} finally {
+				client.close();
+			}
+		} catch (IOException e) {
+			// The client closed the connection
+		}
+	}
+
+	/**
+	 * Return the port the server listens to.
+	 * @return the port
+	 */
+	public synchronized int getPort() {
+		if (serverSocket == null) throw new IllegalStateException("The server is not started");
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Return the location of the repository served, suitable for
+	 * creating a repository location.
+	 * @return the repository location string
+	 */
+	public String getLocation() {
+		return ":pserver:" + USER + ":" + PASSWORD + "@localhost#" + getPort() + ":" + repository.getRoot();
+	}
+
+	public SyntheticRepository getRepository() {
+		return repository;
+	}
+
+	public ServerStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Set the time the server waits before answering each request that has
+	 * a response.
+	 * @param latency the latency in milliseconds
+	 */
+	public void setLatency(long latency) {
+		this.latency = latency;
+	}
+
+	public long getLatency() {
+		return latency;
+	}
+}
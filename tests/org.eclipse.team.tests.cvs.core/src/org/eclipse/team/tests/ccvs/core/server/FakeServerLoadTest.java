@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.server;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.team.core.TeamException;
+import org.eclipse.team.internal.ccvs.core.ICVSFile;
+import org.eclipse.team.internal.ccvs.core.ICVSRemoteFile;
+import org.eclipse.team.internal.ccvs.core.ICVSRemoteFolder;
+import org.eclipse.team.internal.ccvs.core.ICVSRemoteResource;
+import org.eclipse.team.internal.ccvs.core.ILogEntry;
+import org.eclipse.team.internal.ccvs.core.filesystem.RemoteLogger;
+import org.eclipse.team.internal.ccvs.core.resources.CVSWorkspaceRoot;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFolderTree;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+
+/**
+ * Measures the client operations against a {@link FakeCVSServer}. Each test
+ * repeats an operation and prints the number of operations per second and
+ * the round trips and bytes exchanged per operation, so that changes to the
+ * client can be compared without a real server. The size of the repository
+ * and the latency of the server are set by the following system properties:
+ * <ul>
+ * <li><code>eclipse.cvs.fakeServer.depth</code>: the levels of folders below the module (default 2)</li>
+ * <li><code>eclipse.cvs.fakeServer.folders</code>: the subfolders of each folder (default 3)</li>
+ * <li><code>eclipse.cvs.fakeServer.files</code>: the files of each folder (default 10)</li>
+ * <li><code>eclipse.cvs.fakeServer.revisions</code>: the revisions of each file (default 5)</li>
+ * <li><code>eclipse.cvs.fakeServer.fileSize</code>: the size of the files in bytes (default 2000)</li>
+ * <li><code>eclipse.cvs.fakeServer.latency</code>: the latency of each round trip in milliseconds (default 0)</li>
+ * <li><code>eclipse.cvs.fakeServer.loopCount</code>: the number of times each operation is repeated (default 5)</li>
+ * </ul>
+ * The test is not part of {@link org.eclipse.team.tests.ccvs.core.AllTests}
+ * and must be run on its own.
+ */
+public class FakeServerLoadTest extends EclipseTest {
+
+	private static final String MODULE = "loadtest";
+
+	private static final int DEPTH = Integer.getInteger("eclipse.cvs.fakeServer.depth", 2).intValue();
+	private static final int FOLDERS = Integer.getInteger("eclipse.cvs.fakeServer.folders", 3).intValue();
+	private static final int FILES = Integer.getInteger("eclipse.cvs.fakeServer.files", 10).intValue();
+	private static final int REVISIONS = Integer.getInteger("eclipse.cvs.fakeServer.revisions", 5).intValue();
+	private static final int FILE_SIZE = Integer.getInteger("eclipse.cvs.fakeServer.fileSize", 2000).intValue();
+	private static final int LATENCY = Integer.getInteger("eclipse.cvs.fakeServer.latency", 0).intValue();
+	private static final int LOOP_COUNT = Integer.getInteger("eclipse.cvs.fakeServer.loopCount", 5).intValue();
+
+	public FakeServerLoadTest() {
+		super();
+	}
+
+	public FakeServerLoadTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		SyntheticRepository repository = SyntheticRepository.create("/fake", MODULE, DEPTH, FOLDERS, FILES, REVISIONS, FILE_SIZE);
+		return new FakeServerTestSetup(new TestSuite(FakeServerLoadTest.class), repository);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		getServer().setLatency(LATENCY);
+	}
+
+	private FakeCVSServer getServer() {
+		return FakeServerTestSetup.getServer();
+	}
+
+	private SyntheticRepository getSyntheticRepository() {
+		return getServer().getRepository();
+	}
+
+	private IProject checkoutModule() throws TeamException {
+		return checkoutProject(getWorkspace().getRoot().getProject(MODULE + "-" + System.currentTimeMillis()), MODULE, null);
+	}
+
+	/*
+	 * Start measuring an operation.
+	 */
+	private long start() {
+		getServer().getStatistics().reset();
+		return System.nanoTime();
+	}
+
+	/*
+	 * Print the measurements of an operation repeated the given number of times.
+	 */
+	private void report(String operation, long start, int count) {
+		long elapsed = System.nanoTime() - start;
+		ServerStatistics statistics = getServer().getStatistics();
+		System.out.println(operation + ": " + count * 1000000000L / Math.max(elapsed, 1) + " ops/s, "
+				+ statistics.getRoundTrips() / count + " round trips/op, "
+				+ statistics.getBytesReceived() / count + " bytes received/op, "
+				+ statistics.getBytesSent() / count + " bytes sent/op, "
+				+ statistics.getConnections() / count + " connections/op");
+	}
+
+	public void testCheckout() throws TeamException {
+		long start = start();
+		for (int i = 0; i < LOOP_COUNT; i++) {
+			IProject project = checkoutModule();
+			assertTrue(project.getFile("file0.txt").exists());
+		}
+		report("checkout", start, LOOP_COUNT);
+	}
+
+	public void testUpdate() throws TeamException {
+		IProject project = checkoutModule();
+		String path = MODULE + "/folder0/file0.txt";
+		long start = start();
+		for (int i = 0; i < LOOP_COUNT; i++) {
+			String revision = getSyntheticRepository().commit(path).getNumber();
+			updateProject(project, null, false);
+			IFile file = project.getFile("folder0/file0.txt");
+			ICVSFile cvsFile = CVSWorkspaceRoot.getCVSFileFor(file);
+			assertEquals(revision, cvsFile.getSyncInfo().getRevision());
+		}
+		report("update", start, LOOP_COUNT);
+	}
+
+	public void testRemoteTree() throws TeamException {
+		IProject project = checkoutModule();
+		long start = start();
+		for (int i = 0; i < LOOP_COUNT; i++) {
+			ICVSRemoteResource tree = getRemoteTree(project, null, DEFAULT_MONITOR);
+			assertNotNull(tree);
+		}
+		report("remote tree", start, LOOP_COUNT);
+	}
+
+	public void testLog() throws TeamException {
+		IProject project = checkoutModule();
+		ICVSRemoteFile remote = (ICVSRemoteFile) CVSWorkspaceRoot.getRemoteResourceFor(project.getFile("file0.txt"));
+		long start = start();
+		for (int i = 0; i < LOOP_COUNT; i++) {
+			ILogEntry[] entries = remote.getLogEntries(DEFAULT_MONITOR);
+			assertTrue(entries.length >= REVISIONS);
+		}
+		report("log", start, LOOP_COUNT);
+	}
+
+	public void testRemoteLog() throws TeamException {
+		ICVSRemoteFolder folder = getRepository().getRemoteFolder(MODULE, null);
+		long start = start();
+		for (int i = 0; i < LOOP_COUNT; i++) {
+			RemoteFolderTree tree = new RemoteLogger(folder).fetchTree(DEFAULT_MONITOR);
+			assertTrue(tree.getChildren().length > 0);
+		}
+		report("rlog", start, LOOP_COUNT);
+	}
+}
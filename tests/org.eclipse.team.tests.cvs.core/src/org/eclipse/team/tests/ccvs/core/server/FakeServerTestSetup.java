@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.server;
+
+import java.io.IOException;
+
+import junit.framework.Test;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSStatus;
+import org.eclipse.team.internal.ccvs.core.util.KnownRepositories;
+import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
+
+/**
+ * Runs the tests against a {@link FakeCVSServer} instead of the repository
+ * given by the <code>eclipse.cvs.repository</code> property. The server
+ * is started before the tests and stopped after them.
+ */
+public class FakeServerTestSetup extends CVSTestSetup {
+
+	private static FakeCVSServer server;
+
+	private final SyntheticRepository synthetic;
+
+	public FakeServerTestSetup(Test test, SyntheticRepository repository) {
+		super(test);
+		this.synthetic = repository;
+	}
+
+	/**
+	 * Return the server the tests run against.
+	 * @return the server
+	 */
+	public static FakeCVSServer getServer() {
+		return server;
+	}
+
+	@Override
+	public void setUp() throws CoreException {
+		server = new FakeCVSServer(synthetic);
+		try {
+			server.start();
+		} catch (IOException e) {
+			throw new CVSException(new CVSStatus(IStatus.ERROR, "The fake CVS server could not be started.", e));
+		}
+		repository = setupRepository(server.getLocation());
+		super.setUp();
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		if (repository != null) {
+			KnownRepositories.getInstance().disposeRepository(repository);
+			repository = null;
+		}
+		if (server != null) {
+			server.stop();
+			server = null;
+		}
+		super.tearDown();
+	}
+}
@@ -0,0 +1,939 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.team.tests.ccvs.core.server.SyntheticRepository.File;
+import org.eclipse.team.tests.ccvs.core.server.SyntheticRepository.Folder;
+import org.eclipse.team.tests.ccvs.core.server.SyntheticRepository.Revision;
+
+/**
+ * A connection to the {@link FakeCVSServer}. The session authenticates the
+ * client and then reads the requests it sends. The requests that describe
+ * the local state are accumulated until a command is received, the command
+ * is answered from the repository and the state is cleared for the next
+ * command, as the CVS server does.
+ */
+class ServerSession {
+
+	private static final String VALID_REQUESTS = "Root Valid-responses valid-requests Directory Max-dotdot "
+			+ "Static-directory Sticky Entry Kopt Checkin-time Modified Is-modified UseUnchanged Unchanged "
+			+ "Notify Questionable Case Argument Argumentx Global_option Set expand-modules co update "
+			+ "status log rlog noop version";
+
+	private static final String LOG_SEPARATOR = "=============================================================================";
+	private static final String REVISION_SEPARATOR = "----------------------------";
+	private static final String STATUS_SEPARATOR = "===================================================================";
+
+	private static final String[] DATE_FORMATS = { "dd MMM yyyy HH:mm:ss Z", "EEE MMM dd HH:mm:ss zzz yyyy", "yyyy/MM/dd HH:mm:ss" };
+
+	private final FakeCVSServer server;
+	private final SyntheticRepository repository;
+	private final ServerStatistics statistics;
+	private final InputStream in;
+	private final OutputStream out;
+	private final SimpleDateFormat logDateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss", Locale.US);
+	private String validResponses = "";
+
+	// The state sent by the client for the next command
+	private final List<String> arguments = new ArrayList<>();
+	private final Set<String> globalOptions = new HashSet<>();
+	private final Map<String, String> directories = new HashMap<>();
+	private final Map<String, SortedSet<String>> subdirectories = new HashMap<>();
+	private final Map<String, Map<String, String>> entries = new HashMap<>();
+	private final Map<String, SortedSet<String>> questionable = new HashMap<>();
+	private final Set<String> modified = new HashSet<>();
+	private String currentDirectory = ".";
+	private String error;
+
+	/**
+	 * A failure of a command, reported to the client as an error response.
+	 */
+	private static class ServerException extends Exception {
+		private static final long serialVersionUID = 1L;
+		ServerException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * The options and file arguments of a command.
+	 */
+	private static class Options {
+		private final Map<Character, String> options = new HashMap<>();
+		private final List<String> files = new ArrayList<>();
+		boolean has(char option) {
+			return options.containsKey(Character.valueOf(option));
+		}
+		String get(char option) {
+			return options.get(Character.valueOf(option));
+		}
+	}
+
+	/**
+	 * A file or folder argument of a command run on a working copy.
+	 * The name is <code>null</code> for a folder.
+	 */
+	private static class Target {
+		final String localDirectory;
+		final String repositoryDirectory;
+		final String name;
+		Target(String localDirectory, String repositoryDirectory, String name) {
+			this.localDirectory = localDirectory;
+			this.repositoryDirectory = repositoryDirectory;
+			this.name = name;
+		}
+	}
+
+	ServerSession(FakeCVSServer server, InputStream in, OutputStream out) {
+		this.server = server;
+		this.repository = server.getRepository();
+		this.statistics = server.getStatistics();
+		this.in = new BufferedInputStream(in);
+		this.out = new BufferedOutputStream(out);
+		logDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+	}
+
+	/**
+	 * Serve the client until it closes the connection.
+	 * @throws IOException if the connection fails
+	 */
+	void run() throws IOException {
+		if (!authenticate()) {
+			return;
+		}
+		String line;
+		while ((line = readLine()) != null) {
+			handleRequest(line);
+		}
+	}
+
+	private boolean authenticate() throws IOException {
+		String begin = readLine();
+		boolean verification = "BEGIN VERIFICATION REQUEST".equals(begin);
+		if (!verification && !"BEGIN AUTH REQUEST".equals(begin)) {
+			beginResponse();
+			line("error 0 expected an authentication request");
+			out.flush();
+			return false;
+		}
+		// The root, user and password are accepted whatever they are
+		for (int i = 0; i < 3; i++) {
+			readLine();
+		}
+		readLine();
+		beginResponse();
+		line("I LOVE YOU");
+		out.flush();
+		return !verification;
+	}
+
+	private void handleRequest(String line) throws IOException {
+		int space = line.indexOf(' ');
+		String request = space == -1 ? line : line.substring(0, space);
+		String argument = space == -1 ? "" : line.substring(space + 1);
+		statistics.request(request);
+		switch (request) {
+			case "Root":
+			case "UseUnchanged":
+			case "Case":
+			case "Static-directory":
+			case "Sticky":
+			case "Kopt":
+			case "Checkin-time":
+			case "Max-dotdot":
+			case "Set":
+			case "Unchanged":
+				break;
+			case "Valid-responses":
+				validResponses = " " + argument + " ";
+				break;
+			case "Global_option":
+				globalOptions.add(argument);
+				break;
+			case "Argument":
+				arguments.add(argument);
+				break;
+			case "Argumentx":
+				if (!arguments.isEmpty()) {
+					arguments.set(arguments.size() - 1, arguments.get(arguments.size() - 1) + '\n' + argument);
+				}
+				break;
+			case "Directory":
+				addDirectory(argument, readLine());
+				break;
+			case "Entry":
+				addEntry(argument);
+				break;
+			case "Modified":
+				readModifiedFile();
+				modified.add(local(currentDirectory, argument));
+				break;
+			case "Is-modified":
+				modified.add(local(currentDirectory, argument));
+				break;
+			case "Questionable":
+				getNames(questionable, currentDirectory).add(argument);
+				break;
+			case "Notify":
+				readLine();
+				break;
+			case "valid-requests":
+				respond(request);
+				break;
+			default:
+				// Only the commands, whose names are in lower case, have a response
+				if (Character.isLowerCase(request.charAt(0))) {
+					respond(request);
+				} else if (error == null) {
+					error = "unrecognized request `" + request + "'";
+				}
+				break;
+		}
+	}
+
+	private void respond(String request) throws IOException {
+		beginResponse();
+		try {
+			if (error != null) {
+				throw new ServerException(error);
+			}
+			switch (request) {
+				case "valid-requests":
+					line("Valid-requests " + VALID_REQUESTS);
+					break;
+				case "version":
+					message("Concurrent Versions System (CVS) 1.12.13 (client/server)");
+					break;
+				case "noop":
+					break;
+				case "expand-modules":
+					for (String module : arguments) {
+						line("Module-expansion " + module);
+					}
+					break;
+				case "co":
+					checkout();
+					break;
+				case "update":
+					update();
+					break;
+				case "status":
+					status();
+					break;
+				case "log":
+					log();
+					break;
+				case "rlog":
+					rlog();
+					break;
+				default:
+					throw new ServerException("unrecognized request `" + request + "'");
+			}
+			line("ok");
+		} catch (ServerException e) {
+			line("error  " + e.getMessage());
+		} finally {
+			reset();
+			out.flush();
+		}
+	}
+
+	private void beginResponse() {
+		statistics.roundTrip();
+		long latency = server.getLatency();
+		if (latency > 0) {
+			try {
+				Thread.sleep(latency);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void reset() {
+		arguments.clear();
+		globalOptions.clear();
+		directories.clear();
+		subdirectories.clear();
+		entries.clear();
+		questionable.clear();
+		modified.clear();
+		currentDirectory = ".";
+		error = null;
+	}
+
+	/*
+	 * Requests that describe the working copy
+	 */
+
+	private void addDirectory(String localDirectory, String repositoryDirectory) {
+		String directory = normalize(localDirectory);
+		currentDirectory = directory;
+		directories.put(directory, toRepositoryPath(repositoryDirectory));
+		if (!directory.equals(".")) {
+			int index = directory.lastIndexOf('/');
+			getNames(subdirectories, index == -1 ? "." : directory.substring(0, index)).add(directory.substring(index + 1));
+		}
+	}
+
+	private void addEntry(String entry) {
+		// Entry lines of folders start with D and are not needed
+		if (!entry.startsWith("/")) {
+			return;
+		}
+		String name = entry.substring(1, entry.indexOf('/', 1));
+		Map<String, String> folderEntries = entries.get(currentDirectory);
+		if (folderEntries == null) {
+			folderEntries = new TreeMap<>();
+			entries.put(currentDirectory, folderEntries);
+		}
+		folderEntries.put(name, entry);
+	}
+
+	private void readModifiedFile() throws IOException {
+		// The mode of the file and then its size and contents
+		readLine();
+		String size = readLine();
+		if (size == null) {
+			throw new EOFException();
+		}
+		if (size.startsWith("z")) {
+			size = size.substring(1);
+		}
+		long remaining = Long.parseLong(size.trim());
+		while (remaining > 0) {
+			long skipped = in.skip(remaining);
+			if (skipped <= 0) {
+				if (in.read() == -1) {
+					throw new EOFException();
+				}
+				skipped = 1;
+			}
+			remaining -= skipped;
+		}
+	}
+
+	private String getEntry(String localDirectory, String name) {
+		Map<String, String> folderEntries = entries.get(localDirectory);
+		return folderEntries == null ? null : folderEntries.get(name);
+	}
+
+	private SortedSet<String> getEntryNames(String localDirectory) {
+		Map<String, String> folderEntries = entries.get(localDirectory);
+		return folderEntries == null ? new TreeSet<String>() : new TreeSet<>(folderEntries.keySet());
+	}
+
+	private static SortedSet<String> getNames(Map<String, SortedSet<String>> map, String localDirectory) {
+		SortedSet<String> names = map.get(localDirectory);
+		if (names == null) {
+			names = new TreeSet<>();
+			map.put(localDirectory, names);
+		}
+		return names;
+	}
+
+	/*
+	 * Return the files and folders the arguments of a command run on a working copy refer to.
+	 */
+	private List<Target> getTargets(List<String> files) throws IOException, ServerException {
+		List<Target> targets = new ArrayList<>();
+		if (files.isEmpty()) {
+			files = new ArrayList<>();
+			files.add(".");
+		}
+		for (String file : files) {
+			String path = normalize(file);
+			if (directories.containsKey(path)) {
+				targets.add(new Target(path, directories.get(path), null));
+				continue;
+			}
+			int index = path.lastIndexOf('/');
+			String parent = index == -1 ? "." : path.substring(0, index);
+			String name = path.substring(index + 1);
+			String repositoryDirectory = directories.get(parent);
+			if (repositoryDirectory == null) {
+				error("nothing known about " + path);
+				continue;
+			}
+			String repositoryPath = SyntheticRepository.append(repositoryDirectory, name);
+			if (getEntry(parent, name) == null && repository.getFolder(repositoryPath) != null) {
+				targets.add(new Target(path, repositoryPath, null));
+			} else {
+				targets.add(new Target(parent, repositoryDirectory, name));
+			}
+		}
+		return targets;
+	}
+
+	/*
+	 * Commands
+	 */
+
+	private void checkout() throws IOException, ServerException {
+		Options options = parseOptions("kdrDj", "");
+		if (options.files.isEmpty()) {
+			throw new ServerException("must specify at least one module or directory");
+		}
+		for (String module : options.files) {
+			Folder folder = repository.getFolder(module);
+			if (folder == null) {
+				error("cannot find module `" + module + "' - ignored");
+				continue;
+			}
+			checkoutFolder(options.has('d') ? options.get('d') : module, folder, !options.has('l'));
+		}
+	}
+
+	private void checkoutFolder(String localDirectory, Folder folder, boolean recurse) throws IOException {
+		if (!isNoChanges()) {
+			clearSticky(localDirectory, folder.getPath());
+		}
+		if (!isQuiet()) {
+			error("Updating " + localDirectory);
+		}
+		for (File file : folder.getFiles()) {
+			if (!file.isDead()) {
+				sendFile(localDirectory, file, false);
+			}
+		}
+		if (recurse) {
+			for (Folder child : folder.getFolders()) {
+				checkoutFolder(localDirectory + "/" + child.getName(), child, true);
+			}
+		}
+	}
+
+	private void update() throws IOException, ServerException {
+		Options options = parseOptions("krDjIW", "");
+		for (Target target : getTargets(options.files)) {
+			if (target.name == null) {
+				updateFolder(target.localDirectory, target.repositoryDirectory, !options.has('l'), options.has('d'), false);
+			} else {
+				updateFile(target.localDirectory, target.repositoryDirectory, target.name);
+			}
+		}
+	}
+
+	private void updateFolder(String localDirectory, String repositoryDirectory, boolean recurse, boolean createDirectories, boolean isNew) throws IOException {
+		if (isNew && !isNoChanges()) {
+			clearSticky(localDirectory, repositoryDirectory);
+		}
+		if (!isQuiet()) {
+			error("Updating " + localDirectory);
+		}
+		Folder folder = repository.getFolder(repositoryDirectory);
+		SortedSet<String> names = getEntryNames(localDirectory);
+		names.addAll(getNames(questionable, localDirectory));
+		if (folder != null) {
+			for (File file : folder.getFiles()) {
+				names.add(file.getName());
+			}
+		}
+		for (String name : names) {
+			updateFile(localDirectory, repositoryDirectory, name);
+		}
+		if (!recurse || folder == null) {
+			return;
+		}
+		for (Folder child : folder.getFolders()) {
+			String localChild = local(localDirectory, child.getName());
+			if (directories.containsKey(localChild)) {
+				updateFolder(localChild, child.getPath(), true, createDirectories, false);
+			} else if (createDirectories) {
+				updateFolder(localChild, child.getPath(), true, true, true);
+			} else if (!isQuiet()) {
+				error("New directory `" + localChild + "' -- ignored");
+			}
+		}
+	}
+
+	private void updateFile(String localDirectory, String repositoryDirectory, String name) throws IOException {
+		String path = local(localDirectory, name);
+		String entry = getEntry(localDirectory, name);
+		File file = repository.getFile(SyntheticRepository.append(repositoryDirectory, name));
+		boolean exists = file != null && !file.isDead();
+		boolean isModified = modified.contains(path);
+		if (entry == null) {
+			if (exists) {
+				sendFile(localDirectory, file, false);
+			} else if (getNames(questionable, localDirectory).contains(name)) {
+				message("? " + path);
+			}
+			return;
+		}
+		String revision = getRevision(entry);
+		if (revision.equals("0")) {
+			message("A " + path);
+		} else if (revision.startsWith("-")) {
+			message("R " + path);
+		} else if (!exists) {
+			if (isModified) {
+				message("C " + path);
+			} else {
+				error("`" + path + "' is no longer in the repository");
+				if (!isNoChanges()) {
+					line("Removed " + localDirectory + "/");
+					line(repository.getRoot() + "/" + SyntheticRepository.append(repositoryDirectory, name));
+				}
+			}
+		} else if (revision.equals(file.getHead().getNumber())) {
+			if (isModified) {
+				message("M " + path);
+			}
+		} else if (isModified) {
+			// Merges are not supported
+			message("C " + path);
+		} else {
+			sendFile(localDirectory, file, true);
+		}
+	}
+
+	private void status() throws IOException, ServerException {
+		Options options = parseOptions("", "");
+		for (Target target : getTargets(options.files)) {
+			if (target.name == null) {
+				statusFolder(target.localDirectory, target.repositoryDirectory, !options.has('l'));
+			} else {
+				statusFile(target.localDirectory, target.repositoryDirectory, target.name);
+			}
+		}
+	}
+
+	private void statusFolder(String localDirectory, String repositoryDirectory, boolean recurse) throws IOException {
+		if (!isQuiet()) {
+			error("Examining " + localDirectory);
+		}
+		Folder folder = repository.getFolder(repositoryDirectory);
+		SortedSet<String> names = getEntryNames(localDirectory);
+		if (folder != null) {
+			for (File file : folder.getFiles()) {
+				if (!file.isDead()) {
+					names.add(file.getName());
+				}
+			}
+		}
+		for (String name : names) {
+			statusFile(localDirectory, repositoryDirectory, name);
+		}
+		if (recurse) {
+			for (String child : getNames(subdirectories, localDirectory)) {
+				String localChild = local(localDirectory, child);
+				statusFolder(localChild, directories.get(localChild), true);
+			}
+		}
+	}
+
+	private void statusFile(String localDirectory, String repositoryDirectory, String name) throws IOException {
+		String entry = getEntry(localDirectory, name);
+		File file = repository.getFile(SyntheticRepository.append(repositoryDirectory, name));
+		boolean exists = file != null && !file.isDead();
+		if (entry == null && !exists) {
+			return;
+		}
+		boolean isModified = modified.contains(local(localDirectory, name));
+		String revision = entry == null ? null : getRevision(entry);
+		String status;
+		if (revision == null) {
+			status = "Needs Checkout";
+		} else if (revision.equals("0")) {
+			status = "Locally Added";
+		} else if (revision.startsWith("-")) {
+			status = "Locally Removed";
+		} else if (!exists) {
+			status = "Entry Invalid";
+		} else if (revision.equals(file.getHead().getNumber())) {
+			status = isModified ? "Locally Modified" : "Up-to-date";
+		} else {
+			status = isModified ? "Needs Merge" : "Needs Patch";
+		}
+		message(STATUS_SEPARATOR);
+		message("File: " + (exists ? name : "no file " + name) + "\tStatus: " + status);
+		message("");
+		message("   Working revision:\t" + (revision == null ? "No entry for " + name : revision));
+		if (file == null) {
+			message("   Repository revision:\tNo revision control file");
+		} else {
+			message("   Repository revision:\t" + file.getHead().getNumber() + "\t" + getRCSPath(file));
+		}
+		message("");
+	}
+
+	private void log() throws IOException, ServerException {
+		Options options = parseOptions("ds", "rw");
+		for (Target target : getTargets(options.files)) {
+			if (target.name == null) {
+				logFolder(target.localDirectory, target.repositoryDirectory, options);
+			} else {
+				logFile(target.localDirectory, target.repositoryDirectory, target.name, options);
+			}
+		}
+	}
+
+	private void logFolder(String localDirectory, String repositoryDirectory, Options options) throws IOException, ServerException {
+		if (!isQuiet()) {
+			error("Logging " + localDirectory);
+		}
+		for (String name : getEntryNames(localDirectory)) {
+			logFile(localDirectory, repositoryDirectory, name, options);
+		}
+		if (!options.has('l')) {
+			for (String child : getNames(subdirectories, localDirectory)) {
+				String localChild = local(localDirectory, child);
+				logFolder(localChild, directories.get(localChild), options);
+			}
+		}
+	}
+
+	private void logFile(String localDirectory, String repositoryDirectory, String name, Options options) throws IOException, ServerException {
+		String path = local(localDirectory, name);
+		File file = repository.getFile(SyntheticRepository.append(repositoryDirectory, name));
+		if (file == null) {
+			error("nothing known about " + path);
+			return;
+		}
+		printLog(file, path, options);
+	}
+
+	private void rlog() throws IOException, ServerException {
+		Options options = parseOptions("ds", "rw");
+		if (options.files.isEmpty()) {
+			throw new ServerException("must specify at least one module or directory");
+		}
+		for (String module : options.files) {
+			Folder folder = repository.getFolder(module);
+			if (folder != null) {
+				rlogFolder(folder, options);
+				continue;
+			}
+			File file = repository.getFile(module);
+			if (file != null) {
+				printLog(file, null, options);
+			} else {
+				error("cannot find module `" + module + "' - ignored");
+			}
+		}
+	}
+
+	private void rlogFolder(Folder folder, Options options) throws IOException, ServerException {
+		if (!isQuiet()) {
+			error("Logging " + folder.getPath());
+		}
+		for (File file : folder.getFiles()) {
+			printLog(file, null, options);
+		}
+		if (!options.has('l')) {
+			for (Folder child : folder.getFolders()) {
+				rlogFolder(child, options);
+			}
+		}
+	}
+
+	private void printLog(File file, String workingFile, Options options) throws IOException, ServerException {
+		Revision[] revisions = file.getRevisions();
+		List<Revision> selected = selectRevisions(revisions, options);
+		if (options.has('S') && selected.isEmpty()) {
+			return;
+		}
+		message("");
+		message("RCS file: " + getRCSPath(file));
+		if (workingFile != null) {
+			message("Working file: " + workingFile);
+		}
+		message("head: " + file.getHead().getNumber());
+		message("branch:");
+		message("locks: strict");
+		message("access list:");
+		if (!options.has('N')) {
+			message("symbolic names:");
+		}
+		message("keyword substitution: kv");
+		message("total revisions: " + revisions.length + ";\tselected revisions: " + selected.size());
+		message("description:");
+		if (!options.has('h')) {
+			for (Revision revision : selected) {
+				message(REVISION_SEPARATOR);
+				message("revision " + revision.getNumber());
+				StringBuilder line = new StringBuilder();
+				line.append("date: ").append(logDateFormat.format(revision.getDate()));
+				line.append(";  author: ").append(revision.getAuthor());
+				line.append(";  state: ").append(revision.isDead() ? "dead" : "Exp").append(';');
+				if (!revision.getNumber().equals("1.1")) {
+					line.append("  lines: +1 -1;");
+				}
+				message(line.toString());
+				message(revision.getComment());
+			}
+		}
+		message(LOG_SEPARATOR);
+	}
+
+	/*
+	 * Return the revisions selected by the -r and -d options of a log, the latest first.
+	 */
+	private List<Revision> selectRevisions(Revision[] revisions, Options options) throws ServerException {
+		List<Revision> selected = new ArrayList<>();
+		for (int i = 0; i < revisions.length; i++) {
+			if (options.has('r') && !isSelected(revisions[i], revisions[0], options.get('r'))) {
+				continue;
+			}
+			selected.add(revisions[i]);
+		}
+		if (options.has('d')) {
+			String spec = options.get('d');
+			Date after = null;
+			Date before = null;
+			boolean single = false;
+			int index;
+			if ((index = spec.indexOf('<')) != -1) {
+				after = index == 0 ? null : parseDate(spec.substring(0, index));
+				before = index == spec.length() - 1 ? null : parseDate(spec.substring(index + 1));
+			} else if ((index = spec.indexOf('>')) != -1) {
+				before = index == 0 ? null : parseDate(spec.substring(0, index));
+				after = index == spec.length() - 1 ? null : parseDate(spec.substring(index + 1));
+			} else {
+				before = parseDate(spec);
+				single = true;
+			}
+			List<Revision> dated = new ArrayList<>();
+			for (Revision revision : selected) {
+				Date date = revision.getDate();
+				if ((after == null || date.after(after)) && (before == null || !date.after(before))) {
+					dated.add(revision);
+					if (single) {
+						// Only the latest revision at the date is selected
+						break;
+					}
+				}
+			}
+			selected = dated;
+		}
+		return selected;
+	}
+
+	private boolean isSelected(Revision revision, Revision head, String spec) {
+		int number = getMinor(revision.getNumber());
+		if (spec.length() == 0 || spec.equals("HEAD")) {
+			return revision == head;
+		}
+		if (spec.endsWith(".")) {
+			// A branch, of which only the trunk exists
+			return spec.equals("1.");
+		}
+		int index = spec.indexOf(':');
+		if (index == -1) {
+			return revision.getNumber().equals(spec);
+		}
+		int from = index == 0 ? 1 : getMinor(spec.substring(0, index));
+		int to = index == spec.length() - 1 ? Integer.MAX_VALUE : getMinor(spec.substring(index + 1));
+		return from != -1 && to != -1 && number >= from && number <= to;
+	}
+
+	private static int getMinor(String revision) {
+		if (!revision.startsWith("1.")) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(revision.substring(2));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static Date parseDate(String date) throws ServerException {
+		for (String format : DATE_FORMATS) {
+			SimpleDateFormat dateFormat = new SimpleDateFormat(format, Locale.US);
+			dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+			try {
+				return dateFormat.parse(date.trim());
+			} catch (ParseException e) {
+				// Try the next format
+			}
+		}
+		throw new ServerException("Can't parse date/time: " + date);
+	}
+
+	/*
+	 * Parse the options at the beginning of the arguments. The options in values
+	 * take a value that is attached or in the next argument and the options in
+	 * attached take an optional value that must be attached.
+	 */
+	private Options parseOptions(String values, String attached) {
+		Options options = new Options();
+		int i = 0;
+		for (; i < arguments.size(); i++) {
+			String argument = arguments.get(i);
+			if (argument.equals("--")) {
+				i++;
+				break;
+			}
+			if (!argument.startsWith("-") || argument.length() == 1) {
+				break;
+			}
+			for (int j = 1; j < argument.length(); j++) {
+				char option = argument.charAt(j);
+				String rest = argument.substring(j + 1);
+				if (values.indexOf(option) != -1) {
+					if (rest.length() == 0 && i + 1 < arguments.size()) {
+						rest = arguments.get(++i);
+					}
+					options.options.put(Character.valueOf(option), rest);
+					break;
+				}
+				if (attached.indexOf(option) != -1) {
+					options.options.put(Character.valueOf(option), rest);
+					break;
+				}
+				options.options.put(Character.valueOf(option), "");
+			}
+		}
+		options.files.addAll(arguments.subList(i, arguments.size()));
+		return options;
+	}
+
+	/*
+	 * Responses
+	 */
+
+	private void sendFile(String localDirectory, File file, boolean existing) throws IOException {
+		message("U " + local(localDirectory, file.getName()));
+		if (isNoChanges()) {
+			return;
+		}
+		String response;
+		if (existing) {
+			response = isValidResponse("Update-existing") ? "Update-existing" : "Updated";
+		} else {
+			response = isValidResponse("Created") ? "Created" : "Updated";
+		}
+		Revision head = file.getHead();
+		byte[] contents = repository.getContents(file, head);
+		line(response + " " + localDirectory + "/");
+		line(repository.getRoot() + "/" + file.getPath());
+		line("/" + file.getName() + "/" + head.getNumber() + "///");
+		line("u=rw,g=r,o=r");
+		line(Integer.toString(contents.length));
+		out.write(contents);
+	}
+
+	private void clearSticky(String localDirectory, String repositoryDirectory) throws IOException {
+		line("Clear-sticky " + localDirectory + "/");
+		line(repository.getRoot() + "/" + repositoryDirectory + "/");
+	}
+
+	private void message(String message) throws IOException {
+		line("M " + message);
+	}
+
+	private void error(String message) throws IOException {
+		line("E cvs server: " + message);
+	}
+
+	private void line(String line) throws IOException {
+		out.write(line.getBytes());
+		out.write('\n');
+	}
+
+	private boolean isValidResponse(String response) {
+		return validResponses.indexOf(" " + response + " ") != -1;
+	}
+
+	private boolean isQuiet() {
+		return globalOptions.contains("-q") || globalOptions.contains("-Q");
+	}
+
+	private boolean isNoChanges() {
+		return globalOptions.contains("-n");
+	}
+
+	/*
+	 * Helpers
+	 */
+
+	private String readLine() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != -1 && b != '\n') {
+			buffer.write(b);
+		}
+		if (b == -1 && buffer.size() == 0) {
+			return null;
+		}
+		return buffer.toString();
+	}
+
+	private String getRCSPath(File file) {
+		if (file.isDead()) {
+			String path = file.getPath();
+			int index = path.lastIndexOf('/');
+			return repository.getRoot() + "/" + path.substring(0, index + 1) + "Attic/" + path.substring(index + 1) + ",v";
+		}
+		return repository.getRCSPath(file);
+	}
+
+	private static String getRevision(String entry) {
+		int start = entry.indexOf('/', 1) + 1;
+		return entry.substring(start, entry.indexOf('/', start));
+	}
+
+	/*
+	 * Return the path of the repository directory relative to the root.
+	 */
+	private String toRepositoryPath(String directory) {
+		String path = directory;
+		if (path.startsWith(repository.getRoot())) {
+			path = path.substring(repository.getRoot().length());
+		}
+		while (path.startsWith("/")) {
+			path = path.substring(1);
+		}
+		while (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		return path.equals(".") ? "" : path;
+	}
+
+	private static String normalize(String localPath) {
+		String path = localPath;
+		while (path.startsWith("./")) {
+			path = path.substring(2);
+		}
+		while (path.length() > 1 && path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		return path.length() == 0 ? "." : path;
+	}
+
+	private static String local(String localDirectory, String name) {
+		return localDirectory.equals(".") ? name : localDirectory + "/" + name;
+	}
+}
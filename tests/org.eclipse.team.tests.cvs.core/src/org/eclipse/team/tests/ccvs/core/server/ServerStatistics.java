@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.server;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The traffic handled by a {@link FakeCVSServer}. A round trip is counted
+ * each time the server answers the client, that is for the authentication
+ * and for each request that has a response, such as a command. The other
+ * requests (e.g. <code>Directory</code> or <code>Entry</code>) are sent by
+ * the client without waiting and are only counted as requests.
+ */
+public class ServerStatistics {
+
+	private int connections;
+	private int roundTrips;
+	private long bytesReceived;
+	private long bytesSent;
+	private final Map<String, Integer> requests = new TreeMap<>();
+
+	synchronized void connectionOpened() {
+		connections++;
+	}
+
+	synchronized void roundTrip() {
+		roundTrips++;
+	}
+
+	synchronized void request(String name) {
+		Integer count = requests.get(name);
+		requests.put(name, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+	}
+
+	synchronized void received(long count) {
+		bytesReceived += count;
+	}
+
+	synchronized void sent(long count) {
+		bytesSent += count;
+	}
+
+	public synchronized int getConnections() {
+		return connections;
+	}
+
+	public synchronized int getRoundTrips() {
+		return roundTrips;
+	}
+
+	public synchronized long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	public synchronized long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Return the number of times the given request was received.
+	 * @param name the name of the request (e.g. <code>update</code>)
+	 * @return the number of requests
+	 */
+	public synchronized int getRequestCount(String name) {
+		Integer count = requests.get(name);
+		return count == null ? 0 : count.intValue();
+	}
+
+	public synchronized void reset() {
+		connections = 0;
+		roundTrips = 0;
+		bytesReceived = 0;
+		bytesSent = 0;
+		requests.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return connections + " connections, " + roundTrips + " round trips, "
+				+ bytesReceived + " bytes received, " + bytesSent + " bytes sent, requests: " + requests;
+	}
+}
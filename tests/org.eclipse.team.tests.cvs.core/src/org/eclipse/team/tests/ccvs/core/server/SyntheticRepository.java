@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.core.server;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An in-memory model of a CVS repository served by the {@link FakeCVSServer}.
+ * The repository contains folders and files whose revisions are only kept as
+ * numbers, dates and comments. The contents of a revision are generated from
+ * the path and revision of the file so that large repositories take little
+ * memory and the contents are the same each time they are fetched.
+ * <p>
+ * Only the trunk is modeled: revisions are numbered 1.1, 1.2 and so on and
+ * there are no branches or tags. Paths are relative to the repository root
+ * and use '/' as separator.
+ * </p>
+ */
+public class SyntheticRepository {
+
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+	private static final long BASE_DATE = 1199145600000L; // 2008/01/01 00:00:00 GMT
+
+	public static final String AUTHOR = "fake";
+
+	private final String root;
+	private final int fileSize;
+	private final Folder rootFolder = new Folder("");
+	private int commits;
+
+	/**
+	 * A folder of the repository.
+	 */
+	public static class Folder {
+		private final String path;
+		private final SortedMap<String, Folder> folders = new TreeMap<>();
+		private final SortedMap<String, File> files = new TreeMap<>();
+
+		Folder(String path) {
+			this.path = path;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public String getName() {
+			return path.substring(path.lastIndexOf('/') + 1);
+		}
+
+		public Folder[] getFolders() {
+			return folders.values().toArray(new Folder[folders.size()]);
+		}
+
+		/**
+		 * Return the files of the folder, including the removed ones.
+		 */
+		public File[] getFiles() {
+			return files.values().toArray(new File[files.size()]);
+		}
+
+		public File getFile(String name) {
+			return files.get(name);
+		}
+
+		public Folder getFolder(String name) {
+			return folders.get(name);
+		}
+	}
+
+	/**
+	 * A file of the repository and its revisions, the first being 1.1.
+	 */
+	public static class File {
+		private final String path;
+		private final List<Revision> revisions = new ArrayList<>();
+
+		File(String path) {
+			this.path = path;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public String getName() {
+			return path.substring(path.lastIndexOf('/') + 1);
+		}
+
+		/**
+		 * Return the revisions of the file, the latest first.
+		 */
+		public Revision[] getRevisions() {
+			Revision[] result = new Revision[revisions.size()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = revisions.get(revisions.size() - 1 - i);
+			}
+			return result;
+		}
+
+		public Revision getHead() {
+			return revisions.get(revisions.size() - 1);
+		}
+
+		public Revision getRevision(String number) {
+			for (Revision revision : revisions) {
+				if (revision.getNumber().equals(number)) {
+					return revision;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Return whether the head revision of the file is removed.
+		 */
+		public boolean isDead() {
+			return getHead().isDead();
+		}
+	}
+
+	/**
+	 * A revision of a file.
+	 */
+	public static class Revision {
+		private final String number;
+		private final Date date;
+		private final String comment;
+		private final boolean dead;
+
+		Revision(String number, Date date, String comment, boolean dead) {
+			this.number = number;
+			this.date = date;
+			this.comment = comment;
+			this.dead = dead;
+		}
+
+		public String getNumber() {
+			return number;
+		}
+
+		public Date getDate() {
+			return date;
+		}
+
+		public String getAuthor() {
+			return AUTHOR;
+		}
+
+		public String getComment() {
+			return comment;
+		}
+
+		public boolean isDead() {
+			return dead;
+		}
+	}
+
+	/**
+	 * Create an empty repository.
+	 * @param root the root directory of the repository (e.g. <code>/synthetic</code>)
+	 * @param fileSize the approximate size in bytes of the contents of the files
+	 */
+	public SyntheticRepository(String root, int fileSize) {
+		this.root = root;
+		this.fileSize = fileSize;
+	}
+
+	/**
+	 * Create a repository with a module made of a tree of folders. Each
+	 * folder contains the given number of files and subfolders down to the
+	 * given depth and each file has the given number of revisions.
+	 * @param root the root directory of the repository
+	 * @param module the name of the module
+	 * @param depth the number of levels of folders below the module
+	 * @param foldersPerFolder the number of subfolders of each folder
+	 * @param filesPerFolder the number of files of each folder
+	 * @param revisionsPerFile the number of revisions of each file
+	 * @param fileSize the approximate size in bytes of the contents of the files
+	 * @return the repository
+	 */
+	public static SyntheticRepository create(String root, String module, int depth, int foldersPerFolder, int filesPerFolder, int revisionsPerFile, int fileSize) {
+		SyntheticRepository repository = new SyntheticRepository(root, fileSize);
+		repository.populate(module, depth, foldersPerFolder, filesPerFolder, revisionsPerFile);
+		return repository;
+	}
+
+	private void populate(String path, int depth, int foldersPerFolder, int filesPerFolder, int revisionsPerFile) {
+		for (int i = 0; i < filesPerFolder; i++) {
+			String filePath = path + "/file" + i + ".txt";
+			for (int j = 0; j < revisionsPerFile; j++) {
+				commit(filePath);
+			}
+		}
+		if (depth > 0) {
+			for (int i = 0; i < foldersPerFolder; i++) {
+				populate(path + "/folder" + i, depth - 1, foldersPerFolder, filesPerFolder, revisionsPerFile);
+			}
+		}
+	}
+
+	public String getRoot() {
+		return root;
+	}
+
+	/**
+	 * Return the folder at the given path or <code>null</code>.
+	 * @param path the path of the folder relative to the root
+	 * @return the folder or <code>null</code>
+	 */
+	public synchronized Folder getFolder(String path) {
+		Folder folder = rootFolder;
+		for (String segment : segments(path)) {
+			folder = folder.getFolder(segment);
+			if (folder == null) {
+				return null;
+			}
+		}
+		return folder;
+	}
+
+	/**
+	 * Return the file at the given path, removed or not, or <code>null</code>.
+	 * @param path the path of the file relative to the root
+	 * @return the file or <code>null</code>
+	 */
+	public synchronized File getFile(String path) {
+		int index = path.lastIndexOf('/');
+		Folder folder = getFolder(index == -1 ? "" : path.substring(0, index));
+		return folder == null ? null : folder.getFile(path.substring(index + 1));
+	}
+
+	/**
+	 * Add a revision to the file at the given path, creating the file and
+	 * its folders if they do not exist.
+	 * @param path the path of the file relative to the root
+	 * @return the new revision
+	 */
+	public synchronized Revision commit(String path) {
+		return addRevision(path, false);
+	}
+
+	/**
+	 * Remove the file at the given path by adding a dead revision.
+	 * @param path the path of the file relative to the root
+	 * @return the dead revision
+	 */
+	public synchronized Revision remove(String path) {
+		return addRevision(path, true);
+	}
+
+	private Revision addRevision(String path, boolean dead) {
+		String[] segments = segments(path);
+		Folder folder = rootFolder;
+		for (int i = 0; i < segments.length - 1; i++) {
+			Folder child = folder.getFolder(segments[i]);
+			if (child == null) {
+				child = new Folder(append(folder.getPath(), segments[i]));
+				folder.folders.put(segments[i], child);
+			}
+			folder = child;
+		}
+		String name = segments[segments.length - 1];
+		File file = folder.getFile(name);
+		if (file == null) {
+			file = new File(path);
+			folder.files.put(name, file);
+		}
+		int number = file.revisions.size() + 1;
+		Date date = new Date(BASE_DATE + DAY * commits++);
+		Revision revision = new Revision("1." + number, date, (dead ? "Removed " : "Revision 1." + number + " of ") + name, dead);
+		file.revisions.add(revision);
+		return revision;
+	}
+
+	/**
+	 * Return the contents of the given revision of a file.
+	 * @param file the file
+	 * @param revision the revision
+	 * @return the contents of the revision
+	 */
+	public byte[] getContents(File file, Revision revision) {
+		StringBuilder contents = new StringBuilder(fileSize + 80);
+		String line = file.getPath() + " revision " + revision.getNumber() + " line ";
+		for (int i = 0; contents.length() < fileSize; i++) {
+			contents.append(line).append(i).append('\n');
+		}
+		return contents.toString().getBytes();
+	}
+
+	/**
+	 * Return the absolute path of the RCS file of the given file as reported
+	 * by the server.
+	 * @param file the file
+	 * @return the path of the RCS file
+	 */
+	public String getRCSPath(File file) {
+		return root + "/" + file.getPath() + ",v";
+	}
+
+	static String append(String path, String name) {
+		return path.length() == 0 ? name : path + "/" + name;
+	}
+
+	private static String[] segments(String path) {
+		List<String> segments = new ArrayList<>();
+		for (String segment : path.split("/")) {
+			if (segment.length() > 0 && !segment.equals(".")) {
+				segments.add(segment);
+			}
+		}
+		return segments.toArray(new String[segments.size()]);
+	}
+}
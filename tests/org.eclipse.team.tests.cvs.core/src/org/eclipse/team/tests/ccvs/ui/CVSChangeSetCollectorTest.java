@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.ui;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.team.internal.ccvs.core.ILogEntry;
+import org.eclipse.team.internal.ccvs.ui.subscriber.CVSChangeSetCollector;
+import org.eclipse.team.internal.core.subscribers.ChangeSet;
+import org.eclipse.team.internal.core.subscribers.CheckedInChangeSet;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+import org.eclipse.team.ui.synchronize.ISynchronizePageConfiguration;
+
+/**
+ * Tests that the indexed lookups of the commit sets of the CVS change set
+ * collector find the same sets as a search through all the sets.
+ */
+public class CVSChangeSetCollectorTest extends EclipseTest {
+
+	private static final String[] AUTHORS = { "alice", "bob", "carol" };
+	private static final String[] COMMENTS = { "Fix", "Fix\nthe build", "" };
+
+	private CVSChangeSetCollector collector;
+
+	private static class TestChangeSet extends CheckedInChangeSet {
+		private final String author;
+		private final String comment;
+		private final Date date = new Date();
+
+		TestChangeSet(String name, String author, String comment) {
+			setName(name);
+			this.author = author;
+			this.comment = comment;
+		}
+
+		@Override
+		public String getAuthor() {
+			return author;
+		}
+
+		@Override
+		public Date getDate() {
+			return date;
+		}
+
+		@Override
+		public String getComment() {
+			return comment;
+		}
+	}
+
+	public CVSChangeSetCollectorTest() {
+		super();
+	}
+
+	public CVSChangeSetCollectorTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(CVSChangeSetCollectorTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		// the collector only stores itself in the configuration. It is not
+		// disposed since that would contribute actions to the page.
+		ISynchronizePageConfiguration configuration = (ISynchronizePageConfiguration) Proxy.newProxyInstance(
+				getClass().getClassLoader(),
+				new Class[] { ISynchronizePageConfiguration.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						return null;
+					}
+				});
+		collector = new CVSChangeSetCollector(configuration);
+	}
+
+	public void testAddAndRemoveSets() {
+		List<TestChangeSet> sets = new ArrayList<>();
+		for (int i = 0; i < AUTHORS.length; i++) {
+			for (int j = 0; j < COMMENTS.length; j++) {
+				TestChangeSet set = new TestChangeSet("set" + i + j, AUTHORS[i], COMMENTS[j]);
+				sets.add(set);
+				collector.add(set);
+				assertLookups();
+			}
+		}
+		// adding a set twice does not index it twice
+		collector.add(sets.get(0));
+		assertLookups();
+
+		// remove every other set, then the rest
+		for (int i = 0; i < sets.size(); i += 2) {
+			collector.remove(sets.get(i));
+			assertLookups();
+		}
+		for (int i = 1; i < sets.size(); i += 2) {
+			collector.remove(sets.get(i));
+			assertLookups();
+		}
+		assertEquals(0, collector.getSets().length);
+	}
+
+	public void testSetsWithSameAuthorAndComment() {
+		TestChangeSet first = new TestChangeSet("first", "alice", "Fix");
+		TestChangeSet second = new TestChangeSet("second", "alice", "Fix");
+		collector.add(first);
+		collector.add(second);
+		assertLookups();
+		// the other set is found once one of them is removed
+		collector.remove(first);
+		assertSame(second, getChangeSetFor("alice", "Fix"));
+		assertLookups();
+		collector.add(first);
+		collector.remove(second);
+		assertSame(first, getChangeSetFor("alice", "Fix"));
+		assertLookups();
+	}
+
+	public void testAuthorAndCommentAreNotConcatenated() {
+		collector.add(new TestChangeSet("set", "alice", "Fix"));
+		assertNull(getChangeSetFor("alic", "eFix"));
+		assertLookups();
+	}
+
+	/*
+	 * Check the indexed lookups against a search through all the sets for
+	 * every author, comment and name in use as well as for unknown ones.
+	 */
+	private void assertLookups() {
+		List<String> names = new ArrayList<>();
+		names.add("unknown");
+		ChangeSet[] sets = collector.getSets();
+		for (int i = 0; i < sets.length; i++) {
+			names.add(sets[i].getName());
+		}
+		for (String name : names) {
+			assertSame(name, findChangeSet(name), getChangeSetFor(name));
+		}
+		List<String> authors = new ArrayList<>();
+		authors.add("unknown");
+		for (int i = 0; i < AUTHORS.length; i++) {
+			authors.add(AUTHORS[i]);
+		}
+		for (String author : authors) {
+			for (int i = 0; i < COMMENTS.length; i++) {
+				CheckedInChangeSet expected = findChangeSet(author, COMMENTS[i]);
+				CheckedInChangeSet actual = getChangeSetFor(author, COMMENTS[i]);
+				if (expected == null) {
+					assertNull(actual);
+				} else {
+					// any of the sets with the author and comment may be found
+					assertNotNull(actual);
+					assertEquals(author, actual.getAuthor());
+					assertEquals(COMMENTS[i], actual.getComment());
+					assertTrue(collector.contains(actual));
+				}
+			}
+		}
+	}
+
+	/*
+	 * The linear search that was used before the sets were indexed.
+	 */
+	private CheckedInChangeSet findChangeSet(String author, String comment) {
+		ChangeSet[] sets = collector.getSets();
+		for (int i = 0; i < sets.length; i++) {
+			ChangeSet set = sets[i];
+			if (set instanceof CheckedInChangeSet
+					&& set.getComment().equals(comment)
+					&& ((CheckedInChangeSet) set).getAuthor().equals(author)) {
+				return (CheckedInChangeSet) set;
+			}
+		}
+		return null;
+	}
+
+	private CheckedInChangeSet findChangeSet(String name) {
+		ChangeSet[] sets = collector.getSets();
+		for (int i = 0; i < sets.length; i++) {
+			ChangeSet set = sets[i];
+			if (set.getName().equals(name)) {
+				return (CheckedInChangeSet) set;
+			}
+		}
+		return null;
+	}
+
+	private CheckedInChangeSet getChangeSetFor(final String author, final String comment) {
+		ILogEntry entry = (ILogEntry) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] { ILogEntry.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getAuthor")) {
+							return author;
+						}
+						if (method.getName().equals("getComment")) {
+							return comment;
+						}
+						return null;
+					}
+				});
+		return (CheckedInChangeSet) ReflectionUtils.callMethod(collector, "getChangeSetFor",
+				new Class[] { ILogEntry.class }, new Object[] { entry });
+	}
+
+	private CheckedInChangeSet getChangeSetFor(String name) {
+		return (CheckedInChangeSet) ReflectionUtils.callMethod(collector, "getChangeSetFor",
+				new Class[] { String.class }, new Object[] { name });
+	}
+}
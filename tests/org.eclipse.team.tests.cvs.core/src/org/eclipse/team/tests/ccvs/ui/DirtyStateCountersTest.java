@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.ui;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.team.core.TeamException;
+import org.eclipse.team.internal.ccvs.ui.DirtyStateCounters;
+import org.eclipse.team.tests.ccvs.core.CVSTestSetup;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+
+/**
+ * Tests the counts of dirty resources used to decorate the deep dirty state
+ * of CVS folders.
+ */
+public class DirtyStateCountersTest extends EclipseTest {
+
+	private DirtyStateCounters counters;
+
+	public DirtyStateCountersTest() {
+		super();
+	}
+
+	public DirtyStateCountersTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		String testName = System.getProperty("eclipse.cvs.testName");
+		if (testName == null) {
+			TestSuite suite = new TestSuite(DirtyStateCountersTest.class);
+			return new CVSTestSetup(suite);
+		} else {
+			return new CVSTestSetup(new DirtyStateCountersTest(testName));
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		counters = new DirtyStateCounters();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		counters.dispose();
+		super.tearDown();
+	}
+
+	public void testFileChanges() throws CoreException, TeamException {
+		IProject project = createProject(new String[] { "a.txt", "folder1/", "folder1/b.txt", "folder1/sub/", "folder1/sub/c.txt" });
+		IFolder folder1 = project.getFolder("folder1");
+		IFolder sub = folder1.getFolder("sub");
+		IFile b = folder1.getFile("b.txt");
+		IFile c = sub.getFile("c.txt");
+		assertClean(new IContainer[] { project, folder1, sub });
+
+		setContentsAndEnsureModified(c);
+		assertChanged(new IContainer[] { project, folder1, sub }, counters.update(new IResource[] { c }));
+		assertDirty(new IContainer[] { project, folder1, sub });
+
+		// a second dirty file does not change the state of its ancestors
+		setContentsAndEnsureModified(b);
+		assertChanged(new IContainer[0], counters.update(new IResource[] { b }));
+
+		commitResources(new IResource[] { c }, IResource.DEPTH_ZERO);
+		assertChanged(new IContainer[] { sub }, counters.update(new IResource[] { c }));
+		assertClean(new IContainer[] { sub });
+		assertDirty(new IContainer[] { project, folder1 });
+
+		commitResources(new IResource[] { b }, IResource.DEPTH_ZERO);
+		assertChanged(new IContainer[] { project, folder1 }, counters.update(new IResource[] { b }));
+		assertClean(new IContainer[] { project, folder1, sub });
+		assertCountedAgain(project, new IContainer[] { project, folder1, sub });
+	}
+
+	public void testFolderChanges() throws CoreException, TeamException {
+		IProject project = createProject(new String[] { "folder1/", "folder1/sub/", "folder1/sub/c.txt", "folder2/", "folder2/d.txt" });
+		IFolder folder1 = project.getFolder("folder1");
+		IFolder sub = folder1.getFolder("sub");
+		IFolder folder2 = project.getFolder("folder2");
+		assertClean(new IContainer[] { project, folder1, sub, folder2 });
+
+		// an unmanaged folder is counted as one dirty resource
+		buildResources(sub, new String[] { "new/", "new/e.txt" }, false);
+		setContentsAndEnsureModified(sub.getFile("c.txt"));
+		assertChanged(new IContainer[] { project, folder1, sub }, counters.update(new IResource[] { sub }));
+		assertDirty(new IContainer[] { project, folder1, sub });
+		assertClean(new IContainer[] { folder2 });
+
+		// counting a folder again replaces the resources counted below it
+		sub.getFolder("new").delete(true, null);
+		assertChanged(new IContainer[0], counters.update(new IResource[] { folder1 }));
+		assertDirty(new IContainer[] { project, folder1, sub });
+
+		commitResources(new IResource[] { sub.getFile("c.txt") }, IResource.DEPTH_ZERO);
+		assertChanged(new IContainer[] { project, folder1, sub }, counters.update(new IResource[] { sub }));
+		assertClean(new IContainer[] { project, folder1, sub, folder2 });
+
+		setContentsAndEnsureModified(folder2.getFile("d.txt"));
+		assertChanged(new IContainer[] { project, folder2 }, counters.update(new IResource[] { folder2 }));
+		assertCountedAgain(project, new IContainer[] { project, folder1, sub, folder2 });
+
+		// a deleted folder is counted as its outgoing deletions
+		folder2.delete(true, null);
+		counters.update(new IResource[] { folder2 });
+		assertCountedAgain(project, new IContainer[] { project, folder1, sub, folder2 });
+	}
+
+	private void assertDirty(IContainer[] containers) throws TeamException {
+		for (int i = 0; i < containers.length; i++) {
+			assertTrue(containers[i].getFullPath() + " should be dirty", counters.isDirty(containers[i]));
+		}
+	}
+
+	private void assertClean(IContainer[] containers) throws TeamException {
+		for (int i = 0; i < containers.length; i++) {
+			assertFalse(containers[i].getFullPath() + " should not be dirty", counters.isDirty(containers[i]));
+		}
+	}
+
+	private void assertChanged(IContainer[] expected, Set<?> changed) {
+		assertEquals(new HashSet<>(Arrays.asList(expected)), changed);
+	}
+
+	/*
+	 * Assert that the adjusted counts match the counts of the project
+	 * counted from scratch.
+	 */
+	private void assertCountedAgain(IProject project, IContainer[] containers) throws TeamException {
+		DirtyStateCounters fresh = new DirtyStateCounters();
+		try {
+			for (int i = 0; i < containers.length; i++) {
+				assertEquals(containers[i].getFullPath().toString(), fresh.isDirty(containers[i]), counters.isDirty(containers[i]));
+			}
+		} finally {
+			fresh.dispose();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2018 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.team.tests.ccvs.ui;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.team.internal.ccvs.core.CVSException;
+import org.eclipse.team.internal.ccvs.core.CVSTag;
+import org.eclipse.team.internal.ccvs.core.ICVSFile;
+import org.eclipse.team.internal.ccvs.core.ICVSFolder;
+import org.eclipse.team.internal.ccvs.core.ICVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.ILogEntry;
+import org.eclipse.team.internal.ccvs.core.client.listeners.AnnotateListener;
+import org.eclipse.team.internal.ccvs.core.client.listeners.LogEntry;
+import org.eclipse.team.internal.ccvs.core.connection.CVSRepositoryLocation;
+import org.eclipse.team.internal.ccvs.core.resources.RemoteFile;
+import org.eclipse.team.internal.ccvs.ui.operations.LocalAnnotator;
+import org.eclipse.team.tests.ccvs.core.EclipseTest;
+
+/**
+ * Tests the annotations computed on the client from the log entries and the
+ * cached contents of the revisions of a file.
+ */
+public class LocalAnnotatorTest extends EclipseTest {
+
+	private CVSRepositoryLocation location;
+	private RemoteFile file;
+
+	/*
+	 * Records the lines written to the listener.
+	 */
+	private static class RecordingListener extends AnnotateListener {
+		final List<String> lines = new ArrayList<>();
+
+		@Override
+		public IStatus messageLine(String line, ICVSRepositoryLocation location, ICVSFolder commandRoot, IProgressMonitor monitor) {
+			lines.add(line);
+			return super.messageLine(line, location, commandRoot, monitor);
+		}
+	}
+
+	public LocalAnnotatorTest() {
+		super();
+	}
+
+	public LocalAnnotatorTest(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(LocalAnnotatorTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		location = CVSRepositoryLocation.fromString(":pserver:user@host.here:/root/path");
+		// the annotations are cached by path so each test uses its own file
+		file = RemoteFile.create("module/" + getName() + System.currentTimeMillis() + ".txt", location);
+	}
+
+	public void testPredecessors() {
+		LocalAnnotator annotator = new LocalAnnotator(file, new ILogEntry[] {
+				createEntry("1.1"), createEntry("1.2"), createEntry("1.4"),
+				createEntry("1.2.2.1"), createEntry("1.2.2.2"), createEntry("2.1"), createEntry("3.1") }, null);
+		assertNull(annotator.getPredecessor("1.1"));
+		assertEquals("1.1", annotator.getPredecessor("1.2"));
+		// a predecessor missing from the log is not skipped
+		assertNull(annotator.getPredecessor("1.4"));
+		// the first revision of a branch is derived from the branch point
+		assertEquals("1.2", annotator.getPredecessor("1.2.2.1"));
+		assertEquals("1.2.2.1", annotator.getPredecessor("1.2.2.2"));
+		// the first revision of a trunk number is derived from the last one of the previous number
+		assertEquals("1.4", annotator.getPredecessor("2.1"));
+		assertEquals("2.1", annotator.getPredecessor("3.1"));
+	}
+
+	public void testMissingPredecessor() throws CVSException, UnsupportedEncodingException {
+		ILogEntry[] entries = new ILogEntry[] { createEntry("1.1", "a\n"), createEntry("1.3", "a\nb\n") };
+		RecordingListener listener = new RecordingListener();
+		// the lines of 1.2 would be attributed to 1.3
+		assertFalse(new LocalAnnotator(file, entries, null).annotate("1.3", listener, null));
+		assertTrue(listener.lines.isEmpty());
+	}
+
+	public void testCachedAnnotationsOfOtherEntries() throws CVSException, UnsupportedEncodingException {
+		ILogEntry[] entries = new ILogEntry[] { createEntry("1.1", "a\n"), createEntry("1.2", "a\nb\n") };
+		RecordingListener listener = new RecordingListener();
+		assertTrue(new LocalAnnotator(file, entries, null).annotate("1.2", listener, null));
+
+		// the cached annotations of 1.2 refer to 1.1 which is not in these entries
+		entries = new ILogEntry[] { createEntry("1.2", "a\nb\n"), createEntry("1.3", "a\nb\nc\n") };
+		listener = new RecordingListener();
+		assertFalse(new LocalAnnotator(file, entries, null).annotate("1.3", listener, null));
+		assertTrue(listener.lines.isEmpty());
+	}
+
+	public void testAnnotate() throws CVSException, UnsupportedEncodingException {
+		ILogEntry[] entries = new ILogEntry[] {
+				createEntry("1.1", "a\nb\nc\n"),
+				createEntry("1.2", "a\nB\nc\nd\n"),
+				createEntry("1.2.2.1", "a\nB\nx\nc\nd\n") };
+		RecordingListener listener = new RecordingListener();
+		assertTrue(new LocalAnnotator(file, entries, "UTF-8").annotate("1.2.2.1", listener, null));
+		assertAnnotations(new String[] { "1.1", "1.2", "1.2.2.1", "1.1", "1.2" }, new String[] { "a", "B", "x", "c", "d" }, listener.lines);
+
+		// a later revision starts from the annotations computed before
+		listener = new RecordingListener();
+		assertTrue(new LocalAnnotator(file, entries, "UTF-8").annotate("1.2", listener, null));
+		assertAnnotations(new String[] { "1.1", "1.2", "1.1", "1.2" }, new String[] { "a", "B", "c", "d" }, listener.lines);
+	}
+
+	public void testAnnotateUsesCharset() throws CVSException, UnsupportedEncodingException {
+		ILogEntry[] entries = new ILogEntry[] { createEntry("1.1", "caf\u00e9\n") };
+		RecordingListener listener = new RecordingListener();
+		assertTrue(new LocalAnnotator(file, entries, "UTF-8").annotate("1.1", listener, null));
+		assertAnnotations(new String[] { "1.1" }, new String[] { "caf\u00e9" }, listener.lines);
+	}
+
+	public void testMissingContents() throws CVSException, UnsupportedEncodingException {
+		ILogEntry[] entries = new ILogEntry[] { createEntry("1.1", "a\n"), createEntry("1.2") };
+		RecordingListener listener = new RecordingListener();
+		assertFalse(new LocalAnnotator(file, entries, null).annotate("1.2", listener, null));
+		assertTrue(listener.lines.isEmpty());
+		// a revision missing from the log entries cannot be annotated either
+		assertFalse(new LocalAnnotator(file, entries, null).annotate("1.3", listener, null));
+		assertTrue(listener.lines.isEmpty());
+	}
+
+	private void assertAnnotations(String[] revisions, String[] lines, List<String> annotated) {
+		assertEquals(lines.length, annotated.size());
+		for (int i = 0; i < lines.length; i++) {
+			String line = annotated.get(i);
+			assertTrue(line, line.startsWith(revisions[i] + " (user "));
+			assertTrue(line, line.endsWith("): " + lines[i]));
+		}
+	}
+
+	private ILogEntry createEntry(String revision) {
+		return new LogEntry(file, revision, "user", new Date(), "comment", "Exp", new CVSTag[0], new CVSTag[0]);
+	}
+
+	/*
+	 * Create an entry whose revision has the given contents in UTF-8.
+	 */
+	private ILogEntry createEntry(String revision, String contents) throws CVSException, UnsupportedEncodingException {
+		ILogEntry entry = createEntry(revision);
+		((RemoteFile) entry.getRemoteFile()).setContents(new ByteArrayInputStream(contents.getBytes("UTF-8")), ICVSFile.UPDATED, false, null);
+		return entry;
+	}
+}